@@ -2,9 +2,15 @@ package com.paypal.heapdumptool;
 
 import com.paypal.heapdumptool.capture.CaptureCommand;
 import com.paypal.heapdumptool.capture.PrivilegeEscalator.Escalation;
+import com.paypal.heapdumptool.dominators.DominatorsCommand;
+import com.paypal.heapdumptool.duplicates.DuplicatesCommand;
 import com.paypal.heapdumptool.hserr.SanitizeHserrCommand;
+import com.paypal.heapdumptool.join.JoinCommand;
 import com.paypal.heapdumptool.sanitizer.DataSize;
 import com.paypal.heapdumptool.sanitizer.SanitizeCommand;
+import com.paypal.heapdumptool.serve.ServeCommand;
+import com.paypal.heapdumptool.serve.SubmitCommand;
+import com.paypal.heapdumptool.utils.DateTimeTool;
 import com.paypal.heapdumptool.utils.InternalLogger;
 import org.apache.commons.text.StringSubstitutor;
 import picocli.CommandLine;
@@ -14,6 +20,7 @@ import picocli.CommandLine.IVersionProvider;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Properties;
 
 import static com.paypal.heapdumptool.Application.APP_ID;
@@ -29,6 +36,11 @@ import static org.apache.commons.io.IOUtils.resourceToByteArray;
                 CaptureCommand.class,
                 SanitizeCommand.class,
                 SanitizeHserrCommand.class,
+                DominatorsCommand.class,
+                DuplicatesCommand.class,
+                JoinCommand.class,
+                ServeCommand.class,
+                SubmitCommand.class,
                 HelpCommand.class,
         }
 )
@@ -51,11 +63,13 @@ public class Application implements IVersionProvider {
         systemExit(exitCode);
     }
 
-    static CommandLine newCommandLine() {
+    public static CommandLine newCommandLine() {
         final CommandLine commandLine = new CommandLine(new Application());
         commandLine.setUsageHelpWidth(120);
         commandLine.registerConverter(DataSize.class, DataSize::parse);
+        commandLine.registerConverter(Duration.class, DateTimeTool::parseDuration);
         commandLine.setAbbreviatedOptionsAllowed(true);
+        commandLine.setCaseInsensitiveEnumValuesAllowed(true);
         return commandLine;
     }
 
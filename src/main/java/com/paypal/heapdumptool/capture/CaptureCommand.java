@@ -31,8 +31,14 @@ public class CaptureCommand extends SanitizeOrCaptureCommandBase implements CliC
     @Option(names = {SKIP_DOCKER_PULL}, description = "skip pulling latest docker image")
     private boolean skipDockerPull;
 
-    @Parameters(index = "0", description = "Container name")
-    private String containerName;
+    @Parameters(arity = "0..*", description = "Container names")
+    private List<String> containerNames = new ArrayList<>();
+
+    @Option(names = { "-l", "--label" }, description = "Capture all running containers with given label, e.g. app=checkout")
+    private String label;
+
+    @Option(names = { "--max-concurrent-dumps" }, description = "Max containers to heap dump at once, as dumping pauses the app", defaultValue = "1", showDefaultValue = ALWAYS)
+    private int maxConcurrentDumps = 1;
 
     @Option(names = { "-p", "--pid" }, description = "Pid within the container, if there are multiple Java processes")
     private Long pid;
@@ -52,17 +58,54 @@ public class CaptureCommand extends SanitizeOrCaptureCommandBase implements CliC
     @Option(names = { "--thread-option" }, description = "Options to thread dump command", defaultValue = "", showDefaultValue = ALWAYS)
     private List<String> threadOptions = new ArrayList<>();
 
+    @Option(names = { "--histogram" }, description = "Also include a class histogram in the zip. Tracks class metadata of every instance while sanitizing, which slows it down")
+    private boolean histogram;
+
     @Override
     public Class<CaptureCommandProcessor> getProcessorClass() {
         return CaptureCommandProcessor.class;
     }
 
+    public List<String> getContainerNames() {
+        return containerNames;
+    }
+
+    public void setContainerNames(final List<String> containerNames) {
+        this.containerNames = containerNames;
+    }
+
+    /**
+     * @return name of the container, when capturing a single one
+     */
     public String getContainerName() {
-        return containerName;
+        return containerNames.isEmpty() ? null : containerNames.get(0);
     }
 
     public void setContainerName(final String containerName) {
-        this.containerName = containerName;
+        this.containerNames = new ArrayList<>(Collections.singletonList(containerName));
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(final String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return whether to capture many containers, by names or label
+     */
+    public boolean isFleetCapture() {
+        return label != null || containerNames.size() > 1;
+    }
+
+    public int getMaxConcurrentDumps() {
+        return maxConcurrentDumps;
+    }
+
+    public void setMaxConcurrentDumps(final int maxConcurrentDumps) {
+        this.maxConcurrentDumps = maxConcurrentDumps;
     }
 
     public Long getPid() {
@@ -113,6 +156,28 @@ public class CaptureCommand extends SanitizeOrCaptureCommandBase implements CliC
         this.threadOptions = threadOptions;
     }
 
+    public boolean isHistogram() {
+        return histogram;
+    }
+
+    public void setHistogram(final boolean histogram) {
+        this.histogram = histogram;
+    }
+
+    public void copyFrom(final CaptureCommand other) {
+        super.copyFrom(other);
+        this.skipDockerPull = other.skipDockerPull;
+        this.containerNames = new ArrayList<>(other.containerNames);
+        this.label = other.label;
+        this.pid = other.pid;
+        this.heapCmd = new ArrayList<>(other.heapCmd);
+        this.heapOptions = new ArrayList<>(other.heapOptions);
+        this.threadCmd = new ArrayList<>(other.threadCmd);
+        this.threadOptions = new ArrayList<>(other.threadOptions);
+        this.maxConcurrentDumps = other.maxConcurrentDumps;
+        this.histogram = other.histogram;
+    }
+
     @Override
     public String toString() {
         return reflectionToString(this, MULTI_LINE_STYLE);
@@ -1,11 +1,18 @@
 package com.paypal.heapdumptool.capture;
 
+import com.paypal.heapdumptool.capture.CaptureScheduler.CaptureState;
+import com.paypal.heapdumptool.capture.CaptureScheduler.CaptureStatus;
 import com.paypal.heapdumptool.cli.CliCommandProcessor;
+import com.paypal.heapdumptool.jfr.ExternalProcessEvent;
+import com.paypal.heapdumptool.jfr.FlightRecording;
+import com.paypal.heapdumptool.sanitizer.Priority;
+import com.paypal.heapdumptool.sanitizer.RunReport;
 import com.paypal.heapdumptool.sanitizer.SanitizeCommand;
 import com.paypal.heapdumptool.sanitizer.SanitizeCommandProcessor;
 import com.paypal.heapdumptool.utils.InternalLogger;
 import com.paypal.heapdumptool.utils.ProcessTool;
 import com.paypal.heapdumptool.utils.ProcessTool.ProcessResult;
+import com.paypal.heapdumptool.utils.ResourceGovernor;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
@@ -16,6 +23,8 @@ import org.apache.commons.text.StringSubstitutor;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -24,9 +33,12 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
@@ -41,43 +53,149 @@ import static org.apache.commons.lang3.StringUtils.substringBefore;
 
 public class CaptureCommandProcessor implements CliCommandProcessor {
 
-    private static final String DOCKER = "docker";
-
     private static final InternalLogger LOGGER = InternalLogger.getLogger(CaptureCommandProcessor.class);
 
     private final CaptureCommand command;
 
     private final boolean isInContainer;
 
+    // null when capturing a single container
+    private final CaptureScheduler scheduler;
+
+    // e.g. -Dhdt.DOCKER=/path/to/fake-docker for testing
+    private final String docker = System.getProperty("hdt.DOCKER", "docker");
+
+    private final RunReport runReport = new RunReport();
+
     public CaptureCommandProcessor(final CaptureCommand command) {
+        this(command, PrivilegeEscalator.isInDockerContainer(), null);
+    }
+
+    private CaptureCommandProcessor(final CaptureCommand command, final boolean isInContainer, final CaptureScheduler scheduler) {
         this.command = command;
-        this.isInContainer = PrivilegeEscalator.isInDockerContainer();
+        this.isInContainer = isInContainer;
+        this.scheduler = scheduler;
     }
 
     @Override
+    @SuppressWarnings("try") // flight recording only needs to be closed
     public void process() throws Exception {
+        try (final FlightRecording recording = FlightRecording.start(command.getJfrOutput())) {
+            if (command.isFleetCapture()) {
+                captureFleet();
+            } else {
+                capture();
+            }
+        }
+        if (command.getJfrOutput() != null) {
+            LOGGER.info("Flight recording: {}", command.getJfrOutput());
+        }
+    }
+
+    private void capture() throws Exception {
         final Instant now = now();
         LOGGER.info("Capturing sanitized heap dump. container={}", command.getContainerName());
+        command.getPriority().apply();
+
+        final Path output = captureContainer();
+
+        if (command.getReportOutput() != null) {
+            runReport.write(command.getReportOutput());
+            LOGGER.info("Report File: {}", command.getReportOutput());
+        }
+        LOGGER.info("Captured sanitized heap dump in {}. Output: {}", getFriendlyDuration(now), output);
+    }
 
+    private void captureFleet() throws Exception {
+        final Instant now = now();
+        final List<String> containerNames = findContainerNames();
+        Validate.isTrue(!containerNames.isEmpty(), "Cannot find containers. label=%s", command.getLabel());
+
+        final int maxConcurrentSanitizations = command.getMaxConcurrentSanitizations() > 0
+                                               ? command.getMaxConcurrentSanitizations()
+                                               : ResourceGovernor.getInstance().getParallelism();
+        LOGGER.info("Capturing sanitized heap dumps. containers={} maxConcurrentDumps={} maxConcurrentSanitizations={}",
+                    containerNames, command.getMaxConcurrentDumps(), maxConcurrentSanitizations);
+        command.getPriority().apply();
+
+        final CaptureScheduler fleetScheduler = new CaptureScheduler(command.getMaxConcurrentDumps(), maxConcurrentSanitizations);
+        final Map<String, Callable<Path>> captures = new LinkedHashMap<>();
+        for (final String containerName : containerNames) {
+            final CaptureCommand containerCommand = new CaptureCommand();
+            containerCommand.copyFrom(command);
+            containerCommand.setContainerName(containerName);
+            containerCommand.setLabel(null);
+            containerCommand.setJfrOutput(null); // already recording the whole capture
+            containerCommand.setReportOutput(null); // written with the status of all containers
+            containerCommand.setPriority(Priority.NORMAL); // already applied to the whole capture
+            final CaptureCommandProcessor processor = new CaptureCommandProcessor(containerCommand, isInContainer, fleetScheduler);
+            captures.put(containerName, processor::captureContainer);
+        }
+        final List<CaptureStatus> statuses = fleetScheduler.run(captures);
+
+        for (final CaptureStatus status : statuses) {
+            LOGGER.info("container={} status={} output={} error={}",
+                        status.getContainerName(), status.getState(), status.getOutput(), status.getError());
+        }
+        if (command.getReportOutput() != null) {
+            CaptureScheduler.writeReport(statuses, command.getReportOutput());
+            LOGGER.info("Report File: {}", command.getReportOutput());
+        }
+        final long numFailed = statuses.stream()
+                                       .filter(status -> status.getState() == CaptureState.FAILED)
+                                       .count();
+        Validate.validState(numFailed == 0, "Cannot capture %s of %s containers", numFailed, statuses.size());
+        LOGGER.info("Captured sanitized heap dumps of {} containers in {}", statuses.size(), getFriendlyDuration(now));
+    }
+
+    /**
+     * Heap dumps the container, and sanitizes it. In a fleet capture, the heap dump is a stage bound by the max
+     * concurrent dumps, while copying out and sanitizing is bound by the max concurrent sanitizations.
+     */
+    private Path captureContainer() throws Exception {
         validateContainerRunning();
 
         final long pid = findPidInAppContainer();
 
-        final Path heapDumpFileInAppContainer = createPlainHeapDumpInAppContainer(pid);
+        final Path heapDumpFileInAppContainer = dumpStage(() -> createPlainHeapDumpInAppContainer(pid));
         final String threadDump = captureThreadDump(pid);
         final Path heapDumpFileOnHost = FileUtils.getTempDirectory()
                 .toPath()
                 .resolve(heapDumpFileInAppContainer.getFileName().toString());
-        final Path output;
         try {
-            copyFileOutOfAppContainer(heapDumpFileInAppContainer, heapDumpFileOnHost);
-            output = sanitizeHeapDump(heapDumpFileOnHost, threadDump);
+            return sanitizeStage(() -> {
+                runReport.time(RunReport.DOCKER_CP, () -> copyFileOutOfAppContainer(heapDumpFileInAppContainer, heapDumpFileOnHost));
+                return sanitizeHeapDump(heapDumpFileOnHost, threadDump);
+            });
         } finally {
             Files.deleteIfExists(heapDumpFileOnHost);
             deletePlainHeapDumpInAppContainer(heapDumpFileOnHost);
         }
+    }
 
-        LOGGER.info("Captured sanitized heap dump in {}. Output: {}", getFriendlyDuration(now), output);
+    private <T> T dumpStage(final Callable<T> stage) throws Exception {
+        return scheduler == null ? stage.call() : scheduler.dump(command.getContainerName(), stage);
+    }
+
+    private <T> T sanitizeStage(final Callable<T> stage) throws Exception {
+        return scheduler == null ? stage.call() : scheduler.sanitize(command.getContainerName(), stage);
+    }
+
+    /**
+     * @return given container names, and the names of running containers with given label
+     */
+    private List<String> findContainerNames() throws Exception {
+        final Set<String> containerNames = new LinkedHashSet<>(command.getContainerNames());
+        if (command.getLabel() != null) {
+            final ProcessResult result = invokePrivilegedProcess(docker, "ps", "--filter", "label=" + command.getLabel(), "--format", "{{.Names}}");
+            Validate.isTrue(result.exitCode == 0, "Cannot list containers. label=%s stderr=%s", command.getLabel(), result.stderr);
+            result.stdoutLines()
+                  .stream()
+                  .map(String::trim)
+                  .filter(StringUtils::isNotEmpty)
+                  .forEach(containerNames::add);
+        }
+        return new ArrayList<>(containerNames);
     }
 
     private String captureThreadDump(final long pid) throws Exception {
@@ -87,7 +205,7 @@ public class CaptureCommandProcessor implements CliCommandProcessor {
         final Object[] cmdArray = cmd.stream()
                 .map(arg -> "PID".equals(arg) ? pid : arg)
                 .toArray();
-        final ProcessResult result = execInAppContainer(cmdArray);
+        final ProcessResult result = execInAppContainer(RunReport.THREAD_DUMP, cmdArray);
         return result.stdout;
     }
 
@@ -98,15 +216,29 @@ public class CaptureCommandProcessor implements CliCommandProcessor {
 
         final SanitizeCommand sanitizeCommand = new SanitizeCommand();
         sanitizeCommand.copyFrom(this.command);
+        sanitizeCommand.setJfrOutput(null); // already recording the whole capture
+        sanitizeCommand.setReportOutput(null); // written with the capture phases
+        sanitizeCommand.setPriority(Priority.NORMAL); // already applied to the whole capture
         sanitizeCommand.setInputFile(inputFile);
         sanitizeCommand.setOutputFile(destFilePath);
         sanitizeCommand.setZipOutput(true);
+        final Path histogramFile = Paths.get(inputFile + ".histogram.csv");
+        if (command.isHistogram()) {
+            sanitizeCommand.setHistogramOutput(histogramFile);
+        }
 
         try (final CaptureStreamFactory captureStreamFactory = new CaptureStreamFactory(sanitizeCommand)) {
             final SanitizeCommandProcessor processor = SanitizeCommandProcessor.newInstance(sanitizeCommand, captureStreamFactory);
+            processor.setRunReport(runReport);
             processor.process();
 
-            writeThreadDump(threadDump, inputFile, captureStreamFactory);
+            runReport.time(RunReport.ZIP, () -> {
+                writeThreadDump(threadDump, inputFile, captureStreamFactory);
+                writeHistogram(histogramFile, inputFile, captureStreamFactory);
+            });
+            writeReport(inputFile, captureStreamFactory);
+        } finally {
+            Files.deleteIfExists(histogramFile);
         }
 
         updateFilePermissions(destFilePath);
@@ -125,6 +257,34 @@ public class CaptureCommandProcessor implements CliCommandProcessor {
         IOUtils.write(threadDump, zipStream, UTF_8);
     }
 
+    private void writeHistogram(final Path histogramFile, final Path filePath, final CaptureStreamFactory captureStreamFactory) throws Exception {
+        if (!Files.exists(histogramFile)) {
+            return;
+        }
+        final ZipOutputStream zipStream = (ZipOutputStream) captureStreamFactory.getNativeOutputStream();
+
+        final String fileName = filePath.getFileName()
+                .toString()
+                .replace(".hprof", ".histogram.csv");
+        Validate.validState(fileName.endsWith(".histogram.csv"));
+
+        zipStream.putNextEntry(new ZipEntry(fileName));
+        Files.copy(histogramFile, zipStream);
+    }
+
+    private void writeReport(final Path filePath, final CaptureStreamFactory captureStreamFactory) throws Exception {
+        final ZipOutputStream zipStream = (ZipOutputStream) captureStreamFactory.getNativeOutputStream();
+
+        final String fileName = filePath.getFileName()
+                .toString()
+                .replace(".hprof", ".report.json");
+        Validate.validState(fileName.endsWith(".report.json"));
+
+        zipStream.putNextEntry(new ZipEntry(fileName));
+        final Writer writer = new OutputStreamWriter(zipStream, UTF_8);
+        runReport.write(writer); // flushes, but leaves the zip stream open
+    }
+
     private void updateFilePermissions(final Path destFilePath) throws Exception {
         Files.setPosixFilePermissions(destFilePath, globalReadWritePermissions());
 
@@ -144,14 +304,22 @@ public class CaptureCommandProcessor implements CliCommandProcessor {
             final Path heapDumpFileInContainer,
             final Path heapDumpFileOnHost) throws IOException, InterruptedException {
         final String src = command.getContainerName() + ":" + heapDumpFileInContainer;
-        final String[] args = array(DOCKER, "cp", src, heapDumpFileOnHost.toString());
+        final String[] args = array(docker, "cp", src, heapDumpFileOnHost.toString());
         logProcessArgs(args);
 
         final String[] cmd = nsenterIfNeeded(args);
+        final ExternalProcessEvent event = new ExternalProcessEvent();
+        event.begin();
         final Process process = processBuilder(cmd).start();
         closeQuietly(process.getOutputStream());
         closeQuietly(process.getErrorStream());
         final int exitCode = process.waitFor();
+        event.end();
+        if (event.shouldCommit()) {
+            event.command = String.join(" ", cmd);
+            event.exitCode = exitCode;
+            event.commit();
+        }
         Validate.isTrue(exitCode == 0, "exitCode=" + exitCode);
     }
 
@@ -219,7 +387,7 @@ public class CaptureCommandProcessor implements CliCommandProcessor {
     }
 
     private void validateContainerRunning() throws Exception {
-        final ProcessResult result = invokePrivilegedProcess(DOCKER, "ps", "--filter", "name=" + command.getContainerName());
+        final ProcessResult result = invokePrivilegedProcess(docker, "ps", "--filter", "name=" + command.getContainerName());
         result.stdoutLines()
                 .stream()
                 .skip(1)
@@ -234,13 +402,17 @@ public class CaptureCommandProcessor implements CliCommandProcessor {
     }
 
     private ProcessResult execInAppContainer(final Object... args) throws Exception {
+        return execInAppContainer(RunReport.DOCKER_EXEC, args);
+    }
+
+    private ProcessResult execInAppContainer(final String reportPhase, final Object[] args) throws Exception {
         final String[] stringArgs = Stream.of(args)
                 .map(String::valueOf)
                 .toArray(String[]::new);
 
-        final String[] cmd = concat(array(DOCKER, "exec", command.getContainerName()),
+        final String[] cmd = concat(array(docker, "exec", command.getContainerName()),
                 stringArgs);
-        return invokePrivilegedProcess(cmd);
+        return runReport.time(reportPhase, () -> invokePrivilegedProcess(cmd));
     }
 
     private String[] nsenterIfNeeded(final String... args) {
@@ -0,0 +1,213 @@
+package com.paypal.heapdumptool.capture;
+
+import com.paypal.heapdumptool.utils.InternalLogger;
+import com.paypal.heapdumptool.utils.JsonWriter;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.paypal.heapdumptool.utils.DateTimeTool.getFriendlyDuration;
+
+/**
+ * Captures many containers at once, overlapping their stages: while the heap dump of one container is sanitized, the
+ * next container is already being dumped.
+ * <p>
+ * The dump stage, jcmd GC.heap_dump, pauses the app and is bound by the max concurrent dumps. The sanitize stage,
+ * docker cp and sanitizing, is bound by CPU and i/o, and by the max concurrent sanitizations. A dumped container waits
+ * for a sanitization slot while holding a thread, so at most as many plain heap dumps as there are threads are waiting
+ * in containers.
+ */
+class CaptureScheduler {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(CaptureScheduler.class);
+
+    private final Semaphore dumpPermits;
+    private final Semaphore sanitizePermits;
+    private final int numThreads;
+
+    // insertion order is the order containers were given in
+    private final Map<String, CaptureStatus> statuses = new LinkedHashMap<>();
+
+    CaptureScheduler(final int maxConcurrentDumps, final int maxConcurrentSanitizations) {
+        Validate.isTrue(maxConcurrentDumps > 0, "Invalid max concurrent dumps: %s", maxConcurrentDumps);
+        Validate.isTrue(maxConcurrentSanitizations > 0, "Invalid max concurrent sanitizations: %s", maxConcurrentSanitizations);
+        this.dumpPermits = new Semaphore(maxConcurrentDumps, true);
+        this.sanitizePermits = new Semaphore(maxConcurrentSanitizations, true);
+        this.numThreads = maxConcurrentDumps + maxConcurrentSanitizations;
+    }
+
+    /**
+     * Runs given captures and waits for all of them, whether or not some fail
+     *
+     * @param captures by container name, returning the output file
+     * @return status of each container
+     */
+    List<CaptureStatus> run(final Map<String, Callable<Path>> captures) throws InterruptedException {
+        synchronized (statuses) {
+            captures.keySet().forEach(name -> statuses.put(name, new CaptureStatus(name)));
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, captures.size()));
+        try {
+            captures.forEach((name, capture) -> executor.execute(() -> runCapture(name, capture)));
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        return getStatuses();
+    }
+
+    /**
+     * Runs the dump stage of given container, once one of the max concurrent dumps is free
+     */
+    <T> T dump(final String containerName, final Callable<T> stage) throws Exception {
+        return runStage(containerName, dumpPermits, CaptureState.DUMPING, stage);
+    }
+
+    /**
+     * Runs the sanitize stage of given container, once one of the max concurrent sanitizations is free
+     */
+    <T> T sanitize(final String containerName, final Callable<T> stage) throws Exception {
+        setState(containerName, CaptureState.WAITING_TO_SANITIZE);
+        return runStage(containerName, sanitizePermits, CaptureState.SANITIZING, stage);
+    }
+
+    List<CaptureStatus> getStatuses() {
+        synchronized (statuses) {
+            return new ArrayList<>(statuses.values());
+        }
+    }
+
+    static void writeReport(final List<CaptureStatus> statuses, final Path file) throws IOException {
+        try (final Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             final JsonWriter json = new JsonWriter(writer)) {
+            json.beginObject();
+            json.name("containers").beginArray();
+            for (final CaptureStatus status : statuses) {
+                json.beginObject();
+                json.property("name", status.getContainerName());
+                json.property("state", status.getState().name());
+                json.property("wallMillis", status.getWallMillis());
+                json.property("output", status.getOutput() == null ? null : status.getOutput().toString());
+                json.property("error", status.getError());
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+    }
+
+    private void runCapture(final String containerName, final Callable<Path> capture) {
+        final long startNanos = System.nanoTime();
+        try {
+            final Path output = capture.call();
+            final long wallNanos = System.nanoTime() - startNanos;
+            update(containerName, status -> status.captured(output, wallNanos));
+            LOGGER.info("Captured container={} in {}. Output: {}", containerName, getFriendlyDuration(Duration.ofNanos(wallNanos)), output);
+        } catch (final Exception e) {
+            final long wallNanos = System.nanoTime() - startNanos;
+            update(containerName, status -> status.failed(e.toString(), wallNanos));
+            LOGGER.info("Failed to capture container={}: {}", containerName, e.toString());
+        }
+    }
+
+    private <T> T runStage(final String containerName,
+                           final Semaphore permits,
+                           final CaptureState state,
+                           final Callable<T> stage) throws Exception {
+        permits.acquire();
+        try {
+            setState(containerName, state);
+            return stage.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void setState(final String containerName, final CaptureState state) {
+        update(containerName, status -> status.setState(state));
+        LOGGER.info("Status: container={} {}", containerName, state);
+    }
+
+    private void update(final String containerName, final Consumer<CaptureStatus> updater) {
+        synchronized (statuses) {
+            final CaptureStatus status = statuses.get(containerName);
+            if (status != null) {
+                updater.accept(status);
+            }
+        }
+    }
+
+    enum CaptureState {
+        QUEUED,
+        DUMPING,
+        WAITING_TO_SANITIZE,
+        SANITIZING,
+        CAPTURED,
+        FAILED
+    }
+
+    static class CaptureStatus {
+
+        private final String containerName;
+        private CaptureState state = CaptureState.QUEUED;
+        private Path output;
+        private String error;
+        private long wallNanos;
+
+        CaptureStatus(final String containerName) {
+            this.containerName = containerName;
+        }
+
+        String getContainerName() {
+            return containerName;
+        }
+
+        CaptureState getState() {
+            return state;
+        }
+
+        Path getOutput() {
+            return output;
+        }
+
+        String getError() {
+            return error;
+        }
+
+        long getWallMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(wallNanos);
+        }
+
+        private void setState(final CaptureState state) {
+            this.state = state;
+        }
+
+        private void captured(final Path output, final long wallNanos) {
+            this.state = CaptureState.CAPTURED;
+            this.output = output;
+            this.wallNanos = wallNanos;
+        }
+
+        private void failed(final String error, final long wallNanos) {
+            this.state = CaptureState.FAILED;
+            this.error = error;
+            this.wallNanos = wallNanos;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.paypal.heapdumptool.dominators;
+
+import com.paypal.heapdumptool.utils.InternalLogger;
+import com.paypal.heapdumptool.utils.MappedIntArray;
+import com.paypal.heapdumptool.utils.MappedLongArray;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static com.paypal.heapdumptool.dominators.ObjectGraph.ROOT;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Dominator tree of an {@link ObjectGraph}, by the Lengauer-Tarjan algorithm with path compression. All recursion is
+ * replaced by explicit stacks, and all per-vertex state lives in memory-mapped arrays.
+ * <p>
+ * See: Lengauer, Tarjan. A Fast Algorithm for Finding Dominators in a Flowgraph (1979). The structure follows the
+ * presentation in Appel, Modern Compiler Implementation in Java, section 19.2.
+ */
+public class DominatorTree implements Closeable {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(DominatorTree.class);
+
+    private static final int NONE = -1;
+
+    private final ObjectGraph graph;
+    private final Path tempDir;
+    private final int numVertices;
+
+    // by vertex
+    private final MappedIntArray dfnum;
+    private final MappedIntArray parent;
+    private final MappedIntArray semi;
+    private final MappedIntArray ancestor;
+    private final MappedIntArray best;
+    private final MappedIntArray idom;
+    private final MappedIntArray samedom;
+    private final MappedIntArray bucketHead;
+    private final MappedIntArray bucketNext;
+
+    // by dfnum
+    private final MappedIntArray vertex;
+
+    // scratch
+    private final MappedIntArray stack;
+    private final MappedLongArray edgeCursors;
+
+    private int numReachable;
+
+    public DominatorTree(final ObjectGraph graph, final Path tempDir) throws IOException {
+        this.graph = graph;
+        this.tempDir = tempDir;
+        this.numVertices = graph.getNumVertices();
+        this.dfnum = new MappedIntArray(tempDir);
+        this.parent = new MappedIntArray(tempDir);
+        this.semi = new MappedIntArray(tempDir);
+        this.ancestor = new MappedIntArray(tempDir);
+        this.best = new MappedIntArray(tempDir);
+        this.idom = new MappedIntArray(tempDir);
+        this.samedom = new MappedIntArray(tempDir);
+        this.bucketHead = new MappedIntArray(tempDir);
+        this.bucketNext = new MappedIntArray(tempDir);
+        this.vertex = new MappedIntArray(tempDir);
+        this.stack = new MappedIntArray(tempDir);
+        this.edgeCursors = new MappedLongArray(tempDir);
+    }
+
+    public void compute() throws IOException {
+        LOGGER.info("Computing dominators of {} vertices ...", numVertices);
+        for (int v = 0; v < numVertices; v++) {
+            dfnum.set(v, NONE);
+            semi.set(v, NONE);
+            ancestor.set(v, NONE);
+            idom.set(v, NONE);
+            samedom.set(v, NONE);
+            bucketHead.set(v, NONE);
+            best.set(v, v);
+        }
+
+        depthFirstSearch();
+
+        try (final Predecessors predecessors = new Predecessors(graph, dfnum, tempDir)) {
+            computeSemiDominators(predecessors);
+        }
+
+        for (int i = 1; i < numReachable; i++) {
+            final int w = vertex.get(i);
+            final int sameDominator = samedom.get(w);
+            if (sameDominator != NONE) {
+                idom.set(w, idom.get(sameDominator));
+            }
+        }
+        LOGGER.info("Reachable vertices: {}", numReachable);
+    }
+
+    /**
+     * @return number of vertices reachable from the root, which is also the number of valid dfnums
+     */
+    public int getNumReachable() {
+        return numReachable;
+    }
+
+    /**
+     * @return immediate dominator of given vertex, or -1 for the root and unreachable vertices
+     */
+    public int getImmediateDominator(final int v) {
+        return idom.get(v);
+    }
+
+    /**
+     * @return depth-first number of given vertex, or -1 if unreachable
+     */
+    public int getDfnum(final int v) {
+        return dfnum.get(v);
+    }
+
+    /**
+     * @return vertex with given depth-first number. A vertex's dominators always have lower numbers than the vertex
+     */
+    public int getVertexByDfnum(final int number) {
+        return vertex.get(number);
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(dfnum, parent, semi, ancestor, best, idom, samedom, bucketHead, bucketNext, vertex, stack, edgeCursors);
+    }
+
+    private void depthFirstSearch() {
+        int depth = 0;
+        visit(ROOT, NONE);
+        stack.set(depth, ROOT);
+        edgeCursors.set(depth, graph.firstEdge(ROOT));
+
+        while (depth >= 0) {
+            final int v = stack.get(depth);
+            final long cursor = edgeCursors.get(depth);
+            if (cursor == graph.endEdge(v)) {
+                depth--;
+                continue;
+            }
+            edgeCursors.set(depth, cursor + 1);
+
+            final int w = graph.edgeTarget(cursor);
+            if (w != NONE && dfnum.get(w) == NONE) {
+                visit(w, v);
+                depth++;
+                stack.set(depth, w);
+                edgeCursors.set(depth, graph.firstEdge(w));
+            }
+        }
+    }
+
+    private void visit(final int v, final int parentVertex) {
+        dfnum.set(v, numReachable);
+        vertex.set(numReachable, v);
+        parent.set(v, parentVertex);
+        numReachable++;
+    }
+
+    private void computeSemiDominators(final Predecessors predecessors) {
+        for (int i = numReachable - 1; i > 0; i--) {
+            final int w = vertex.get(i);
+            final int p = parent.get(w);
+            int s = p;
+
+            final long end = predecessors.end(w);
+            for (long edge = predecessors.first(w); edge < end; edge++) {
+                final int v = predecessors.get(edge);
+                final int candidate = dfnum.get(v) <= dfnum.get(w)
+                                      ? v
+                                      : semi.get(ancestorWithLowestSemi(v));
+                if (dfnum.get(candidate) < dfnum.get(s)) {
+                    s = candidate;
+                }
+            }
+            semi.set(w, s);
+            bucketNext.set(w, bucketHead.get(s));
+            bucketHead.set(s, w);
+            ancestor.set(w, p);
+
+            for (int v = bucketHead.get(p); v != NONE; v = bucketNext.get(v)) {
+                final int y = ancestorWithLowestSemi(v);
+                if (semi.get(y) == semi.get(v)) {
+                    idom.set(v, p);
+                } else {
+                    samedom.set(v, y);
+                }
+            }
+            bucketHead.set(p, NONE);
+        }
+    }
+
+    private int ancestorWithLowestSemi(final int v) {
+        // collect the path up to the last vertex whose ancestor has no ancestor
+        int depth = 0;
+        int u = v;
+        while (ancestor.get(u) != NONE && ancestor.get(ancestor.get(u)) != NONE) {
+            stack.set(depth++, u);
+            u = ancestor.get(u);
+        }
+
+        // then compress it top down
+        while (depth > 0) {
+            final int w = stack.get(--depth);
+            final int a = ancestor.get(w);
+            final int b = best.get(a);
+            ancestor.set(w, ancestor.get(a));
+            if (dfnum.get(semi.get(b)) < dfnum.get(semi.get(best.get(w)))) {
+                best.set(w, b);
+            }
+        }
+        return best.get(v);
+    }
+}
@@ -0,0 +1,77 @@
+package com.paypal.heapdumptool.dominators;
+
+import com.paypal.heapdumptool.cli.CliCommand;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.apache.commons.lang3.builder.ToStringBuilder.reflectionToString;
+import static org.apache.commons.lang3.builder.ToStringStyle.MULTI_LINE_STYLE;
+import static picocli.CommandLine.Help.Visibility.ALWAYS;
+
+@Command(name = "dominators", description = "Report objects and classes with the largest retained sizes in a heap dump", abbreviateSynopsis = true)
+public class DominatorsCommand implements CliCommand {
+
+    // to allow field injection from picocli, these variables can't be final
+
+    @Parameters(index = "0", description = "Input heap dump .hprof. File or stdin")
+    private Path inputFile;
+
+    @Parameters(index = "1", description = "Output report. File, stdout, or stderr")
+    private Path outputFile;
+
+    @Option(names = {"-n", "--top"}, description = "Number of objects and classes to report", defaultValue = "20", showDefaultValue = ALWAYS)
+    private int top = 20;
+
+    @Option(names = {"--temp-dir"},
+            description = "Directory for memory-mapped working files. Disk usage grows with the number of objects and references in the heap dump",
+            defaultValue = "${java.io.tmpdir}",
+            showDefaultValue = ALWAYS)
+    private Path tempDir = Paths.get(System.getProperty("java.io.tmpdir"));
+
+    @Override
+    public Class<DominatorsCommandProcessor> getProcessorClass() {
+        return DominatorsCommandProcessor.class;
+    }
+
+    public Path getInputFile() {
+        return inputFile;
+    }
+
+    public void setInputFile(final Path inputFile) {
+        this.inputFile = inputFile;
+    }
+
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    public void setOutputFile(final Path outputFile) {
+        this.outputFile = outputFile;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public void setTop(final int top) {
+        this.top = top;
+    }
+
+    public Path getTempDir() {
+        return tempDir;
+    }
+
+    public void setTempDir(final Path tempDir) {
+        this.tempDir = tempDir;
+    }
+
+    @Override
+    public String toString() {
+        return reflectionToString(this, MULTI_LINE_STYLE);
+    }
+
+}
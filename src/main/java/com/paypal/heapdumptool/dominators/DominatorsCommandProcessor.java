@@ -0,0 +1,104 @@
+package com.paypal.heapdumptool.dominators;
+
+import com.paypal.heapdumptool.cli.CliCommandProcessor;
+import com.paypal.heapdumptool.dominators.RetainedSizes.ClassEntry;
+import com.paypal.heapdumptool.dominators.RetainedSizes.ObjectEntry;
+import com.paypal.heapdumptool.sanitizer.DataSize;
+import com.paypal.heapdumptool.sanitizer.SanitizeCommand;
+import com.paypal.heapdumptool.sanitizer.SanitizeStreamFactory;
+import com.paypal.heapdumptool.utils.InternalLogger;
+import com.paypal.heapdumptool.utils.ProgressTicker;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static com.paypal.heapdumptool.sanitizer.DataSize.ofMegabytes;
+import static com.paypal.heapdumptool.utils.DateTimeTool.getFriendlyDuration;
+
+public class DominatorsCommandProcessor implements CliCommandProcessor {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(DominatorsCommandProcessor.class);
+
+    // keep the heap small. working state is memory-mapped
+    private static final DataSize BUFFER_SIZE = ofMegabytes(1);
+
+    private final DominatorsCommand command;
+
+    private final SanitizeStreamFactory streamFactory;
+
+    public DominatorsCommandProcessor(final DominatorsCommand command) {
+        Validate.isTrue(command.getTop() > 0, "Invalid top: %s", command.getTop());
+
+        this.command = command;
+        this.streamFactory = new SanitizeStreamFactory(asSanitizeCommand(command));
+    }
+
+    @Override
+    public void process() throws Exception {
+        LOGGER.info("Starting dominator analysis");
+        LOGGER.info("Input File: {}", command.getInputFile());
+        LOGGER.info("Output File: {}", command.getOutputFile());
+
+        final Instant now = Instant.now();
+        try (final ObjectGraph graph = buildGraph();
+             final DominatorTree dominatorTree = new DominatorTree(graph, command.getTempDir());
+             final RetainedSizes retainedSizes = new RetainedSizes(graph, dominatorTree, command.getTempDir())) {
+
+            dominatorTree.compute();
+            retainedSizes.compute();
+            writeReport(graph, dominatorTree, retainedSizes);
+        }
+        LOGGER.info("Finished dominator analysis in {}", getFriendlyDuration(now));
+    }
+
+    private ObjectGraph buildGraph() throws IOException {
+        try (final InputStream inputStream = streamFactory.newInputStream();
+             final ProgressTicker progressTicker = ProgressTicker.start(streamFactory.getInputSize(), ProgressTicker.DEFAULT_INTERVAL, LOGGER)) {
+            final ObjectGraphBuilder builder = new ObjectGraphBuilder(
+                    inputStream,
+                    progressTicker,
+                    command.getTempDir());
+            return builder.build();
+        }
+    }
+
+    private void writeReport(final ObjectGraph graph,
+                             final DominatorTree dominatorTree,
+                             final RetainedSizes retainedSizes) throws IOException {
+        try (final OutputStream outputStream = streamFactory.newOutputStream();
+             final PrintWriter writer = new PrintWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+
+            writer.printf("Objects: %,d  References: %,d  Reachable objects: %,d%n",
+                          graph.getNumVertices() - 1, graph.getNumEdges(), dominatorTree.getNumReachable() - 1);
+            writer.println("Sizes are of field values and array elements only. Object headers and padding are not in heap dumps");
+            writer.println();
+
+            writer.printf("Top %d classes by retained size%n", command.getTop());
+            writer.printf("%18s %18s %14s  %s%n", "Retained", "Shallow", "Objects", "Class");
+            for (final ClassEntry entry : retainedSizes.getTopClasses(command.getTop())) {
+                writer.printf("%,18d %,18d %,14d  %s%n", entry.retainedSize, entry.shallowSize, entry.objectCount, entry.className);
+            }
+            writer.println();
+
+            writer.printf("Top %d objects by retained size%n", command.getTop());
+            writer.printf("%18s %18s %18s  %s%n", "Retained", "Shallow", "Object Id", "Class");
+            for (final ObjectEntry entry : retainedSizes.getTopObjects(command.getTop())) {
+                writer.printf("%,18d %,18d %18s  %s%n", entry.retainedSize, entry.shallowSize, "0x" + Long.toHexString(entry.objectId), entry.className);
+            }
+        }
+    }
+
+    private static SanitizeCommand asSanitizeCommand(final DominatorsCommand command) {
+        final SanitizeCommand sanitizeCommand = new SanitizeCommand();
+        sanitizeCommand.setInputFile(command.getInputFile());
+        sanitizeCommand.setOutputFile(command.getOutputFile());
+        sanitizeCommand.setBufferSize(BUFFER_SIZE);
+        return sanitizeCommand;
+    }
+}
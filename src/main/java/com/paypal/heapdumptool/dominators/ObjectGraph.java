@@ -0,0 +1,113 @@
+package com.paypal.heapdumptool.dominators;
+
+import com.paypal.heapdumptool.utils.MappedIntArray;
+import com.paypal.heapdumptool.utils.MappedLongArray;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Object reference graph of a heap dump, in compressed sparse row form in memory-mapped arrays.
+ * <p>
+ * Vertices are dense object ordinals. Ordinal 0 is a virtual root referencing all GC roots, and objects are numbered from 1
+ * in the order they appear in the heap dump. Edges of vertex v are {@code edges[edgeStarts[v] .. edgeStarts[v + 1])}. Edges
+ * of the virtual root are stored after all other edges.
+ */
+public class ObjectGraph implements Closeable {
+
+    public static final int ROOT = 0;
+
+    final MappedLongArray objectIds;
+    final MappedIntArray classIndexes;
+    final MappedLongArray shallowSizes;
+    final MappedLongArray edgeStarts;
+    final MappedLongArray edges;
+    final List<String> classNames = new ArrayList<>();
+    final Map<Long, String> classObjectNames = new HashMap<>();
+
+    int numVertices = 1;
+    long numEdges;
+    long rootEdgeStart;
+
+    ObjectGraph(final Path tempDir) throws IOException {
+        this.objectIds = new MappedLongArray(tempDir);
+        this.classIndexes = new MappedIntArray(tempDir);
+        this.shallowSizes = new MappedLongArray(tempDir);
+        this.edgeStarts = new MappedLongArray(tempDir);
+        this.edges = new MappedLongArray(tempDir);
+    }
+
+    /**
+     * @return number of vertices, including the virtual root
+     */
+    public int getNumVertices() {
+        return numVertices;
+    }
+
+    public long getNumEdges() {
+        return numEdges;
+    }
+
+    public long getObjectId(final int vertex) {
+        return objectIds.get(vertex);
+    }
+
+    public int getClassIndex(final int vertex) {
+        return classIndexes.get(vertex);
+    }
+
+    public String getClassName(final int classIndex) {
+        return classNames.get(classIndex);
+    }
+
+    public int getNumClasses() {
+        return classNames.size();
+    }
+
+    /**
+     * @return class name of given vertex, or the name of the class it represents if it is a class object
+     */
+    public String getDescription(final int vertex) {
+        final String classObjectName = classObjectNames.get(getObjectId(vertex));
+        return classObjectName == null
+               ? getClassName(getClassIndex(vertex))
+               : "class " + classObjectName;
+    }
+
+    /**
+     * Size of instance field values or array elements. Object headers and padding are not part of a heap dump
+     */
+    public long getShallowSize(final int vertex) {
+        return shallowSizes.get(vertex);
+    }
+
+    public long firstEdge(final int vertex) {
+        return vertex == ROOT ? rootEdgeStart : edgeStarts.get(vertex);
+    }
+
+    public long endEdge(final int vertex) {
+        if (vertex == ROOT) {
+            return numEdges;
+        }
+        return vertex + 1 < numVertices ? edgeStarts.get(vertex + 1) : rootEdgeStart;
+    }
+
+    /**
+     * @return target vertex of given edge, or -1 if the edge points to an object not in the heap dump
+     */
+    public int edgeTarget(final long edge) {
+        return (int) edges.get(edge);
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(objectIds, classIndexes, shallowSizes, edgeStarts, edges);
+    }
+}
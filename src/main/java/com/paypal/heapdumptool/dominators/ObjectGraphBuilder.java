@@ -0,0 +1,282 @@
+package com.paypal.heapdumptool.dominators;
+
+import com.paypal.heapdumptool.hprof.ClassDump;
+import com.paypal.heapdumptool.hprof.HeapDumpParser;
+import com.paypal.heapdumptool.hprof.HeapDumpVisitor;
+import com.paypal.heapdumptool.hprof.RecordBody;
+import com.paypal.heapdumptool.sanitizer.BasicType;
+import com.paypal.heapdumptool.sanitizer.ClassHistogram;
+import com.paypal.heapdumptool.utils.InternalLogger;
+import com.paypal.heapdumptool.utils.LongIntHashMap;
+import com.paypal.heapdumptool.utils.MappedLongArray;
+import com.paypal.heapdumptool.utils.ProgressMonitor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builds an {@link ObjectGraph} in a single pass over a heap dump, as a {@link HeapDumpVisitor}.
+ * <p>
+ * Edges are first recorded with the target object id, and resolved to ordinals once all object ids are known.
+ */
+public class ObjectGraphBuilder implements HeapDumpVisitor {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(ObjectGraphBuilder.class);
+
+    // class index keys for objects which have no class object id of their own in the heap dump
+    private static final long CLASS_OBJECTS_KEY = -1;
+    private static final long PRIMITIVE_ARRAY_KEY_BASE = -100;
+
+    private static final int REFERENCE = -1;
+
+    private final InputStream inputStream;
+    private final ProgressMonitor progressMonitor;
+    private final Path tempDir;
+
+    private final Map<Long, String> stringIdToStringMap = new HashMap<>();
+    private final Map<Long, Long> classObjectIdToStringIdMap = new HashMap<>();
+    private final Map<Long, ClassLayout> classLayouts = new HashMap<>();
+    private final LongIntHashMap classIndexes = new LongIntHashMap();
+    private final List<Long> classKeys = new ArrayList<>();
+
+    private int idSize;
+    private ObjectGraph graph;
+    private MappedLongArray gcRootIds;
+    private long numGcRoots;
+
+    public ObjectGraphBuilder(final InputStream inputStream, final ProgressMonitor progressMonitor, final Path tempDir) {
+        this.inputStream = inputStream;
+        this.progressMonitor = progressMonitor;
+        this.tempDir = tempDir;
+    }
+
+    public ObjectGraph build() throws IOException {
+        graph = new ObjectGraph(tempDir);
+        try (final MappedLongArray rootIds = new MappedLongArray(tempDir)) {
+            gcRootIds = rootIds;
+            readHeapDump();
+            LOGGER.info("Read {} objects, {} references, {} GC roots", graph.numVertices - 1, graph.numEdges, numGcRoots);
+
+            appendRootEdges();
+            resolveEdges();
+            resolveClassNames();
+            return graph;
+        } catch (final IOException | RuntimeException e) {
+            graph.close();
+            throw e;
+        }
+    }
+
+    private void readHeapDump() throws IOException {
+        new HeapDumpParser(inputStream, progressMonitor).parse(this);
+    }
+
+    @Override
+    public void onHeader(final String format, final int idSize, final long timestamp) {
+        this.idSize = idSize;
+    }
+
+    @Override
+    public void onUtf8(final long id, final byte[] bytes, final int offset, final int length) {
+        stringIdToStringMap.put(id, new String(bytes, offset, length, StandardCharsets.UTF_8).replace("/", "."));
+    }
+
+    @Override
+    public void onLoadClass(final long classSerialNumber, final long classObjectId, final long stackTraceSerialNumber, final long nameStringId) {
+        classObjectIdToStringIdMap.put(classObjectId, nameStringId);
+    }
+
+    @Override
+    public void onGcRoot(final int tag, final long objectId) {
+        gcRootIds.set(numGcRoots++, objectId);
+    }
+
+    @Override
+    public void onClassDump(final ClassDump classDump) {
+        final long classObjectId = classDump.getClassObjectId();
+        addObject(classObjectId, classIndexOf(CLASS_OBJECTS_KEY));
+        addEdge(classDump.getSuperClassObjectId());
+        addEdge(classDump.getClassLoaderObjectId());
+
+        long shallowSize = 0;
+        for (int i = 0; i < classDump.getNumConstantPoolEntries(); i++) {
+            shallowSize += addValue(classDump.getConstantPoolType(i), classDump.getConstantPoolValue(i));
+        }
+        for (int i = 0; i < classDump.getNumStaticFields(); i++) {
+            shallowSize += addValue(classDump.getStaticFieldType(i), classDump.getStaticFieldValue(i));
+        }
+        setShallowSize(shallowSize);
+
+        final int[] fieldTypes = new int[classDump.getNumInstanceFields()];
+        for (int i = 0; i < fieldTypes.length; i++) {
+            fieldTypes[i] = classDump.getInstanceFieldType(i);
+        }
+        classLayouts.put(classObjectId, new ClassLayout(classDump.getSuperClassObjectId(), fieldTypes));
+    }
+
+    @Override
+    public void onInstance(final long objectId, final long classObjectId, final RecordBody body) throws IOException {
+        addObject(objectId, classIndexOf(classObjectId));
+        setShallowSize(body.remaining());
+
+        for (final int step : getReferenceLayout(classObjectId, body.getIdSize())) {
+            if (step == REFERENCE) {
+                addEdge(body.readId());
+            } else {
+                body.skip(step);
+            }
+        }
+    }
+
+    @Override
+    public void onObjectArray(final long objectId, final long arrayClassObjectId, final long numElements, final RecordBody body) throws IOException {
+        addObject(objectId, classIndexOf(arrayClassObjectId));
+        setShallowSize(body.remaining());
+        for (long i = 0; i < numElements; i++) {
+            addEdge(body.readId());
+        }
+    }
+
+    @Override
+    public void onPrimitiveArray(final long objectId, final int elementType, final long numElements, final RecordBody body) {
+        addObject(objectId, classIndexOf(PRIMITIVE_ARRAY_KEY_BASE - elementType));
+        setShallowSize(body.remaining());
+    }
+
+    /**
+     * @return size of given value
+     */
+    private long addValue(final int type, final long value) {
+        if (type == BasicType.OBJECT.getU1Code()) {
+            addEdge(value);
+        }
+        return BasicType.findValueSize(type, idSize);
+    }
+
+    private void addObject(final long objectId, final int classIndex) {
+        final int vertex = graph.numVertices;
+        if (vertex == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many objects");
+        }
+        graph.numVertices++;
+        graph.objectIds.set(vertex, objectId);
+        graph.classIndexes.set(vertex, classIndex);
+        graph.edgeStarts.set(vertex, graph.numEdges);
+    }
+
+    private void setShallowSize(final long shallowSize) {
+        graph.shallowSizes.set(graph.numVertices - 1, shallowSize);
+    }
+
+    private void addEdge(final long targetObjectId) {
+        if (targetObjectId != 0) {
+            graph.edges.set(graph.numEdges++, targetObjectId);
+        }
+    }
+
+    private void appendRootEdges() {
+        graph.rootEdgeStart = graph.numEdges;
+        for (long i = 0; i < numGcRoots; i++) {
+            addEdge(gcRootIds.get(i));
+        }
+    }
+
+    private void resolveEdges() throws IOException {
+        LOGGER.info("Resolving references ...");
+        try (final ObjectIdIndex index = new ObjectIdIndex(graph.objectIds, graph.numVertices, tempDir)) {
+            for (long edge = 0; edge < graph.numEdges; edge++) {
+                graph.edges.set(edge, index.vertexOf(graph.edges.get(edge)));
+            }
+        }
+    }
+
+    private void resolveClassNames() {
+        for (final long key : classKeys) {
+            graph.classNames.add(classNameOf(key));
+        }
+        for (final Long classObjectId : classLayouts.keySet()) {
+            graph.classObjectNames.put(classObjectId, classNameOf(classObjectId));
+        }
+    }
+
+    private String classNameOf(final long key) {
+        if (key == CLASS_OBJECTS_KEY) {
+            return Class.class.getName();
+        }
+        if (key < 0) {
+            final int elementType = (int) (PRIMITIVE_ARRAY_KEY_BASE - key);
+            return BasicType.findByU1Code(elementType)
+                            .map(type -> type.name().toLowerCase(Locale.ROOT) + "[]")
+                            .orElseThrow(IllegalStateException::new);
+        }
+        final String className = stringIdToStringMap.get(classObjectIdToStringIdMap.get(key));
+        return className == null
+               ? "0x" + Long.toHexString(key)
+               : ClassHistogram.toDisplayName(className);
+    }
+
+    private int classIndexOf(final long key) {
+        final int index = classIndexes.get(key);
+        if (index != LongIntHashMap.MISSING) {
+            return index;
+        }
+        final int newIndex = classKeys.size();
+        classKeys.add(key);
+        classIndexes.put(key, newIndex);
+        return newIndex;
+    }
+
+    /**
+     * @return steps to walk instance field values of given class: number of bytes to skip, or {@link #REFERENCE}
+     *         for a reference
+     */
+    private int[] getReferenceLayout(final long classObjectId, final int idSize) {
+        final ClassLayout classLayout = classLayouts.get(classObjectId);
+        if (classLayout == null) {
+            throw new IllegalStateException("Instance dump before class dump. class=0x" + Long.toHexString(classObjectId));
+        }
+        if (classLayout.referenceLayout != null) {
+            return classLayout.referenceLayout;
+        }
+
+        final List<Integer> steps = new ArrayList<>();
+        int skip = 0;
+        ClassLayout current = classLayout;
+        while (current != null) {
+            for (final int fieldType : current.fieldTypes) {
+                if (fieldType == BasicType.OBJECT.getU1Code()) {
+                    if (skip > 0) {
+                        steps.add(skip);
+                        skip = 0;
+                    }
+                    steps.add(REFERENCE);
+                } else {
+                    skip += BasicType.findValueSize(fieldType, idSize);
+                }
+            }
+            current = classLayouts.get(current.superClassObjectId);
+        }
+
+        classLayout.referenceLayout = steps.stream().mapToInt(Integer::intValue).toArray();
+        return classLayout.referenceLayout;
+    }
+
+    private static class ClassLayout {
+
+        private final long superClassObjectId;
+        private final int[] fieldTypes;
+        private int[] referenceLayout;
+
+        ClassLayout(final long superClassObjectId, final int[] fieldTypes) {
+            this.superClassObjectId = superClassObjectId;
+            this.fieldTypes = fieldTypes;
+        }
+    }
+}
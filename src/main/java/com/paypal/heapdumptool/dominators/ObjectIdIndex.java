@@ -0,0 +1,165 @@
+package com.paypal.heapdumptool.dominators;
+
+import com.paypal.heapdumptool.utils.MappedIntArray;
+import com.paypal.heapdumptool.utils.MappedLongArray;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Object id to vertex lookup, by binary search over object ids sorted in memory-mapped arrays.
+ * <p>
+ * HotSpot writes objects in address order within each heap region, so the ids are mostly sorted already, and the sort is
+ * an in-place introsort which does not need a second copy of the arrays.
+ */
+class ObjectIdIndex implements Closeable {
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final MappedLongArray sortedIds;
+    private final MappedIntArray sortedVertices;
+    private final int size;
+
+    /**
+     * @param objectIds object ids by vertex. Vertex 0, the virtual root, is not indexed
+     */
+    ObjectIdIndex(final MappedLongArray objectIds, final int numVertices, final Path tempDir) throws IOException {
+        this.sortedIds = new MappedLongArray(tempDir);
+        this.sortedVertices = new MappedIntArray(tempDir);
+        this.size = numVertices - 1;
+
+        for (int vertex = 1; vertex < numVertices; vertex++) {
+            sortedIds.set(vertex - 1, objectIds.get(vertex));
+            sortedVertices.set(vertex - 1, vertex);
+        }
+        if (!isSorted()) {
+            sort(0, size - 1, 2 * (64 - Long.numberOfLeadingZeros(size)));
+        }
+    }
+
+    /**
+     * @return vertex of given object id, or -1 if not found
+     */
+    int vertexOf(final long objectId) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final long midId = sortedIds.get(mid);
+            if (midId < objectId) {
+                low = mid + 1;
+            } else if (midId > objectId) {
+                high = mid - 1;
+            } else {
+                return sortedVertices.get(mid);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(sortedIds, sortedVertices);
+    }
+
+    private boolean isSorted() {
+        for (int i = 1; i < size; i++) {
+            if (sortedIds.get(i - 1) > sortedIds.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void sort(int low, int high, int depthLimit) {
+        while (high - low > INSERTION_SORT_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSort(low, high);
+                return;
+            }
+            final int pivot = partition(low, high);
+            // recurse into the smaller side to bound stack depth
+            if (pivot - low < high - pivot) {
+                sort(low, pivot - 1, depthLimit);
+                low = pivot + 1;
+            } else {
+                sort(pivot + 1, high, depthLimit);
+                high = pivot - 1;
+            }
+        }
+        insertionSort(low, high);
+    }
+
+    private int partition(final int low, final int high) {
+        final int mid = (low + high) >>> 1;
+        // median of three, moved to high
+        if (sortedIds.get(mid) < sortedIds.get(low)) {
+            swap(mid, low);
+        }
+        if (sortedIds.get(high) < sortedIds.get(low)) {
+            swap(high, low);
+        }
+        if (sortedIds.get(mid) < sortedIds.get(high)) {
+            swap(mid, high);
+        }
+
+        final long pivotId = sortedIds.get(high);
+        int store = low;
+        for (int i = low; i < high; i++) {
+            if (sortedIds.get(i) < pivotId) {
+                swap(i, store++);
+            }
+        }
+        swap(store, high);
+        return store;
+    }
+
+    private void insertionSort(final int low, final int high) {
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && sortedIds.get(j - 1) > sortedIds.get(j); j--) {
+                swap(j - 1, j);
+            }
+        }
+    }
+
+    private void heapSort(final int low, final int high) {
+        final int count = high - low + 1;
+        for (int i = count / 2 - 1; i >= 0; i--) {
+            siftDown(low, i, count);
+        }
+        for (int end = count - 1; end > 0; end--) {
+            swap(low, low + end);
+            siftDown(low, 0, end);
+        }
+    }
+
+    private void siftDown(final int offset, int root, final int count) {
+        while (true) {
+            int child = 2 * root + 1;
+            if (child >= count) {
+                return;
+            }
+            if (child + 1 < count && sortedIds.get(offset + child) < sortedIds.get(offset + child + 1)) {
+                child++;
+            }
+            if (sortedIds.get(offset + root) >= sortedIds.get(offset + child)) {
+                return;
+            }
+            swap(offset + root, offset + child);
+            root = child;
+        }
+    }
+
+    private void swap(final int i, final int j) {
+        final long id = sortedIds.get(i);
+        sortedIds.set(i, sortedIds.get(j));
+        sortedIds.set(j, id);
+
+        final int vertex = sortedVertices.get(i);
+        sortedVertices.set(i, sortedVertices.get(j));
+        sortedVertices.set(j, vertex);
+    }
+}
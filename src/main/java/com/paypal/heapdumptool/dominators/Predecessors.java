@@ -0,0 +1,80 @@
+package com.paypal.heapdumptool.dominators;
+
+import com.paypal.heapdumptool.utils.MappedIntArray;
+import com.paypal.heapdumptool.utils.MappedLongArray;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Reverse edges of an {@link ObjectGraph}, in compressed sparse row form. Only edges from reachable vertices are kept
+ */
+class Predecessors implements Closeable {
+
+    private final MappedLongArray starts;
+    private final MappedIntArray sources;
+    private final int numVertices;
+
+    Predecessors(final ObjectGraph graph, final MappedIntArray dfnum, final Path tempDir) throws IOException {
+        this.starts = new MappedLongArray(tempDir);
+        this.sources = new MappedIntArray(tempDir);
+        this.numVertices = graph.getNumVertices();
+
+        // count, then turn counts into end offsets, then fill backwards so that each end offset becomes a start offset
+        starts.fill(0, numVertices + 1, 0);
+        for (int v = 0; v < numVertices; v++) {
+            if (dfnum.get(v) < 0) {
+                continue;
+            }
+            final long end = graph.endEdge(v);
+            for (long edge = graph.firstEdge(v); edge < end; edge++) {
+                final int w = graph.edgeTarget(edge);
+                if (w >= 0) {
+                    starts.add(w, 1);
+                }
+            }
+        }
+
+        long total = 0;
+        for (int v = 0; v < numVertices; v++) {
+            total += starts.get(v);
+            starts.set(v, total);
+        }
+        starts.set(numVertices, total);
+
+        for (int v = 0; v < numVertices; v++) {
+            if (dfnum.get(v) < 0) {
+                continue;
+            }
+            final long end = graph.endEdge(v);
+            for (long edge = graph.firstEdge(v); edge < end; edge++) {
+                final int w = graph.edgeTarget(edge);
+                if (w >= 0) {
+                    final long position = starts.get(w) - 1;
+                    starts.set(w, position);
+                    sources.set(position, v);
+                }
+            }
+        }
+    }
+
+    long first(final int vertex) {
+        return starts.get(vertex);
+    }
+
+    long end(final int vertex) {
+        return starts.get(vertex + 1);
+    }
+
+    int get(final long edge) {
+        return sources.get(edge);
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(starts, sources);
+    }
+}
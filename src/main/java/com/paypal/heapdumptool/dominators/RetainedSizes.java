@@ -0,0 +1,214 @@
+package com.paypal.heapdumptool.dominators;
+
+import com.paypal.heapdumptool.utils.MappedIntArray;
+import com.paypal.heapdumptool.utils.MappedLongArray;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static com.paypal.heapdumptool.dominators.ObjectGraph.ROOT;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Retained sizes of objects and classes, from a {@link DominatorTree}.
+ * <p>
+ * The retained size of a class is the sum of retained sizes of its objects which are not dominated by another object of the
+ * same class, so that e.g. the nodes of a linked list are not counted once per node.
+ */
+public class RetainedSizes implements Closeable {
+
+    private final ObjectGraph graph;
+    private final DominatorTree dominatorTree;
+    private final Path tempDir;
+    private final MappedLongArray retainedSizes;
+
+    private final long[] classRetainedSizes;
+    private final long[] classShallowSizes;
+    private final long[] classObjectCounts;
+
+    public RetainedSizes(final ObjectGraph graph, final DominatorTree dominatorTree, final Path tempDir) throws IOException {
+        this.graph = graph;
+        this.dominatorTree = dominatorTree;
+        this.tempDir = tempDir;
+        this.retainedSizes = new MappedLongArray(tempDir);
+
+        final int numClasses = graph.getNumClasses();
+        this.classRetainedSizes = new long[numClasses];
+        this.classShallowSizes = new long[numClasses];
+        this.classObjectCounts = new long[numClasses];
+    }
+
+    public void compute() throws IOException {
+        final int numReachable = dominatorTree.getNumReachable();
+        retainedSizes.set(ROOT, 0);
+        for (int i = 1; i < numReachable; i++) {
+            final int v = dominatorTree.getVertexByDfnum(i);
+            retainedSizes.set(v, graph.getShallowSize(v));
+        }
+
+        // dominators have lower dfnums, so each vertex is complete before being added to its dominator
+        for (int i = numReachable - 1; i > 0; i--) {
+            final int v = dominatorTree.getVertexByDfnum(i);
+            retainedSizes.add(dominatorTree.getImmediateDominator(v), retainedSizes.get(v));
+        }
+
+        computeClassSizes();
+    }
+
+    public long getRetainedSize(final int vertex) {
+        return retainedSizes.get(vertex);
+    }
+
+    /**
+     * @return reachable objects with the largest retained sizes, largest first
+     */
+    public List<ObjectEntry> getTopObjects(final int limit) {
+        final PriorityQueue<ObjectEntry> top = new PriorityQueue<>(Comparator.comparingLong(entry -> entry.retainedSize));
+        for (int i = 1; i < dominatorTree.getNumReachable(); i++) {
+            final int v = dominatorTree.getVertexByDfnum(i);
+            final long retainedSize = retainedSizes.get(v);
+            if (top.size() < limit || retainedSize > top.peek().retainedSize) {
+                top.add(new ObjectEntry(graph.getObjectId(v),
+                                        graph.getDescription(v),
+                                        graph.getShallowSize(v),
+                                        retainedSize));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        }
+        return sortDescending(top);
+    }
+
+    /**
+     * @return classes with the largest retained sizes, largest first
+     */
+    public List<ClassEntry> getTopClasses(final int limit) {
+        final PriorityQueue<ClassEntry> top = new PriorityQueue<>(Comparator.comparingLong(entry -> entry.retainedSize));
+        for (int classIndex = 0; classIndex < classRetainedSizes.length; classIndex++) {
+            if (classObjectCounts[classIndex] == 0) {
+                continue;
+            }
+            top.add(new ClassEntry(graph.getClassName(classIndex),
+                                   classObjectCounts[classIndex],
+                                   classShallowSizes[classIndex],
+                                   classRetainedSizes[classIndex]));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        return sortDescending(top);
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(retainedSizes);
+    }
+
+    private void computeClassSizes() throws IOException {
+        final int numReachable = dominatorTree.getNumReachable();
+        try (final MappedIntArray childStarts = new MappedIntArray(tempDir);
+             final MappedIntArray children = new MappedIntArray(tempDir);
+             final MappedIntArray stack = new MappedIntArray(tempDir);
+             final MappedIntArray childCursors = new MappedIntArray(tempDir)) {
+
+            // children of each vertex in the dominator tree. Indexed by dfnum, which is dense over reachable vertices
+            childStarts.fill(0, numReachable + 1, 0);
+            for (int i = 1; i < numReachable; i++) {
+                final int dominator = immediateDominatorDfnum(i);
+                childStarts.set(dominator, childStarts.get(dominator) + 1);
+            }
+            int total = 0;
+            for (int i = 0; i < numReachable; i++) {
+                total += childStarts.get(i);
+                childStarts.set(i, total);
+            }
+            childStarts.set(numReachable, total);
+            for (int i = numReachable - 1; i > 0; i--) {
+                final int dominator = immediateDominatorDfnum(i);
+                final int position = childStarts.get(dominator) - 1;
+                childStarts.set(dominator, position);
+                children.set(position, i);
+            }
+
+            // walk the dominator tree, counting how many objects of each class are on the current path
+            final int[] classesOnPath = new int[classRetainedSizes.length];
+            int depth = 0;
+            stack.set(depth, 0);
+            childCursors.set(depth, childStarts.get(0));
+            while (depth >= 0) {
+                final int node = stack.get(depth);
+                final int cursor = childCursors.get(depth);
+                if (cursor == childStarts.get(node + 1)) {
+                    if (node != 0) {
+                        classesOnPath[graph.getClassIndex(dominatorTree.getVertexByDfnum(node))]--;
+                    }
+                    depth--;
+                    continue;
+                }
+                childCursors.set(depth, cursor + 1);
+
+                final int child = children.get(cursor);
+                final int v = dominatorTree.getVertexByDfnum(child);
+                final int classIndex = graph.getClassIndex(v);
+                classObjectCounts[classIndex]++;
+                classShallowSizes[classIndex] += graph.getShallowSize(v);
+                if (classesOnPath[classIndex]++ == 0) {
+                    classRetainedSizes[classIndex] += retainedSizes.get(v);
+                }
+
+                depth++;
+                stack.set(depth, child);
+                childCursors.set(depth, childStarts.get(child));
+            }
+        }
+    }
+
+    private int immediateDominatorDfnum(final int dfnum) {
+        final int v = dominatorTree.getVertexByDfnum(dfnum);
+        return dominatorTree.getDfnum(dominatorTree.getImmediateDominator(v));
+    }
+
+    private static <T> List<T> sortDescending(final PriorityQueue<T> queue) {
+        final List<T> list = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            list.add(0, queue.poll());
+        }
+        return list;
+    }
+
+    public static class ObjectEntry {
+
+        public final long objectId;
+        public final String className;
+        public final long shallowSize;
+        public final long retainedSize;
+
+        ObjectEntry(final long objectId, final String className, final long shallowSize, final long retainedSize) {
+            this.objectId = objectId;
+            this.className = className;
+            this.shallowSize = shallowSize;
+            this.retainedSize = retainedSize;
+        }
+    }
+
+    public static class ClassEntry {
+
+        public final String className;
+        public final long objectCount;
+        public final long shallowSize;
+        public final long retainedSize;
+
+        ClassEntry(final String className, final long objectCount, final long shallowSize, final long retainedSize) {
+            this.className = className;
+            this.objectCount = objectCount;
+            this.shallowSize = shallowSize;
+            this.retainedSize = retainedSize;
+        }
+    }
+}
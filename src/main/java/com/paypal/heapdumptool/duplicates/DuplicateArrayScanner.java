@@ -0,0 +1,77 @@
+package com.paypal.heapdumptool.duplicates;
+
+import com.paypal.heapdumptool.hprof.HeapDumpParser;
+import com.paypal.heapdumptool.hprof.HeapDumpVisitor;
+import com.paypal.heapdumptool.hprof.RecordBody;
+import com.paypal.heapdumptool.sanitizer.BasicType;
+import com.paypal.heapdumptool.utils.ProgressMonitor;
+import com.paypal.heapdumptool.utils.XxHash64;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Hashes the contents of all primitive arrays of a heap dump into a {@link DuplicateArrayTable}, in a single pass.
+ * Array contents are hashed in chunks as they stream by, so memory use does not depend on array sizes.
+ */
+public class DuplicateArrayScanner implements HeapDumpVisitor {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final InputStream inputStream;
+    private final ProgressMonitor progressMonitor;
+    private final DuplicateArrayTable table;
+    private final long minSize;
+
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+    private final XxHash64 hash = new XxHash64();
+
+    // by element type code
+    private final long[] arrayCounts = new long[BasicType.LONG.getU1Code() + 1];
+    private final long[] arrayBytes = new long[BasicType.LONG.getU1Code() + 1];
+
+    public DuplicateArrayScanner(final InputStream inputStream,
+                                 final ProgressMonitor progressMonitor,
+                                 final DuplicateArrayTable table,
+                                 final long minSize) {
+        this.inputStream = inputStream;
+        this.progressMonitor = progressMonitor;
+        this.table = table;
+        this.minSize = minSize;
+    }
+
+    public void scan() throws IOException {
+        new HeapDumpParser(inputStream, progressMonitor).parse(this);
+    }
+
+    /**
+     * @return number of primitive arrays scanned with given element type, including those below the minimum size
+     */
+    public long getArrayCount(final int elementType) {
+        return arrayCounts[elementType];
+    }
+
+    /**
+     * @return total size of primitive arrays scanned with given element type
+     */
+    public long getArrayBytes(final int elementType) {
+        return arrayBytes[elementType];
+    }
+
+    @Override
+    public void onPrimitiveArray(final long objectId, final int elementType, final long numElements, final RecordBody body) throws IOException {
+        final long numBytes = body.remaining();
+        arrayCounts[elementType]++;
+        arrayBytes[elementType] += numBytes;
+        if (numBytes == 0 || numBytes < minSize) {
+            return;
+        }
+
+        hash.reset(0);
+        int count;
+        while ((count = body.read(buffer, 0, buffer.length)) > 0) {
+            hash.update(buffer, 0, count);
+        }
+        table.add(hash.digest(), elementType, numBytes);
+    }
+}
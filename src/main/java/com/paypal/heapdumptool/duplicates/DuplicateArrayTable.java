@@ -0,0 +1,192 @@
+package com.paypal.heapdumptool.duplicates;
+
+import com.paypal.heapdumptool.utils.MappedLongArray;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Open addressing hash table of primitive array content hash to number of copies, in a memory-mapped array so that
+ * hundreds of millions of distinct arrays only cost disk and page cache.
+ * <p>
+ * Each slot is three longs: content hash, element type and size in bytes, and count. A count of 0 marks an empty slot.
+ * Arrays are only the same group if hash, element type and size all match.
+ */
+public class DuplicateArrayTable implements Closeable {
+
+    private static final int SLOT_LONGS = 3;
+    private static final int HASH = 0;
+    private static final int TYPE_AND_SIZE = 1;
+    private static final int COUNT = 2;
+
+    private static final long INITIAL_NUM_SLOTS = 1 << 16;
+    private static final int TYPE_SHIFT = 56;
+
+    private final Path tempDir;
+
+    private MappedLongArray slots;
+    private long numSlots;
+    private long numGroups;
+
+    public DuplicateArrayTable(final Path tempDir) throws IOException {
+        this.tempDir = tempDir;
+        this.slots = newSlots(INITIAL_NUM_SLOTS);
+        this.numSlots = INITIAL_NUM_SLOTS;
+    }
+
+    public void add(final long hash, final int elementType, final long numBytes) throws IOException {
+        if (numGroups >= numSlots / 2) {
+            grow();
+        }
+        final long typeAndSize = typeAndSize(elementType, numBytes);
+        final long slot = findSlot(slots, numSlots, hash, typeAndSize);
+        final long base = slot * SLOT_LONGS;
+        final long count = slots.get(base + COUNT);
+        if (count == 0) {
+            slots.set(base + HASH, hash);
+            slots.set(base + TYPE_AND_SIZE, typeAndSize);
+            numGroups++;
+        }
+        slots.set(base + COUNT, count + 1);
+    }
+
+    /**
+     * @return number of distinct array contents seen
+     */
+    public long getNumGroups() {
+        return numGroups;
+    }
+
+    /**
+     * Visits groups with more than one copy
+     */
+    public void forEachDuplicate(final GroupVisitor visitor) {
+        for (long slot = 0; slot < numSlots; slot++) {
+            final long base = slot * SLOT_LONGS;
+            final long count = slots.get(base + COUNT);
+            if (count > 1) {
+                final long typeAndSize = slots.get(base + TYPE_AND_SIZE);
+                visitor.visit(slots.get(base + HASH), elementTypeOf(typeAndSize), numBytesOf(typeAndSize), count);
+            }
+        }
+    }
+
+    /**
+     * @return groups with the most wasted bytes, most first
+     */
+    public List<Group> getTopGroups(final int limit) {
+        final PriorityQueue<Group> top = new PriorityQueue<>(Comparator.comparingLong(Group::getWastedBytes));
+        forEachDuplicate((hash, elementType, numBytes, count) -> {
+            final long wastedBytes = (count - 1) * numBytes;
+            if (top.size() < limit || wastedBytes > top.peek().getWastedBytes()) {
+                top.add(new Group(hash, elementType, numBytes, count));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        });
+
+        final List<Group> list = new ArrayList<>();
+        while (!top.isEmpty()) {
+            list.add(0, top.poll());
+        }
+        return list;
+    }
+
+    @Override
+    public void close() throws IOException {
+        slots.close();
+    }
+
+    private void grow() throws IOException {
+        final long newNumSlots = numSlots * 2;
+        final MappedLongArray newSlots = newSlots(newNumSlots);
+        try {
+            for (long slot = 0; slot < numSlots; slot++) {
+                final long base = slot * SLOT_LONGS;
+                final long count = slots.get(base + COUNT);
+                if (count != 0) {
+                    final long hash = slots.get(base + HASH);
+                    final long typeAndSize = slots.get(base + TYPE_AND_SIZE);
+                    final long newBase = findSlot(newSlots, newNumSlots, hash, typeAndSize) * SLOT_LONGS;
+                    newSlots.set(newBase + HASH, hash);
+                    newSlots.set(newBase + TYPE_AND_SIZE, typeAndSize);
+                    newSlots.set(newBase + COUNT, count);
+                }
+            }
+        } catch (final RuntimeException e) {
+            newSlots.close();
+            throw e;
+        }
+        slots.close();
+        slots = newSlots;
+        numSlots = newNumSlots;
+    }
+
+    private MappedLongArray newSlots(final long count) throws IOException {
+        final MappedLongArray array = new MappedLongArray(tempDir);
+        array.set(count * SLOT_LONGS - 1, 0); // map all chunks up front
+        return array;
+    }
+
+    private static long findSlot(final MappedLongArray slots, final long numSlots, final long hash, final long typeAndSize) {
+        final long mask = numSlots - 1;
+        long slot = (hash ^ typeAndSize * 0x9E3779B97F4A7C15L) & mask;
+        while (true) {
+            final long base = slot * SLOT_LONGS;
+            if (slots.get(base + COUNT) == 0
+                    || slots.get(base + HASH) == hash && slots.get(base + TYPE_AND_SIZE) == typeAndSize) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static long typeAndSize(final int elementType, final long numBytes) {
+        if (numBytes >>> TYPE_SHIFT != 0) {
+            throw new IllegalArgumentException("Array too large: " + numBytes);
+        }
+        return (long) elementType << TYPE_SHIFT | numBytes;
+    }
+
+    private static int elementTypeOf(final long typeAndSize) {
+        return (int) (typeAndSize >>> TYPE_SHIFT);
+    }
+
+    private static long numBytesOf(final long typeAndSize) {
+        return typeAndSize & ((1L << TYPE_SHIFT) - 1);
+    }
+
+    @FunctionalInterface
+    public interface GroupVisitor {
+
+        void visit(long hash, int elementType, long numBytes, long count);
+    }
+
+    public static class Group {
+
+        public final long hash;
+        public final int elementType;
+        public final long numBytes;
+        public final long count;
+
+        Group(final long hash, final int elementType, final long numBytes, final long count) {
+            this.hash = hash;
+            this.elementType = elementType;
+            this.numBytes = numBytes;
+            this.count = count;
+        }
+
+        /**
+         * @return bytes which would be saved if all copies shared one array
+         */
+        public long getWastedBytes() {
+            return (count - 1) * numBytes;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.paypal.heapdumptool.duplicates;
+
+import com.paypal.heapdumptool.cli.CliCommand;
+import com.paypal.heapdumptool.sanitizer.DataSize;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static com.paypal.heapdumptool.sanitizer.DataSize.ofBytes;
+import static org.apache.commons.lang3.builder.ToStringBuilder.reflectionToString;
+import static org.apache.commons.lang3.builder.ToStringStyle.MULTI_LINE_STYLE;
+import static picocli.CommandLine.Help.Visibility.ALWAYS;
+
+@Command(name = "duplicates", description = "Report primitive arrays with duplicate contents in a heap dump, by hash and size only", abbreviateSynopsis = true)
+public class DuplicatesCommand implements CliCommand {
+
+    // to allow field injection from picocli, these variables can't be final
+
+    @Parameters(index = "0", description = "Input heap dump .hprof. File or stdin")
+    private Path inputFile;
+
+    @Parameters(index = "1", description = "Output report. File, stdout, or stderr")
+    private Path outputFile;
+
+    @Option(names = {"-n", "--top"}, description = "Number of duplicate groups to report", defaultValue = "20", showDefaultValue = ALWAYS)
+    private int top = 20;
+
+    @Option(names = {"--min-size"}, description = "Ignore arrays smaller than this size", defaultValue = "16B", showDefaultValue = ALWAYS)
+    private DataSize minSize = ofBytes(16);
+
+    @Option(names = {"--temp-dir"},
+            description = "Directory for the memory-mapped hash table. Disk usage grows with the number of distinct arrays in the heap dump",
+            defaultValue = "${java.io.tmpdir}",
+            showDefaultValue = ALWAYS)
+    private Path tempDir = Paths.get(System.getProperty("java.io.tmpdir"));
+
+    @Override
+    public Class<DuplicatesCommandProcessor> getProcessorClass() {
+        return DuplicatesCommandProcessor.class;
+    }
+
+    public Path getInputFile() {
+        return inputFile;
+    }
+
+    public void setInputFile(final Path inputFile) {
+        this.inputFile = inputFile;
+    }
+
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    public void setOutputFile(final Path outputFile) {
+        this.outputFile = outputFile;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public void setTop(final int top) {
+        this.top = top;
+    }
+
+    public DataSize getMinSize() {
+        return minSize;
+    }
+
+    public void setMinSize(final DataSize minSize) {
+        this.minSize = minSize;
+    }
+
+    public Path getTempDir() {
+        return tempDir;
+    }
+
+    public void setTempDir(final Path tempDir) {
+        this.tempDir = tempDir;
+    }
+
+    @Override
+    public String toString() {
+        return reflectionToString(this, MULTI_LINE_STYLE);
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.paypal.heapdumptool.duplicates;
+
+import com.paypal.heapdumptool.cli.CliCommandProcessor;
+import com.paypal.heapdumptool.duplicates.DuplicateArrayTable.Group;
+import com.paypal.heapdumptool.sanitizer.BasicType;
+import com.paypal.heapdumptool.sanitizer.DataSize;
+import com.paypal.heapdumptool.sanitizer.SanitizeCommand;
+import com.paypal.heapdumptool.sanitizer.SanitizeStreamFactory;
+import com.paypal.heapdumptool.utils.InternalLogger;
+import com.paypal.heapdumptool.utils.ProgressTicker;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Locale;
+
+import static com.paypal.heapdumptool.sanitizer.DataSize.ofMegabytes;
+import static com.paypal.heapdumptool.utils.DateTimeTool.getFriendlyDuration;
+
+public class DuplicatesCommandProcessor implements CliCommandProcessor {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(DuplicatesCommandProcessor.class);
+
+    // keep the heap small. the hash table is memory-mapped
+    private static final DataSize BUFFER_SIZE = ofMegabytes(1);
+
+    private final DuplicatesCommand command;
+
+    private final SanitizeStreamFactory streamFactory;
+
+    public DuplicatesCommandProcessor(final DuplicatesCommand command) {
+        Validate.isTrue(command.getTop() > 0, "Invalid top: %s", command.getTop());
+        Validate.isTrue(!command.getMinSize().isNegative(), "Invalid min size: %s", command.getMinSize());
+
+        this.command = command;
+        this.streamFactory = new SanitizeStreamFactory(asSanitizeCommand(command));
+    }
+
+    @Override
+    public void process() throws Exception {
+        LOGGER.info("Starting duplicate array analysis");
+        LOGGER.info("Input File: {}", command.getInputFile());
+        LOGGER.info("Output File: {}", command.getOutputFile());
+
+        final Instant now = Instant.now();
+        try (final DuplicateArrayTable table = new DuplicateArrayTable(command.getTempDir())) {
+            final DuplicateArrayScanner scanner = scan(table);
+            writeReport(table, scanner);
+        }
+        LOGGER.info("Finished duplicate array analysis in {}", getFriendlyDuration(now));
+    }
+
+    private DuplicateArrayScanner scan(final DuplicateArrayTable table) throws IOException {
+        try (final InputStream inputStream = streamFactory.newInputStream();
+             final ProgressTicker progressTicker = ProgressTicker.start(streamFactory.getInputSize(), ProgressTicker.DEFAULT_INTERVAL, LOGGER)) {
+            final DuplicateArrayScanner scanner = new DuplicateArrayScanner(
+                    inputStream,
+                    progressTicker,
+                    table,
+                    command.getMinSize().toBytes());
+            scanner.scan();
+            return scanner;
+        }
+    }
+
+    private void writeReport(final DuplicateArrayTable table, final DuplicateArrayScanner scanner) throws IOException {
+        final int numTypes = BasicType.LONG.getU1Code() + 1;
+        final long[] duplicateCounts = new long[numTypes];
+        final long[] wastedBytes = new long[numTypes];
+        table.forEachDuplicate((hash, elementType, numBytes, count) -> {
+            duplicateCounts[elementType] += count - 1;
+            wastedBytes[elementType] += (count - 1) * numBytes;
+        });
+
+        try (final OutputStream outputStream = streamFactory.newOutputStream();
+             final PrintWriter writer = new PrintWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+
+            writer.printf("Distinct array contents of at least %s: %,d%n", command.getMinSize(), table.getNumGroups());
+            writer.println("Array contents are not shown. Arrays are grouped by element type, size, and 64-bit hash of contents");
+            writer.println();
+
+            writer.println("Wasted bytes by array type");
+            writer.printf("%18s %14s %18s %14s  %s%n", "Wasted", "Duplicates", "Total", "Arrays", "Type");
+            for (final BasicType type : BasicType.values()) {
+                final int code = type.getU1Code();
+                if (scanner.getArrayCount(code) > 0) {
+                    writer.printf("%,18d %,14d %,18d %,14d  %s%n",
+                                  wastedBytes[code], duplicateCounts[code], scanner.getArrayBytes(code), scanner.getArrayCount(code), typeName(code));
+                }
+            }
+            writer.println();
+
+            writer.printf("Top %d duplicate groups by wasted bytes%n", command.getTop());
+            writer.printf("%18s %14s %10s  %-9s  %s%n", "Wasted", "Size", "Copies", "Type", "Hash");
+            for (final Group group : table.getTopGroups(command.getTop())) {
+                writer.printf("%,18d %,14d %,10d  %-9s  %016x%n",
+                              group.getWastedBytes(), group.numBytes, group.count, typeName(group.elementType), group.hash);
+            }
+        }
+    }
+
+    private static String typeName(final int elementType) {
+        return BasicType.findByU1Code(elementType)
+                        .map(type -> type.name().toLowerCase(Locale.ROOT) + "[]")
+                        .orElseThrow(IllegalStateException::new);
+    }
+
+    private static SanitizeCommand asSanitizeCommand(final DuplicatesCommand command) {
+        final SanitizeCommand sanitizeCommand = new SanitizeCommand();
+        sanitizeCommand.setInputFile(command.getInputFile());
+        sanitizeCommand.setOutputFile(command.getOutputFile());
+        sanitizeCommand.setBufferSize(BUFFER_SIZE);
+        return sanitizeCommand;
+    }
+}
@@ -0,0 +1,141 @@
+package com.paypal.heapdumptool.hprof;
+
+import java.util.Arrays;
+
+/**
+ * CLASS DUMP sub-record. Reused by {@link HeapDumpParser} for every class dump, so only valid during
+ * {@link HeapDumpVisitor#onClassDump(ClassDump)}.
+ * <p>
+ * Values are zero-extended to longs: object ids for reference types, and raw bits for float and double.
+ */
+public final class ClassDump {
+
+    long classObjectId;
+    long stackTraceSerialNumber;
+    long superClassObjectId;
+    long classLoaderObjectId;
+    long signersObjectId;
+    long protectionDomainObjectId;
+    long instanceSize;
+
+    int numConstantPoolEntries;
+    int[] constantPoolIndexes = new int[0];
+    int[] constantPoolTypes = new int[0];
+    long[] constantPoolValues = new long[0];
+
+    int numStaticFields;
+    long[] staticFieldNameIds = new long[0];
+    int[] staticFieldTypes = new int[0];
+    long[] staticFieldValues = new long[0];
+
+    int numInstanceFields;
+    long[] instanceFieldNameIds = new long[0];
+    int[] instanceFieldTypes = new int[0];
+
+    ClassDump() {
+    }
+
+    public long getClassObjectId() {
+        return classObjectId;
+    }
+
+    public long getStackTraceSerialNumber() {
+        return stackTraceSerialNumber;
+    }
+
+    public long getSuperClassObjectId() {
+        return superClassObjectId;
+    }
+
+    public long getClassLoaderObjectId() {
+        return classLoaderObjectId;
+    }
+
+    public long getSignersObjectId() {
+        return signersObjectId;
+    }
+
+    public long getProtectionDomainObjectId() {
+        return protectionDomainObjectId;
+    }
+
+    /**
+     * @return instance size in bytes, as reported by the JVM
+     */
+    public long getInstanceSize() {
+        return instanceSize;
+    }
+
+    public int getNumConstantPoolEntries() {
+        return numConstantPoolEntries;
+    }
+
+    public int getConstantPoolIndex(final int i) {
+        return constantPoolIndexes[i];
+    }
+
+    public int getConstantPoolType(final int i) {
+        return constantPoolTypes[i];
+    }
+
+    public long getConstantPoolValue(final int i) {
+        return constantPoolValues[i];
+    }
+
+    public int getNumStaticFields() {
+        return numStaticFields;
+    }
+
+    public long getStaticFieldNameId(final int i) {
+        return staticFieldNameIds[i];
+    }
+
+    public int getStaticFieldType(final int i) {
+        return staticFieldTypes[i];
+    }
+
+    public long getStaticFieldValue(final int i) {
+        return staticFieldValues[i];
+    }
+
+    /**
+     * @return number of fields declared by this class. Inherited fields are in the super class dump
+     */
+    public int getNumInstanceFields() {
+        return numInstanceFields;
+    }
+
+    public long getInstanceFieldNameId(final int i) {
+        return instanceFieldNameIds[i];
+    }
+
+    public int getInstanceFieldType(final int i) {
+        return instanceFieldTypes[i];
+    }
+
+    void resizeConstantPool(final int count) {
+        numConstantPoolEntries = count;
+        if (constantPoolTypes.length < count) {
+            constantPoolIndexes = Arrays.copyOf(constantPoolIndexes, count);
+            constantPoolTypes = Arrays.copyOf(constantPoolTypes, count);
+            constantPoolValues = Arrays.copyOf(constantPoolValues, count);
+        }
+    }
+
+    void resizeStaticFields(final int count) {
+        numStaticFields = count;
+        if (staticFieldTypes.length < count) {
+            staticFieldNameIds = Arrays.copyOf(staticFieldNameIds, count);
+            staticFieldTypes = Arrays.copyOf(staticFieldTypes, count);
+            staticFieldValues = Arrays.copyOf(staticFieldValues, count);
+        }
+    }
+
+    void resizeInstanceFields(final int count) {
+        numInstanceFields = count;
+        if (instanceFieldTypes.length < count) {
+            instanceFieldNameIds = Arrays.copyOf(instanceFieldNameIds, count);
+            instanceFieldTypes = Arrays.copyOf(instanceFieldTypes, count);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.paypal.heapdumptool.hprof;
+
+import com.paypal.heapdumptool.sanitizer.BasicType;
+import com.paypal.heapdumptool.utils.ProgressMonitor;
+import org.apache.commons.lang3.Validate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static com.paypal.heapdumptool.sanitizer.HeapRecord.HEAP_DUMP;
+import static com.paypal.heapdumptool.sanitizer.HeapRecord.HEAP_DUMP_SEGMENT;
+import static com.paypal.heapdumptool.sanitizer.HeapRecord.LOAD_CLASS;
+import static com.paypal.heapdumptool.sanitizer.HeapRecord.STRING_IN_UTF8;
+
+/**
+ * Single pass, read-only parser of heap dumps, calling a {@link HeapDumpVisitor} for each record. Once started, parsing
+ * allocates nothing per record: bodies are passed as views of the input stream, and buffers are reused.
+ * <p>
+ * See {@link com.paypal.heapdumptool.sanitizer.HeapDumpSanitizer} for references to the format.
+ * <p>
+ * Not thread-safe. For tools which copy a heap dump while reading it, see {@link com.paypal.heapdumptool.sanitizer.Pipe}.
+ */
+public class HeapDumpParser {
+
+    // value sizes by basic type code. 0 for object ids, which depend on the id size
+    private static final int[] VALUE_SIZES = new int[BasicType.LONG.getU1Code() + 1];
+
+    static {
+        Arrays.fill(VALUE_SIZES, -1);
+        for (final BasicType type : BasicType.values()) {
+            VALUE_SIZES[type.getU1Code()] = type == BasicType.OBJECT ? 0 : type.getValueSize(0);
+        }
+    }
+
+    private final DataInputStream input;
+
+    // for the current top level record or heap dump segment, and for the current sub-record within it
+    private final RecordBody recordBody;
+    private final RecordBody subRecordBody;
+
+    private final ClassDump classDump = new ClassDump();
+    private byte[] utf8Buffer = new byte[256];
+
+    private int idSize;
+
+    public HeapDumpParser(final InputStream inputStream, final ProgressMonitor progressMonitor) {
+        this.input = new DataInputStream(progressMonitor.monitoredInputStream(inputStream));
+        this.recordBody = new RecordBody(input);
+        this.subRecordBody = new RecordBody(input);
+    }
+
+    public void parse(final HeapDumpVisitor visitor) throws IOException {
+        parseHeader(visitor);
+
+        while (true) {
+            final int tag = input.read();
+            if (tag == -1) {
+                break;
+            }
+            input.readInt(); // timestamp
+            final long length = Integer.toUnsignedLong(input.readInt());
+            recordBody.reset(idSize, length);
+
+            if (tag == HEAP_DUMP.getTag() || tag == HEAP_DUMP_SEGMENT.getTag()) {
+                parseHeapDumpSegment(visitor);
+
+            } else if (tag == STRING_IN_UTF8.getTag()) {
+                final long id = recordBody.readId();
+                final int numBytes = Math.toIntExact(recordBody.remaining());
+                if (utf8Buffer.length < numBytes) {
+                    utf8Buffer = new byte[Math.max(numBytes, utf8Buffer.length * 2)];
+                }
+                recordBody.read(utf8Buffer, 0, numBytes);
+                visitor.onUtf8(id, utf8Buffer, 0, numBytes);
+
+            } else if (tag == LOAD_CLASS.getTag()) {
+                final long classSerialNumber = recordBody.readU4();
+                final long classObjectId = recordBody.readId();
+                final long stackTraceSerialNumber = recordBody.readU4();
+                visitor.onLoadClass(classSerialNumber, classObjectId, stackTraceSerialNumber, recordBody.readId());
+
+            } else {
+                visitor.onRecord(tag, recordBody);
+            }
+            recordBody.finish();
+        }
+    }
+
+    /**
+     * @return size of given basic type, or of an id for {@link BasicType#OBJECT}
+     */
+    static int valueSize(final int type, final int idSize) {
+        final int size = type < VALUE_SIZES.length ? VALUE_SIZES[type] : -1;
+        if (size == -1) {
+            throw new IllegalArgumentException("Unknown basic type code: " + type);
+        }
+        return size == 0 ? idSize : size;
+    }
+
+    private void parseHeader(final HeapDumpVisitor visitor) throws IOException {
+        final ByteArrayOutputStream format = new ByteArrayOutputStream();
+        int byteValue;
+        while ((byteValue = input.readUnsignedByte()) != 0) {
+            format.write(byteValue);
+        }
+        idSize = input.readInt();
+        Validate.isTrue(idSize == 4 || idSize == 8, "Unknown id size: %s", idSize);
+        final long timestamp = input.readLong();
+        visitor.onHeader(format.toString("UTF-8"), idSize, timestamp);
+    }
+
+    private void parseHeapDumpSegment(final HeapDumpVisitor visitor) throws IOException {
+        final RecordBody segment = recordBody;
+        while (segment.remaining() > 0) {
+            final int tag = segment.readU1();
+            final long id = segment.readId();
+            switch (tag) {
+                case 0xFF:
+                case 0x05:
+                case 0x07:
+                    visitor.onGcRoot(tag, id);
+                    break;
+
+                case 0x01:
+                    segment.readId(); // JNI global ref id
+                    visitor.onGcRoot(tag, id);
+                    break;
+
+                case 0x02:
+                case 0x03:
+                case 0x08:
+                    segment.skip(4 + 4); // thread serial number, frame number
+                    visitor.onGcRoot(tag, id);
+                    break;
+
+                case 0x04:
+                case 0x06:
+                    segment.readU4(); // thread serial number
+                    visitor.onGcRoot(tag, id);
+                    break;
+
+                case 0x20:
+                    parseClassDump(segment, id);
+                    visitor.onClassDump(classDump);
+                    break;
+
+                case 0x21: {
+                    segment.readU4(); // stack trace serial number
+                    final long classObjectId = segment.readId();
+                    final long numBytes = segment.readU4();
+                    beginSubRecord(segment, numBytes);
+                    visitor.onInstance(id, classObjectId, subRecordBody);
+                    subRecordBody.finish();
+                    break;
+                }
+
+                case 0x22: {
+                    segment.readU4(); // stack trace serial number
+                    final long numElements = segment.readU4();
+                    final long arrayClassObjectId = segment.readId();
+                    beginSubRecord(segment, numElements * idSize);
+                    visitor.onObjectArray(id, arrayClassObjectId, numElements, subRecordBody);
+                    subRecordBody.finish();
+                    break;
+                }
+
+                case 0x23: {
+                    segment.readU4(); // stack trace serial number
+                    final long numElements = segment.readU4();
+                    final int elementType = segment.readU1();
+                    beginSubRecord(segment, Math.multiplyExact(numElements, valueSize(elementType, idSize)));
+                    visitor.onPrimitiveArray(id, elementType, numElements, subRecordBody);
+                    subRecordBody.finish();
+                    break;
+                }
+
+                default:
+                    throw new IllegalArgumentException("" + tag);
+            }
+        }
+    }
+
+    /**
+     * Hands the next given count of bytes of the segment over to the sub-record body
+     */
+    private void beginSubRecord(final RecordBody segment, final long length) throws IOException {
+        segment.consume(length);
+        subRecordBody.reset(idSize, length);
+    }
+
+    private void parseClassDump(final RecordBody segment, final long classObjectId) throws IOException {
+        classDump.classObjectId = classObjectId;
+        classDump.stackTraceSerialNumber = segment.readU4();
+        classDump.superClassObjectId = segment.readId();
+        classDump.classLoaderObjectId = segment.readId();
+        classDump.signersObjectId = segment.readId();
+        classDump.protectionDomainObjectId = segment.readId();
+        segment.readId(); // reserved
+        segment.readId(); // reserved
+        classDump.instanceSize = segment.readU4();
+
+        final int numConstantPoolEntries = segment.readU2();
+        classDump.resizeConstantPool(numConstantPoolEntries);
+        for (int i = 0; i < numConstantPoolEntries; i++) {
+            classDump.constantPoolIndexes[i] = segment.readU2();
+            final int type = segment.readU1();
+            classDump.constantPoolTypes[i] = type;
+            classDump.constantPoolValues[i] = segment.readValue(type);
+        }
+
+        final int numStaticFields = segment.readU2();
+        classDump.resizeStaticFields(numStaticFields);
+        for (int i = 0; i < numStaticFields; i++) {
+            classDump.staticFieldNameIds[i] = segment.readId();
+            final int type = segment.readU1();
+            classDump.staticFieldTypes[i] = type;
+            classDump.staticFieldValues[i] = segment.readValue(type);
+        }
+
+        final int numInstanceFields = segment.readU2();
+        classDump.resizeInstanceFields(numInstanceFields);
+        for (int i = 0; i < numInstanceFields; i++) {
+            classDump.instanceFieldNameIds[i] = segment.readId();
+            classDump.instanceFieldTypes[i] = segment.readU1();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.paypal.heapdumptool.hprof;
+
+import java.io.IOException;
+
+/**
+ * Callbacks of {@link HeapDumpParser}, in heap dump order. All methods do nothing by default, so a visitor only
+ * implements what it needs.
+ * <p>
+ * Arguments are only valid during the callback. Byte arrays, {@link ClassDump} and {@link RecordBody} are reused for
+ * the next callback, so copy anything which must be kept.
+ */
+public interface HeapDumpVisitor {
+
+    /**
+     * @param format    format name and version, e.g. "JAVA PROFILE 1.0.2"
+     * @param idSize    size of identifiers, 4 or 8
+     * @param timestamp milliseconds since 0:00 GMT, 1/1/70
+     */
+    default void onHeader(final String format, final int idSize, final long timestamp) throws IOException {
+    }
+
+    /**
+     * STRING IN UTF8 record. Class, field, and method names are all UTF8 records
+     */
+    default void onUtf8(final long id, final byte[] bytes, final int offset, final int length) throws IOException {
+    }
+
+    default void onLoadClass(final long classSerialNumber, final long classObjectId, final long stackTraceSerialNumber, final long nameStringId) throws IOException {
+    }
+
+    /**
+     * Any top level record other than STRING IN UTF8, LOAD CLASS, HEAP DUMP, and HEAP DUMP SEGMENT
+     */
+    default void onRecord(final int tag, final RecordBody body) throws IOException {
+    }
+
+    /**
+     * @param tag sub-record tag, 0xFF and 0x01 to 0x08
+     */
+    default void onGcRoot(final int tag, final long objectId) throws IOException {
+    }
+
+    default void onClassDump(final ClassDump classDump) throws IOException {
+    }
+
+    /**
+     * @param body instance field values: this class, followed by super class, etc.
+     */
+    default void onInstance(final long objectId, final long classObjectId, final RecordBody body) throws IOException {
+    }
+
+    /**
+     * @param body element object ids
+     */
+    default void onObjectArray(final long objectId, final long arrayClassObjectId, final long numElements, final RecordBody body) throws IOException {
+    }
+
+    /**
+     * @param elementType basic type code, see {@link com.paypal.heapdumptool.sanitizer.BasicType}
+     * @param body        packed elements, in big-endian order
+     */
+    default void onPrimitiveArray(final long objectId, final int elementType, final long numElements, final RecordBody body) throws IOException {
+    }
+}
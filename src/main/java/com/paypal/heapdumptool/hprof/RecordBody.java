@@ -0,0 +1,111 @@
+package com.paypal.heapdumptool.hprof;
+
+import com.paypal.heapdumptool.sanitizer.BasicType;
+import org.apache.commons.io.IOUtils;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Bytes of the record or sub-record being visited, read in order. Whatever a visitor does not read is skipped once the
+ * callback returns, so a visitor only pays for the values it looks at.
+ */
+public final class RecordBody {
+
+    private final DataInputStream input;
+    private int idSize;
+    private long remaining;
+
+    RecordBody(final DataInputStream input) {
+        this.input = input;
+    }
+
+    void reset(final int idSize, final long length) {
+        this.idSize = idSize;
+        this.remaining = length;
+    }
+
+    /**
+     * Skip whatever was not read
+     */
+    void finish() throws IOException {
+        skip(remaining);
+    }
+
+    public int getIdSize() {
+        return idSize;
+    }
+
+    /**
+     * @return number of bytes not read yet
+     */
+    public long remaining() {
+        return remaining;
+    }
+
+    public int readU1() throws IOException {
+        consume(1);
+        return input.readUnsignedByte();
+    }
+
+    public int readU2() throws IOException {
+        consume(2);
+        return input.readUnsignedShort();
+    }
+
+    public long readU4() throws IOException {
+        consume(4);
+        return Integer.toUnsignedLong(input.readInt());
+    }
+
+    public long readU8() throws IOException {
+        consume(8);
+        return input.readLong();
+    }
+
+    public long readId() throws IOException {
+        return idSize == 4 ? readU4() : readU8();
+    }
+
+    /**
+     * @return value of given basic type, zero-extended to a long. Object ids for {@link BasicType#OBJECT}, raw bits for
+     *         float and double
+     */
+    public long readValue(final int type) throws IOException {
+        switch (HeapDumpParser.valueSize(type, idSize)) {
+            case 1:
+                return readU1();
+            case 2:
+                return readU2();
+            case 4:
+                return readU4();
+            default:
+                return readU8();
+        }
+    }
+
+    /**
+     * Read up to given count of bytes into given buffer
+     *
+     * @return number of bytes read, 0 once all are read
+     */
+    public int read(final byte[] buffer, final int offset, final int count) throws IOException {
+        final int n = (int) Math.min(count, remaining);
+        consume(n);
+        input.readFully(buffer, offset, n);
+        return n;
+    }
+
+    public void skip(final long count) throws IOException {
+        consume(count);
+        IOUtils.skipFully(input, count);
+    }
+
+    void consume(final long count) throws EOFException {
+        if (count > remaining) {
+            throw new EOFException("Read past end of record. remaining=" + remaining + " count=" + count);
+        }
+        remaining -= count;
+    }
+}
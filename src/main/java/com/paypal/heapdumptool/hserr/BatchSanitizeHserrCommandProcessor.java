@@ -0,0 +1,94 @@
+package com.paypal.heapdumptool.hserr;
+
+import com.paypal.heapdumptool.cli.CliCommandProcessor;
+import com.paypal.heapdumptool.utils.FileGlobTool;
+import com.paypal.heapdumptool.utils.InternalLogger;
+import com.paypal.heapdumptool.utils.ResourceGovernor;
+import org.apache.commons.lang3.Validate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.paypal.heapdumptool.utils.DateTimeTool.getFriendlyDuration;
+
+/**
+ * Sanitizes many fatal error logs, e.g. those pulled from crash collectors, in parallel. Each log is streamed with
+ * bounded memory, so the number of logs at once is only bound by CPU.
+ */
+public class BatchSanitizeHserrCommandProcessor implements CliCommandProcessor {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(BatchSanitizeHserrCommandProcessor.class);
+
+    private final SanitizeHserrCommand command;
+
+    public BatchSanitizeHserrCommandProcessor(final SanitizeHserrCommand command) {
+        Validate.notNull(command.getBatch(), "--batch is required");
+        Validate.notNull(command.getOutDir(), "--batch requires --out-dir");
+        Validate.isTrue(command.getInputFile() == null && command.getOutputFile() == null,
+                        "--batch cannot be used with input and output files");
+        Validate.isTrue(command.getMaxConcurrentSanitizations() >= 0,
+                        "Invalid max concurrent sanitizations: %s", command.getMaxConcurrentSanitizations());
+        this.command = command;
+    }
+
+    @Override
+    public void process() throws Exception {
+        final Instant now = Instant.now();
+        final List<Path> inputFiles = FileGlobTool.find(command.getBatch(), "hs_err*");
+        Validate.isTrue(!inputFiles.isEmpty(), "Cannot find fatal error logs. batch=%s", command.getBatch());
+        validateUniqueFileNames(inputFiles);
+        Files.createDirectories(command.getOutDir());
+
+        final int numThreads = command.getMaxConcurrentSanitizations() > 0
+                               ? command.getMaxConcurrentSanitizations()
+                               : ResourceGovernor.getInstance().getParallelism();
+        LOGGER.info("Sanitizing batch of {} fatal error logs. outDir={} maxConcurrentSanitizations={}",
+                    inputFiles.size(), command.getOutDir(), numThreads);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, inputFiles.size()));
+        int numFailed = 0;
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (final Path inputFile : inputFiles) {
+                futures.add(executor.submit(() -> sanitize(inputFile)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (final Exception e) {
+                    numFailed++;
+                    LOGGER.info("Cannot sanitize {}: {}", inputFiles.get(i), e.getCause() != null ? e.getCause() : e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Validate.validState(numFailed == 0, "Cannot sanitize %s of %s fatal error logs", numFailed, inputFiles.size());
+        LOGGER.info("Finished batch of {} fatal error logs in {}", inputFiles.size(), getFriendlyDuration(now));
+    }
+
+    private Void sanitize(final Path inputFile) throws Exception {
+        final SanitizeHserrCommand fileCommand = new SanitizeHserrCommand();
+        fileCommand.copyFrom(command);
+        fileCommand.setInputFile(inputFile);
+        fileCommand.setOutputFile(command.getOutDir().resolve(inputFile.getFileName()));
+        new SanitizeHserrCommandProcessor(fileCommand).process();
+        return null;
+    }
+
+    private static void validateUniqueFileNames(final List<Path> inputFiles) {
+        final Set<Path> fileNames = new HashSet<>();
+        for (final Path inputFile : inputFiles) {
+            Validate.isTrue(fileNames.add(inputFile.getFileName()),
+                            "Fatal error logs in different dirs have the same name, which would have the same output: %s", inputFile);
+        }
+    }
+}
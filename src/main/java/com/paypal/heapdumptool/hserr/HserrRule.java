@@ -0,0 +1,14 @@
+package com.paypal.heapdumptool.hserr;
+
+/**
+ * Sanitizes the lines of one section, or of one line, of a fatal error log
+ */
+@FunctionalInterface
+public interface HserrRule {
+
+    /**
+     * @param line without line terminator
+     * @return sanitized line
+     */
+    String sanitize(String line);
+}
@@ -0,0 +1,125 @@
+package com.paypal.heapdumptool.hserr;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Built-in rules of the sensitive sections of fatal error logs
+ */
+public enum HserrRuleSet {
+
+    /**
+     * Values of all environment variables
+     */
+    ENVIRONMENT {
+        @Override
+        void addTo(final HserrSanitizer sanitizer, final KeyMatcher sensitiveKeys) {
+            sanitizer.addSectionRule("Environment Variables", line -> StringUtils.substringBefore(line, "=") + "=" + CENSORED);
+        }
+    },
+
+    /**
+     * Values of system properties and arguments of the command line, jvm_args and java_command, whose names contain a
+     * sensitive key, e.g. -Djavax.net.ssl.keyStorePassword=... or --db-password ...
+     */
+    COMMAND_LINE {
+        @Override
+        void addTo(final HserrSanitizer sanitizer, final KeyMatcher sensitiveKeys) {
+            final HserrRule rule = line -> censorArguments(line, sensitiveKeys);
+            sanitizer.addLineRule("Command Line", rule)
+                     .addLineRule("jvm_args", rule)
+                     .addLineRule("java_command", rule);
+        }
+    },
+
+    /**
+     * Register values, and memory contents of the stack, instructions, and what registers and stack slots point to,
+     * which may hold data of the app
+     */
+    MEMORY {
+        @Override
+        void addTo(final HserrSanitizer sanitizer, final KeyMatcher sensitiveKeys) {
+            final HserrRule memoryRule = HserrRuleSet::censorMemory;
+            sanitizer.addSectionRule("Registers", line -> REGISTER_VALUE.matcher(line).replaceAll("=" + CENSORED))
+                     .addSectionRule("Top of Stack", memoryRule)
+                     .addSectionRule("Instructions", memoryRule)
+                     .addSectionRule("Register to memory mapping", memoryRule)
+                     .addSectionRule("Stack slot to memory mapping", memoryRule);
+        }
+    },
+
+    /**
+     * Directories of dynamic libraries and of the class path, which may name users and hosts. File names are kept
+     */
+    LIBRARIES {
+        @Override
+        void addTo(final HserrSanitizer sanitizer, final KeyMatcher sensitiveKeys) {
+            sanitizer.addSectionRule("Dynamic libraries", line -> LIBRARY_DIR.matcher(line).replaceAll(CENSORED + "/"))
+                     .addLineRule("java_class_path (initial)", HserrRuleSet::censorClassPath);
+        }
+    };
+
+    public static final List<String> DEFAULT_SENSITIVE_KEYS = Collections.unmodifiableList(Arrays.asList(
+            "password", "passwd", "secret", "token", "credential", "apikey", "api_key", "api-key", "private"));
+
+    static final String CENSORED = "****";
+
+    private static final Pattern REGISTER_VALUE = Pattern.compile("=\\s*0x\\p{XDigit}+");
+
+    // "RAX=", "stack at sp + 1 slots:", or "0x00007fab2ed947a0:"
+    private static final Pattern MEMORY_LABEL = Pattern.compile("^(\\w+\\s*=|stack at sp \\+ \\d+ slots:|0x\\p{XDigit}+:)");
+
+    private static final Pattern LIBRARY_DIR = Pattern.compile("(?<=\\s)/\\S*/");
+
+    abstract void addTo(HserrSanitizer sanitizer, KeyMatcher sensitiveKeys);
+
+    private static String censorArguments(final String line, final KeyMatcher sensitiveKeys) {
+        final int valueStart = line.indexOf(':') + 1;
+        final String[] tokens = line.substring(valueStart).split(" ", -1);
+        boolean isSensitiveValue = false;
+        for (int i = 0; i < tokens.length; i++) {
+            final String token = tokens[i];
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (isSensitiveValue) {
+                tokens[i] = CENSORED;
+                isSensitiveValue = false;
+                continue;
+            }
+            final int equals = token.indexOf('=');
+            if (equals > 0) {
+                if (sensitiveKeys.containsAny(token.substring(0, equals))) {
+                    tokens[i] = token.substring(0, equals + 1) + CENSORED;
+                }
+            } else if (token.startsWith("-")) {
+                isSensitiveValue = sensitiveKeys.containsAny(token);
+            }
+        }
+        return line.substring(0, valueStart) + String.join(" ", tokens);
+    }
+
+    private static String censorMemory(final String line) {
+        final Matcher matcher = MEMORY_LABEL.matcher(line);
+        return matcher.find()
+               ? matcher.group(1) + " " + CENSORED
+               : CENSORED;
+    }
+
+    private static String censorClassPath(final String line) {
+        final int valueStart = line.indexOf(':') + 1;
+        final String[] entries = line.substring(valueStart).trim().split(":", -1);
+        for (int i = 0; i < entries.length; i++) {
+            final int nameStart = entries[i].lastIndexOf('/');
+            if (nameStart >= 0) {
+                entries[i] = CENSORED + entries[i].substring(nameStart);
+            }
+        }
+        return line.substring(0, valueStart) + " " + String.join(":", entries);
+    }
+}
@@ -0,0 +1,90 @@
+package com.paypal.heapdumptool.hserr;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sanitizes a fatal error log line by line, so that memory stays bounded however long the log is.
+ * <p>
+ * A section starts with a header line, e.g. "Environment Variables:" or "Top of Stack: (sp=0x...)", and ends at the next
+ * blank line after some of its lines. Section rules apply to the lines of their section, and line rules to single lines
+ * with their key, e.g. "jvm_args: ...". Keys are the text before the first colon, so each line costs one hash lookup
+ * whatever the number of rules. Other lines are copied as is.
+ * <p>
+ * Holds the state of the log being sanitized, so use one per thread.
+ */
+public class HserrSanitizer {
+
+    private final Map<String, HserrRule> sectionRules = new HashMap<>();
+    private final Map<String, HserrRule> lineRules = new HashMap<>();
+
+    // state of the current log
+    private HserrRule sectionRule;
+    private boolean isSectionStarted;
+
+    /**
+     * @param ruleSets      built-in rules to apply
+     * @param sensitiveKeys names of arguments and properties whose values are censored, e.g. "password"
+     */
+    public HserrSanitizer(final Collection<HserrRuleSet> ruleSets, final List<String> sensitiveKeys) {
+        final KeyMatcher keyMatcher = new KeyMatcher(sensitiveKeys);
+        ruleSets.forEach(ruleSet -> ruleSet.addTo(this, keyMatcher));
+    }
+
+    /**
+     * Apply given rule to the lines of the sections with given header, e.g. "Environment Variables"
+     */
+    public HserrSanitizer addSectionRule(final String header, final HserrRule rule) {
+        sectionRules.put(header, rule);
+        return this;
+    }
+
+    /**
+     * Apply given rule to the lines with given key, e.g. "jvm_args"
+     */
+    public HserrSanitizer addLineRule(final String key, final HserrRule rule) {
+        lineRules.put(key, rule);
+        return this;
+    }
+
+    public void sanitize(final BufferedReader reader, final Writer writer) throws IOException {
+        sectionRule = null;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            writer.write(sanitize(line));
+            writer.write(System.lineSeparator());
+        }
+    }
+
+    String sanitize(final String line) {
+        final String key = StringUtils.substringBefore(line, ":");
+        final HserrRule headerRule = sectionRules.get(key);
+        if (headerRule != null) {
+            sectionRule = headerRule;
+            isSectionStarted = false;
+            return line;
+        }
+        final HserrRule lineRule = lineRules.get(key);
+        if (lineRule != null) {
+            sectionRule = null;
+            return lineRule.sanitize(line);
+        }
+        if (sectionRule == null) {
+            return line;
+        }
+        if (line.trim().isEmpty()) {
+            if (isSectionStarted) {
+                sectionRule = null;
+            }
+            return line;
+        }
+        isSectionStarted = true;
+        return sectionRule.sanitize(line);
+    }
+}
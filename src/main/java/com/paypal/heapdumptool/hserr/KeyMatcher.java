@@ -0,0 +1,91 @@
+package com.paypal.heapdumptool.hserr;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Literal keys, e.g. "password" and "token", compiled into an Aho-Corasick automaton, so that finding whether a name
+ * contains any of them is a single pass over the name, however many keys there are. Case-insensitive. Empty keys are
+ * ignored, e.g. of --sensitive-keys= to censor none.
+ */
+class KeyMatcher {
+
+    private final Node root = new Node();
+
+    KeyMatcher(final List<String> keys) {
+        for (final String key : keys) {
+            if (key.isEmpty()) {
+                continue;
+            }
+            Node node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(toLowerCase(key.charAt(i)), c -> new Node());
+            }
+            node.isMatch = true;
+        }
+        linkFailures();
+    }
+
+    static KeyMatcher of(final String... keys) {
+        return new KeyMatcher(Arrays.asList(keys));
+    }
+
+    /**
+     * @return whether given text contains any of the keys
+     */
+    boolean containsAny(final CharSequence text) {
+        Node node = root;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = toLowerCase(text.charAt(i));
+            Node next = node.children.get(c);
+            while (next == null && node != root) {
+                node = node.failure;
+                next = node.children.get(c);
+            }
+            node = next != null ? next : root;
+            if (node.isMatch) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // breadth first, so that the failure of a node's parent is linked before the node's own
+    private void linkFailures() {
+        final Queue<Node> queue = new ArrayDeque<>();
+        for (final Node child : root.children.values()) {
+            child.failure = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            final Node node = queue.remove();
+            for (final Map.Entry<Character, Node> entry : node.children.entrySet()) {
+                final Node child = entry.getValue();
+                Node failure = node.failure;
+                while (failure != root && !failure.children.containsKey(entry.getKey())) {
+                    failure = failure.failure;
+                }
+                final Node failureChild = failure.children.get(entry.getKey());
+                child.failure = failureChild != null ? failureChild : root;
+                // a key ending within this one, e.g. "key" within "apikey"
+                child.isMatch |= child.failure.isMatch;
+                queue.add(child);
+            }
+        }
+    }
+
+    private static char toLowerCase(final char c) {
+        return Character.toLowerCase(c);
+    }
+
+    private static class Node {
+
+        private final Map<Character, Node> children = new HashMap<>();
+        private Node failure;
+        private boolean isMatch;
+    }
+}
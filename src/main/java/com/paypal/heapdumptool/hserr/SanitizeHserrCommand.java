@@ -1,28 +1,67 @@
 package com.paypal.heapdumptool.hserr;
 
 import com.paypal.heapdumptool.cli.CliCommand;
+import com.paypal.heapdumptool.cli.CliCommandProcessor;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.apache.commons.lang3.builder.ToStringBuilder.reflectionToString;
 import static org.apache.commons.lang3.builder.ToStringStyle.MULTI_LINE_STYLE;
+import static picocli.CommandLine.Help.Visibility.ALWAYS;
 
-@Command(name = "sanitize-hserr", description = "Sanitize fatal error log by censoring environment variable values", abbreviateSynopsis = true)
+@Command(name = "sanitize-hserr", description = "Sanitize fatal error log by censoring environment, sensitive arguments, memory, and library paths", abbreviateSynopsis = true)
 public class SanitizeHserrCommand implements CliCommand {
 
     // to allow field injection from picocli, these variables can't be final
 
-    @Parameters(index = "0", description = "Input hs_err_pid* fatal error log. File or stdin")
+    @Parameters(index = "0", arity = "0..1", description = "Input hs_err_pid* fatal error log. File or stdin")
     private Path inputFile;
 
-    @Parameters(index = "1", description = "Output hs_err_pid* fatal error log. File, stdout, or stderr")
+    @Parameters(index = "1", arity = "0..1", description = "Output hs_err_pid* fatal error log. File, stdout, or stderr")
     private Path outputFile;
 
+    @Option(names = {"--rules"},
+            description = "Rules to apply. Comma-separated: ${COMPLETION-CANDIDATES}",
+            split = ",",
+            defaultValue = "ENVIRONMENT,COMMAND_LINE,MEMORY,LIBRARIES",
+            showDefaultValue = ALWAYS)
+    private List<HserrRuleSet> rules = new ArrayList<>(Arrays.asList(HserrRuleSet.values()));
+
+    @Option(names = {"--sensitive-keys"},
+            description = "Arguments and system properties whose names contain any of these are censored. Comma-separated, case-insensitive",
+            split = ",",
+            defaultValue = "password,passwd,secret,token,credential,apikey,api_key,api-key,private",
+            showDefaultValue = ALWAYS)
+    private List<String> sensitiveKeys = new ArrayList<>(HserrRuleSet.DEFAULT_SENSITIVE_KEYS);
+
+    @Option(names = {"--batch"}, description = "Sanitize all hs_err* files of this directory, or the files matching this glob, e.g. 'crashes/**/hs_err*', instead of one input file")
+    private String batch;
+
+    @Option(names = {"--out-dir"}, description = "Output directory of --batch")
+    private Path outDir;
+
+    @Option(names = {"--max-concurrent-sanitizations"},
+            description = "Max fatal error logs to sanitize at once with --batch. 0 for one per CPU of the cgroup",
+            defaultValue = "0",
+            showDefaultValue = ALWAYS)
+    private int maxConcurrentSanitizations;
+
     @Override
-    public Class<SanitizeHserrCommandProcessor> getProcessorClass() {
-        return SanitizeHserrCommandProcessor.class;
+    public Class<? extends CliCommandProcessor> getProcessorClass() {
+        return batch != null
+               ? BatchSanitizeHserrCommandProcessor.class
+               : SanitizeHserrCommandProcessor.class;
+    }
+
+    public void copyFrom(final SanitizeHserrCommand other) {
+        this.rules = new ArrayList<>(other.rules);
+        this.sensitiveKeys = new ArrayList<>(other.sensitiveKeys);
     }
 
     public Path getInputFile() {
@@ -41,6 +80,46 @@ public class SanitizeHserrCommand implements CliCommand {
         this.outputFile = outputFile;
     }
 
+    public List<HserrRuleSet> getRules() {
+        return rules;
+    }
+
+    public void setRules(final List<HserrRuleSet> rules) {
+        this.rules = rules;
+    }
+
+    public List<String> getSensitiveKeys() {
+        return sensitiveKeys;
+    }
+
+    public void setSensitiveKeys(final List<String> sensitiveKeys) {
+        this.sensitiveKeys = sensitiveKeys;
+    }
+
+    public String getBatch() {
+        return batch;
+    }
+
+    public void setBatch(final String batch) {
+        this.batch = batch;
+    }
+
+    public Path getOutDir() {
+        return outDir;
+    }
+
+    public void setOutDir(final Path outDir) {
+        this.outDir = outDir;
+    }
+
+    public int getMaxConcurrentSanitizations() {
+        return maxConcurrentSanitizations;
+    }
+
+    public void setMaxConcurrentSanitizations(final int maxConcurrentSanitizations) {
+        this.maxConcurrentSanitizations = maxConcurrentSanitizations;
+    }
+
     @Override
     public String toString() {
         return reflectionToString(this, MULTI_LINE_STYLE);
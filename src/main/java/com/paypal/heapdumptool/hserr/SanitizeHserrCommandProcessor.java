@@ -4,18 +4,22 @@ import com.paypal.heapdumptool.cli.CliCommandProcessor;
 import com.paypal.heapdumptool.sanitizer.SanitizeCommand;
 import com.paypal.heapdumptool.sanitizer.SanitizeStreamFactory;
 import com.paypal.heapdumptool.utils.InternalLogger;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.StringUtils;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
 
 import static com.paypal.heapdumptool.utils.DateTimeTool.getFriendlyDuration;
 
+/**
+ * Sanitizes a fatal error log as it is read, line by line, with the rules of the command
+ */
 public class SanitizeHserrCommandProcessor implements CliCommandProcessor {
 
     private static final InternalLogger LOGGER = InternalLogger.getLogger(SanitizeHserrCommandProcessor.class);
@@ -41,40 +45,17 @@ public class SanitizeHserrCommandProcessor implements CliCommandProcessor {
         LOGGER.info("Output File: {}", command.getOutputFile());
 
         final Instant now = Instant.now();
+        final HserrSanitizer sanitizer = new HserrSanitizer(command.getRules(), command.getSensitiveKeys());
         try (final InputStream inputStream = streamFactory.newInputStream();
-                final OutputStream outputStream = streamFactory.newOutputStream()) {
+                final OutputStream outputStream = streamFactory.newOutputStream();
+                final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+                final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
 
-            final List<String> lines = IOUtils.readLines(inputStream, StandardCharsets.UTF_8);
-            final List<String> sanitizedLines = sanitize(lines);
-
-            IOUtils.writeLines(sanitizedLines, System.lineSeparator(), outputStream, StandardCharsets.UTF_8);
+            sanitizer.sanitize(reader, writer);
         }
         LOGGER.info("Finished hs_err sanitization in {}", getFriendlyDuration(now));
     }
 
-    private List<String> sanitize(final List<String> lines) {
-        boolean inEnvVarSection = false;
-        final List<String> sanitizedLines = new ArrayList<>();
-        for (final String line : lines) {
-            String newLine = line;
-
-            if (line.startsWith("Environment Variables:")) {
-                inEnvVarSection = true;
-
-            } else if (inEnvVarSection) {
-                if (line.isEmpty()) {
-                    inEnvVarSection = false;
-                } else {
-                    final String key = StringUtils.substringBefore(line, "=");
-                    newLine = key + "=****";
-                }
-            }
-            
-            sanitizedLines.add(newLine);
-        }
-        return sanitizedLines;
-    }
-
     private static SanitizeCommand asSanitizeCommand(final SanitizeHserrCommand command) {
         final SanitizeCommand sanitizeCommand = new SanitizeCommand();
         sanitizeCommand.setInputFile(command.getInputFile());
@@ -0,0 +1,11 @@
+package com.paypal.heapdumptool.jfr;
+
+/**
+ * Block of zip output, with the time spent in deflating and writing it
+ */
+public class CompressionBlockEvent extends PipelineEvent {
+
+    public long uncompressedBytes;
+    public long compressedBytes;
+    public long deflateTime;
+}
@@ -0,0 +1,10 @@
+package com.paypal.heapdumptool.jfr;
+
+/**
+ * External process run to completion, such as docker exec or docker cp
+ */
+public class ExternalProcessEvent extends PipelineEvent {
+
+    public String command;
+    public int exitCode;
+}
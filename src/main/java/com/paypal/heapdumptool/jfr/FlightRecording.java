@@ -0,0 +1,33 @@
+package com.paypal.heapdumptool.jfr;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * JDK Flight Recorder recording of a run, for {@code --jfr}. Needs Java 11+, where the multi-release jar replaces this class
+ * (see src/main/java11)
+ */
+public class FlightRecording implements Closeable {
+
+    /**
+     * @return started recording, to be written to given file on close. Or null if given file is null
+     */
+    public static FlightRecording start(final Path output) throws IOException {
+        if (output == null) {
+            return null;
+        }
+        throw new IllegalArgumentException("--jfr requires Java 11 or later");
+    }
+
+    /**
+     * @return true if any recording is running, including ones started with -XX:StartFlightRecording
+     */
+    public static boolean isRecording() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
@@ -0,0 +1,171 @@
+package com.paypal.heapdumptool.jfr;
+
+import com.paypal.heapdumptool.utils.BufferedZipOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams emitting {@link IoWaitEvent} and {@link CompressionBlockEvent}. Only used if a recording is running when the
+ * streams are created, so that there is no cost at all otherwise
+ */
+public class InstrumentedStreams {
+
+    // uncompressed bytes per compression block event, as writes through the sanitizer are mostly a few bytes each
+    private static final long COMPRESSION_BLOCK_SIZE = 16 * 1024 * 1024;
+
+    public static InputStream withIoWaitEvents(final InputStream inputStream) {
+        return FlightRecording.isRecording()
+               ? new IoWaitInputStream(inputStream)
+               : inputStream;
+    }
+
+    public static OutputStream withIoWaitEvents(final OutputStream outputStream) {
+        return FlightRecording.isRecording()
+               ? new IoWaitOutputStream(outputStream)
+               : outputStream;
+    }
+
+    /**
+     * @param bufferSize of the uncompressed bytes collected before deflating them
+     */
+    public static ZipOutputStream newZipOutputStream(final OutputStream outputStream, final int bufferSize) {
+        return FlightRecording.isRecording()
+               ? new CompressionBlockZipOutputStream(new CountingOutputStream(outputStream), bufferSize)
+               : new BufferedZipOutputStream(outputStream, bufferSize);
+    }
+
+    private InstrumentedStreams() {
+        throw new AssertionError();
+    }
+
+    private static class IoWaitInputStream extends FilterInputStream {
+
+        IoWaitInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final IoWaitEvent event = new IoWaitEvent();
+            event.begin();
+            final int b = super.read();
+            commit(event, "read", b == -1 ? 0 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final IoWaitEvent event = new IoWaitEvent();
+            event.begin();
+            final int count = super.read(b, off, len);
+            commit(event, "read", Math.max(count, 0));
+            return count;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final IoWaitEvent event = new IoWaitEvent();
+            event.begin();
+            final long count = super.skip(n);
+            commit(event, "skip", count);
+            return count;
+        }
+    }
+
+    private static class IoWaitOutputStream extends FilterOutputStream {
+
+        IoWaitOutputStream(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            final IoWaitEvent event = new IoWaitEvent();
+            event.begin();
+            out.write(b);
+            commit(event, "write", 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            final IoWaitEvent event = new IoWaitEvent();
+            event.begin();
+            out.write(b, off, len);
+            commit(event, "write", len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            final IoWaitEvent event = new IoWaitEvent();
+            event.begin();
+            out.flush();
+            commit(event, "flush", 0);
+        }
+    }
+
+    private static void commit(final IoWaitEvent event, final String operation, final long numBytes) {
+        event.operation = operation;
+        event.numBytes = numBytes;
+        event.commit();
+    }
+
+    /**
+     * Sums up the time spent deflating and writing through, over blocks of {@link #COMPRESSION_BLOCK_SIZE}
+     */
+    private static class CompressionBlockZipOutputStream extends BufferedZipOutputStream {
+
+        private final CountingOutputStream compressedOutput;
+        private CompressionBlockEvent event;
+        private long compressedBytesAtBegin;
+        private long uncompressedBytes;
+        private long deflateNanos;
+
+        CompressionBlockZipOutputStream(final CountingOutputStream compressedOutput, final int bufferSize) {
+            super(compressedOutput, bufferSize);
+            this.compressedOutput = compressedOutput;
+        }
+
+        @Override
+        protected void deflate(final byte[] b, final int off, final int len) throws IOException {
+            if (event == null) {
+                event = new CompressionBlockEvent();
+                event.begin();
+                compressedBytesAtBegin = compressedOutput.getByteCount();
+            }
+            final long start = System.nanoTime();
+            super.deflate(b, off, len);
+            deflateNanos += System.nanoTime() - start;
+            uncompressedBytes += len;
+
+            if (uncompressedBytes >= COMPRESSION_BLOCK_SIZE) {
+                commitBlock();
+            }
+        }
+
+        @Override
+        public void closeEntry() throws IOException {
+            super.closeEntry();
+            commitBlock();
+        }
+
+        private void commitBlock() {
+            if (event == null) {
+                return;
+            }
+            event.uncompressedBytes = uncompressedBytes;
+            event.compressedBytes = compressedOutput.getByteCount() - compressedBytesAtBegin;
+            event.deflateTime = deflateNanos;
+            event.commit();
+
+            event = null;
+            uncompressedBytes = 0;
+            deflateNanos = 0;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.paypal.heapdumptool.jfr;
+
+/**
+ * Read from the input file or write to the output file, below any buffering
+ */
+public class IoWaitEvent extends PipelineEvent {
+
+    public String operation;
+    public long numBytes;
+}
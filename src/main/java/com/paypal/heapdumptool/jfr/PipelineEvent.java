@@ -0,0 +1,23 @@
+package com.paypal.heapdumptool.jfr;
+
+/**
+ * No-op base of the pipeline events on Java 8, which has no JDK Flight Recorder API. On Java 11+, the multi-release jar
+ * replaces each event with a {@code jdk.jfr.Event} subclass of the same name (see src/main/java11). Callers make the same
+ * begin/commit calls either way, which the JIT reduces to nothing here, and which JFR makes next to free while the event is
+ * not recorded.
+ */
+public abstract class PipelineEvent {
+
+    public void begin() {
+    }
+
+    public void end() {
+    }
+
+    public void commit() {
+    }
+
+    public boolean shouldCommit() {
+        return false;
+    }
+}
@@ -0,0 +1,10 @@
+package com.paypal.heapdumptool.jfr;
+
+/**
+ * Top level heap dump record copied, sanitizing as needed
+ */
+public class RecordParsedEvent extends PipelineEvent {
+
+    public int tag;
+    public long length;
+}
@@ -0,0 +1,11 @@
+package com.paypal.heapdumptool.jfr;
+
+/**
+ * Heap dump segment record copied, sanitizing as needed
+ */
+public class SegmentSanitizedEvent extends PipelineEvent {
+
+    public long length;
+    public long numSubRecords;
+    public long numBytesSanitized;
+}
@@ -0,0 +1,49 @@
+package com.paypal.heapdumptool.join;
+
+import com.paypal.heapdumptool.cli.CliCommand;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
+
+import java.nio.file.Path;
+
+import static org.apache.commons.lang3.builder.ToStringBuilder.reflectionToString;
+import static org.apache.commons.lang3.builder.ToStringStyle.MULTI_LINE_STYLE;
+
+@Command(name = "join", description = "Reassemble chunk files of sanitize --split-size, verifying their checksums", abbreviateSynopsis = true)
+public class JoinCommand implements CliCommand {
+
+    // to allow field injection from picocli, these variables can't be final
+
+    @Parameters(index = "0", description = "Input .manifest.json of the chunks")
+    private Path manifestFile;
+
+    @Parameters(index = "1", description = "Output file. File, stdout, or stderr")
+    private Path outputFile;
+
+    @Override
+    public Class<JoinCommandProcessor> getProcessorClass() {
+        return JoinCommandProcessor.class;
+    }
+
+    public Path getManifestFile() {
+        return manifestFile;
+    }
+
+    public void setManifestFile(final Path manifestFile) {
+        this.manifestFile = manifestFile;
+    }
+
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    public void setOutputFile(final Path outputFile) {
+        this.outputFile = outputFile;
+    }
+
+    @Override
+    public String toString() {
+        return reflectionToString(this, MULTI_LINE_STYLE);
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.paypal.heapdumptool.join;
+
+import com.paypal.heapdumptool.cli.CliCommandProcessor;
+import com.paypal.heapdumptool.sanitizer.SanitizeCommand;
+import com.paypal.heapdumptool.sanitizer.SanitizeStreamFactory;
+import com.paypal.heapdumptool.sanitizer.SplitManifest;
+import com.paypal.heapdumptool.utils.InternalLogger;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+
+import static com.paypal.heapdumptool.utils.DateTimeTool.getFriendlyDuration;
+
+/**
+ * Reassembles the chunks of a split output into one file. Chunks are streamed in order, and each is verified against
+ * the checksum of the manifest, so a corrupt or missing chunk fails the join.
+ */
+public class JoinCommandProcessor implements CliCommandProcessor {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(JoinCommandProcessor.class);
+
+    private final JoinCommand command;
+
+    private final SanitizeStreamFactory streamFactory;
+
+    public JoinCommandProcessor(final JoinCommand command) {
+        Validate.isTrue(command.getManifestFile() != null && SplitManifest.isManifest(command.getManifestFile()),
+                        "Not a %s file: %s", SplitManifest.MANIFEST_SUFFIX, command.getManifestFile());
+        this.command = command;
+        this.streamFactory = new SanitizeStreamFactory(asSanitizeCommand(command));
+    }
+
+    @Override
+    public void process() throws Exception {
+        LOGGER.info("Starting join");
+        LOGGER.info("Manifest File: {}", command.getManifestFile());
+        LOGGER.info("Output File: {}", command.getOutputFile());
+
+        final Instant now = Instant.now();
+        final long numBytes;
+        try (final InputStream inputStream = streamFactory.newInputStream();
+             final OutputStream outputStream = streamFactory.newOutputStream()) {
+            numBytes = IOUtils.copyLarge(inputStream, outputStream);
+        }
+        LOGGER.info("Finished join of {} bytes in {}", numBytes, getFriendlyDuration(now));
+    }
+
+    private static SanitizeCommand asSanitizeCommand(final JoinCommand command) {
+        final SanitizeCommand sanitizeCommand = new SanitizeCommand();
+        sanitizeCommand.setInputFile(command.getManifestFile());
+        sanitizeCommand.setOutputFile(command.getOutputFile());
+        return sanitizeCommand;
+    }
+}
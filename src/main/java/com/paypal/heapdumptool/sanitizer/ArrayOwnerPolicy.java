@@ -0,0 +1,134 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.utils.LongIntHashMap;
+import com.paypal.heapdumptool.utils.MappedLongHashSet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.paypal.heapdumptool.utils.LongIntHashMap.MISSING;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Sanitization decisions for arrays by the classes of the objects referencing them, rather than by element type alone.
+ * <p>
+ * Object ids referenced by instances of owner classes are recorded in memory-mapped sets. References are also followed
+ * through Strings and object arrays which are themselves recorded, e.g. from an owner's String field to the String's value
+ * array. Heap dumps are in no particular object order, so this relies on the pre-processing pass: whatever is recorded by
+ * the end of it applies to the whole of the main pass. A chain seen in the wrong order in both passes is not followed.
+ * <p>
+ * Owner class patterns are as in {@link ClassPatternTrie}, e.g. {@code io.netty.buffer.**}.
+ */
+class ArrayOwnerPolicy implements Closeable {
+
+    /**
+     * In order of precedence, lowest first. Also used for the field and element type rules of {@link SanitizePolicy}
+     */
+    enum Decision {
+        NONE,
+        KEEP,
+        TOKENIZE,
+        SANITIZE;
+
+        static Decision max(final Decision a, final Decision b) {
+            return a.ordinal() >= b.ordinal() ? a : b;
+        }
+    }
+
+    private static final Decision[] DECISIONS = Decision.values();
+
+    private final ClassPatternTrie<Decision> ownerPatterns;
+    private final MappedLongHashSet keepIds;
+    private final MappedLongHashSet tokenizeIds;
+    private final MappedLongHashSet sanitizeIds;
+
+    // class object id to decision ordinal
+    private final LongIntHashMap classDecisions = new LongIntHashMap();
+
+    ArrayOwnerPolicy(final List<String> keepPatterns, final List<String> sanitizePatterns, final Path tempDir) throws IOException {
+        this(toPatterns(keepPatterns, sanitizePatterns), tempDir);
+    }
+
+    ArrayOwnerPolicy(final ClassPatternTrie<Decision> ownerPatterns, final Path tempDir) throws IOException {
+        this.ownerPatterns = ownerPatterns;
+        this.keepIds = new MappedLongHashSet(tempDir);
+        MappedLongHashSet tokenizeIds = null;
+        try {
+            tokenizeIds = new MappedLongHashSet(tempDir);
+            this.sanitizeIds = new MappedLongHashSet(tempDir);
+        } catch (final IOException e) {
+            closeQuietly(keepIds, tokenizeIds);
+            throw e;
+        }
+        this.tokenizeIds = tokenizeIds;
+    }
+
+    private static ClassPatternTrie<Decision> toPatterns(final List<String> keepPatterns, final List<String> sanitizePatterns) {
+        final ClassPatternTrie<Decision> ownerPatterns = new ClassPatternTrie<>();
+        keepPatterns.forEach(pattern -> ownerPatterns.add(pattern, Decision.KEEP));
+        sanitizePatterns.forEach(pattern -> ownerPatterns.add(pattern, Decision.SANITIZE));
+        return ownerPatterns;
+    }
+
+    /**
+     * @return decision for objects referenced by instances of given class. The highest precedence wins if several patterns
+     * match
+     */
+    Decision getOwnerDecision(final long classObjectId, final String className) {
+        final int ordinal = classDecisions.get(classObjectId);
+        if (ordinal != MISSING) {
+            return DECISIONS[ordinal];
+        }
+
+        final Decision decision = ownerPatterns.match(className)
+                .stream()
+                .reduce(Decision.NONE, Decision::max);
+        classDecisions.put(classObjectId, decision.ordinal());
+        return decision;
+    }
+
+    /**
+     * @return decision for given object, from the owners referencing it. The highest precedence wins if referenced by several
+     */
+    Decision getReferenceDecision(final long objectId) {
+        if (sanitizeIds.contains(objectId)) {
+            return Decision.SANITIZE;
+        }
+        if (tokenizeIds.contains(objectId)) {
+            return Decision.TOKENIZE;
+        }
+        return keepIds.contains(objectId) ? Decision.KEEP : Decision.NONE;
+    }
+
+    void addReference(final Decision decision, final long objectId) throws IOException {
+        if (objectId == 0) {
+            return;
+        }
+        if (decision == Decision.SANITIZE) {
+            sanitizeIds.add(objectId);
+        } else if (decision == Decision.TOKENIZE) {
+            tokenizeIds.add(objectId);
+        } else if (decision == Decision.KEEP) {
+            keepIds.add(objectId);
+        }
+    }
+
+    long getNumKeepIds() {
+        return keepIds.size();
+    }
+
+    long getNumTokenizeIds() {
+        return tokenizeIds.size();
+    }
+
+    long getNumSanitizeIds() {
+        return sanitizeIds.size();
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(keepIds, tokenizeIds, sanitizeIds);
+    }
+}
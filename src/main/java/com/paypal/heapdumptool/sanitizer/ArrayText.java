@@ -0,0 +1,96 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import java.nio.ByteOrder;
+
+/**
+ * Read-only text view of byte or char array contents as they are in a heap dump, for matching patterns without
+ * decoding into a String. Bytes are read as Latin-1 characters, and chars as big-endian UTF-16 code units. Byte arrays
+ * of UTF-16 text, e.g. of strings on JDK 9+, are read as UTF-16 code units in the byte order of the dumped JVM.
+ */
+class ArrayText implements CharSequence {
+
+    private byte[] bytes;
+    private int length;
+    private int bytesPerChar;
+    private boolean isBigEndian;
+
+    /**
+     * @param numBytes     number of bytes of given array to view
+     * @param bytesPerChar 1 for byte arrays, 2 for char arrays
+     */
+    void reset(final byte[] bytes, final int numBytes, final int bytesPerChar) {
+        reset(bytes, numBytes, bytesPerChar, true);
+    }
+
+    /**
+     * @param numBytes     number of bytes of given array to view
+     * @param bytesPerChar 1 for Latin-1 bytes, 2 for UTF-16 code units
+     * @param isBigEndian  byte order of UTF-16 code units
+     */
+    void reset(final byte[] bytes, final int numBytes, final int bytesPerChar, final boolean isBigEndian) {
+        this.bytes = bytes;
+        this.length = numBytes / bytesPerChar;
+        this.bytesPerChar = bytesPerChar;
+        this.isBigEndian = isBigEndian;
+    }
+
+    /**
+     * @param isUtf16 whether given bytes are known to be UTF-16, e.g. the value of a UTF-16 String
+     * @return byte order of UTF-16 text in given bytes, going by which byte of each pair is more often 0, as the high byte
+     * of a Latin-1 character. Heap dumps don't record the byte order of the dumped JVM. null if not known to be UTF-16,
+     * and neither byte is 0 in at least half of the pairs, e.g. for Latin-1 text
+     */
+    static ByteOrder findUtf16ByteOrder(final byte[] bytes, final int numBytes, final boolean isUtf16) {
+        if (numBytes == 0 || numBytes % 2 != 0) {
+            return null;
+        }
+        int numFirstZeros = 0;
+        int numSecondZeros = 0;
+        for (int i = 0; i < numBytes; i += 2) {
+            if (bytes[i] == 0) {
+                numFirstZeros++;
+            }
+            if (bytes[i + 1] == 0) {
+                numSecondZeros++;
+            }
+        }
+        if (!isUtf16 && Math.max(numFirstZeros, numSecondZeros) * 2 < numBytes / 2) {
+            return null;
+        }
+        return numFirstZeros > numSecondZeros ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+    }
+
+    int getBytesPerChar() {
+        return bytesPerChar;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (bytesPerChar == 1) {
+            return (char) (bytes[index] & 0xFF);
+        }
+        final int offset = index << 1;
+        return isBigEndian
+               ? (char) ((bytes[offset] & 0xFF) << 8 | bytes[offset + 1] & 0xFF)
+               : (char) ((bytes[offset + 1] & 0xFF) << 8 | bytes[offset] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        final StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            sb.append(charAt(i));
+        }
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+}
@@ -0,0 +1,242 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.cli.CliCommandProcessor;
+import com.paypal.heapdumptool.jfr.FlightRecording;
+import com.paypal.heapdumptool.utils.FileGlobTool;
+import com.paypal.heapdumptool.utils.InternalLogger;
+import com.paypal.heapdumptool.utils.JsonWriter;
+import com.paypal.heapdumptool.utils.ResourceGovernor;
+import com.paypal.heapdumptool.utils.Throttle;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.paypal.heapdumptool.utils.DateTimeTool.getFriendlyDuration;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
+
+/**
+ * Sanitizes many heap dumps, e.g. a backlog pulled from crash collectors, in one JVM.
+ * <p>
+ * Each heap dump is written to a .partial file in the output directory, which is renamed once sanitized. Heap dumps
+ * whose output already exists are skipped, so a batch can be re-run after an interruption, and with --resume partial
+ * outputs continue from their last checkpoint. --max-io-rate and --max-cpu bound the batch as a whole.
+ */
+public class BatchSanitizeCommandProcessor implements CliCommandProcessor {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(BatchSanitizeCommandProcessor.class);
+
+    static final String PARTIAL_SUFFIX = ".partial";
+
+    // read, write, and compress buffers
+    private static final long BUFFERS_BYTES = 3 * IoProfile.HDD.getReadBufferSize().toBytes();
+
+    // symbol and id maps of the passes over a heap dump, about 1% of its size
+    private static final long HEAP_DUMP_BYTES_PER_MAP_BYTE = 100;
+
+    private final SanitizeCommand command;
+
+    public BatchSanitizeCommandProcessor(final SanitizeCommand command) {
+        Validate.notNull(command.getBatch(), "--batch is required");
+        Validate.notNull(command.getOutDir(), "--batch requires --out-dir");
+        Validate.isTrue(command.getInputFile() == null && command.getOutputFile() == null,
+                        "--batch cannot be used with input and output files");
+        Validate.isTrue(command.getHistogramOutput() == null, "--batch cannot be used with --histogram-output");
+        Validate.isTrue(command.getSplitSize() == null, "--batch cannot be used with --split-size");
+        Validate.isTrue(command.getMaxCpu() >= 0, "Invalid max cpu: %s", command.getMaxCpu());
+        Validate.isTrue(command.getMaxIoRate() == null || command.getMaxIoRate().toBytes() > 0, "Invalid max io rate: %s", command.getMaxIoRate());
+        this.command = command;
+    }
+
+    @Override
+    @SuppressWarnings("try") // flight recording only needs to be closed
+    public void process() throws Exception {
+        final Instant now = Instant.now();
+        final List<Path> inputFiles = findInputFiles(command.getBatch());
+        Validate.isTrue(!inputFiles.isEmpty(), "Cannot find heap dumps. batch=%s", command.getBatch());
+        validateUniqueFileNames(inputFiles);
+        Files.createDirectories(command.getOutDir());
+
+        final int numWorkers = command.getMaxConcurrentSanitizations() > 0
+                               ? command.getMaxConcurrentSanitizations()
+                               : ResourceGovernor.getInstance().getParallelism();
+        final long memoryBudget = command.getBatchMemory() != null
+                                  ? command.getBatchMemory().toBytes()
+                                  : Runtime.getRuntime().maxMemory() / 4 * 3;
+        LOGGER.info("Sanitizing batch of {} heap dumps. outDir={} maxConcurrentSanitizations={} batchMemory={}",
+                    inputFiles.size(), command.getOutDir(), numWorkers, byteCountToDisplaySize(memoryBudget));
+        command.getPriority().apply();
+
+        final List<BatchJob> jobs = new ArrayList<>();
+        for (final Path inputFile : inputFiles) {
+            jobs.add(new BatchJob(inputFile, getOutputFile(inputFile), Files.size(inputFile)));
+        }
+        final List<BatchJob> pendingJobs = new ArrayList<>();
+        for (final BatchJob job : jobs) {
+            if (Files.exists(job.outputFile)) {
+                job.state = BatchState.SKIPPED;
+                LOGGER.info("Skipping {}, already sanitized to {}", job.inputFile, job.outputFile);
+            } else {
+                pendingJobs.add(job);
+            }
+        }
+
+        // shared by all, so that --max-io-rate and --max-cpu bound the whole batch
+        final DataSize maxIoRate = command.getMaxIoRate();
+        final Throttle throttle = Throttle.create(maxIoRate == null ? 0 : maxIoRate.toBytes(), command.getMaxCpu());
+        pendingJobs.forEach(job -> job.throttle = throttle);
+
+        try (final FlightRecording recording = FlightRecording.start(command.getJfrOutput())) {
+            new BatchScheduler(numWorkers, memoryBudget).run(pendingJobs);
+        }
+        if (command.getJfrOutput() != null) {
+            LOGGER.info("Flight recording: {}", command.getJfrOutput());
+        }
+
+        for (final BatchJob job : jobs) {
+            LOGGER.info("{} status={} output={} error={}", job.inputFile, job.state, job.outputFile, job.error);
+        }
+        if (command.getReportOutput() != null) {
+            writeReport(jobs, command.getReportOutput());
+            LOGGER.info("Report File: {}", command.getReportOutput());
+        }
+        final long numFailed = jobs.stream()
+                                   .filter(job -> job.state == BatchState.FAILED)
+                                   .count();
+        Validate.validState(numFailed == 0, "Cannot sanitize %s of %s heap dumps", numFailed, jobs.size());
+        LOGGER.info("Finished batch of {} heap dumps in {}", jobs.size(), getFriendlyDuration(now));
+    }
+
+    /**
+     * @param batch directory, whose .hprof files are taken, or glob
+     * @return matching files, sorted
+     */
+    static List<Path> findInputFiles(final String batch) throws IOException {
+        return FileGlobTool.find(batch, "*.hprof");
+    }
+
+    private static void validateUniqueFileNames(final List<Path> inputFiles) {
+        final Set<Path> fileNames = new HashSet<>();
+        for (final Path inputFile : inputFiles) {
+            Validate.isTrue(fileNames.add(inputFile.getFileName()),
+                            "Heap dumps in different dirs have the same name, which would have the same output: %s", inputFile);
+        }
+    }
+
+    private Path getOutputFile(final Path inputFile) {
+        final String fileName = inputFile.getFileName().toString();
+        return command.getOutDir().resolve(command.isZipOutput() ? fileName + ".zip" : fileName);
+    }
+
+    private static long estimateMemoryBytes(final long inputFileSize) {
+        return BUFFERS_BYTES + inputFileSize / HEAP_DUMP_BYTES_PER_MAP_BYTE;
+    }
+
+    private static void writeReport(final List<BatchJob> jobs, final Path file) throws IOException {
+        try (final Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             final JsonWriter json = new JsonWriter(writer)) {
+            json.beginObject();
+            for (final BatchState state : BatchState.values()) {
+                json.property(state.name().toLowerCase(), jobs.stream().filter(job -> job.state == state).count());
+            }
+            json.name("files").beginArray();
+            for (final BatchJob job : jobs) {
+                json.beginObject();
+                json.property("input", job.inputFile.toString());
+                json.property("output", job.outputFile.toString());
+                json.property("state", job.state.name());
+                json.property("bytes", job.inputFileSize);
+                if (job.wallNanos > 0) {
+                    json.property("wallMillis", TimeUnit.NANOSECONDS.toMillis(job.wallNanos));
+                    json.property("mbPerSecond", job.inputFileSize / 1e6 / (job.wallNanos / 1e9));
+                }
+                if (job.error != null) {
+                    json.property("error", job.error);
+                }
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+    }
+
+    enum BatchState {
+        PENDING,
+        SANITIZED,
+        SKIPPED,
+        FAILED
+    }
+
+    private class BatchJob implements BatchScheduler.Job {
+
+        private final Path inputFile;
+        private final Path outputFile;
+        private final long inputFileSize;
+        private Throttle throttle;
+
+        // written by the worker, read after the workers are joined
+        private BatchState state = BatchState.PENDING;
+        private String error;
+        private long wallNanos;
+
+        BatchJob(final Path inputFile, final Path outputFile, final long inputFileSize) {
+            this.inputFile = inputFile;
+            this.outputFile = outputFile;
+            this.inputFileSize = inputFileSize;
+        }
+
+        @Override
+        public long getMemoryBytes() {
+            return estimateMemoryBytes(inputFileSize);
+        }
+
+        @Override
+        public void run() {
+            final long startNanos = System.nanoTime();
+            try {
+                sanitize();
+                state = BatchState.SANITIZED;
+                LOGGER.info("Sanitized {} in {}", inputFile, getFriendlyDuration(Duration.ofNanos(System.nanoTime() - startNanos)));
+            } catch (final Exception e) {
+                state = BatchState.FAILED;
+                error = e.toString();
+                LOGGER.info("Cannot sanitize {}: {}", inputFile, error);
+            }
+            wallNanos = System.nanoTime() - startNanos;
+        }
+
+        private void sanitize() throws Exception {
+            final Path partialFile = Paths.get(outputFile + PARTIAL_SUFFIX);
+
+            final SanitizeCommand fileCommand = new SanitizeCommand();
+            fileCommand.copyFrom(command);
+            fileCommand.setJfrOutput(null); // already recording the whole batch
+            fileCommand.setReportOutput(null); // written with the status of all files
+            fileCommand.setPriority(Priority.NORMAL); // already applied to the whole batch
+            fileCommand.setInputFile(inputFile);
+            fileCommand.setOutputFile(partialFile);
+            fileCommand.setZipOutput(command.isZipOutput());
+            fileCommand.setCheckpointInterval(command.getCheckpointInterval());
+            fileCommand.setResume(command.isResume() && Files.exists(partialFile));
+
+            final SanitizeStreamFactory streamFactory = new SanitizeStreamFactory(fileCommand);
+            streamFactory.setThrottle(throttle);
+            streamFactory.setFinalOutputFile(outputFile);
+            SanitizeCommandProcessor.newInstance(fileCommand, streamFactory).process();
+
+            Files.move(partialFile, outputFile, ATOMIC_MOVE);
+        }
+    }
+}
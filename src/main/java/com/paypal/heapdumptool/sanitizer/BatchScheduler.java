@@ -0,0 +1,100 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Runs the jobs of a batch on a pool of workers, within a memory budget.
+ * <p>
+ * Jobs are taken largest first, so that the largest heap dump, which takes longest, starts early while the other
+ * workers get through the smaller ones. A job is only taken once its memory fits in what is left of the budget. If the
+ * largest pending job does not fit, an idle worker takes the largest one which does, so that one big heap dump does not
+ * hold up the rest. A job larger than the whole budget runs once nothing else is running.
+ */
+class BatchScheduler {
+
+    private final int numWorkers;
+    private final long memoryBudget;
+
+    // largest first
+    private final LinkedList<Job> pending = new LinkedList<>();
+    private long memoryInUse;
+    private int numRunning;
+
+    BatchScheduler(final int numWorkers, final long memoryBudget) {
+        Validate.isTrue(numWorkers > 0, "Invalid max concurrent sanitizations: %s", numWorkers);
+        Validate.isTrue(memoryBudget > 0, "Invalid batch memory: %s", memoryBudget);
+        this.numWorkers = numWorkers;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Runs given jobs, and waits for all of them. Jobs handle their own failures
+     */
+    void run(final List<? extends Job> jobs) throws InterruptedException {
+        synchronized (this) {
+            pending.addAll(jobs);
+            pending.sort(Comparator.comparingLong(Job::getMemoryBytes).reversed());
+        }
+        final List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(numWorkers, jobs.size()); i++) {
+            final Thread worker = new Thread(this::work, "batch-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+        for (final Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    synchronized long getMemoryInUse() {
+        return memoryInUse;
+    }
+
+    private void work() {
+        try {
+            for (Job job = take(); job != null; job = take()) {
+                try {
+                    job.run();
+                } finally {
+                    release(job);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized Job take() throws InterruptedException {
+        while (!pending.isEmpty()) {
+            for (final Job job : pending) {
+                if (numRunning == 0 || memoryInUse + job.getMemoryBytes() <= memoryBudget) {
+                    pending.remove(job);
+                    memoryInUse += job.getMemoryBytes();
+                    numRunning++;
+                    return job;
+                }
+            }
+            wait();
+        }
+        return null;
+    }
+
+    private synchronized void release(final Job job) {
+        memoryInUse -= job.getMemoryBytes();
+        numRunning--;
+        notifyAll();
+    }
+
+    interface Job extends Runnable {
+
+        /**
+         * @return estimate of memory used while running
+         */
+        long getMemoryBytes();
+    }
+}
@@ -0,0 +1,250 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.utils.JsonWriter;
+import com.paypal.heapdumptool.utils.LongIntHashMap;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Strings;
+import org.apache.commons.text.StringEscapeUtils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongFunction;
+
+/**
+ * Instance counts and shallow sizes per class, aggregated while {@link HeapDumpSanitizer} streams through a heap dump.
+ * <p>
+ * Shallow size is the size of the instance field values or array elements as recorded in the heap dump. It does not
+ * include object headers or alignment padding, which are not part of the heap dump, so it is lower than what a JVM or a
+ * heap analyzer reports.
+ */
+public class ClassHistogram {
+
+    private static final int MAX_BASIC_TYPE_CODE = 11;
+
+    // instances and object arrays, keyed by dense index of class object id
+    private final LongIntHashMap classIndexes = new LongIntHashMap();
+    private long[] classObjectIds = new long[1024];
+    private long[] counts = new long[1024];
+    private long[] bytes = new long[1024];
+    private int numClasses;
+
+    // primitive arrays, keyed by basic type code
+    private final long[] primitiveArrayCounts = new long[MAX_BASIC_TYPE_CODE + 1];
+    private final long[] primitiveArrayBytes = new long[MAX_BASIC_TYPE_CODE + 1];
+
+    private String[] classNames = new String[0];
+
+    /**
+     * Instance or object array of given class
+     */
+    public void add(final long classObjectId, final long numBytes) {
+        final int index = indexOf(classObjectId);
+        counts[index]++;
+        bytes[index] += numBytes;
+    }
+
+    public void addPrimitiveArray(final int elementType, final long numBytes) {
+        primitiveArrayCounts[elementType]++;
+        primitiveArrayBytes[elementType] += numBytes;
+    }
+
+    public void addAll(final ClassHistogram other) {
+        for (int i = 0; i < other.numClasses; i++) {
+            final int index = indexOf(other.classObjectIds[i]);
+            counts[index] += other.counts[i];
+            bytes[index] += other.bytes[i];
+        }
+        for (int i = 0; i <= MAX_BASIC_TYPE_CODE; i++) {
+            primitiveArrayCounts[i] += other.primitiveArrayCounts[i];
+            primitiveArrayBytes[i] += other.primitiveArrayBytes[i];
+        }
+    }
+
+    /**
+     * Resolve class names once the heap dump has been fully read, as the names are only known to the sanitizer
+     */
+    public void resolveClassNames(final LongFunction<String> classNameResolver) {
+        classNames = new String[numClasses];
+        for (int i = 0; i < numClasses; i++) {
+            final String className = classNameResolver.apply(classObjectIds[i]);
+            classNames[i] = className.isEmpty()
+                            ? "0x" + Long.toHexString(classObjectIds[i])
+                            : toDisplayName(className);
+        }
+    }
+
+    public List<Entry> getEntries() {
+        final List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < numClasses; i++) {
+            final String className = i < classNames.length ? classNames[i] : "0x" + Long.toHexString(classObjectIds[i]);
+            entries.add(new Entry(className, counts[i], bytes[i]));
+        }
+        for (final BasicType type : BasicType.values()) {
+            final int code = type.getU1Code();
+            if (primitiveArrayCounts[code] > 0) {
+                final String className = type.name().toLowerCase(Locale.ROOT) + "[]";
+                entries.add(new Entry(className, primitiveArrayCounts[code], primitiveArrayBytes[code]));
+            }
+        }
+        entries.sort(Comparator.comparingLong((Entry entry) -> entry.bytes).reversed()
+                               .thenComparing(entry -> entry.className));
+        return entries;
+    }
+
+    /**
+     * Write as JSON if file name ends with .json, CSV otherwise
+     */
+    public void write(final Path file) throws IOException {
+        final List<Entry> entries = getEntries();
+        try (final Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (Strings.CI.endsWith(file.getFileName().toString(), ".json")) {
+                writeJson(entries, writer);
+            } else {
+                writeCsv(entries, writer);
+            }
+        }
+    }
+
+    void writeTo(final DataOutputStream output) throws IOException {
+        output.writeInt(numClasses);
+        for (int i = 0; i < numClasses; i++) {
+            output.writeLong(classObjectIds[i]);
+            output.writeLong(counts[i]);
+            output.writeLong(bytes[i]);
+        }
+        for (int i = 0; i <= MAX_BASIC_TYPE_CODE; i++) {
+            output.writeLong(primitiveArrayCounts[i]);
+            output.writeLong(primitiveArrayBytes[i]);
+        }
+    }
+
+    static ClassHistogram readFrom(final DataInputStream input) throws IOException {
+        final ClassHistogram histogram = new ClassHistogram();
+        final int size = input.readInt();
+        for (int i = 0; i < size; i++) {
+            final int index = histogram.indexOf(input.readLong());
+            histogram.counts[index] = input.readLong();
+            histogram.bytes[index] = input.readLong();
+        }
+        for (int i = 0; i <= MAX_BASIC_TYPE_CODE; i++) {
+            histogram.primitiveArrayCounts[i] = input.readLong();
+            histogram.primitiveArrayBytes[i] = input.readLong();
+        }
+        return histogram;
+    }
+
+    private int indexOf(final long classObjectId) {
+        final int index = classIndexes.get(classObjectId);
+        if (index != LongIntHashMap.MISSING) {
+            return index;
+        }
+
+        if (numClasses == counts.length) {
+            final int newLength = numClasses * 2;
+            classObjectIds = Arrays.copyOf(classObjectIds, newLength);
+            counts = Arrays.copyOf(counts, newLength);
+            bytes = Arrays.copyOf(bytes, newLength);
+        }
+        final int newIndex = numClasses++;
+        classObjectIds[newIndex] = classObjectId;
+        classIndexes.put(classObjectId, newIndex);
+        return newIndex;
+    }
+
+    private static void writeCsv(final List<Entry> entries, final Writer writer) throws IOException {
+        writer.write("class,instances,bytes");
+        writer.write(System.lineSeparator());
+        for (final Entry entry : entries) {
+            writer.write(StringEscapeUtils.escapeCsv(entry.className));
+            writer.write(',');
+            writer.write(Long.toString(entry.instances));
+            writer.write(',');
+            writer.write(Long.toString(entry.bytes));
+            writer.write(System.lineSeparator());
+        }
+    }
+
+    private static void writeJson(final List<Entry> entries, final Writer writer) throws IOException {
+        final JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        json.property("totalInstances", entries.stream().mapToLong(entry -> entry.instances).sum());
+        json.property("totalBytes", entries.stream().mapToLong(entry -> entry.bytes).sum());
+        json.name("classes").beginArray();
+        for (final Entry entry : entries) {
+            json.beginObject()
+                .property("class", entry.className)
+                .property("instances", entry.instances)
+                .property("bytes", entry.bytes)
+                .endObject();
+        }
+        json.endArray();
+        json.endObject();
+        writer.write(System.lineSeparator());
+    }
+
+    // [Ljava.lang.String; -> java.lang.String[]
+    public static String toDisplayName(final String className) {
+        int dimensions = 0;
+        while (dimensions < className.length() && className.charAt(dimensions) == '[') {
+            dimensions++;
+        }
+        if (dimensions == 0) {
+            return className;
+        }
+
+        final String elementType = className.substring(dimensions);
+        final String elementClassName;
+        if (elementType.startsWith("L") && elementType.endsWith(";")) {
+            elementClassName = elementType.substring(1, elementType.length() - 1);
+        } else {
+            elementClassName = primitiveNameOf(elementType);
+        }
+        return elementClassName + StringUtils.repeat("[]", dimensions);
+    }
+
+    private static String primitiveNameOf(final String descriptor) {
+        switch (descriptor) {
+            case "Z":
+                return "boolean";
+            case "C":
+                return "char";
+            case "F":
+                return "float";
+            case "D":
+                return "double";
+            case "B":
+                return "byte";
+            case "S":
+                return "short";
+            case "I":
+                return "int";
+            case "J":
+                return "long";
+            default:
+                return descriptor;
+        }
+    }
+
+    public static class Entry {
+
+        public final String className;
+        public final long instances;
+        public final long bytes;
+
+        Entry(final String className, final long instances, final long bytes) {
+            this.className = className;
+            this.instances = instances;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class name patterns compiled into a trie over name segments, so that matching a class name costs about one hash lookup
+ * per segment, however many patterns there are. Meant to be evaluated once per class and memoized.
+ * <p>
+ * Segments are separated by {@code .}. Within a segment, {@code *} matches any characters and {@code ?} matches one
+ * character, e.g. {@code *Thread} or {@code Outer$*}. A {@code **} segment matches any number of segments, including none,
+ * e.g. {@code com.example.**}. A pattern without any {@code .} matches the simple name of classes in any package, e.g.
+ * {@code *Thread} is the same as {@code **.*Thread}. Otherwise a pattern without wildcards is an exact class name.
+ */
+class ClassPatternTrie<T> {
+
+    private static final String ANY_SEGMENTS = "**";
+
+    private final Node<T> root = new Node<>(false);
+
+    void add(final String classPattern, final T value) {
+        final String pattern = classPattern.indexOf('.') < 0
+                               ? ANY_SEGMENTS + "." + classPattern
+                               : classPattern;
+        Node<T> node = root;
+        for (final String segment : pattern.split("\\.", -1)) {
+            node = node.child(segment);
+        }
+        node.values.add(value);
+    }
+
+    /**
+     * @return values of all patterns matching given class name, in no particular order. May contain duplicates if
+     * duplicate values were added for different patterns
+     */
+    List<T> match(final String className) {
+        List<Node<T>> active = new ArrayList<>();
+        addWithClosure(active, root);
+
+        for (final String segment : className.split("\\.", -1)) {
+            final List<Node<T>> next = new ArrayList<>();
+            for (final Node<T> node : active) {
+                if (node.isAnySegments) {
+                    addWithClosure(next, node);
+                }
+                final Node<T> literalChild = node.literalChildren.get(segment);
+                if (literalChild != null) {
+                    addWithClosure(next, literalChild);
+                }
+                for (final Node<T> globChild : node.globChildren) {
+                    if (globMatches(globChild.segment, segment)) {
+                        addWithClosure(next, globChild);
+                    }
+                }
+            }
+            if (next.isEmpty()) {
+                return new ArrayList<>();
+            }
+            active = next;
+        }
+
+        final List<T> values = new ArrayList<>();
+        for (final Node<T> node : active) {
+            values.addAll(node.values);
+        }
+        return values;
+    }
+
+    /**
+     * @return true if given text matches given glob, where {@code *} matches any characters and {@code ?} matches one
+     */
+    static boolean globMatches(final String glob, final String text) {
+        int g = 0;
+        int t = 0;
+        int starGlob = -1;
+        int starText = -1;
+        while (t < text.length()) {
+            if (g < glob.length() && (glob.charAt(g) == '?' || glob.charAt(g) == text.charAt(t))) {
+                g++;
+                t++;
+            } else if (g < glob.length() && glob.charAt(g) == '*') {
+                starGlob = g++;
+                starText = t;
+            } else if (starGlob >= 0) {
+                g = starGlob + 1;
+                t = ++starText;
+            } else {
+                return false;
+            }
+        }
+        while (g < glob.length() && glob.charAt(g) == '*') {
+            g++;
+        }
+        return g == glob.length();
+    }
+
+    static boolean isGlob(final String text) {
+        return text.indexOf('*') >= 0 || text.indexOf('?') >= 0;
+    }
+
+    private static <T> void addWithClosure(final List<Node<T>> nodes, final Node<T> node) {
+        if (nodes.contains(node)) {
+            return;
+        }
+        nodes.add(node);
+        if (node.anySegmentsChild != null) {
+            // ** may match no segments at all
+            addWithClosure(nodes, node.anySegmentsChild);
+        }
+    }
+
+    private static class Node<T> {
+
+        private final boolean isAnySegments;
+        private final Map<String, Node<T>> literalChildren = new HashMap<>();
+        private final List<Node<T>> globChildren = new ArrayList<>();
+        private final List<T> values = new ArrayList<>();
+        private Node<T> anySegmentsChild;
+        private String segment;
+
+        Node(final boolean isAnySegments) {
+            this.isAnySegments = isAnySegments;
+        }
+
+        Node<T> child(final String segment) {
+            if (ANY_SEGMENTS.equals(segment)) {
+                if (anySegmentsChild == null) {
+                    anySegmentsChild = new Node<>(true);
+                }
+                return anySegmentsChild;
+            }
+            if (!isGlob(segment)) {
+                return literalChildren.computeIfAbsent(segment, key -> new Node<>(false));
+            }
+            for (final Node<T> globChild : globChildren) {
+                if (globChild.segment.equals(segment)) {
+                    return globChild;
+                }
+            }
+            final Node<T> globChild = new Node<>(false);
+            globChild.segment = segment;
+            globChildren.add(globChild);
+            return globChild;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Replaces content with a keyed pseudo-random token of the same length. Equal content gets equal tokens, so sanitized
+ * values can still be compared, while the content cannot be recovered without the key.
+ * <p>
+ * The token is an AES counter mode keystream, starting from a counter block taken from an HMAC-SHA256 of the content.
+ * Counter blocks are encrypted with AES/ECB, which the JVM runs on AES-NI where available. Not thread-safe: use one
+ * instance per thread. Nothing is allocated per call.
+ */
+class ContentTokenizer {
+
+    private static final int BLOCK_SIZE = 16;
+
+    private final Mac mac;
+    private final Cipher cipher;
+
+    private final byte[] macOutput;
+    private final byte[] counterBlocks;
+    private final byte[] keystream;
+
+    /**
+     * @param key            secret key. Anyone with the key can check whether a token belongs to given content
+     * @param maxTokenLength longest token to be generated per call
+     */
+    ContentTokenizer(final String key, final int maxTokenLength) {
+        try {
+            final byte[] keyBytes = key.getBytes(UTF_8);
+            mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(deriveKey(keyBytes, "mac"), "HmacSHA256"));
+
+            final byte[] aesKey = new byte[BLOCK_SIZE];
+            System.arraycopy(deriveKey(keyBytes, "aes"), 0, aesKey, 0, BLOCK_SIZE);
+            cipher = Cipher.getInstance("AES/ECB/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(aesKey, "AES"));
+
+            macOutput = new byte[mac.getMacLength()];
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize tokenizer", e);
+        }
+        final int roundedLength = (maxTokenLength + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+        counterBlocks = new byte[roundedLength];
+        keystream = new byte[roundedLength];
+    }
+
+    /**
+     * Replace given range of given buffer with its token
+     *
+     * @param context mixed into the token, e.g. so that chunks of a long array at different offsets get different tokens
+     */
+    void tokenize(final byte[] buffer, final int offset, final int length, final long context) {
+        if (length > keystream.length) {
+            throw new IllegalArgumentException("Token too long: " + length);
+        }
+        try {
+            for (int i = 56; i >= 0; i -= 8) {
+                mac.update((byte) (context >>> i));
+            }
+            mac.update(buffer, offset, length);
+            mac.doFinal(macOutput, 0);
+
+            final int numBlocks = (length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            for (int block = 0; block < numBlocks; block++) {
+                final int blockOffset = block * BLOCK_SIZE;
+                System.arraycopy(macOutput, 0, counterBlocks, blockOffset, BLOCK_SIZE);
+                addToCounter(counterBlocks, blockOffset, block);
+            }
+            cipher.update(counterBlocks, 0, numBlocks * BLOCK_SIZE, keystream, 0);
+        } catch (final ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+        System.arraycopy(keystream, 0, buffer, offset, length);
+    }
+
+    private static void addToCounter(final byte[] blocks, final int blockOffset, final int value) {
+        int carry = value;
+        for (int i = blockOffset + BLOCK_SIZE - 1; i >= blockOffset && carry != 0; i--) {
+            final int sum = (blocks[i] & 0xFF) + (carry & 0xFF);
+            blocks[i] = (byte) sum;
+            carry = (carry >>> 8) + (sum >>> 8);
+        }
+    }
+
+    private static byte[] deriveKey(final byte[] key, final String purpose) throws GeneralSecurityException {
+        final Mac derivation = Mac.getInstance("HmacSHA256");
+        derivation.init(new SecretKeySpec(key, "HmacSHA256"));
+        return derivation.doFinal(("heap-dump-tool " + purpose).getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,53 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * Stream factory of an in-process sanitization, which reads from and writes to streams given by the app. They are not
+ * closed, as they belong to the app
+ */
+class EmbeddedStreamFactory extends SanitizeStreamFactory {
+
+    private final SanitizeCommand command;
+    private final InputStream input;
+    private final OutputStream output;
+
+    EmbeddedStreamFactory(final SanitizeCommand command, final InputStream input, final OutputStream output) {
+        super(command);
+        this.command = command;
+        this.input = input;
+        this.output = output;
+    }
+
+    @Override
+    protected InputStream newInputStream(final Path inputFile) {
+        return CloseShieldInputStream.wrap(input);
+    }
+
+    @Override
+    protected OutputStream newOutputStream(final Path outputFile) {
+        return CloseShieldOutputStream.wrap(output);
+    }
+
+    @Override
+    public boolean isStdinInput() {
+        return true;
+    }
+
+    @Override
+    public boolean isCheckpointSupported() {
+        return false;
+    }
+
+    @Override
+    public IoProfile getOutputProfile() {
+        return command.getIoProfile() == IoProfile.AUTO
+               ? IoProfile.PIPE
+               : super.getOutputProfile();
+    }
+}
@@ -1,22 +1,26 @@
 package com.paypal.heapdumptool.sanitizer;
 
+import com.paypal.heapdumptool.sanitizer.ArrayOwnerPolicy.Decision;
+import com.paypal.heapdumptool.jfr.RecordParsedEvent;
+import com.paypal.heapdumptool.jfr.SegmentSanitizedEvent;
+import com.paypal.heapdumptool.sanitizer.SanitizePolicy.FieldRule;
 import com.paypal.heapdumptool.utils.InternalLogger;
 import com.paypal.heapdumptool.utils.ProgressMonitor;
 import org.apache.commons.io.input.InfiniteCircularInputStream;
-import org.apache.commons.lang3.function.Failable;
-import org.apache.commons.lang3.mutable.MutableLong;
+import org.apache.commons.lang3.Validate;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -53,9 +57,16 @@ public class HeapDumpSanitizer {
 
     private static final String STRING_CODER_FIELD = "coder";
     private static final String STRING_VALUE_FIELD = "value";
+    private static final int STRING_CODER_UTF16 = 1;
 
     private static final InternalLogger LOGGER = InternalLogger.getLogger(HeapDumpSanitizer.class);
 
+    // larger arrays are sanitized whole in DETECT mode, rather than buffered for scanning
+    private static final int MAX_DETECT_ARRAY_SIZE = (int) DataSize.ofMegabytes(16).toBytes();
+
+    // arrays longer than this are tokenized in chunks
+    private static final int TOKEN_CHUNK_SIZE = (int) DataSize.ofMegabytes(1).toBytes();
+
     // for debugging/testing
     private static final boolean ENABLE_SANITIZATION = isFalse(Boolean.getBoolean("disable-sanitization"));
 
@@ -63,13 +74,39 @@ public class HeapDumpSanitizer {
     private OutputStream outputStream;
     private ProgressMonitor progressMonitor;
     private SanitizeCommand sanitizeCommand;
+    private SanitizeCheckpointer checkpointer;
+    private SanitizeCheckpoint resumeCheckpoint;
+    private ClassHistogram histogram;
+    private ArrayOwnerPolicy arrayOwnerPolicy;
+    private SanitizePolicy sanitizePolicy;
+    private RunReport runReport;
+    private boolean isPrepass;
 
     private final Map<Long, String> stringIdToStringMap = new HashMap<>();
     private final Map<Long, Long> classObjectIdToStringIdMap = new HashMap<>();
     private final Map<String, ClassObject> classNameToClassObjectsMap = new HashMap<>();
     private final Set<Long> excludeStringObjectIds = new HashSet<>();
     private final Set<Long> excludeStringValueArrayObjectIds = new HashSet<>();
+
+    // field rules matching each class itself, and field decisions for instances of each class
+    private final Map<Long, List<FieldRule>> classFieldRules = new HashMap<>();
+    private final Map<Long, InstancePlan> instancePlans = new HashMap<>();
     private boolean isLikelyJdk9Plus;
+    private long numBytesSanitized;
+    private long numBytesProcessed;
+
+    // for DETECT mode
+    private SecretDetector secretDetector;
+    private final ArrayText arrayText = new ArrayText();
+    private byte[] arrayBuffer = new byte[0];
+    private long numArraysScanned;
+    private long numSecretsDetected;
+    // byte arrays which are values of String objects with the UTF-16 coder, so that they are scanned as UTF-16
+    private final Set<Long> utf16StringValueArrayObjectIds = new HashSet<>();
+
+    // for HMAC mode and tokenize rules
+    private ContentTokenizer contentTokenizer;
+    private byte[] tokenBuffer;
 
     public void setInputStream(final InputStream inputStream) {
         this.inputStream = inputStream;
@@ -87,24 +124,80 @@ public class HeapDumpSanitizer {
         this.sanitizeCommand = sanitizeCommand;
     }
 
-    public void sanitize() throws IOException {
-        final Pipe pipe = new Pipe(inputStream, outputStream, progressMonitor);
+    public void setCheckpointer(final SanitizeCheckpointer checkpointer) {
+        this.checkpointer = checkpointer;
+    }
 
-        /*
-         * The basic fields in the binary output are u1 (1 byte), u2 (2 byte), u4 (4 byte), and u8 (8 byte).
-         *
-         * The binary output begins with the information:
-         * [u1]* An initial NULL terminated series of bytes representing the format name and version
-         * u4 size of identifiers. Identifiers are used to represent UTF8 strings, objects, stack traces, etc.
-         * u4 high word of number of milliseconds since 0:00 GMT, 1/1/70
-         * u4 low word of number of milliseconds since 0:00 GMT, 1/1/70
-         */
-        final String version = pipe.pipeNullTerminatedString().trim();
-        LOGGER.debug("Heap Dump Version: {}", version);
+    /**
+     * Continue from given checkpoint. Input and output streams must already be positioned at the checkpoint offsets
+     */
+    public void setResumeCheckpoint(final SanitizeCheckpoint resumeCheckpoint) {
+        this.resumeCheckpoint = resumeCheckpoint;
+    }
 
-        pipe.setIdSize((int) pipe.pipeU4());
-        LOGGER.debug("Id Size: {}", pipe.getIdSize());
-        pipe.pipe(8);
+    public void setHistogram(final ClassHistogram histogram) {
+        this.histogram = histogram;
+    }
+
+    /**
+     * Whether this is the pre-pass, whose output is discarded, so that secrets are not detected in it
+     */
+    public void setPrepass(final boolean isPrepass) {
+        this.isPrepass = isPrepass;
+    }
+
+    /**
+     * Counts records and bytes sanitized into given report
+     */
+    public void setRunReport(final RunReport runReport) {
+        this.runReport = runReport;
+    }
+
+    /**
+     * @return number of input bytes processed by {@link #sanitize()}, which is also the number of bytes written, as
+     * sanitization never changes the size of anything. Excludes the bytes before the resume checkpoint, if any
+     */
+    public long getNumBytesProcessed() {
+        return numBytesProcessed;
+    }
+
+    /**
+     * Applies to both the pre-processing and the main pass, so that references recorded in the former apply to the latter
+     */
+    void setArrayOwnerPolicy(final ArrayOwnerPolicy arrayOwnerPolicy) {
+        this.arrayOwnerPolicy = arrayOwnerPolicy;
+    }
+
+    /**
+     * Defaults to the policy compiled from the sanitize command
+     */
+    void setSanitizePolicy(final SanitizePolicy sanitizePolicy) {
+        this.sanitizePolicy = sanitizePolicy;
+    }
+
+    public void sanitize() throws IOException {
+        if (sanitizePolicy == null) {
+            sanitizePolicy = SanitizePolicy.compile(sanitizeCommand);
+        }
+        secretDetector = isDetectMode() && !isPrepass
+                         ? new SecretDetector(sanitizeCommand.getDetectPatterns())
+                         : null;
+        numArraysScanned = 0;
+        numSecretsDetected = 0;
+        if (sanitizeCommand.getSanitizeMode() == SanitizeMode.HMAC || sanitizePolicy.isTokenizeUsed()) {
+            contentTokenizer = new ContentTokenizer(sanitizeCommand.getHmacKey(), TOKEN_CHUNK_SIZE);
+            tokenBuffer = new byte[TOKEN_CHUNK_SIZE];
+        }
+        final OutputStream output = checkpointer == null
+                                    ? outputStream
+                                    : checkpointer.checksummedOutputStream(outputStream);
+        final Pipe pipe = new Pipe(inputStream, output, progressMonitor);
+
+        // sanitization never changes the size of anything, so input and output offsets are always the same
+        long offset = resumeCheckpoint == null
+                      ? copyHeader(pipe)
+                      : restoreCheckpoint(pipe, resumeCheckpoint);
+        final long startOffset = resumeCheckpoint == null ? 0 : offset;
 
         /*
          * Followed by a sequence of records that look like:
@@ -120,6 +213,11 @@ public class HeapDumpSanitizer {
                 break;
             }
             final HeapRecord heapRecord = HeapRecord.findByTag(tag);
+            final RecordParsedEvent recordEvent = new RecordParsedEvent();
+            recordEvent.begin();
+            if (runReport != null) {
+                runReport.countRecord(tag);
+            }
 
             pipe.pipeU4(); // timestamp
             final long length = pipe.pipeU4();
@@ -128,7 +226,7 @@ public class HeapDumpSanitizer {
 
             if (heapRecord == HEAP_DUMP || heapRecord == HEAP_DUMP_SEGMENT) {
                 final Pipe heapPipe = pipe.newInputBoundedPipe(length);
-                copyHeapDumpRecord(heapPipe);
+                copyHeapDumpRecord(heapPipe, length);
 
             } else if (heapRecord == STRING_IN_UTF8) {
                 copyStringInUtf8Record(pipe, length);
@@ -139,7 +237,90 @@ public class HeapDumpSanitizer {
             } else {
                 pipe.pipe(length);
             }
+
+            recordEvent.tag = tag;
+            recordEvent.length = length;
+            recordEvent.commit();
+
+            offset += 1 + 4 + 4 + length;
+            checkpointIfDue(pipe, offset);
+        }
+        numBytesProcessed = offset - startOffset;
+
+        if (histogram != null) {
+            histogram.resolveClassNames(this::getClassName);
+        }
+        if (secretDetector != null) {
+            LOGGER.info("Scanned {} arrays, detected {} secrets", numArraysScanned, numSecretsDetected);
         }
+        if (arrayOwnerPolicy != null) {
+            LOGGER.info("Objects referenced by owners to keep: {}, to tokenize: {}, to sanitize: {}",
+                        arrayOwnerPolicy.getNumKeepIds(), arrayOwnerPolicy.getNumTokenizeIds(), arrayOwnerPolicy.getNumSanitizeIds());
+        }
+    }
+
+    /**
+     * @return number of header bytes
+     */
+    private long copyHeader(final Pipe pipe) throws IOException {
+        /*
+         * The basic fields in the binary output are u1 (1 byte), u2 (2 byte), u4 (4 byte), and u8 (8 byte).
+         *
+         * The binary output begins with the information:
+         * [u1]* An initial NULL terminated series of bytes representing the format name and version
+         * u4 size of identifiers. Identifiers are used to represent UTF8 strings, objects, stack traces, etc.
+         * u4 high word of number of milliseconds since 0:00 GMT, 1/1/70
+         * u4 low word of number of milliseconds since 0:00 GMT, 1/1/70
+         */
+        final String nullTerminatedVersion = pipe.pipeNullTerminatedString();
+        final String version = nullTerminatedVersion.trim();
+        LOGGER.debug("Heap Dump Version: {}", version);
+
+        pipe.setIdSize((int) pipe.pipeU4());
+        LOGGER.debug("Id Size: {}", pipe.getIdSize());
+        pipe.pipe(8);
+
+        return nullTerminatedVersion.length() + 4 + 8;
+    }
+
+    /**
+     * @return offset to continue from
+     */
+    private long restoreCheckpoint(final Pipe pipe, final SanitizeCheckpoint checkpoint) {
+        pipe.setIdSize(checkpoint.idSize);
+        isLikelyJdk9Plus = checkpoint.isLikelyJdk9Plus;
+        stringIdToStringMap.putAll(checkpoint.stringIdToStringMap);
+        classObjectIdToStringIdMap.putAll(checkpoint.classObjectIdToStringIdMap);
+        classNameToClassObjectsMap.putAll(checkpoint.classNameToClassObjectsMap);
+        excludeStringObjectIds.addAll(checkpoint.excludeStringObjectIds);
+        excludeStringValueArrayObjectIds.addAll(checkpoint.excludeStringValueArrayObjectIds);
+        if (histogram != null) {
+            Validate.validState(checkpoint.histogram != null, "Checkpoint was taken without a histogram");
+            histogram.addAll(checkpoint.histogram);
+        }
+        return checkpoint.inputOffset;
+    }
+
+    private void checkpointIfDue(final Pipe pipe, final long offset) throws IOException {
+        if (checkpointer == null || !checkpointer.isDue(offset)) {
+            return;
+        }
+
+        pipe.flush();
+        checkpointer.checkpoint(offset, stateGeneration -> new SanitizeCheckpoint(
+                offset,
+                offset,
+                checkpointer.getOutputChecksum(),
+                checkpointer.getInputFileSize(),
+                pipe.getIdSize(),
+                isLikelyJdk9Plus,
+                stateGeneration,
+                stringIdToStringMap,
+                classObjectIdToStringIdMap,
+                classNameToClassObjectsMap,
+                excludeStringObjectIds,
+                excludeStringValueArrayObjectIds,
+                histogram));
     }
 
     private void copyLoadClassRecord(final Pipe pipe) throws IOException {
@@ -147,7 +328,7 @@ public class HeapDumpSanitizer {
         final long classObjectId = pipe.pipeId();// class object ID
         pipe.pipeU4(); // stack trace serial number
         final long id = pipe.pipeId();// class name string ID
-        if (shouldTrackClassMetadata() || isStringClass(classObjectId)) {
+        if (shouldTrackClassMetadata() || String.class.getName().equals(stringIdToStringMap.get(id))) {
             classObjectIdToStringIdMap.put(classObjectId, id);
         }
     }
@@ -160,18 +341,27 @@ public class HeapDumpSanitizer {
         final long id = pipe.pipeId();
         final Pipe dataPipe = pipe.newInputBoundedPipe(length - pipe.getIdSize());
         final String string = dataPipe.pipeString(length);
-        if (shouldTrackClassMetadata() || sanitizeCommand.isForceMatchStringCoder()) {
+        if (shouldTrackClassMetadata() || shouldTrackStrings()) {
             stringIdToStringMap.put(id, string.replace("/", "."));
         }
     }
 
-    private void copyHeapDumpRecord(final Pipe pipe) throws IOException {
+    private void copyHeapDumpRecord(final Pipe pipe, final long length) throws IOException {
+        final SegmentSanitizedEvent segmentEvent = new SegmentSanitizedEvent();
+        segmentEvent.begin();
+        final long numBytesSanitizedAtBegin = numBytesSanitized;
+        long numSubRecords = 0;
+
         while (true) {
             final int tag = pipe.pipeU1IfPossible();
             if (tag == -1) {
                 break;
             }
             LOGGER.debug("Heap Dump Tag: {}", tag);
+            numSubRecords++;
+            if (runReport != null) {
+                runReport.countHeapDumpRecord(tag);
+            }
 
             final long id = pipe.pipeId();
             switch (tag) {
@@ -214,7 +404,7 @@ public class HeapDumpSanitizer {
                     break;
 
                 case 0x22:
-                    copyHeapDumpObjectArrayDump(pipe);
+                    copyHeapDumpObjectArrayDump(pipe, id);
                     break;
 
                 case 0x23:
@@ -225,6 +415,11 @@ public class HeapDumpSanitizer {
                     throw new IllegalArgumentException("" + tag);
             }
         }
+
+        segmentEvent.length = length;
+        segmentEvent.numSubRecords = numSubRecords;
+        segmentEvent.numBytesSanitized = numBytesSanitized - numBytesSanitizedAtBegin;
+        segmentEvent.commit();
     }
 
     private void copyHeapDumpClassDump(final Pipe pipe, final long classObjectId) throws IOException {
@@ -267,22 +462,87 @@ public class HeapDumpSanitizer {
                 isLikelyJdk9Plus = true;
             }
         }
+        if (sanitizePolicy.hasFieldRules()) {
+            getClassFieldRules(classObjectId);
+        }
+    }
+
+    /**
+     * Strings are tracked to force their coder to match the sanitization text, or in DETECT mode, to scan the values of
+     * UTF-16 strings as UTF-16
+     */
+    private boolean shouldTrackStrings() {
+        return sanitizeCommand.isForceMatchStringCoder() || isDetectMode();
+    }
+
+    private boolean isDetectMode() {
+        return sanitizeCommand.getSanitizeMode() == SanitizeMode.DETECT;
     }
 
     private boolean shouldTrackClassMetadata() {
-        return !sanitizeCommand.getExcludeStringFields().isEmpty() || !sanitizeCommand.isSanitizeByteCharArraysOnly();
+        return sanitizePolicy.hasFieldRules()
+                || isSanitizeDecision(sanitizePolicy.getPrimitiveFieldDecision())
+                || histogram != null
+                || arrayOwnerPolicy != null;
     }
 
-    private boolean isAssignableClassWithExcludeStringField(final long classObjectId) {
+    /**
+     * @return field rules whose class pattern matches given class. Memoized, as matching is by class name
+     */
+    private List<FieldRule> getClassFieldRules(final long classObjectId) {
+        return classFieldRules.computeIfAbsent(classObjectId, id -> sanitizePolicy.getFieldRules().match(getClassName(id)));
+    }
+
+    /**
+     * @return decisions for the fields of instances of given class, from the rules matching the class or its super classes.
+     * Memoized, so the cost per instance does not depend on the size of the policy
+     */
+    private InstancePlan getInstancePlan(final long classObjectId) {
+        final InstancePlan existingPlan = instancePlans.get(classObjectId);
+        if (existingPlan != null) {
+            return existingPlan;
+        }
+
         final String className = getClassName(classObjectId);
-        return getClassNameHierarchy(className)
-                .anyMatch(sanitizeCommand::isExactClassWithExcludeStringField);
+        final List<FieldRule> fieldRules = sanitizePolicy.hasFieldRules()
+                                           ? getClassHierarchy(className)
+                                                   .flatMap(classObject -> getClassFieldRules(classObject.id).stream())
+                                                   .collect(Collectors.toList())
+                                           : Collections.emptyList();
+        final Field[] fields = getAllFieldsInClassHierarchy(className).toArray(Field[]::new);
+        final Decision[] decisions = new Decision[fields.length];
+        boolean hasFieldDecisions = false;
+        for (int i = 0; i < fields.length; i++) {
+            final Field field = fields[i];
+            // the default only applies to fields without a rule, while matching rules rank among themselves
+            Decision ruleDecision = null;
+            for (final FieldRule fieldRule : fieldRules) {
+                if (fieldRule.matches(field.name)) {
+                    ruleDecision = ruleDecision == null ? fieldRule.decision : Decision.max(ruleDecision, fieldRule.decision);
+                }
+            }
+            final Decision decision;
+            if (ruleDecision != null) {
+                decision = ruleDecision;
+            } else {
+                decision = field.type == BasicType.OBJECT || !ENABLE_SANITIZATION
+                           ? Decision.NONE
+                           : sanitizePolicy.getPrimitiveFieldDecision();
+            }
+            decisions[i] = decision;
+            hasFieldDecisions |= field.type == BasicType.OBJECT ? decision != Decision.NONE : isSanitizeDecision(decision);
+        }
+
+        final InstancePlan plan = new InstancePlan(fields, decisions, hasFieldDecisions);
+        instancePlans.put(classObjectId, plan);
+        return plan;
     }
 
     private void pipeStaticField(final Pipe pipe, final int entryType) throws IOException {
         final int valueSize = BasicType.findValueSize(entryType, pipe.getIdSize());
-        if (shouldSanitizeField(entryType)) {
-            applySanitization(pipe, valueSize);
+        final Decision decision = sanitizePolicy.getPrimitiveFieldDecision();
+        if (entryType != BasicType.OBJECT.getU1Code() && isSanitizeDecision(decision) && ENABLE_SANITIZATION) {
+            applySanitization(pipe, valueSize, entryType, decision);
         } else {
             pipe.pipe(valueSize);
         }
@@ -308,39 +568,66 @@ public class HeapDumpSanitizer {
         final long classObjectId = pipe.pipeId();
         final long numBytes = pipe.pipeU4();
         final String className = getClassName(classObjectId);
+        if (histogram != null) {
+            histogram.add(classObjectId, numBytes);
+        }
+        final Decision referenceDecision = getReferenceDecision(objectId, classObjectId, className);
 
-        if (sanitizeCommand.isForceMatchStringCoder() && className.equals(String.class.getName())) {
-            copyStringsInstanceFields(pipe, objectId, numBytes);
+        if (shouldTrackStrings() && className.equals(String.class.getName())) {
+            copyStringsInstanceFields(pipe, objectId, numBytes, referenceDecision);
 
-        } else if (isAssignableClassWithExcludeStringField(classObjectId)) {
-            copyInstanceAndSanitizeSomeFields(pipe, className, numBytes);
+        } else if (referenceDecision != Decision.NONE || shouldTrackClassMetadata() && getInstancePlan(classObjectId).hasFieldDecisions) {
+            copyInstanceAndSanitizeSomeFields(pipe, classObjectId, numBytes, referenceDecision);
 
         } else {
-            if (!sanitizeCommand.isSanitizeByteCharArraysOnly()) {
-                copyInstanceAndSanitizeSomeFields(pipe, className, numBytes);
-            } else {
-                // no need to sanitize instance dump. sanitize (byte/char) arrays only, in array dump section
-                pipe.pipe(numBytes);
-            }
+            // no need to sanitize instance dump. sanitize arrays only, in array dump section
+            pipe.pipe(numBytes);
+        }
+    }
+
+    /**
+     * @return decision for the objects referenced by given instance, either because its class is an owner, or because it is a
+     * String referenced by an owner
+     */
+    private Decision getReferenceDecision(final long objectId, final long classObjectId, final String className) {
+        if (arrayOwnerPolicy == null) {
+            return Decision.NONE;
+        }
+        final Decision ownerDecision = arrayOwnerPolicy.getOwnerDecision(classObjectId, className);
+        if (ownerDecision != Decision.NONE || !className.equals(String.class.getName())) {
+            return ownerDecision;
         }
+        return arrayOwnerPolicy.getReferenceDecision(objectId);
     }
 
-    private void copyStringsInstanceFields(final Pipe pipe, final long objectId, long numBytes) throws IOException {
+    private void copyStringsInstanceFields(final Pipe pipe,
+                                           final long objectId,
+                                           long numBytes,
+                                           final Decision referenceDecision) throws IOException {
         final ClassObject classObject = classNameToClassObjectsMap.get(String.class.getName());
         Objects.requireNonNull(classObject);
+        long valueId = 0;
+        int coder = 0;
         for (final Field field : classObject.fields) {
             final int fieldSize = field.type.getValueSize(pipe.getIdSize());
 
-            if (STRING_CODER_FIELD.equals(field.name)) {
-                final int coder = isLatin1(sanitizeCommand.getSanitizationText()) ? 0 : 1;
+            if (STRING_CODER_FIELD.equals(field.name) && isDetectMode()) {
+                // in DETECT mode most strings are kept, so they must keep their own coder
+                coder = pipe.pipeU1();
+
+            } else if (STRING_CODER_FIELD.equals(field.name) && sanitizeCommand.isForceMatchStringCoder()) {
                 pipe.readU1();
-                pipe.writeU1(coder);
+                pipe.writeU1(isLatin1(sanitizeCommand.getSanitizationText()) ? 0 : STRING_CODER_UTF16);
 
             } else if (STRING_VALUE_FIELD.equals(field.name)) {
                 final long id = pipe.pipeId();
+                valueId = id;
                 if (excludeStringObjectIds.contains(objectId)) {
                     excludeStringValueArrayObjectIds.add(id);
                 }
+                if (referenceDecision != Decision.NONE) {
+                    arrayOwnerPolicy.addReference(referenceDecision, id);
+                }
 
             } else {
                 pipe.pipe(fieldSize);
@@ -348,6 +635,9 @@ public class HeapDumpSanitizer {
 
             numBytes -= fieldSize;
         }
+        if (coder == STRING_CODER_UTF16) {
+            utf16StringValueArrayObjectIds.add(valueId);
+        }
 
         pipe.pipe(numBytes);
     }
@@ -362,45 +652,48 @@ public class HeapDumpSanitizer {
         return stream;
     }
 
-    private Stream<String> getClassNameHierarchy(final String className) {
-        return getClassHierarchy(className)
-                .map(classObject -> classObject.id)
-                .map(this::getClassName);
-    }
-
     private Stream<Field> getAllFieldsInClassHierarchy(final String className) {
         return getClassHierarchy(className).flatMap(classObject -> classObject.fields.stream());
     }
 
-    private Collection<String> getExcludeStringFieldsInClassHierarchy(final String className) {
-        return getClassNameHierarchy(className)
-                .map(sanitizeCommand::getExcludeStringFields)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList());
-    }
-
-    private void copyInstanceAndSanitizeSomeFields(final Pipe pipe, final String className, final long numBytes) throws IOException {
-        final Collection<String> excludeStringFields = getExcludeStringFieldsInClassHierarchy(className);
-        final ClassObject classObject = classNameToClassObjectsMap.get(className);
+    private void copyInstanceAndSanitizeSomeFields(final Pipe pipe,
+                                                   final long classObjectId,
+                                                   final long numBytes,
+                                                   final Decision referenceDecision) throws IOException {
+        final ClassObject classObject = classNameToClassObjectsMap.get(getClassName(classObjectId));
         Objects.requireNonNull(classObject);
-        final MutableLong numBytesMutable = new MutableLong(numBytes);
-        getAllFieldsInClassHierarchy(className).forEach(field -> {
+        final InstancePlan plan = getInstancePlan(classObjectId);
+        long remainingBytes = numBytes;
+        for (int i = 0; i < plan.fields.length; i++) {
+            final Field field = plan.fields[i];
+            final Decision decision = plan.decisions[i];
             final int fieldSize = field.type.getValueSize(pipe.getIdSize());
 
-            if (excludeStringFields.contains(field.name)) {
-                final long id = Failable.call(pipe::pipeId);
-                excludeStringObjectIds.add(id);
+            if (field.type == BasicType.OBJECT) {
+                final long id = pipe.pipeId();
+                if (decision == Decision.KEEP) {
+                    excludeStringObjectIds.add(id);
+                } else {
+                    addReference(decision, id);
+                }
+                addReference(referenceDecision, id);
 
-            } else if (shouldSanitizeField(field.type.getU1Code())) {
-                Failable.run(() -> applySanitization(pipe, fieldSize));
+            } else if (isSanitizeDecision(decision)) {
+                applySanitization(pipe, fieldSize, field.type.getU1Code(), decision);
 
             } else {
-                Failable.run(() -> pipe.pipe(fieldSize));
+                pipe.pipe(fieldSize);
             }
-            numBytesMutable.subtract(fieldSize);
-        });
+            remainingBytes -= fieldSize;
+        }
 
-        pipe.pipe(numBytesMutable.longValue());
+        pipe.pipe(remainingBytes);
+    }
+
+    private void addReference(final Decision referenceDecision, final long objectId) throws IOException {
+        if (referenceDecision != Decision.NONE && arrayOwnerPolicy != null) {
+            arrayOwnerPolicy.addReference(referenceDecision, objectId);
+        }
     }
 
     private String getClassName(final long classObjectId) {
@@ -408,21 +701,31 @@ public class HeapDumpSanitizer {
         return stringIdToStringMap.getOrDefault(stringId, "");
     }
 
-    private boolean shouldSanitizeField(final int fieldType) {
-        if (!ENABLE_SANITIZATION) {
-            return false;
-        }
-
-        final BasicType basicType = BasicType.findByU1Code(fieldType).orElse(BasicType.OBJECT);
-        return !sanitizeCommand.isSanitizeByteCharArraysOnly() && basicType != BasicType.OBJECT;
+    private static boolean isSanitizeDecision(final Decision decision) {
+        return decision == Decision.SANITIZE || decision == Decision.TOKENIZE;
     }
 
-    private void copyHeapDumpObjectArrayDump(final Pipe pipe) throws IOException {
+    /*
+     * OBJECT ARRAY DUMP	0x22
+     * 	ID	array object ID
+     * 	u4	stack trace serial number
+     * 	u4	number of elements
+     * 	ID	array class object ID
+     * 	[ID]*	elements
+     */
+    private void copyHeapDumpObjectArrayDump(final Pipe pipe, final long objectId) throws IOException {
         pipe.pipeU4();
         final long numElements = pipe.pipeU4();
-        pipe.pipeId();
+        final long arrayClassObjectId = pipe.pipeId();
+        if (histogram != null) {
+            histogram.add(arrayClassObjectId, numElements * pipe.getIdSize());
+        }
+        final Decision referenceDecision = arrayOwnerPolicy == null
+                                           ? Decision.NONE
+                                           : arrayOwnerPolicy.getReferenceDecision(objectId);
         for (long i = 0; i < numElements; i++) {
-            pipe.pipeId();
+            final long id = pipe.pipeId();
+            addReference(referenceDecision, id);
         }
     }
 
@@ -442,34 +745,91 @@ public class HeapDumpSanitizer {
         final long elementSize = BasicType.findValueSize(elementType, pipe.getIdSize());
 
         final long numBytes = Math.multiplyExact(numElements, elementSize);
+        if (histogram != null) {
+            histogram.addPrimitiveArray(elementType, numBytes);
+        }
 
-        if (shouldApplyArraySanitization(objectId, elementType)) {
-            applySanitization(pipe, numBytes);
+        final Decision ownerDecision = arrayOwnerPolicy == null
+                                       ? Decision.NONE
+                                       : arrayOwnerPolicy.getReferenceDecision(objectId);
+        if (isSanitizeDecision(ownerDecision) && ENABLE_SANITIZATION) {
+            // sanitized whole, since the owner is known to hold secrets
+            applySanitization(pipe, numBytes, elementType, ownerDecision);
+
+        } else if (ownerDecision != Decision.KEEP && shouldApplyArraySanitization(objectId, elementType, numElements)) {
+            final Decision decision = sanitizePolicy.getArrayDecision(elementType);
+            if (decision == Decision.SANITIZE && shouldDetectSecrets(elementType, numBytes)) {
+                copyArrayAndSanitizeSecrets(pipe, objectId, elementType, (int) numBytes);
+            } else {
+                applySanitization(pipe, numBytes, elementType, decision);
+            }
         } else {
             pipe.pipe(numBytes);
         }
     }
 
-    private boolean shouldApplyArraySanitization(final long objectId, final int elementType) {
+    private boolean shouldApplyArraySanitization(final long objectId, final int elementType, final long numElements) {
         if (!ENABLE_SANITIZATION) {
             return false;
         }
 
-        if (excludeStringValueArrayObjectIds.contains(objectId)) {
+        if (numElements < sanitizePolicy.getMinArrayLength() || excludeStringValueArrayObjectIds.contains(objectId)) {
             return false;
         }
 
-        final Optional<BasicType> typeOptional = BasicType.findByU1Code(elementType);
-        if (sanitizeCommand.isSanitizeByteCharArraysOnly()) {
-            return typeOptional.filter(type -> type == BasicType.BYTE || type == BasicType.CHAR)
-                    .isPresent();
+        return isSanitizeDecision(sanitizePolicy.getArrayDecision(elementType));
+    }
+
+    /**
+     * Only byte and char arrays can be scanned. Other arrays, and arrays too large to buffer, are sanitized whole
+     */
+    private boolean shouldDetectSecrets(final int elementType, final long numBytes) {
+        return secretDetector != null
+                && (elementType == BasicType.BYTE.getU1Code() || elementType == BasicType.CHAR.getU1Code())
+                && numBytes <= MAX_DETECT_ARRAY_SIZE;
+    }
+
+    private void copyArrayAndSanitizeSecrets(final Pipe pipe, final long objectId, final int elementType, final int numBytes) throws IOException {
+        if (arrayBuffer.length < numBytes) {
+            arrayBuffer = new byte[Math.max(numBytes, Math.min(arrayBuffer.length * 2, MAX_DETECT_ARRAY_SIZE))];
+        }
+        pipe.readFully(arrayBuffer, numBytes);
+
+        // char arrays are big-endian UTF-16 regardless of JDK version, while byte arrays of UTF-16 strings of JDK 9+, and of
+        // string builders, are in the byte order of the dumped JVM
+        final boolean isCharArray = elementType == BasicType.CHAR.getU1Code();
+        final ByteOrder utf16ByteOrder = isCharArray
+                                         ? ByteOrder.BIG_ENDIAN
+                                         : ArrayText.findUtf16ByteOrder(arrayBuffer, numBytes, utf16StringValueArrayObjectIds.contains(objectId));
+        final boolean isBigEndian = utf16ByteOrder == ByteOrder.BIG_ENDIAN;
+        arrayText.reset(arrayBuffer, numBytes, utf16ByteOrder != null ? 2 : 1, isBigEndian);
+        final int numRanges = secretDetector.detect(arrayText);
+        if (numRanges > 0) {
+            final byte[] replacementData = utf16ByteOrder != null
+                                          ? sanitizeCommand.getSanitizationText().getBytes(isBigEndian ? StandardCharsets.UTF_16BE : StandardCharsets.UTF_16LE)
+                                          : getSanitizationTextBytes();
+            final int bytesPerChar = arrayText.getBytesPerChar();
+            for (int i = 0; i < numRanges; i++) {
+                final int start = secretDetector.getRangeStart(i) * bytesPerChar;
+                final int end = secretDetector.getRangeEnd(i) * bytesPerChar;
+                countBytesSanitized(elementType, end - start);
+                for (int j = start; j < end; j++) {
+                    arrayBuffer[j] = replacementData[(j - start) % replacementData.length];
+                }
+            }
         }
+        pipe.write(arrayBuffer, 0, numBytes);
 
-        return typeOptional.filter(type -> type != BasicType.OBJECT)
-                .isPresent();
+        numArraysScanned++;
+        numSecretsDetected += numRanges;
     }
 
-    private void applySanitization(final Pipe pipe, final long numBytes) throws IOException {
+    private void applySanitization(final Pipe pipe, final long numBytes, final int basicTypeCode, final Decision decision) throws IOException {
+        countBytesSanitized(basicTypeCode, numBytes);
+        if (decision == Decision.TOKENIZE || sanitizeCommand.getSanitizeMode() == SanitizeMode.HMAC) {
+            applyTokenization(pipe, numBytes);
+            return;
+        }
         pipe.skipInput(numBytes);
         final byte[] replacementData = getSanitizationTextBytes();
 
@@ -478,6 +838,24 @@ public class HeapDumpSanitizer {
         }
     }
 
+    private void countBytesSanitized(final int basicTypeCode, final long numBytes) {
+        numBytesSanitized += numBytes;
+        if (runReport != null) {
+            runReport.addBytesSanitized(basicTypeCode, numBytes);
+        }
+    }
+
+    private void applyTokenization(final Pipe pipe, final long numBytes) throws IOException {
+        long remaining = numBytes;
+        for (long chunk = 0; remaining > 0; chunk++) {
+            final int count = (int) Math.min(remaining, TOKEN_CHUNK_SIZE);
+            pipe.readFully(tokenBuffer, count);
+            contentTokenizer.tokenize(tokenBuffer, 0, count, chunk);
+            pipe.write(tokenBuffer, 0, count);
+            remaining -= count;
+        }
+    }
+
     private byte[] getSanitizationTextBytes() throws UnsupportedEncodingException {
         if (!sanitizeCommand.isSanitizationTextCharsetAutoDetect()) {
             final String sanitizationTextCharset = sanitizeCommand.getSanitizationTextCharset();
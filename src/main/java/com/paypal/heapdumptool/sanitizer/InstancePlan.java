@@ -0,0 +1,29 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.sanitizer.ArrayOwnerPolicy.Decision;
+
+import static org.apache.commons.lang3.builder.ToStringBuilder.reflectionToString;
+import static org.apache.commons.lang3.builder.ToStringStyle.MULTI_LINE_STYLE;
+
+/**
+ * Fields of instances of a class, in instance dump order, with the decision for each
+ */
+class InstancePlan {
+
+    final Field[] fields;
+    final Decision[] decisions;
+
+    // false if instances can be copied as is
+    final boolean hasFieldDecisions;
+
+    InstancePlan(final Field[] fields, final Decision[] decisions, final boolean hasFieldDecisions) {
+        this.fields = fields;
+        this.decisions = decisions;
+        this.hasFieldDecisions = hasFieldDecisions;
+    }
+
+    @Override
+    public String toString() {
+        return reflectionToString(this, MULTI_LINE_STYLE);
+    }
+}
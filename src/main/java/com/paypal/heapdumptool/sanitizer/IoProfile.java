@@ -0,0 +1,44 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import static com.paypal.heapdumptool.sanitizer.DataSize.ofBytes;
+import static com.paypal.heapdumptool.sanitizer.DataSize.ofKilobytes;
+import static com.paypal.heapdumptool.sanitizer.DataSize.ofMegabytes;
+
+/**
+ * Buffer sizes by kind of storage. {@link #AUTO} picks one of the others for the input and one for the output, see
+ * {@link IoTuner}.
+ * <p>
+ * Parsing reads a few bytes at a time from the read buffer, so it should stay small enough to be cache friendly, except
+ * where fewer and larger reads pay off: to save seeks on spinning disks, and syscalls on NVMe. The compress buffer collects
+ * the small writes of the sanitizer before they are deflated, for zip output.
+ */
+public enum IoProfile {
+
+    AUTO(ofBytes(0), ofBytes(0), ofBytes(0)),
+    HDD(ofMegabytes(8), ofMegabytes(8), ofKilobytes(256)),
+    SSD(ofMegabytes(1), ofMegabytes(1), ofKilobytes(256)),
+    NVME(ofMegabytes(4), ofMegabytes(4), ofKilobytes(256)),
+    PIPE(ofKilobytes(64), ofKilobytes(64), ofKilobytes(64));
+
+    private final DataSize readBufferSize;
+    private final DataSize writeBufferSize;
+    private final DataSize compressBufferSize;
+
+    IoProfile(final DataSize readBufferSize, final DataSize writeBufferSize, final DataSize compressBufferSize) {
+        this.readBufferSize = readBufferSize;
+        this.writeBufferSize = writeBufferSize;
+        this.compressBufferSize = compressBufferSize;
+    }
+
+    public DataSize getReadBufferSize() {
+        return readBufferSize;
+    }
+
+    public DataSize getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    public DataSize getCompressBufferSize() {
+        return compressBufferSize;
+    }
+}
@@ -0,0 +1,179 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.utils.InternalLogger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Picks the {@link IoProfile} of the storage of an input or output file for {@link IoProfile#AUTO}.
+ * <p>
+ * Anything but a regular file, such as stdin or a named pipe, is {@link IoProfile#PIPE}. On Linux, a spinning disk is
+ * told by {@code /sys/dev/block/MAJOR:MINOR/queue/rotational} of the device mounted at the file's directory. Otherwise
+ * a short calibration times reading the first MBs of the input file, or writing and syncing a temp file next to the
+ * output file, and tells SSD from NVMe by throughput. A read calibration may be served from the page cache, which only
+ * makes it pick larger buffers.
+ */
+class IoTuner {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(IoTuner.class);
+
+    private static final int READ_CALIBRATION_BYTES = 16 * 1024 * 1024;
+    private static final int WRITE_CALIBRATION_BYTES = 4 * 1024 * 1024;
+    private static final int CALIBRATION_CHUNK_SIZE = 1024 * 1024;
+    private static final double NVME_MB_PER_SECOND = 1500;
+    private static final double HDD_MB_PER_SECOND = 200;
+    private static final double BYTES_PER_MB = 1024 * 1024;
+
+    private static final Path MOUNT_INFO = Paths.get("/proc/self/mountinfo");
+    private static final Path SYS_DEV_BLOCK = Paths.get("/sys/dev/block");
+
+    static IoProfile detectInputProfile(final Path inputFile) {
+        if (!Files.isRegularFile(inputFile)) {
+            return log("input", IoProfile.PIPE, "not a regular file");
+        }
+        final Boolean isRotational = isRotational(inputFile);
+        if (Boolean.TRUE.equals(isRotational)) {
+            return log("input", IoProfile.HDD, "rotational device");
+        }
+        try {
+            final double mbPerSecond = calibrateRead(inputFile);
+            return log("input", classify(isRotational, mbPerSecond), String.format("calibrated read %.0f MB/s", mbPerSecond));
+        } catch (final IOException e) {
+            return log("input", IoProfile.SSD, "calibration failed: " + e.getMessage());
+        }
+    }
+
+    static IoProfile detectOutputProfile(final Path outputFile) {
+        if (Files.exists(outputFile) && !Files.isRegularFile(outputFile)) {
+            return log("output", IoProfile.PIPE, "not a regular file");
+        }
+        final Path dir = outputFile.toAbsolutePath().getParent();
+        final Boolean isRotational = isRotational(dir);
+        if (Boolean.TRUE.equals(isRotational)) {
+            return log("output", IoProfile.HDD, "rotational device");
+        }
+        try {
+            final double mbPerSecond = calibrateWrite(dir);
+            return log("output", classify(isRotational, mbPerSecond), String.format("calibrated write %.0f MB/s", mbPerSecond));
+        } catch (final IOException e) {
+            return log("output", IoProfile.SSD, "calibration failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param isRotational whether the device is known to be rotational, or null if not known
+     */
+    static IoProfile classify(final Boolean isRotational, final double mbPerSecond) {
+        if (Boolean.TRUE.equals(isRotational) || isRotational == null && mbPerSecond < HDD_MB_PER_SECOND) {
+            return IoProfile.HDD;
+        }
+        return mbPerSecond >= NVME_MB_PER_SECOND
+               ? IoProfile.NVME
+               : IoProfile.SSD;
+    }
+
+    /**
+     * @return whether the block device of given file is rotational, or null if not known, e.g. not on Linux or not on a
+     * block device
+     */
+    static Boolean isRotational(final Path file) {
+        try {
+            final String device = findMountDevice(file.toRealPath(), Files.readAllLines(MOUNT_INFO, StandardCharsets.UTF_8));
+            if (device == null) {
+                return null;
+            }
+            final Path devicePath = SYS_DEV_BLOCK.resolve(device).toRealPath();
+            // partitions have the queue of their disk
+            for (final Path path : new Path[]{devicePath, devicePath.getParent()}) {
+                final Path rotational = path.resolve("queue").resolve("rotational");
+                if (Files.isReadable(rotational)) {
+                    return "1".equals(new String(Files.readAllBytes(rotational), StandardCharsets.US_ASCII).trim());
+                }
+            }
+            return null;
+        } catch (final IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return MAJOR:MINOR of the mount with the longest mount point containing given file, from /proc/self/mountinfo lines
+     */
+    static String findMountDevice(final Path file, final List<String> mountInfoLines) {
+        String device = null;
+        int longestMountPoint = -1;
+        for (final String line : mountInfoLines) {
+            // 36 35 98:0 /mnt1 /mnt/parent rw,noatime master:1 - ext3 /dev/root rw,errors=continue
+            final String[] fields = line.split(" ");
+            if (fields.length < 5) {
+                continue;
+            }
+            final Path mountPoint = Paths.get(fields[4]);
+            final int length = fields[4].length();
+            if (file.startsWith(mountPoint) && length > longestMountPoint) {
+                longestMountPoint = length;
+                device = fields[2];
+            }
+        }
+        return device;
+    }
+
+    private static double calibrateRead(final Path file) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(CALIBRATION_CHUNK_SIZE);
+        long numBytes = 0;
+        final long start = System.nanoTime();
+        try (final FileChannel channel = FileChannel.open(file, READ)) {
+            while (numBytes < READ_CALIBRATION_BYTES) {
+                buffer.clear();
+                final int count = channel.read(buffer, numBytes);
+                if (count <= 0) {
+                    break;
+                }
+                numBytes += count;
+            }
+        }
+        return mbPerSecond(numBytes, System.nanoTime() - start);
+    }
+
+    private static double calibrateWrite(final Path dir) throws IOException {
+        final Path file = Files.createTempFile(dir, ".io-calibration", ".tmp");
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(CALIBRATION_CHUNK_SIZE);
+        final long start = System.nanoTime();
+        try (final FileChannel channel = FileChannel.open(file, WRITE, DELETE_ON_CLOSE)) {
+            for (long numBytes = 0; numBytes < WRITE_CALIBRATION_BYTES; numBytes += CALIBRATION_CHUNK_SIZE) {
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            channel.force(false);
+            return mbPerSecond(WRITE_CALIBRATION_BYTES, System.nanoTime() - start);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static double mbPerSecond(final long numBytes, final long nanos) {
+        return numBytes / BYTES_PER_MB / (Math.max(nanos, 1) / 1e9);
+    }
+
+    private static IoProfile log(final String what, final IoProfile profile, final String reason) {
+        LOGGER.info("I/O profile for {}: {} ({})", what, profile, reason);
+        return profile;
+    }
+
+    private IoTuner() {
+        throw new AssertionError();
+    }
+}
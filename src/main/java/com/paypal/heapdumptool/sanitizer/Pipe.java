@@ -62,6 +62,13 @@ public class Pipe {
         return byteArrayOutputStream.toByteArray();
     }
 
+    /**
+     * Read given count of bytes into given buffer, without writing them
+     */
+    public void readFully(final byte[] buffer, final int count) throws IOException {
+        input.readFully(buffer, 0, count);
+    }
+
     public void writeU1(final int u1) throws IOException {
         output.write(u1);
     }
@@ -70,6 +77,10 @@ public class Pipe {
         IOUtils.write(bytes, output);
     }
 
+    public void write(final byte[] bytes, final int offset, final int count) throws IOException {
+        output.write(bytes, offset, count);
+    }
+
     public void copyFrom(final InputStream inputStream, final long count) throws IOException {
         IOUtils.copyLarge(inputStream, output, 0, count);
     }
@@ -115,6 +126,10 @@ public class Pipe {
         IOUtils.copyLarge(input, output, 0, count);
     }
 
+    public void flush() throws IOException {
+        output.flush();
+    }
+
     public void skipInput(final long count) throws IOException {
         IOUtils.skipFully(input, count);
     }
@@ -0,0 +1,62 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.utils.InternalLogger;
+import com.paypal.heapdumptool.utils.ProcessTool;
+import com.paypal.heapdumptool.utils.ProcessTool.ProcessResult;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.SystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+/**
+ * CPU and i/o scheduling priority of the tool
+ */
+public enum Priority {
+
+    NORMAL,
+
+    /**
+     * Lowest CPU priority (nice 19) and lowest best-effort i/o priority, for sharing a host with latency sensitive apps
+     */
+    LOW;
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(Priority.class);
+
+    private static final Path TASKS = Paths.get("/proc/self/task");
+
+    /**
+     * Applies to all threads of this process, as Linux schedules threads, and to the threads and processes they start
+     * later on. Only on Linux, and best effort: failures are logged
+     */
+    public void apply() {
+        if (this == NORMAL || !SystemUtils.IS_OS_LINUX) {
+            return;
+        }
+        try {
+            final String[] threadIds = listThreadIds();
+            run(ArrayUtils.addAll(new String[]{"renice", "-n", "19", "-p"}, threadIds));
+            run(ArrayUtils.addAll(new String[]{"ionice", "-c", "2", "-n", "7", "-p"}, threadIds));
+            LOGGER.info("Priority: {}", this);
+        } catch (final Exception e) {
+            LOGGER.info("Cannot lower priority: {}", e.toString());
+        }
+    }
+
+    private static String[] listThreadIds() throws IOException {
+        try (final Stream<Path> tasks = Files.list(TASKS)) {
+            return tasks.map(task -> task.getFileName().toString())
+                        .toArray(String[]::new);
+        }
+    }
+
+    private static void run(final String... cmd) throws Exception {
+        final ProcessResult result = ProcessTool.run(cmd);
+        if (result.exitCode != 0) {
+            LOGGER.info("Cannot lower priority with {}: {}", cmd[0], result.stderr.trim());
+        }
+    }
+}
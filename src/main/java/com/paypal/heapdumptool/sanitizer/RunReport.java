@@ -0,0 +1,280 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.utils.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Timings and counts of a sanitize or capture run, written as JSON by {@code --report}, so that runs can be compared and
+ * regressions alerted on.
+ * <p>
+ * Phases are timed in wall time and in CPU time of the calling thread. External processes such as {@code docker exec}
+ * therefore show mostly wall time. A phase entered several times, e.g. each {@code docker exec}, is summed up. Record
+ * counts and bytes sanitized are of the main pass only.
+ */
+public class RunReport {
+
+    public static final String PREPASS = "prepass";
+    public static final String MAIN_PASS = "mainPass";
+    public static final String DOCKER_EXEC = "dockerExec";
+    public static final String DOCKER_CP = "dockerCp";
+    public static final String THREAD_DUMP = "threadDump";
+    public static final String ZIP = "zip";
+
+    private static final int MAX_BASIC_TYPE_CODE = 11;
+    private static final double BYTES_PER_MB = 1024 * 1024;
+
+    private final Instant startTime = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    // indexed by record tag, sub-record tag, and basic type code
+    private final long[] recordCounts = new long[256];
+    private final long[] heapDumpRecordCounts = new long[256];
+    private final long[] bytesSanitized = new long[MAX_BASIC_TYPE_CODE + 1];
+
+    private long bytesRead;
+    private long bytesWritten;
+
+    /**
+     * @return timer to close at the end of the phase
+     */
+    public Timer startPhase(final String name) {
+        return new Timer(phases.computeIfAbsent(name, key -> new Phase()));
+    }
+
+    /**
+     * Runs given action as part of the phase of given name
+     */
+    public <E extends Exception> void time(final String name, final PhaseAction<E> action) throws E {
+        final Timer timer = startPhase(name);
+        try {
+            action.run();
+        } finally {
+            timer.close();
+        }
+    }
+
+    /**
+     * @return result of given action, run as part of the phase of given name
+     */
+    public <T, E extends Exception> T time(final String name, final PhaseCall<T, E> action) throws E {
+        final Timer timer = startPhase(name);
+        try {
+            return action.call();
+        } finally {
+            timer.close();
+        }
+    }
+
+    /**
+     * Bytes read by a pass through the heap dump, and bytes written before any compression
+     */
+    public void addBytes(final String phaseName, final long numBytesRead, final long numBytesWritten) {
+        phases.computeIfAbsent(phaseName, key -> new Phase()).bytes += numBytesRead;
+        bytesRead += numBytesRead;
+        bytesWritten += numBytesWritten;
+    }
+
+    void countRecord(final int tag) {
+        recordCounts[tag]++;
+    }
+
+    void countHeapDumpRecord(final int tag) {
+        heapDumpRecordCounts[tag]++;
+    }
+
+    void addBytesSanitized(final int basicTypeCode, final long numBytes) {
+        bytesSanitized[basicTypeCode] += numBytes;
+    }
+
+    public long getPhaseWallNanos(final String name) {
+        final Phase phase = phases.get(name);
+        return phase == null ? 0 : phase.wallNanos;
+    }
+
+    public long getRecordCount(final HeapRecord heapRecord) {
+        return recordCounts[heapRecord.getTag()];
+    }
+
+    public long getBytesSanitized(final BasicType basicType) {
+        return bytesSanitized[basicType.getU1Code()];
+    }
+
+    public void write(final Path file) throws IOException {
+        try (final Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(writer);
+        }
+    }
+
+    public void write(final Writer writer) throws IOException {
+        final long wallNanos = System.nanoTime() - startNanos;
+        final JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        json.property("startTime", startTime.toString());
+        json.property("wallMillis", toMillis(wallNanos));
+        json.property("bytesRead", bytesRead);
+        json.property("bytesWritten", bytesWritten);
+        json.property("mbPerSecond", mbPerSecond(getPhaseBytes(MAIN_PASS), wallNanos));
+        json.property("peakHeapBytes", getPeakHeapBytes());
+
+        json.name("phases").beginObject();
+        for (final Map.Entry<String, Phase> entry : phases.entrySet()) {
+            final Phase phase = entry.getValue();
+            json.name(entry.getKey()).beginObject();
+            json.property("wallMillis", toMillis(phase.wallNanos));
+            json.property("cpuMillis", toMillis(phase.cpuNanos));
+            if (phase.bytes > 0) {
+                json.property("bytes", phase.bytes);
+                json.property("mbPerSecond", mbPerSecond(phase.bytes, phase.wallNanos));
+            }
+            json.endObject();
+        }
+        json.endObject();
+
+        json.name("records").beginObject();
+        for (final HeapRecord heapRecord : HeapRecord.values()) {
+            if (recordCounts[heapRecord.getTag()] > 0) {
+                json.property(heapRecord.name(), recordCounts[heapRecord.getTag()]);
+            }
+        }
+        json.endObject();
+
+        json.name("heapDumpRecords").beginObject();
+        for (int tag = 0; tag < heapDumpRecordCounts.length; tag++) {
+            if (heapDumpRecordCounts[tag] > 0) {
+                json.property(heapDumpRecordName(tag), heapDumpRecordCounts[tag]);
+            }
+        }
+        json.endObject();
+
+        json.name("bytesSanitized").beginObject();
+        for (final BasicType basicType : BasicType.values()) {
+            if (bytesSanitized[basicType.getU1Code()] > 0) {
+                json.property(basicType.name().toLowerCase(Locale.ROOT), bytesSanitized[basicType.getU1Code()]);
+            }
+        }
+        json.endObject();
+
+        json.endObject();
+        writer.write(System.lineSeparator());
+        writer.flush();
+    }
+
+    private long getPhaseBytes(final String name) {
+        final Phase phase = phases.get(name);
+        return phase == null ? 0 : phase.bytes;
+    }
+
+    private static long getPeakHeapBytes() {
+        return ManagementFactory.getMemoryPoolMXBeans()
+                .stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    private static double mbPerSecond(final long bytes, final long nanos) {
+        if (nanos <= 0) {
+            return 0;
+        }
+        final double value = bytes / BYTES_PER_MB / (nanos / 1e9);
+        return Math.round(value * 10) / 10.0;
+    }
+
+    private static long toMillis(final long nanos) {
+        return nanos / 1_000_000;
+    }
+
+    // HEAP DUMP and HEAP DUMP SEGMENT sub-record tags
+    private static String heapDumpRecordName(final int tag) {
+        switch (tag) {
+            case 0xFF:
+                return "ROOT_UNKNOWN";
+            case 0x01:
+                return "ROOT_JNI_GLOBAL";
+            case 0x02:
+                return "ROOT_JNI_LOCAL";
+            case 0x03:
+                return "ROOT_JAVA_FRAME";
+            case 0x04:
+                return "ROOT_NATIVE_STACK";
+            case 0x05:
+                return "ROOT_STICKY_CLASS";
+            case 0x06:
+                return "ROOT_THREAD_BLOCK";
+            case 0x07:
+                return "ROOT_MONITOR_USED";
+            case 0x08:
+                return "ROOT_THREAD_OBJECT";
+            case 0x20:
+                return "CLASS_DUMP";
+            case 0x21:
+                return "INSTANCE_DUMP";
+            case 0x22:
+                return "OBJECT_ARRAY_DUMP";
+            case 0x23:
+                return "PRIMITIVE_ARRAY_DUMP";
+            default:
+                return "0x" + Integer.toHexString(tag);
+        }
+    }
+
+    private static class Phase {
+
+        private long wallNanos;
+        private long cpuNanos;
+        private long bytes;
+    }
+
+    @FunctionalInterface
+    public interface PhaseAction<E extends Exception> {
+
+        void run() throws E;
+    }
+
+    @FunctionalInterface
+    public interface PhaseCall<T, E extends Exception> {
+
+        T call() throws E;
+    }
+
+    /**
+     * Adds the time since it was started to its phase when closed
+     */
+    public static class Timer implements AutoCloseable {
+
+        private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+        private final Phase phase;
+        private final long startNanos = System.nanoTime();
+        private final long startCpuNanos = currentThreadCpuNanos();
+
+        private Timer(final Phase phase) {
+            this.phase = phase;
+        }
+
+        @Override
+        public void close() {
+            phase.wallNanos += System.nanoTime() - startNanos;
+            phase.cpuNanos += currentThreadCpuNanos() - startCpuNanos;
+        }
+
+        private static long currentThreadCpuNanos() {
+            return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()
+                   ? THREAD_MX_BEAN.getCurrentThreadCpuTime()
+                   : 0;
+        }
+    }
+}
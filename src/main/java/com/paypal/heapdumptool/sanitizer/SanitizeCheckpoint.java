@@ -0,0 +1,329 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Progress of a sanitization run, persisted at top-level record boundaries so that an interrupted run can be resumed.
+ * <p>
+ * Offsets live in a small checkpoint file next to the output file. The metadata maps live in a separate state file per
+ * generation, which is only written when the maps have changed since the previous checkpoint (normally only once, early
+ * in the heap dump). The class histogram, if any, changes with every record, so it lives in the checkpoint file.
+ */
+public class SanitizeCheckpoint {
+
+    private static final int CHECKPOINT_MAGIC = 0x48445443; // HDTC
+    private static final int STATE_MAGIC = 0x48445453; // HDTS
+    private static final int VERSION = 2;
+
+    private static final String STATE_SUFFIX = ".checkpoint.state.";
+
+    public final long inputOffset;
+    public final long outputOffset;
+    public final long outputChecksum;
+    public final long inputFileSize;
+    public final int idSize;
+    public final boolean isLikelyJdk9Plus;
+    public final long stateGeneration;
+
+    final Map<Long, String> stringIdToStringMap;
+    final Map<Long, Long> classObjectIdToStringIdMap;
+    final Map<String, ClassObject> classNameToClassObjectsMap;
+    final Set<Long> excludeStringObjectIds;
+    final Set<Long> excludeStringValueArrayObjectIds;
+    final ClassHistogram histogram;
+
+    SanitizeCheckpoint(final long inputOffset,
+                       final long outputOffset,
+                       final long outputChecksum,
+                       final long inputFileSize,
+                       final int idSize,
+                       final boolean isLikelyJdk9Plus,
+                       final long stateGeneration,
+                       final Map<Long, String> stringIdToStringMap,
+                       final Map<Long, Long> classObjectIdToStringIdMap,
+                       final Map<String, ClassObject> classNameToClassObjectsMap,
+                       final Set<Long> excludeStringObjectIds,
+                       final Set<Long> excludeStringValueArrayObjectIds,
+                       final ClassHistogram histogram) {
+        this.inputOffset = inputOffset;
+        this.outputOffset = outputOffset;
+        this.outputChecksum = outputChecksum;
+        this.inputFileSize = inputFileSize;
+        this.idSize = idSize;
+        this.isLikelyJdk9Plus = isLikelyJdk9Plus;
+        this.stateGeneration = stateGeneration;
+        this.stringIdToStringMap = stringIdToStringMap;
+        this.classObjectIdToStringIdMap = classObjectIdToStringIdMap;
+        this.classNameToClassObjectsMap = classNameToClassObjectsMap;
+        this.excludeStringObjectIds = excludeStringObjectIds;
+        this.excludeStringValueArrayObjectIds = excludeStringValueArrayObjectIds;
+        this.histogram = histogram;
+    }
+
+    public static Path checkpointFile(final Path outputFile) {
+        return siblingOf(outputFile, ".checkpoint");
+    }
+
+    public static Path stateFile(final Path outputFile, final long stateGeneration) {
+        return siblingOf(outputFile, STATE_SUFFIX + stateGeneration);
+    }
+
+    public static void delete(final Path outputFile) throws IOException {
+        Files.deleteIfExists(checkpointFile(outputFile));
+        deleteStateFiles(outputFile, -1);
+    }
+
+    /**
+     * Write this checkpoint for the given output file. The state file of a new generation is written first, so that a
+     * checkpoint file never refers to a state generation which does not exist yet. The state files of earlier generations
+     * are only deleted once the checkpoint file refers to the new one, so that a crash in between still leaves the
+     * previous checkpoint resumable.
+     */
+    public void write(final Path outputFile, final boolean writeState) throws IOException {
+        if (writeState) {
+            writeStateFile(outputFile);
+        }
+        writeAtomically(checkpointFile(outputFile), this::writeOffsets);
+        if (writeState) {
+            deleteStateFiles(outputFile, stateGeneration);
+        }
+    }
+
+    void writeStateFile(final Path outputFile) throws IOException {
+        writeAtomically(stateFile(outputFile, stateGeneration), this::writeState);
+    }
+
+    public static Optional<SanitizeCheckpoint> read(final Path outputFile) throws IOException {
+        final Path checkpointFile = checkpointFile(outputFile);
+        if (!Files.exists(checkpointFile)) {
+            return Optional.empty();
+        }
+
+        final long inputOffset;
+        final long outputOffset;
+        final long outputChecksum;
+        final long inputFileSize;
+        final int idSize;
+        final boolean isLikelyJdk9Plus;
+        final long stateGeneration;
+        final ClassHistogram histogram;
+        try (final DataInputStream checkpointInput = newDataInputStream(checkpointFile)) {
+            Validate.validState(checkpointInput.readInt() == CHECKPOINT_MAGIC, "Not a checkpoint file: %s", checkpointFile);
+            Validate.validState(checkpointInput.readInt() == VERSION, "Unsupported checkpoint version: %s", checkpointFile);
+            inputOffset = checkpointInput.readLong();
+            outputOffset = checkpointInput.readLong();
+            outputChecksum = checkpointInput.readLong();
+            inputFileSize = checkpointInput.readLong();
+            idSize = checkpointInput.readInt();
+            isLikelyJdk9Plus = checkpointInput.readBoolean();
+            stateGeneration = checkpointInput.readLong();
+            histogram = checkpointInput.readBoolean()
+                        ? ClassHistogram.readFrom(checkpointInput)
+                        : null;
+        }
+
+        final Path stateFile = stateFile(outputFile, stateGeneration);
+        Validate.validState(Files.exists(stateFile), "Missing checkpoint state file: %s", stateFile);
+        try (final DataInputStream stateInput = newDataInputStream(stateFile)) {
+            Validate.validState(stateInput.readInt() == STATE_MAGIC, "Not a checkpoint state file: %s", stateFile);
+            Validate.validState(stateInput.readInt() == VERSION, "Unsupported checkpoint state version");
+            Validate.validState(stateInput.readLong() == stateGeneration, "Checkpoint state generation mismatch");
+
+            return Optional.of(new SanitizeCheckpoint(
+                    inputOffset,
+                    outputOffset,
+                    outputChecksum,
+                    inputFileSize,
+                    idSize,
+                    isLikelyJdk9Plus,
+                    stateGeneration,
+                    readStringMap(stateInput),
+                    readLongMap(stateInput),
+                    readClassObjectMap(stateInput),
+                    readLongSet(stateInput),
+                    readLongSet(stateInput),
+                    histogram));
+        }
+    }
+
+    /**
+     * Delete the state files of all generations but the given one, e.g. of a crash between writing a new state file
+     * and its checkpoint file. -1 for all.
+     */
+    private static void deleteStateFiles(final Path outputFile, final long keepGeneration) throws IOException {
+        final Path parent = checkpointFile(outputFile).getParent();
+        final String prefix = outputFile.getFileName() + STATE_SUFFIX;
+        if (parent == null || !Files.isDirectory(parent)) {
+            return;
+        }
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(parent, file -> file.getFileName().toString().startsWith(prefix))) {
+            for (final Path file : files) {
+                final String generation = file.getFileName().toString().substring(prefix.length());
+                if (!generation.equals(Long.toString(keepGeneration))) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private void writeOffsets(final DataOutputStream output) throws IOException {
+        output.writeInt(CHECKPOINT_MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(inputOffset);
+        output.writeLong(outputOffset);
+        output.writeLong(outputChecksum);
+        output.writeLong(inputFileSize);
+        output.writeInt(idSize);
+        output.writeBoolean(isLikelyJdk9Plus);
+        output.writeLong(stateGeneration);
+        output.writeBoolean(histogram != null);
+        if (histogram != null) {
+            histogram.writeTo(output);
+        }
+    }
+
+    private void writeState(final DataOutputStream output) throws IOException {
+        output.writeInt(STATE_MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(stateGeneration);
+
+        output.writeInt(stringIdToStringMap.size());
+        for (final Map.Entry<Long, String> entry : stringIdToStringMap.entrySet()) {
+            output.writeLong(entry.getKey());
+            writeString(output, entry.getValue());
+        }
+
+        output.writeInt(classObjectIdToStringIdMap.size());
+        for (final Map.Entry<Long, Long> entry : classObjectIdToStringIdMap.entrySet()) {
+            output.writeLong(entry.getKey());
+            output.writeLong(entry.getValue());
+        }
+
+        output.writeInt(classNameToClassObjectsMap.size());
+        for (final Map.Entry<String, ClassObject> entry : classNameToClassObjectsMap.entrySet()) {
+            final ClassObject classObject = entry.getValue();
+            writeString(output, entry.getKey());
+            output.writeLong(classObject.id);
+            output.writeLong(classObject.superClassObjectId);
+            output.writeInt(classObject.fields.size());
+            for (final Field field : classObject.fields) {
+                writeString(output, field.name);
+                output.writeByte(field.type.getU1Code());
+            }
+        }
+
+        writeLongSet(output, excludeStringObjectIds);
+        writeLongSet(output, excludeStringValueArrayObjectIds);
+    }
+
+    private static Map<Long, String> readStringMap(final DataInputStream input) throws IOException {
+        final int size = input.readInt();
+        final Map<Long, String> map = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            map.put(input.readLong(), readString(input));
+        }
+        return map;
+    }
+
+    private static Map<Long, Long> readLongMap(final DataInputStream input) throws IOException {
+        final int size = input.readInt();
+        final Map<Long, Long> map = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            map.put(input.readLong(), input.readLong());
+        }
+        return map;
+    }
+
+    private static Map<String, ClassObject> readClassObjectMap(final DataInputStream input) throws IOException {
+        final int size = input.readInt();
+        final Map<String, ClassObject> map = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            final String className = readString(input);
+            final ClassObject classObject = new ClassObject(input.readLong(), input.readLong());
+            final int numFields = input.readInt();
+            for (int j = 0; j < numFields; j++) {
+                final String fieldName = readString(input);
+                final int u1Code = input.readUnsignedByte();
+                final BasicType type = BasicType.findByU1Code(u1Code).orElseThrow(IllegalStateException::new);
+                classObject.fields.add(new Field(fieldName, type));
+            }
+            map.put(className, classObject);
+        }
+        return map;
+    }
+
+    private static void writeLongSet(final DataOutputStream output, final Set<Long> set) throws IOException {
+        output.writeInt(set.size());
+        for (final Long value : set) {
+            output.writeLong(value);
+        }
+    }
+
+    private static Set<Long> readLongSet(final DataInputStream input) throws IOException {
+        final int size = input.readInt();
+        final Set<Long> set = new HashSet<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            set.add(input.readLong());
+        }
+        return set;
+    }
+
+    // DataOutputStream.writeUTF() is limited to 64KB strings
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(final DataInputStream input) throws IOException {
+        final byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeAtomically(final Path file, final DataWriter writer) throws IOException {
+        final Path tempFile = siblingOf(file, ".tmp");
+        try (final OutputStream fileOutput = Files.newOutputStream(tempFile);
+             final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput))) {
+            writer.write(output);
+        }
+        Files.move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    private static DataInputStream newDataInputStream(final Path file) throws IOException {
+        final InputStream input = Files.newInputStream(file);
+        return new DataInputStream(new BufferedInputStream(input));
+    }
+
+    private static Path siblingOf(final Path file, final String suffix) {
+        final Path fileName = Paths.get(file.getFileName() + suffix);
+        final Path parent = file.toAbsolutePath().getParent();
+        return parent == null ? fileName : parent.resolve(fileName);
+    }
+
+    @FunctionalInterface
+    private interface DataWriter {
+        void write(DataOutputStream output) throws IOException;
+    }
+}
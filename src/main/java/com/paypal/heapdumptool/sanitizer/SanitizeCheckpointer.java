@@ -0,0 +1,101 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.utils.InternalLogger;
+import org.apache.commons.io.FileUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.function.LongFunction;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Checksum;
+
+/**
+ * Decides when {@link HeapDumpSanitizer} should persist a {@link SanitizeCheckpoint}, and keeps a running checksum of the
+ * output written so far so that a resumed run can verify the output it continues from.
+ */
+public class SanitizeCheckpointer {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(SanitizeCheckpointer.class);
+
+    private final Path outputFile;
+    private final long intervalBytes;
+    private final Checksum outputChecksum;
+    private final long inputFileSize;
+
+    private long lastCheckpointOffset;
+    private long stateGeneration;
+    private long stateFingerprint = -1;
+
+    /**
+     * @param outputChecksum checksum of the output written so far. For a resumed run, already updated with the existing output
+     * @param inputFileSize size of the input file, recorded so that a checkpoint is not resumed against a different input
+     */
+    public SanitizeCheckpointer(final Path outputFile,
+                                final DataSize interval,
+                                final Checksum outputChecksum,
+                                final long inputFileSize) {
+        this.outputFile = outputFile;
+        this.intervalBytes = interval.toBytes();
+        this.outputChecksum = outputChecksum;
+        this.inputFileSize = inputFileSize;
+    }
+
+    public OutputStream checksummedOutputStream(final OutputStream output) {
+        return new CheckedOutputStream(output, outputChecksum);
+    }
+
+    public long getOutputChecksum() {
+        return outputChecksum.getValue();
+    }
+
+    public long getInputFileSize() {
+        return inputFileSize;
+    }
+
+    /**
+     * Continue numbering state generations from the checkpoint being resumed
+     */
+    public void resumeFrom(final SanitizeCheckpoint checkpoint) {
+        lastCheckpointOffset = checkpoint.outputOffset;
+        stateGeneration = checkpoint.stateGeneration;
+        stateFingerprint = fingerprintOf(checkpoint);
+    }
+
+    public boolean isDue(final long offset) {
+        return offset - lastCheckpointOffset >= intervalBytes;
+    }
+
+    /**
+     * @param checkpointFactory creates the checkpoint for a given state generation. Output must already be flushed.
+     */
+    public void checkpoint(final long offset, final LongFunction<SanitizeCheckpoint> checkpointFactory) throws IOException {
+        SanitizeCheckpoint checkpoint = checkpointFactory.apply(stateGeneration);
+        final long fingerprint = fingerprintOf(checkpoint);
+        final boolean writeState = fingerprint != stateFingerprint;
+        if (writeState) {
+            stateGeneration++;
+            stateFingerprint = fingerprint;
+            checkpoint = checkpointFactory.apply(stateGeneration);
+        }
+
+        checkpoint.write(outputFile, writeState);
+        lastCheckpointOffset = offset;
+        LOGGER.debug("Checkpoint at {}. state written: {}", FileUtils.byteCountToDisplaySize(offset), writeState);
+    }
+
+    public void complete() throws IOException {
+        SanitizeCheckpoint.delete(outputFile);
+    }
+
+    // metadata maps only ever grow, so their sizes are enough to tell whether they changed
+    private static long fingerprintOf(final SanitizeCheckpoint checkpoint) {
+        long fingerprint = checkpoint.isLikelyJdk9Plus ? 1 : 0;
+        fingerprint = 31 * fingerprint + checkpoint.stringIdToStringMap.size();
+        fingerprint = 31 * fingerprint + checkpoint.classObjectIdToStringIdMap.size();
+        fingerprint = 31 * fingerprint + checkpoint.classNameToClassObjectsMap.size();
+        fingerprint = 31 * fingerprint + checkpoint.excludeStringObjectIds.size();
+        fingerprint = 31 * fingerprint + checkpoint.excludeStringValueArrayObjectIds.size();
+        return fingerprint;
+    }
+}
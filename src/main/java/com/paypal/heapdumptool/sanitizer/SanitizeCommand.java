@@ -1,12 +1,14 @@
 package com.paypal.heapdumptool.sanitizer;
 
 import com.paypal.heapdumptool.cli.CliCommand;
+import com.paypal.heapdumptool.cli.CliCommandProcessor;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 import java.nio.file.Path;
 
+import static com.paypal.heapdumptool.sanitizer.DataSize.ofGigabytes;
 import static org.apache.commons.lang3.builder.ToStringBuilder.reflectionToString;
 import static org.apache.commons.lang3.builder.ToStringStyle.MULTI_LINE_STYLE;
 import static picocli.CommandLine.Help.Visibility.ALWAYS;
@@ -16,18 +18,55 @@ public class SanitizeCommand extends SanitizeOrCaptureCommandBase implements Cli
 
     // to allow field injection from picocli, these variables can't be final
 
-    @Parameters(index = "0", description = "Input heap dump .hprof. File or stdin")
+    @Parameters(index = "0", arity = "0..1", description = "Input heap dump .hprof. File or stdin")
     private Path inputFile;
 
-    @Parameters(index = "1", description = "Output heap dump .hprof. File, stdout, or stderr")
+    @Parameters(index = "1", arity = "0..1", description = "Output heap dump .hprof. File, stdout, or stderr")
     private Path outputFile;
 
+    @Option(names = {"--batch"}, description = "Sanitize all .hprof files of this directory, or the files matching this glob, e.g. 'dumps/**/*.hprof', instead of one input file")
+    private String batch;
+
+    @Option(names = {"--out-dir"}, description = "Output directory of --batch")
+    private Path outDir;
+
+    @Option(names = {"--batch-memory"}, description = "Memory to share between the heap dumps sanitized at once with --batch. Default: 3/4 of max heap")
+    private DataSize batchMemory;
+
+    @Option(names = {"--all-tar-entries"},
+            description = "With --tar-input, process every entry instead of the first: sanitize .hprof and hs_err* entries, and copy the rest. "
+                    + "Output is a tar archive, or a zip of the entries with --zip-output")
+    private boolean allTarEntries;
+
     @Option(names = {"-z", "--zip-output"}, description = "Write zipped output", showDefaultValue = ALWAYS)
     private boolean zipOutput;
 
+    @Option(names = {"--split-size"},
+            description = "Write output as numbered chunk files of this size, e.g. 1GB, instead of one file, along with a .manifest.json of their offsets and "
+                    + "checksums. Reassemble with join")
+    private DataSize splitSize;
+
+    @Option(names = {"--checkpoint-interval"},
+            description = "Input bytes between checkpoints, which allow an interrupted sanitization to be resumed. 0 to disable",
+            defaultValue = "1GB",
+            showDefaultValue = ALWAYS)
+    private DataSize checkpointInterval = ofGigabytes(1);
+
+    @Option(names = {"--resume"}, description = "Resume an interrupted sanitization from its last checkpoint")
+    private boolean resume;
+
+    @Option(names = {"--histogram-output"},
+            description = "Also write a class histogram (instance count and shallow bytes per class) to this file. JSON if file name ends with .json, CSV otherwise")
+    private Path histogramOutput;
+
     @Override
-    public Class<SanitizeCommandProcessor> getProcessorClass() {
-        return SanitizeCommandProcessor.class;
+    public Class<? extends CliCommandProcessor> getProcessorClass() {
+        if (batch != null) {
+            return BatchSanitizeCommandProcessor.class;
+        }
+        return allTarEntries
+               ? TarSanitizeCommandProcessor.class
+               : SanitizeCommandProcessor.class;
     }
 
     public Path getInputFile() {
@@ -46,6 +85,38 @@ public class SanitizeCommand extends SanitizeOrCaptureCommandBase implements Cli
         this.outputFile = outputFile;
     }
 
+    public String getBatch() {
+        return batch;
+    }
+
+    public void setBatch(final String batch) {
+        this.batch = batch;
+    }
+
+    public Path getOutDir() {
+        return outDir;
+    }
+
+    public void setOutDir(final Path outDir) {
+        this.outDir = outDir;
+    }
+
+    public DataSize getBatchMemory() {
+        return batchMemory;
+    }
+
+    public void setBatchMemory(final DataSize batchMemory) {
+        this.batchMemory = batchMemory;
+    }
+
+    public boolean isAllTarEntries() {
+        return allTarEntries;
+    }
+
+    public void setAllTarEntries(final boolean allTarEntries) {
+        this.allTarEntries = allTarEntries;
+    }
+
     public boolean isZipOutput() {
         return zipOutput;
     }
@@ -54,6 +125,38 @@ public class SanitizeCommand extends SanitizeOrCaptureCommandBase implements Cli
         this.zipOutput = zipOutput;
     }
 
+    public DataSize getSplitSize() {
+        return splitSize;
+    }
+
+    public void setSplitSize(final DataSize splitSize) {
+        this.splitSize = splitSize;
+    }
+
+    public DataSize getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public void setCheckpointInterval(final DataSize checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public void setResume(final boolean resume) {
+        this.resume = resume;
+    }
+
+    public Path getHistogramOutput() {
+        return histogramOutput;
+    }
+
+    public void setHistogramOutput(final Path histogramOutput) {
+        this.histogramOutput = histogramOutput;
+    }
+
     @Override
     public String toString() {
         return reflectionToString(this, MULTI_LINE_STYLE);
@@ -1,17 +1,24 @@
 package com.paypal.heapdumptool.sanitizer;
 
 import com.paypal.heapdumptool.cli.CliCommandProcessor;
+import com.paypal.heapdumptool.jfr.FlightRecording;
 import com.paypal.heapdumptool.utils.InternalLogger;
+import com.paypal.heapdumptool.utils.ProgressTicker;
+import com.paypal.heapdumptool.utils.ResourceGovernor;
 import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.time.Instant;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
 
 import static com.paypal.heapdumptool.utils.DateTimeTool.getFriendlyDuration;
-import static com.paypal.heapdumptool.utils.ProgressMonitor.numBytesProcessedMonitor;
+import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
 
 public class SanitizeCommandProcessor implements CliCommandProcessor {
 
@@ -21,6 +28,10 @@ public class SanitizeCommandProcessor implements CliCommandProcessor {
 
     private final SanitizeStreamFactory streamFactory;
 
+    private SanitizePolicy sanitizePolicy;
+
+    private RunReport runReport;
+
     // for mocking
     public static SanitizeCommandProcessor newInstance(final SanitizeCommand command, final SanitizeStreamFactory streamFactory) {
         return new SanitizeCommandProcessor(command, streamFactory);
@@ -31,62 +42,218 @@ public class SanitizeCommandProcessor implements CliCommandProcessor {
     }
 
     public SanitizeCommandProcessor(final SanitizeCommand command, final SanitizeStreamFactory streamFactory) {
-        Validate.isTrue(command.getBufferSize().toBytes() >= 0, "Invalid buffer size");
+        Validate.isTrue(command.getBufferSize() == null || command.getBufferSize().toBytes() >= 0, "Invalid buffer size");
+        Validate.isTrue(!command.getProgressInterval().isNegative() && !command.getProgressInterval().isZero(), "Invalid progress interval");
+        Validate.isTrue(command.getMaxCpu() >= 0, "Invalid max cpu: %s", command.getMaxCpu());
+        Validate.isTrue(command.getMaxIoRate() == null || command.getMaxIoRate().toBytes() > 0, "Invalid max io rate: %s", command.getMaxIoRate());
 
         this.command = command;
         this.streamFactory = streamFactory;
     }
 
+    /**
+     * Report to add the sanitization phases to, when part of a larger run such as a capture, which then writes it itself
+     */
+    public void setRunReport(final RunReport runReport) {
+        this.runReport = runReport;
+    }
+
     @Override
+    @SuppressWarnings("try") // flight recording only needs to be closed
     public void process() throws Exception {
         if (streamFactory.isStdinInput() && !command.getExcludeStringFields().isEmpty()) {
             throw new IllegalArgumentException("stdin input and excludeStringFields cannot be both set to true simultaneously");
         }
+        Validate.isTrue(!streamFactory.isStdinInput() || !command.hasArrayOwnerRules(),
+                        "stdin input cannot be used with --keep-arrays-of or --sanitize-arrays-of, which need two passes");
+        command.getPriority().apply();
+        sanitizePolicy = SanitizePolicy.compile(command);
+        Validate.isTrue(!streamFactory.isStdinInput() || !sanitizePolicy.hasFieldRules() && !sanitizePolicy.hasReferenceRules(),
+                        "stdin input cannot be used with policy class rules or excludeStringFields, which need two passes");
         Validate.notEmpty(command.getSanitizationText());
+        Validate.isTrue(command.getSanitizeMode() != SanitizeMode.HMAC || StringUtils.isNotEmpty(command.getHmacKey()),
+                        "HMAC sanitize mode requires --hmac-key");
+        Validate.isTrue(!sanitizePolicy.isTokenizeUsed() || StringUtils.isNotEmpty(command.getHmacKey()),
+                        "Policy tokenize rules require --hmac-key");
 
+        final boolean isOwnReport = runReport == null;
+        if (isOwnReport) {
+            runReport = new RunReport();
+        }
+        try (final FlightRecording recording = FlightRecording.start(command.getJfrOutput());
+             final ArrayOwnerPolicy arrayOwnerPolicy = newArrayOwnerPolicy()) {
+            process(arrayOwnerPolicy);
+        }
+        if (command.getJfrOutput() != null) {
+            LOGGER.info("Flight recording: {}", command.getJfrOutput());
+        }
+        if (isOwnReport && command.getReportOutput() != null) {
+            runReport.write(command.getReportOutput());
+            LOGGER.info("Report File: {}", command.getReportOutput());
+        }
+    }
+
+    private void process(final ArrayOwnerPolicy arrayOwnerPolicy) throws IOException {
         final Instant now = Instant.now();
 
-        final HeapDumpSanitizer sanitizer = applyPreprocessing();
+        final Optional<SanitizeCheckpoint> checkpoint = findCheckpointToResume();
+        final Checksum outputChecksum = checkpoint.isPresent()
+                                        ? verifyOutput(checkpoint.get())
+                                        : new CRC32();
+
+        // checkpoint state already includes everything learnt during pre-processing, except the memory-mapped owner references
+        // and the UTF-16 strings of DETECT mode
+        final HeapDumpSanitizer sanitizer = checkpoint.isPresent() && arrayOwnerPolicy == null && !isDetectPrepass()
+                                            ? new HeapDumpSanitizer()
+                                            : applyPreprocessing(arrayOwnerPolicy);
+        final ClassHistogram histogram = command.getHistogramOutput() == null ? null : new ClassHistogram();
+        final SanitizeCheckpointer checkpointer = newCheckpointer(outputChecksum);
+        if (checkpointer != null) {
+            checkpoint.ifPresent(checkpointer::resumeFrom);
+        }
+
         LOGGER.info("Starting heap dump sanitization ...");
         LOGGER.info("Input File: {}", command.getInputFile());
         LOGGER.info("Output File: {}", command.getOutputFile());
+        ResourceGovernor.getInstance().log();
+
+        runReport.time(RunReport.MAIN_PASS, () -> {
+            try (final InputStream inputStream = newInputStream(checkpoint);
+                 final OutputStream outputStream = newOutputStream(checkpoint)) {
 
-        try (final InputStream inputStream = streamFactory.newInputStream();
-             final OutputStream outputStream = streamFactory.newOutputStream()) {
+                sanitizer.setHistogram(histogram);
+                sanitizer.setCheckpointer(checkpointer);
+                sanitizer.setResumeCheckpoint(checkpoint.orElse(null));
+                sanitizer.setRunReport(runReport);
+                sanitize(sanitizer, inputStream, outputStream, checkpoint.map(value -> value.outputOffset).orElse(0L));
+                streamFactory.markOutputComplete();
+            }
+        });
+        runReport.addBytes(RunReport.MAIN_PASS, sanitizer.getNumBytesProcessed(), sanitizer.getNumBytesProcessed());
 
-            sanitize(sanitizer, inputStream, outputStream);
+        if (histogram != null) {
+            histogram.write(command.getHistogramOutput());
+            LOGGER.info("Histogram File: {}", command.getHistogramOutput());
+        }
+        if (checkpointer != null) {
+            checkpointer.complete();
         }
         LOGGER.info("Finished heap dump sanitization in {}", getFriendlyDuration(now));
     }
 
-    private HeapDumpSanitizer applyPreprocessing() throws IOException {
+    private Optional<SanitizeCheckpoint> findCheckpointToResume() throws IOException {
+        if (!command.isResume()) {
+            return Optional.empty();
+        }
+        Validate.isTrue(streamFactory.isCheckpointSupported(), "--resume requires file input and unzipped, unsplit file output");
+
+        final Optional<SanitizeCheckpoint> checkpoint = SanitizeCheckpoint.read(command.getOutputFile());
+        if (!checkpoint.isPresent()) {
+            LOGGER.info("No checkpoint found. Starting from the beginning");
+            return checkpoint;
+        }
+
+        final long inputFileSize = streamFactory.getInputFileSize();
+        Validate.validState(checkpoint.get().inputFileSize == inputFileSize,
+                "Input file size does not match checkpoint. expected=%s actual=%s", checkpoint.get().inputFileSize, inputFileSize);
+
+        LOGGER.info("Resuming from checkpoint at {}", byteCountToDisplaySize(checkpoint.get().inputOffset));
+        return checkpoint;
+    }
+
+    private Checksum verifyOutput(final SanitizeCheckpoint checkpoint) throws IOException {
+        LOGGER.info("Verifying existing output up to checkpoint ...");
+        final Checksum checksum = streamFactory.checksumOfOutput(checkpoint.outputOffset);
+        Validate.validState(checksum.getValue() == checkpoint.outputChecksum,
+                "Output file does not match checkpoint. Delete %s to start over",
+                SanitizeCheckpoint.checkpointFile(command.getOutputFile()));
+        return checksum;
+    }
+
+    private SanitizeCheckpointer newCheckpointer(final Checksum outputChecksum) throws IOException {
+        if (command.getCheckpointInterval().toBytes() <= 0 || !streamFactory.isCheckpointSupported()) {
+            return null;
+        }
+        return new SanitizeCheckpointer(
+                command.getOutputFile(),
+                command.getCheckpointInterval(),
+                outputChecksum,
+                streamFactory.getInputFileSize());
+    }
+
+    private InputStream newInputStream(final Optional<SanitizeCheckpoint> checkpoint) throws IOException {
+        return checkpoint.isPresent()
+               ? streamFactory.newInputStream(checkpoint.get().inputOffset)
+               : streamFactory.newInputStream();
+    }
+
+    private OutputStream newOutputStream(final Optional<SanitizeCheckpoint> checkpoint) throws IOException {
+        return checkpoint.isPresent()
+               ? streamFactory.newOutputStream(checkpoint.get().outputOffset)
+               : streamFactory.newOutputStream();
+    }
+
+    private ArrayOwnerPolicy newArrayOwnerPolicy() throws IOException {
+        if (!sanitizePolicy.hasReferenceRules()) {
+            return null;
+        }
+        return new ArrayOwnerPolicy(sanitizePolicy.getOwnerRules(), command.getTempDir());
+    }
+
+    private HeapDumpSanitizer applyPreprocessing(final ArrayOwnerPolicy arrayOwnerPolicy) throws IOException {
         final HeapDumpSanitizer sanitizerPrototype = new HeapDumpSanitizer();
-        if (command.getExcludeStringFields().isEmpty() && !command.isForceMatchStringCoder()) {
+        sanitizerPrototype.setArrayOwnerPolicy(arrayOwnerPolicy);
+        if (!sanitizePolicy.hasFieldRules() && !command.isForceMatchStringCoder() && arrayOwnerPolicy == null && !isDetectPrepass()) {
             return sanitizerPrototype;
         }
 
         LOGGER.info("Pre-processing ...");
         LOGGER.info("    String fields to exclude from sanitization: {}", String.join(",", command.getExcludeStringFields()));
         LOGGER.info("    Force match String.coder: {}", command.isForceMatchStringCoder());
+        if (arrayOwnerPolicy != null) {
+            LOGGER.info("    Keep arrays of: {}", String.join(",", command.getKeepArraysOf()));
+            LOGGER.info("    Sanitize arrays of: {}", String.join(",", command.getSanitizeArraysOf()));
+        }
+        if (command.getPolicy() != null) {
+            LOGGER.info("    Policy: {}", command.getPolicy());
+        }
         LOGGER.info("Input File: {}", command.getInputFile());
 
-        try (final InputStream inputStream = streamFactory.newInputStream();
-             final OutputStream outputStream = NullOutputStream.INSTANCE) {
+        runReport.time(RunReport.PREPASS, () -> {
+            try (final InputStream inputStream = streamFactory.newInputStream();
+                 final OutputStream outputStream = NullOutputStream.INSTANCE) {
 
-            sanitize(sanitizerPrototype, inputStream, outputStream);
-        }
+                sanitizerPrototype.setPrepass(true);
+                sanitize(sanitizerPrototype, inputStream, outputStream, 0);
+                sanitizerPrototype.setPrepass(false);
+            }
+        });
+        runReport.addBytes(RunReport.PREPASS, sanitizerPrototype.getNumBytesProcessed(), 0);
         return sanitizerPrototype;
     }
 
+    /**
+     * In DETECT mode, the String coders of a pre-pass tell which byte arrays are UTF-16, even if dumped before their String.
+     * Input read only once only knows those dumped after their String
+     */
+    private boolean isDetectPrepass() {
+        return command.getSanitizeMode() == SanitizeMode.DETECT && !streamFactory.isStdinInput();
+    }
+
     private void sanitize(final HeapDumpSanitizer sanitizer,
                           final InputStream inputStream,
-                          final OutputStream outputStream) throws IOException {
-        sanitizer.setInputStream(inputStream);
-        sanitizer.setOutputStream(outputStream);
-        sanitizer.setProgressMonitor(numBytesProcessedMonitor(command.getBufferSize(), LOGGER));
-        sanitizer.setSanitizeCommand(command);
+                          final OutputStream outputStream,
+                          final long resumeOffset) throws IOException {
+        try (final ProgressTicker progressTicker = ProgressTicker.start(streamFactory.getInputSize(), resumeOffset, command.getProgressInterval(), LOGGER)) {
 
-        sanitizer.sanitize();
+            sanitizer.setInputStream(inputStream);
+            sanitizer.setOutputStream(outputStream);
+            sanitizer.setProgressMonitor(progressTicker);
+            sanitizer.setSanitizeCommand(command);
+            sanitizer.setSanitizePolicy(sanitizePolicy);
+
+            sanitizer.sanitize();
+        }
     }
 
 }
@@ -0,0 +1,23 @@
+package com.paypal.heapdumptool.sanitizer;
+
+/**
+ * How primitive arrays selected for sanitization are sanitized
+ */
+public enum SanitizeMode {
+
+    /**
+     * Replace all of each array with sanitization text
+     */
+    FILL,
+
+    /**
+     * Replace only the parts of byte and char arrays which look like secrets. See {@link SecretDetector}
+     */
+    DETECT,
+
+    /**
+     * Replace each sanitized array or field with a keyed token of the same length, so that equal values stay equal. See
+     * {@link ContentTokenizer}
+     */
+    HMAC,
+}
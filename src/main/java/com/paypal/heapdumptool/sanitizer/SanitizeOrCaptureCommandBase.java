@@ -1,20 +1,21 @@
 package com.paypal.heapdumptool.sanitizer;
 
 import com.paypal.heapdumptool.cli.CliCommand;
+import com.paypal.heapdumptool.utils.ProgressTicker;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.builder.ToStringExclude;
 import org.apache.commons.text.StringEscapeUtils;
 import picocli.CommandLine.Option;
 
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
-import static com.paypal.heapdumptool.sanitizer.DataSize.ofMegabytes;
 import static org.apache.commons.lang3.builder.ToStringBuilder.reflectionToString;
 import static org.apache.commons.lang3.builder.ToStringStyle.MULTI_LINE_STYLE;
 import static picocli.CommandLine.Help.Visibility.ALWAYS;
@@ -32,7 +33,8 @@ public abstract class SanitizeOrCaptureCommandBase implements CliCommand {
     private boolean tarInput;
 
     @Option(names = {"-e", "--exclude-string-fields"},
-            description = "String fields to exclude from sanitization. Value in com.example.MyClass#fieldName format",
+            description = "String fields to exclude from sanitization. Value in com.example.MyClass#fieldName format. "
+                    + "Class and field names can be globs, e.g. com.example.**#token* or *Thread#name",
             defaultValue = "java.lang.Thread#name,java.lang.ThreadGroup#name",
             showDefaultValue = ALWAYS)
     private List<String> excludeStringFields;
@@ -63,19 +65,108 @@ public abstract class SanitizeOrCaptureCommandBase implements CliCommand {
             showDefaultValue = ALWAYS)
     private String sanitizationTextCharset = "<auto-detect>";
 
-    private StringFieldMap excludeStringFieldMap;
+    @Option(names = {"--sanitize-mode"},
+            description = "FILL to replace all of each array. DETECT to replace only the parts of byte/char arrays which look like secrets: card numbers, JWTs, bearer tokens, and --detect-pattern matches. "
+                    + "HMAC to replace values with keyed tokens, so that equal values stay equal",
+            defaultValue = "FILL",
+            showDefaultValue = ALWAYS)
+    private SanitizeMode sanitizeMode = SanitizeMode.FILL;
+
+    @Option(names = {"--detect-pattern"}, description = "Additional regular expression of secrets for DETECT mode. Can be repeated")
+    private List<String> detectPatterns;
+
+    @Option(names = {"--hmac-key"},
+            description = "Secret key for HMAC mode. Defaults to env variable HEAP_DUMP_TOOL_HMAC_KEY, which keeps it out of process listings",
+            defaultValue = "${env:HEAP_DUMP_TOOL_HMAC_KEY}")
+    @ToStringExclude
+    private String hmacKey;
+
+    @Option(names = {"--keep-arrays-of"},
+            description = "Keep arrays referenced by instances of these classes, e.g. io.netty.buffer.**. Can be repeated")
+    private List<String> keepArraysOf;
+
+    @Option(names = {"--sanitize-arrays-of"},
+            description = "Sanitize arrays of any element type referenced by instances of these classes, e.g. com.example.secure.*. Can be repeated. Takes precedence over --keep-arrays-of")
+    private List<String> sanitizeArraysOf;
+
+    @Option(names = {"--temp-dir"},
+            description = "Directory for memory-mapped working files of --keep-arrays-of and --sanitize-arrays-of, and spooled entries of --all-tar-entries",
+            defaultValue = "${java.io.tmpdir}",
+            showDefaultValue = ALWAYS)
+    private Path tempDir = Paths.get(System.getProperty("java.io.tmpdir"));
+
+    @Option(names = {"--policy"},
+            description = "YAML or JSON file of sanitization rules by class, field, and array element type, added to those of the other options")
+    private Path policy;
+
+    @Option(names = {"--jfr"},
+            description = "Record the run with JDK Flight Recorder into this .jfr file, including the tool's own events for records parsed, i/o waits, compression, and external processes. Requires Java 11+")
+    private Path jfrOutput;
+
+    @Option(names = {"--report"},
+            description = "Write a JSON report of the run to this file: wall and CPU time per phase, bytes read and written, records per type, bytes sanitized per type, peak heap, and MB/s")
+    private Path reportOutput;
+
+    @Option(names = {"--io-profile"},
+            description = "Read, write, and compress buffer sizes for the kind of storage: HDD, SSD, NVME, or PIPE. AUTO detects it for the input and output files",
+            defaultValue = "AUTO",
+            showDefaultValue = ALWAYS)
+    private IoProfile ioProfile = IoProfile.AUTO;
+
+    @Option(names = {"-b", "--buffer-size"}, description = "Buffer size for reading and writing. Overrides those of --io-profile")
+    private DataSize bufferSize;
 
-    @Option(names = {"-b", "--buffer-size"}, description = "Buffer size for reading and writing", defaultValue = "100MB", showDefaultValue = ALWAYS)
-    private DataSize bufferSize = ofMegabytes(100);
+    @Option(names = {"--direct-io"},
+            description = "Read and write files with O_DIRECT, bypassing the page cache, so that other apps on the host keep theirs. Requires Java 11+")
+    private boolean directIo;
+
+    @Option(names = {"--max-io-rate"},
+            description = "Bytes per second to read and write at most, together, e.g. 50MB. Backs off further while the host's iowait is high")
+    private DataSize maxIoRate;
+
+    @Option(names = {"--max-cpu"}, description = "CPU cores to use at most, e.g. 0.5. 0 for no limit", defaultValue = "0", showDefaultValue = ALWAYS)
+    private double maxCpu;
+
+    @Option(names = {"--priority"},
+            description = "NORMAL, or LOW for the lowest CPU and i/o scheduling priority on Linux",
+            defaultValue = "NORMAL",
+            showDefaultValue = ALWAYS)
+    private Priority priority = Priority.NORMAL;
+
+    @Option(names = {"--max-concurrent-sanitizations"},
+            description = "Max heap dumps to sanitize at once, with capture of many containers, --batch, or --all-tar-entries. 0 for one per CPU of the cgroup",
+            defaultValue = "0",
+            showDefaultValue = ALWAYS)
+    private int maxConcurrentSanitizations;
+
+    @Option(names = {"--progress-interval"}, description = "Interval of progress logging, e.g. 10s or 1m", defaultValue = "10s", showDefaultValue = ALWAYS)
+    private Duration progressInterval = ProgressTicker.DEFAULT_INTERVAL;
 
     public void copyFrom(final SanitizeOrCaptureCommandBase other) {
         this.dockerRegistry = other.dockerRegistry;
         this.bufferSize = other.bufferSize;
+        this.ioProfile = other.ioProfile;
+        this.progressInterval = other.progressInterval;
+        this.directIo = other.directIo;
+        this.maxIoRate = other.maxIoRate;
+        this.maxCpu = other.maxCpu;
+        this.priority = other.priority;
+        this.maxConcurrentSanitizations = other.maxConcurrentSanitizations;
         this.forceMatchStringCoder = other.forceMatchStringCoder;
         this.excludeStringFields = other.excludeStringFields;
         this.sanitizationText = other.sanitizationText;
+        this.sanitizationTextCharset = other.sanitizationTextCharset;
         this.sanitizeByteCharArraysOnly = other.sanitizeByteCharArraysOnly;
         this.tarInput = other.tarInput;
+        this.sanitizeMode = other.sanitizeMode;
+        this.detectPatterns = other.detectPatterns;
+        this.hmacKey = other.hmacKey;
+        this.keepArraysOf = other.keepArraysOf;
+        this.sanitizeArraysOf = other.sanitizeArraysOf;
+        this.tempDir = other.tempDir;
+        this.policy = other.policy;
+        this.jfrOutput = other.jfrOutput;
+        this.reportOutput = other.reportOutput;
     }
 
     public DataSize getBufferSize() {
@@ -86,6 +177,62 @@ public abstract class SanitizeOrCaptureCommandBase implements CliCommand {
         this.bufferSize = bufferSize;
     }
 
+    public IoProfile getIoProfile() {
+        return ioProfile;
+    }
+
+    public void setIoProfile(final IoProfile ioProfile) {
+        this.ioProfile = ioProfile;
+    }
+
+    public boolean isDirectIo() {
+        return directIo;
+    }
+
+    public void setDirectIo(final boolean directIo) {
+        this.directIo = directIo;
+    }
+
+    public DataSize getMaxIoRate() {
+        return maxIoRate;
+    }
+
+    public void setMaxIoRate(final DataSize maxIoRate) {
+        this.maxIoRate = maxIoRate;
+    }
+
+    public double getMaxCpu() {
+        return maxCpu;
+    }
+
+    public void setMaxCpu(final double maxCpu) {
+        this.maxCpu = maxCpu;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(final Priority priority) {
+        this.priority = priority;
+    }
+
+    public int getMaxConcurrentSanitizations() {
+        return maxConcurrentSanitizations;
+    }
+
+    public void setMaxConcurrentSanitizations(final int maxConcurrentSanitizations) {
+        this.maxConcurrentSanitizations = maxConcurrentSanitizations;
+    }
+
+    public Duration getProgressInterval() {
+        return progressInterval;
+    }
+
+    public void setProgressInterval(final Duration progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
     public boolean isSanitizeByteCharArraysOnly() {
         return sanitizeByteCharArraysOnly;
     }
@@ -123,6 +270,82 @@ public abstract class SanitizeOrCaptureCommandBase implements CliCommand {
         this.sanitizationTextCharset = sanitizationTextCharset;
     }
 
+    public SanitizeMode getSanitizeMode() {
+        return sanitizeMode;
+    }
+
+    public void setSanitizeMode(final SanitizeMode sanitizeMode) {
+        this.sanitizeMode = sanitizeMode;
+    }
+
+    public List<String> getDetectPatterns() {
+        return detectPatterns == null ? Collections.emptyList() : detectPatterns;
+    }
+
+    public void setDetectPatterns(final List<String> detectPatterns) {
+        this.detectPatterns = detectPatterns;
+    }
+
+    public String getHmacKey() {
+        return hmacKey;
+    }
+
+    public void setHmacKey(final String hmacKey) {
+        this.hmacKey = hmacKey;
+    }
+
+    public List<String> getKeepArraysOf() {
+        return keepArraysOf == null ? Collections.emptyList() : keepArraysOf;
+    }
+
+    public void setKeepArraysOf(final List<String> keepArraysOf) {
+        this.keepArraysOf = keepArraysOf;
+    }
+
+    public List<String> getSanitizeArraysOf() {
+        return sanitizeArraysOf == null ? Collections.emptyList() : sanitizeArraysOf;
+    }
+
+    public void setSanitizeArraysOf(final List<String> sanitizeArraysOf) {
+        this.sanitizeArraysOf = sanitizeArraysOf;
+    }
+
+    public boolean hasArrayOwnerRules() {
+        return !getKeepArraysOf().isEmpty() || !getSanitizeArraysOf().isEmpty();
+    }
+
+    public Path getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(final Path policy) {
+        this.policy = policy;
+    }
+
+    public Path getJfrOutput() {
+        return jfrOutput;
+    }
+
+    public void setJfrOutput(final Path jfrOutput) {
+        this.jfrOutput = jfrOutput;
+    }
+
+    public Path getReportOutput() {
+        return reportOutput;
+    }
+
+    public void setReportOutput(final Path reportOutput) {
+        this.reportOutput = reportOutput;
+    }
+
+    public Path getTempDir() {
+        return tempDir;
+    }
+
+    public void setTempDir(final Path tempDir) {
+        this.tempDir = tempDir;
+    }
+
     public boolean isForceMatchStringCoder() {
         return forceMatchStringCoder;
     }
@@ -146,41 +369,8 @@ public abstract class SanitizeOrCaptureCommandBase implements CliCommand {
         this.excludeStringFields = list;
     }
 
-    private StringFieldMap getExcludeStringFieldMap() {
-        if (excludeStringFieldMap != null) {
-            return excludeStringFieldMap;
-        }
-        excludeStringFieldMap = new StringFieldMap();
-        getExcludeStringFields().forEach(excludeStringFieldMap::add);
-        return excludeStringFieldMap;
-    }
-
-    public boolean isExactClassWithExcludeStringField(final String className) {
-        return getExcludeStringFieldMap().map.containsKey(className);
-    }
-
-    public List<String> getExcludeStringFields(final String className) {
-        return getExcludeStringFieldMap().map.getOrDefault(className, Collections.emptyList());
-    }
-
     @Override
     public String toString() {
         return reflectionToString(this, MULTI_LINE_STYLE);
     }
-
-    private static class StringFieldMap {
-        private final Map<String, List<String>> map = new HashMap<>();
-
-        public void add(final String field) {
-            final String className = StringUtils.substringBefore(field, "#");
-            map.computeIfAbsent(className, key -> new ArrayList<>());
-            map.get(className).add(StringUtils.substringAfter(field, "#"));
-        }
-
-        @Override
-        public String toString() {
-            return reflectionToString(this, MULTI_LINE_STYLE);
-        }
-
-    }
 }
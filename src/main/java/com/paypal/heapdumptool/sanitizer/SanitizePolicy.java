@@ -0,0 +1,262 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.sanitizer.ArrayOwnerPolicy.Decision;
+import com.paypal.heapdumptool.utils.JsonReader;
+import com.paypal.heapdumptool.utils.SimpleYamlReader;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Sanitization rules from the command line options and the optional {@code --policy} file, compiled into the lookup
+ * structures used per record: a decision table by array element type, and class pattern tries for field and owner rules,
+ * which are evaluated once per class and memoized. So the cost per record does not depend on the size of the policy.
+ * <p>
+ * A policy file is YAML, or JSON if its name ends with {@code .json}. All keys are optional:
+ * <pre>
+ * arrays:                    # decision for primitive arrays by element type
+ *   byte: sanitize
+ *   int: tokenize
+ * minArrayLength: 8          # shorter arrays are kept, unless referenced by an owner class
+ * fields: sanitize           # decision for primitive fields without a field rule
+ * excludeStringFields:       # as --exclude-string-fields
+ *   - com.example.Config#name
+ * classes:
+ *   - class: com.example.secure.**
+ *     arrays: sanitize       # arrays referenced by instances, as --sanitize-arrays-of
+ *     fields:                # by field name glob
+ *       pin: sanitize
+ *       token*: tokenize
+ *       displayName: keep    # for String fields, same as --exclude-string-fields
+ * </pre>
+ * Decisions are {@code keep}, {@code sanitize}, or {@code tokenize}, which replaces values with keyed tokens as in HMAC
+ * sanitize mode and needs {@code --hmac-key}. File rules are added to those of the command line options, and where
+ * several rules apply to the same field or owner, sanitize takes precedence over tokenize over keep.
+ */
+class SanitizePolicy {
+
+    private static final List<String> TOP_LEVEL_KEYS = Arrays.asList(
+            "arrays", "minArrayLength", "fields", "excludeStringFields", "classes");
+    private static final List<String> CLASS_KEYS = Arrays.asList("class", "arrays", "fields");
+
+    // indexed by BasicType u1 code
+    private final Decision[] arrayDecisions = new Decision[BasicType.LONG.getU1Code() + 1];
+    private final ClassPatternTrie<FieldRule> fieldRules = new ClassPatternTrie<>();
+    private final ClassPatternTrie<Decision> ownerRules = new ClassPatternTrie<>();
+    private Decision primitiveFieldDecision;
+    private long minArrayLength;
+    private boolean hasFieldRules;
+    private boolean hasReferenceRules;
+    private boolean isTokenizeUsed;
+
+    private SanitizePolicy() {
+        Arrays.fill(arrayDecisions, Decision.NONE);
+    }
+
+    static SanitizePolicy compile(final SanitizeOrCaptureCommandBase command) throws IOException {
+        final SanitizePolicy policy = new SanitizePolicy();
+        policy.addCommandRules(command);
+        if (command.getPolicy() != null) {
+            try {
+                policy.addPolicyFileRules(readPolicyFile(command.getPolicy()));
+            } catch (final IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid policy file " + command.getPolicy() + ": " + e.getMessage(), e);
+            }
+        }
+        return policy;
+    }
+
+    static Object readPolicyFile(final Path path) throws IOException {
+        final String text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        return path.toString().toLowerCase(Locale.ROOT).endsWith(".json")
+               ? JsonReader.parse(text)
+               : SimpleYamlReader.parse(text);
+    }
+
+    private void addCommandRules(final SanitizeOrCaptureCommandBase command) {
+        final boolean isByteCharOnly = command.isSanitizeByteCharArraysOnly();
+        for (final BasicType type : BasicType.values()) {
+            final boolean isSanitized = type == BasicType.BYTE || type == BasicType.CHAR || !isByteCharOnly && type != BasicType.OBJECT;
+            arrayDecisions[type.getU1Code()] = isSanitized ? Decision.SANITIZE : Decision.NONE;
+        }
+        primitiveFieldDecision = isByteCharOnly ? Decision.NONE : Decision.SANITIZE;
+
+        command.getExcludeStringFields().forEach(this::addExcludeStringField);
+        command.getKeepArraysOf().forEach(pattern -> addOwnerRule(pattern, Decision.KEEP));
+        command.getSanitizeArraysOf().forEach(pattern -> addOwnerRule(pattern, Decision.SANITIZE));
+    }
+
+    private void addPolicyFileRules(final Object root) {
+        if (root == null) {
+            return;
+        }
+        final Map<String, Object> map = asMap(root, "policy");
+        validateKeys(map, TOP_LEVEL_KEYS, "policy");
+
+        for (final Map.Entry<String, Object> entry : asMap(map.getOrDefault("arrays", Collections.emptyMap()), "arrays").entrySet()) {
+            final BasicType type = parseElementType(entry.getKey());
+            arrayDecisions[type.getU1Code()] = parseDecision(entry.getValue());
+        }
+        if (map.get("minArrayLength") != null) {
+            minArrayLength = parseLong(map.get("minArrayLength"), "minArrayLength");
+        }
+        if (map.get("fields") != null) {
+            primitiveFieldDecision = parseDecision(map.get("fields"));
+        }
+        for (final Object field : asList(map.get("excludeStringFields"), "excludeStringFields")) {
+            Validate.isTrue(String.valueOf(field).contains("#"), "Expected com.example.MyClass#fieldName, got %s", field);
+            addExcludeStringField(String.valueOf(field));
+        }
+        for (final Object classRule : asList(map.get("classes"), "classes")) {
+            addClassRule(asMap(classRule, "classes item"));
+        }
+    }
+
+    private void addClassRule(final Map<String, Object> classRule) {
+        validateKeys(classRule, CLASS_KEYS, "classes item");
+        final Object classPattern = classRule.get("class");
+        Validate.isTrue(classPattern instanceof String && StringUtils.isNotBlank((String) classPattern), "Missing class in classes item");
+
+        if (classRule.get("arrays") != null) {
+            addOwnerRule((String) classPattern, parseDecision(classRule.get("arrays")));
+        }
+        final Object fields = classRule.getOrDefault("fields", Collections.emptyMap());
+        for (final Map.Entry<String, Object> entry : asMap(fields, "fields of " + classPattern).entrySet()) {
+            addFieldRule((String) classPattern, entry.getKey(), parseDecision(entry.getValue()));
+        }
+    }
+
+    private void addExcludeStringField(final String field) {
+        addFieldRule(StringUtils.substringBefore(field, "#"), StringUtils.substringAfter(field, "#"), Decision.KEEP);
+    }
+
+    private void addFieldRule(final String classPattern, final String fieldPattern, final Decision decision) {
+        fieldRules.add(classPattern, new FieldRule(fieldPattern, decision));
+        hasFieldRules = true;
+        hasReferenceRules |= decision == Decision.SANITIZE || decision == Decision.TOKENIZE;
+        isTokenizeUsed |= decision == Decision.TOKENIZE;
+    }
+
+    private void addOwnerRule(final String classPattern, final Decision decision) {
+        ownerRules.add(classPattern, decision);
+        hasReferenceRules = true;
+        isTokenizeUsed |= decision == Decision.TOKENIZE;
+    }
+
+    /**
+     * @return decision for primitive arrays of given element type, regardless of owners
+     */
+    Decision getArrayDecision(final int elementType) {
+        return elementType >= 0 && elementType < arrayDecisions.length
+               ? arrayDecisions[elementType]
+               : Decision.NONE;
+    }
+
+    long getMinArrayLength() {
+        return minArrayLength;
+    }
+
+    /**
+     * @return decision for primitive fields without a field rule, both static and instance fields
+     */
+    Decision getPrimitiveFieldDecision() {
+        return primitiveFieldDecision;
+    }
+
+    ClassPatternTrie<FieldRule> getFieldRules() {
+        return fieldRules;
+    }
+
+    ClassPatternTrie<Decision> getOwnerRules() {
+        return ownerRules;
+    }
+
+    boolean hasFieldRules() {
+        return hasFieldRules;
+    }
+
+    /**
+     * @return true if objects referenced by owner classes or by fields need to be tracked, which takes two passes
+     */
+    boolean hasReferenceRules() {
+        return hasReferenceRules;
+    }
+
+    boolean isTokenizeUsed() {
+        return isTokenizeUsed || Arrays.asList(arrayDecisions).contains(Decision.TOKENIZE)
+                || primitiveFieldDecision == Decision.TOKENIZE;
+    }
+
+    private static Decision parseDecision(final Object value) {
+        final String text = String.valueOf(value).trim().toUpperCase(Locale.ROOT);
+        Validate.isTrue(text.equals("KEEP") || text.equals("SANITIZE") || text.equals("TOKENIZE"),
+                        "Expected keep, sanitize or tokenize, got %s", value);
+        return Decision.valueOf(text);
+    }
+
+    private static BasicType parseElementType(final String name) {
+        final String text = name.trim().toUpperCase(Locale.ROOT);
+        final BasicType type = Arrays.stream(BasicType.values())
+                .filter(basicType -> basicType != BasicType.OBJECT && basicType.name().equals(text))
+                .findFirst()
+                .orElse(null);
+        Validate.isTrue(type != null, "Unknown array element type %s", name);
+        return type;
+    }
+
+    private static long parseLong(final Object value, final String key) {
+        try {
+            return Long.parseLong(String.valueOf(value).trim());
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Expected number for " + key + ", got " + value, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(final Object value, final String key) {
+        Validate.isTrue(value instanceof Map, "Expected mapping for %s", key);
+        return (Map<String, Object>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> asList(final Object value, final String key) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        Validate.isTrue(value instanceof List, "Expected list for %s", key);
+        return (List<Object>) value;
+    }
+
+    private static void validateKeys(final Map<String, Object> map, final List<String> validKeys, final String key) {
+        for (final String name : map.keySet()) {
+            Validate.isTrue(validKeys.contains(name), "Unknown key %s in %s", name, key);
+        }
+    }
+
+    /**
+     * Field name glob with its decision, for the classes matching its class pattern
+     */
+    static class FieldRule {
+
+        final String fieldPattern;
+        final Decision decision;
+
+        FieldRule(final String fieldPattern, final Decision decision) {
+            this.fieldPattern = fieldPattern;
+            this.decision = decision;
+        }
+
+        boolean matches(final String fieldName) {
+            return ClassPatternTrie.globMatches(fieldPattern, fieldName);
+        }
+    }
+}
@@ -1,6 +1,15 @@
 package com.paypal.heapdumptool.sanitizer;
 
+import com.paypal.heapdumptool.jfr.InstrumentedStreams;
+import com.paypal.heapdumptool.utils.DirectInputStream;
+import com.paypal.heapdumptool.utils.DirectIoChannels;
+import com.paypal.heapdumptool.utils.DirectOutputStream;
+import com.paypal.heapdumptool.utils.ResourceGovernor;
+import com.paypal.heapdumptool.utils.Throttle;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang3.Strings;
 import org.apache.commons.lang3.Validate;
 
@@ -9,46 +18,77 @@ import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Checksum;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import static com.paypal.heapdumptool.jfr.InstrumentedStreams.withIoWaitEvents;
 import static java.lang.Math.toIntExact;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
 
 /**
  * Creates i/o streams for input/output files
  */
 public class SanitizeStreamFactory {
 
+    private static final int CHECKSUM_BUFFER_SIZE = 1024 * 1024;
+
     private final SanitizeCommand command;
 
+    private long inputSize = -1;
+
+    // split output of this factory, which only writes its manifest once marked complete
+    private SplitOutputStream splitOutput;
+
+    // output file which the output is renamed to once finished, if not written in place
+    private Path finalOutputFile;
+
+    private IoProfile inputProfile;
+    private IoProfile outputProfile;
+
+    // shared by input and output, so that --max-io-rate limits both together
+    private Throttle throttle;
+    private boolean isThrottleCreated;
+
     public SanitizeStreamFactory(final SanitizeCommand command) {
         this.command = validate(command);
     }
 
     public InputStream newInputStream() throws IOException {
-        final Path inputFile = command.getInputFile();
-        final InputStream inputStream = getBufferSize() == 0
-                                        ? newInputStream(inputFile)
-                                        : new BufferedInputStream(newInputStream(inputFile), getBufferSize());
-
         if (command.isTarInput()) {
-            final TarArchiveInputStream tarStream = new TarArchiveInputStream(inputStream);
-            Validate.notNull(tarStream.getNextEntry(), "no tar entries");
+            final TarArchiveInputStream tarStream = newTarInputStream();
+            final TarArchiveEntry entry = tarStream.getNextEntry();
+            Validate.notNull(entry, "no tar entries");
+            inputSize = entry.getSize();
             return tarStream;
         }
+        final InputStream inputStream = newPlainInputStream();
+        inputSize = isStdinInput() ? -1 : getInputFileSize();
         return inputStream;
     }
 
-    public OutputStream newOutputStream() throws IOException {
-        final Path outputFile = command.getOutputFile();
-        final OutputStream output = getBufferSize() == 0
-                                    ? Files.newOutputStream(outputFile)
-                                    : new BufferedOutputStream(Files.newOutputStream(outputFile), getBufferSize());
+    /**
+     * Create tar stream of the input, before its first entry, e.g. to go through all entries
+     */
+    public TarArchiveInputStream newTarInputStream() throws IOException {
+        return new TarArchiveInputStream(newPlainInputStream());
+    }
 
+    public OutputStream newOutputStream() throws IOException {
+        final OutputStream output = newPlainOutputStream();
         if (command.isZipOutput()) {
-            final ZipOutputStream zipStream = new ZipOutputStream(output);
+            final ZipOutputStream zipStream = newZipOutputStream(output);
             final String name = getOutputFileName();
             final String entryName = Strings.CS.removeEnd(name, ".zip");
             zipStream.putNextEntry(new ZipEntry(entryName));
@@ -57,10 +97,148 @@ public class SanitizeStreamFactory {
         return output;
     }
 
+    /**
+     * Create output stream of the output file, without zipping, e.g. to write an archive of many entries
+     */
+    public OutputStream newPlainOutputStream() throws IOException {
+        final Path outputFile = command.getOutputFile();
+        final int bufferSize = getWriteBufferSize();
+        if (command.getSplitSize() != null) {
+            final int numWriters = Math.max(2, ResourceGovernor.getInstance().getParallelism());
+            splitOutput = new SplitOutputStream(outputFile, command.getSplitSize().toBytes(), bufferSize, numWriters, this::newOutputStream);
+            return throttled(splitOutput);
+        }
+        if (isDirectOutput()) {
+            return throttled(withIoWaitEvents(newDirectOutputStream(outputFile, 0, bufferSize, CREATE, TRUNCATE_EXISTING, WRITE)));
+        }
+        final OutputStream fileOutput = throttled(newOutputStream(outputFile));
+        return bufferSize == 0
+               ? fileOutput
+               : new BufferedOutputStream(fileOutput, bufferSize);
+    }
+
+    /**
+     * Marks the output as complete once all of it is written, before it is closed. Split output only writes its manifest
+     * if marked complete, so that output cut short by a failure cannot be joined
+     */
+    public void markOutputComplete() {
+        if (splitOutput != null) {
+            splitOutput.markComplete();
+        }
+    }
+
+    /**
+     * Wrap given output in a zip stream with the compress buffer of the output profile. Entries are up to the caller
+     */
+    public ZipOutputStream newZipOutputStream(final OutputStream output) {
+        return InstrumentedStreams.newZipOutputStream(output, getCompressBufferSize());
+    }
+
+    /**
+     * Create input stream positioned at given offset, for resuming from a checkpoint
+     */
+    public InputStream newInputStream(final long offset) throws IOException {
+        final InputStream inputStream = newInputStream();
+        IOUtils.skipFully(inputStream, offset);
+        return inputStream;
+    }
+
+    /**
+     * Create output stream which discards any existing output past given offset and appends from there, for resuming from a
+     * checkpoint
+     */
+    public OutputStream newOutputStream(final long offset) throws IOException {
+        Validate.isTrue(!command.isZipOutput(), "Cannot resume zipped output");
+
+        final Path outputFile = command.getOutputFile();
+        try (final FileChannel channel = FileChannel.open(outputFile, WRITE)) {
+            channel.truncate(offset);
+        }
+        final int bufferSize = getWriteBufferSize();
+        if (isDirectOutput()) {
+            return throttled(withIoWaitEvents(newDirectOutputStream(outputFile, offset, bufferSize, READ, WRITE)));
+        }
+        final OutputStream output = throttled(withIoWaitEvents(Files.newOutputStream(outputFile, APPEND)));
+        return bufferSize == 0
+               ? output
+               : new BufferedOutputStream(output, bufferSize);
+    }
+
+    /**
+     * Compute checksum of the first given number of bytes of the existing output file
+     */
+    public Checksum checksumOfOutput(final long length) throws IOException {
+        final Path outputFile = command.getOutputFile();
+        Validate.validState(Files.size(outputFile) >= length, "Output file is shorter than checkpoint. file=%s", outputFile);
+
+        final Checksum checksum = new CRC32();
+        try (final InputStream input = new CheckedInputStream(Files.newInputStream(outputFile), checksum)) {
+            IOUtils.copyLarge(input, NullOutputStream.INSTANCE, 0, length, new byte[CHECKSUM_BUFFER_SIZE]);
+        }
+        return checksum;
+    }
+
+    /**
+     * Checkpoints can only be resumed from a seekable input file and a plain output file, neither zipped nor split
+     */
+    public boolean isCheckpointSupported() {
+        final Path outputFile = command.getOutputFile();
+        return !isStdinInput()
+               && !command.isZipOutput()
+               && command.getSplitSize() == null
+               && (Files.isRegularFile(outputFile) || Files.notExists(outputFile));
+    }
+
+    /**
+     * @return size of the heap dump in the last input stream created, i.e. of the tar entry for tar input, or -1 if not
+     * known, e.g. for stdin
+     */
+    public long getInputSize() {
+        return inputSize;
+    }
+
+    /**
+     * @return --io-profile, or for AUTO the one detected for the input, once per factory
+     */
+    public IoProfile getInputProfile() {
+        if (inputProfile == null) {
+            inputProfile = command.getIoProfile() != IoProfile.AUTO
+                           ? command.getIoProfile()
+                           : isStdinInput() ? IoProfile.PIPE : IoTuner.detectInputProfile(command.getInputFile());
+        }
+        return inputProfile;
+    }
+
+    /**
+     * @return --io-profile, or for AUTO the one detected for the output, once per factory
+     */
+    public IoProfile getOutputProfile() {
+        if (outputProfile == null) {
+            outputProfile = command.getIoProfile() != IoProfile.AUTO
+                            ? command.getIoProfile()
+                            : IoTuner.detectOutputProfile(command.getOutputFile());
+        }
+        return outputProfile;
+    }
+
+    /**
+     * @return size of the input file, or for a split manifest, of the chunks it reassembles
+     */
+    public long getInputFileSize() throws IOException {
+        final Path inputFile = command.getInputFile();
+        return SplitManifest.isManifest(inputFile)
+               ? SplitManifest.read(inputFile).getSize()
+               : Files.size(inputFile);
+    }
+
     protected InputStream newInputStream(final Path inputFile) throws IOException {
         return isStdinInput()
                ? System.in
-               : Files.newInputStream(inputFile);
+               : withIoWaitEvents(Files.newInputStream(inputFile));
+    }
+
+    protected OutputStream newOutputStream(final Path outputFile) throws IOException {
+        return withIoWaitEvents(Files.newOutputStream(outputFile));
     }
 
     public boolean isStdinInput() {
@@ -68,21 +246,132 @@ public class SanitizeStreamFactory {
         return Strings.CS.equalsAny(name, "-", "stdin", "0");
     }
 
+    private InputStream newPlainInputStream() throws IOException {
+        final Path inputFile = command.getInputFile();
+        final int bufferSize = getReadBufferSize();
+        if (SplitManifest.isManifest(inputFile)) {
+            final InputStream splitInput = throttled(new SplitInputStream(inputFile, this::newInputStream));
+            return bufferSize == 0
+                   ? splitInput
+                   : new BufferedInputStream(splitInput, bufferSize);
+        }
+        if (isDirectInput()) {
+            return throttled(withIoWaitEvents(newDirectInputStream(inputFile, bufferSize)));
+        }
+        return bufferSize == 0
+               ? throttled(newInputStream(inputFile))
+               : new BufferedInputStream(throttled(newInputStream(inputFile)), bufferSize);
+    }
+
+    /**
+     * @return given input limited by --max-io-rate and --max-cpu, along with all other streams of this factory
+     */
+    private InputStream throttled(final InputStream input) {
+        final Throttle throttle = getThrottle();
+        return throttle == null
+               ? input
+               : throttle.throttledInputStream(input);
+    }
+
+    /**
+     * @return given output limited by --max-io-rate and --max-cpu, along with all other streams of this factory
+     */
+    private OutputStream throttled(final OutputStream output) {
+        final Throttle throttle = getThrottle();
+        return throttle == null
+               ? output
+               : throttle.throttledOutputStream(output);
+    }
+
+    /**
+     * Shares given throttle, e.g. of a batch, instead of creating one from the command. null for no throttling
+     */
+    public void setThrottle(final Throttle throttle) {
+        this.throttle = throttle;
+        this.isThrottleCreated = true;
+    }
+
+    /**
+     * Sets the output file which the output is renamed to once finished, e.g. from a partial file, so that the zip entry
+     * is named after it
+     */
+    public void setFinalOutputFile(final Path finalOutputFile) {
+        this.finalOutputFile = finalOutputFile;
+    }
+
+    private Throttle getThrottle() {
+        if (!isThrottleCreated) {
+            final DataSize maxIoRate = command.getMaxIoRate();
+            throttle = Throttle.create(maxIoRate == null ? 0 : maxIoRate.toBytes(), command.getMaxCpu());
+            isThrottleCreated = true;
+        }
+        return throttle;
+    }
+
+    private boolean isDirectInput() {
+        return command.isDirectIo() && !isStdinInput();
+    }
+
+    private boolean isDirectOutput() {
+        final Path outputFile = command.getOutputFile();
+        return command.isDirectIo() && (Files.isRegularFile(outputFile) || Files.notExists(outputFile));
+    }
+
+    private static InputStream newDirectInputStream(final Path inputFile, final int bufferSize) throws IOException {
+        final int blockSize = DirectIoChannels.getBlockSize(inputFile);
+        final ByteBuffer buffer = DirectIoChannels.allocateAligned(alignedBufferSize(bufferSize, blockSize), blockSize);
+        return new DirectInputStream(DirectIoChannels.open(inputFile, READ), buffer, blockSize);
+    }
+
+    private static OutputStream newDirectOutputStream(final Path outputFile,
+                                                      final long offset,
+                                                      final int bufferSize,
+                                                      final OpenOption... options) throws IOException {
+        final int blockSize = DirectIoChannels.getBlockSize(outputFile);
+        final ByteBuffer buffer = DirectIoChannels.allocateAligned(alignedBufferSize(bufferSize, blockSize), blockSize);
+        return new DirectOutputStream(DirectIoChannels.open(outputFile, options), buffer, blockSize, offset);
+    }
+
+    /**
+     * @return given buffer size rounded up to a multiple of the block size, as direct i/o always needs a buffer
+     */
+    private static int alignedBufferSize(final int bufferSize, final int blockSize) {
+        return Math.max(1, (bufferSize + blockSize - 1) / blockSize) * blockSize;
+    }
+
     private static SanitizeCommand validate(final SanitizeCommand command) {
         final Path outputFile = command.getOutputFile();
 
+        Validate.isTrue(command.getInputFile() != null && outputFile != null, "input and output files, or --batch, are required");
         Validate.isTrue(!command.getInputFile().equals(outputFile), "input and output files cannot be the same");
         return command;
     }
 
     private String getOutputFileName() {
-        final Path outputFile = command.getOutputFile();
+        final Path outputFile = finalOutputFile != null ? finalOutputFile : command.getOutputFile();
         return outputFile.getFileName().toString();
     }
 
-    private int getBufferSize() {
-        final DataSize bufferSize = command.getBufferSize();
-        return toIntExact(bufferSize.toBytes());
+    // an explicit --buffer-size is taken as is, while profile sizes are capped to the cgroup limits
+    private int getReadBufferSize() {
+        if (command.getBufferSize() != null) {
+            return toIntExact(command.getBufferSize().toBytes());
+        }
+        final int bufferSize = toIntExact(getInputProfile().getReadBufferSize().toBytes());
+        return ResourceGovernor.getInstance().capReadBufferSize(bufferSize);
+    }
+
+    private int getWriteBufferSize() {
+        if (command.getBufferSize() != null) {
+            return toIntExact(command.getBufferSize().toBytes());
+        }
+        final int bufferSize = toIntExact(getOutputProfile().getWriteBufferSize().toBytes());
+        return ResourceGovernor.getInstance().capWriteBufferSize(bufferSize);
+    }
+
+    private int getCompressBufferSize() {
+        final int bufferSize = toIntExact(getOutputProfile().getCompressBufferSize().toBytes());
+        return ResourceGovernor.getInstance().capWriteBufferSize(bufferSize);
     }
 
 }
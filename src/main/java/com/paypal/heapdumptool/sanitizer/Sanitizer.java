@@ -0,0 +1,345 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.utils.InternalLogger;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.Math.toIntExact;
+
+/**
+ * Sanitizes heap dumps within an app, e.g. an upload service, without going through the command line:
+ * <pre>
+ * final Sanitizer sanitizer = Sanitizer.builder()
+ *                                      .sanitizationText("0")
+ *                                      .zipOutput(true)
+ *                                      .build();
+ * sanitizer.sanitize(inputStream, outputStream);
+ * </pre>
+ * A sanitizer only holds its settings, so one can be shared by threads to sanitize many heap dumps at once. Given
+ * streams and channels are not closed.
+ * <p>
+ * Stream and channel input is read once, so settings which need two passes, i.e. exclude string fields, force string
+ * coder match, keep or sanitize arrays of, and policy class rules, need file input with {@link #sanitize(Path, Path)}.
+ */
+public class Sanitizer {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(Sanitizer.class);
+
+    // name of the zip entry, for output to a stream
+    static final String STREAM_ENTRY_NAME = "heap-dump.hprof";
+
+    private static final String HOTSPOT_BEAN_CLASS_NAME = "com.sun.management.HotSpotDiagnosticMXBean";
+
+    private static final String HOTSPOT_BEAN_NAME = "com.sun.management:type=HotSpotDiagnostic";
+
+    // file store type of Linux memory file systems, such as /dev/shm
+    private static final String TMPFS = "tmpfs";
+
+    private final SanitizeCommand settings;
+    private final boolean zipOutput;
+    private final Executor executor;
+    private final int channelBufferSize;
+
+    private Sanitizer(final Builder builder) {
+        this.settings = builder.settings;
+        this.zipOutput = builder.zipOutput;
+        this.executor = builder.executor != null ? builder.executor : DefaultExecutor.INSTANCE;
+        this.channelBufferSize = toIntExact(builder.channelBufferSize.toBytes());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Sanitize given input into given output, on the calling thread
+     */
+    public void sanitize(final InputStream input, final OutputStream output) throws IOException {
+        Validate.isTrue(!settings.isForceMatchStringCoder(), "Stream input cannot be used with forceMatchStringCoder, which needs two passes");
+        final SanitizeCommand command = newCommand(Paths.get("stdin"), Paths.get(zipOutput ? STREAM_ENTRY_NAME + ".zip" : STREAM_ENTRY_NAME));
+        run(command, new EmbeddedStreamFactory(command, input, output));
+    }
+
+    /**
+     * Sanitize given input into given output, on the calling thread. The input is only read as fast as the output takes
+     * it
+     */
+    public void sanitize(final ReadableByteChannel input, final WritableByteChannel output) throws IOException {
+        sanitize(Channels.newInputStream(input), Channels.newOutputStream(output));
+    }
+
+    /**
+     * Sanitize given input file into given output file. Zipped output is named after the output file
+     */
+    public void sanitize(final Path inputFile, final Path outputFile) throws IOException {
+        final SanitizeCommand command = newCommand(inputFile, outputFile);
+        run(command, new SanitizeStreamFactory(command));
+    }
+
+    /**
+     * Sanitize given input into given output, on the executor of this sanitizer
+     */
+    public CompletableFuture<Void> sanitizeAsync(final ReadableByteChannel input, final WritableByteChannel output) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                sanitize(input, output);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Create channel which sanitizes what is written to it into given output, e.g. chunks of an upload as they arrive.
+     * Writes block while the channel buffer is full, so that the writer is held back to the pace of the sanitizer and
+     * output. Closing the channel waits for the sanitization to finish, and throws if it failed.
+     */
+    public WritableByteChannel newSanitizingChannel(final WritableByteChannel output) {
+        return new SanitizingChannel(this, output, channelBufferSize, executor);
+    }
+
+    /**
+     * Dump the heap of this JVM, and sanitize it into given output file, e.g. on a low memory trigger. Only live objects
+     * are dumped if live is true.
+     * <p>
+     * HotSpot writes the dump at a safepoint, with all threads of the app stopped, so it cannot be sanitized as it is
+     * written. It is dumped to a file only readable by the owner, in a new directory within the temp dir of this
+     * sanitizer, java.io.tmpdir by default, and deleted once sanitized. Point the temp dir to a tmpfs such as /dev/shm
+     * to keep the unsanitized dump off the disk.
+     */
+    public void dumpHeap(final Path outputFile, final boolean live) throws IOException {
+        final Path tempDir = settings.getTempDir();
+        final String fileStoreType = Files.getFileStore(tempDir).type();
+        if (!TMPFS.equals(fileStoreType)) {
+            LOGGER.info("Unsanitized heap dump goes to disk, as temp dir {} is on {} rather than {}", tempDir, fileStoreType, TMPFS);
+        }
+        final Path dumpDir = Files.createTempDirectory(tempDir, "heap-dump-tool-");
+        final Path dumpFile = dumpDir.resolve(STREAM_ENTRY_NAME);
+        try {
+            dumpHeapOfThisJvm(dumpFile, live);
+            sanitize(dumpFile, outputFile);
+        } finally {
+            Files.deleteIfExists(dumpFile);
+            Files.delete(dumpDir);
+        }
+    }
+
+    private static void dumpHeapOfThisJvm(final Path dumpFile, final boolean live) throws IOException {
+        final Object mxBean;
+        final Method dumpHeap;
+        try {
+            final Class<?> mxBeanClass = Class.forName(HOTSPOT_BEAN_CLASS_NAME);
+            mxBean = ManagementFactory.newPlatformMXBeanProxy(ManagementFactory.getPlatformMBeanServer(), HOTSPOT_BEAN_NAME, mxBeanClass);
+            dumpHeap = mxBeanClass.getMethod("dumpHeap", String.class, boolean.class);
+        } catch (final ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Heap dumps of this JVM need HotSpot", e);
+        }
+        try {
+            dumpHeap.invoke(mxBean, dumpFile.toString(), live);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (final InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to dump heap", e.getCause());
+        }
+    }
+
+    private SanitizeCommand newCommand(final Path inputFile, final Path outputFile) {
+        final SanitizeCommand command = new SanitizeCommand();
+        command.copyFrom(settings);
+        command.setZipOutput(zipOutput);
+        command.setInputFile(inputFile);
+        command.setOutputFile(outputFile);
+        command.setCheckpointInterval(DataSize.ofBytes(0));
+        return command;
+    }
+
+    private static void run(final SanitizeCommand command, final SanitizeStreamFactory streamFactory) throws IOException {
+        try {
+            SanitizeCommandProcessor.newInstance(command, streamFactory).process();
+        } catch (final IOException | RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    // shared by all sanitizers without an executor of their own. Daemon threads, so that it does not keep the app running
+    private static class DefaultExecutor {
+
+        private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+        private static final ExecutorService INSTANCE = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "heap-dump-sanitizer-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static class Builder {
+
+        private final SanitizeCommand settings = new SanitizeCommand();
+        private boolean zipOutput;
+        private Executor executor;
+        private DataSize channelBufferSize = DataSize.ofMegabytes(4);
+
+        private Builder() {
+        }
+
+        /**
+         * Text to fill sanitized arrays with, or with DETECT mode the detected secrets. Not used with HMAC mode, whose
+         * tokens only depend on the values and the HMAC key. Defaults to \0
+         */
+        public Builder sanitizationText(final String sanitizationText) {
+            settings.setSanitizationText(sanitizationText);
+            return this;
+        }
+
+        public Builder sanitizeMode(final SanitizeMode sanitizeMode) {
+            settings.setSanitizeMode(sanitizeMode);
+            return this;
+        }
+
+        public Builder hmacKey(final String hmacKey) {
+            settings.setHmacKey(hmacKey);
+            return this;
+        }
+
+        /**
+         * Whether to only sanitize byte and char arrays, rather than all primitive arrays. Defaults to true
+         */
+        public Builder sanitizeByteCharArraysOnly(final boolean sanitizeByteCharArraysOnly) {
+            settings.setSanitizeByteCharArraysOnly(sanitizeByteCharArraysOnly);
+            return this;
+        }
+
+        public Builder detectPatterns(final List<String> detectPatterns) {
+            settings.setDetectPatterns(new ArrayList<>(detectPatterns));
+            return this;
+        }
+
+        public Builder excludeStringFields(final List<String> excludeStringFields) {
+            settings.setExcludeStringFields(new ArrayList<>(excludeStringFields));
+            return this;
+        }
+
+        public Builder forceMatchStringCoder(final boolean forceMatchStringCoder) {
+            settings.setForceMatchStringCoder(forceMatchStringCoder);
+            return this;
+        }
+
+        public Builder keepArraysOf(final List<String> keepArraysOf) {
+            settings.setKeepArraysOf(new ArrayList<>(keepArraysOf));
+            return this;
+        }
+
+        public Builder sanitizeArraysOf(final List<String> sanitizeArraysOf) {
+            settings.setSanitizeArraysOf(new ArrayList<>(sanitizeArraysOf));
+            return this;
+        }
+
+        /**
+         * Policy file, as with --policy
+         */
+        public Builder policy(final Path policy) {
+            settings.setPolicy(policy);
+            return this;
+        }
+
+        /**
+         * Directory of memory-mapped working files, for keep or sanitize arrays of, and of unsanitized heap dumps of
+         * {@link Sanitizer#dumpHeap(Path, boolean)}. Default java.io.tmpdir
+         */
+        public Builder tempDir(final Path tempDir) {
+            settings.setTempDir(tempDir);
+            return this;
+        }
+
+        /**
+         * Whether input is a tar archive, e.g. from kubectl cp, whose first entry is the heap dump
+         */
+        public Builder tarInput(final boolean tarInput) {
+            settings.setTarInput(tarInput);
+            return this;
+        }
+
+        public Builder zipOutput(final boolean zipOutput) {
+            this.zipOutput = zipOutput;
+            return this;
+        }
+
+        /**
+         * Size of read and write buffers. Defaults to those of the detected i/o profile, or 64KB for streams
+         */
+        public Builder bufferSize(final DataSize bufferSize) {
+            settings.setBufferSize(bufferSize);
+            return this;
+        }
+
+        /**
+         * Limit of the input and output rate of each sanitization
+         */
+        public Builder maxIoRate(final DataSize maxIoRate) {
+            settings.setMaxIoRate(maxIoRate);
+            return this;
+        }
+
+        public Builder progressInterval(final Duration progressInterval) {
+            settings.setProgressInterval(progressInterval);
+            return this;
+        }
+
+        /**
+         * Executor of asynchronous sanitizations and sanitizing channels. Defaults to a cached pool of daemon threads
+         * shared by all sanitizers
+         */
+        public Builder executor(final Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Max bytes written to a sanitizing channel and not yet taken by its sanitizer, before writes block. Defaults to
+         * 4MB
+         */
+        public Builder channelBufferSize(final DataSize channelBufferSize) {
+            this.channelBufferSize = channelBufferSize;
+            return this;
+        }
+
+        public Sanitizer build() {
+            Validate.notEmpty(settings.getSanitizationText(), "sanitizationText is required");
+            Validate.isTrue(channelBufferSize.toBytes() > 0 && channelBufferSize.toBytes() <= Integer.MAX_VALUE,
+                            "Invalid channel buffer size: %s", channelBufferSize);
+            final Builder copy = new Builder();
+            copy.settings.copyFrom(settings);
+            copy.zipOutput = zipOutput;
+            copy.executor = executor;
+            copy.channelBufferSize = channelBufferSize;
+            return new Sanitizer(copy);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Channel which sanitizes what is written to it, on a thread of the executor, into the output.
+ * <p>
+ * Written bytes are queued for the sanitizer, up to the buffer size. Beyond it, writes wait until the sanitizer has
+ * taken enough, so that a fast writer, e.g. an upload, is held back to the pace of the sanitizer and output, and memory
+ * stays bounded. If the sanitizer fails, pending and later writes fail with its error instead of waiting.
+ */
+class SanitizingChannel implements WritableByteChannel {
+
+    private final int bufferSize;
+    private final CompletableFuture<Void> sanitization = new CompletableFuture<>();
+
+    // guarded by this
+    private final Queue<byte[]> chunks = new ArrayDeque<>();
+    private long queuedBytes;
+    private boolean isClosed;
+    private boolean isSanitizerDone;
+    private Throwable sanitizerError;
+
+    SanitizingChannel(final Sanitizer sanitizer, final WritableByteChannel output, final int bufferSize, final Executor executor) {
+        this.bufferSize = bufferSize;
+        executor.execute(() -> sanitize(sanitizer, output));
+    }
+
+    @Override
+    public synchronized int write(final ByteBuffer src) throws IOException {
+        if (isClosed) {
+            throw new ClosedChannelException();
+        }
+        try {
+            while (queuedBytes >= bufferSize && !isSanitizerDone) {
+                wait();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the sanitizer");
+        }
+        if (isSanitizerDone) {
+            throw new IOException("Sanitizer stopped before the end of the heap dump", sanitizerError);
+        }
+
+        final byte[] chunk = new byte[src.remaining()];
+        src.get(chunk);
+        chunks.add(chunk);
+        queuedBytes += chunk.length;
+        notifyAll();
+        return chunk.length;
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return !isClosed;
+    }
+
+    /**
+     * Ends the input, and waits for the sanitizer to finish
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            notifyAll();
+        }
+        try {
+            sanitization.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the sanitizer");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e.getCause() instanceof IOException
+                  ? (IOException) e.getCause()
+                  : new IOException(e.getCause());
+        }
+    }
+
+    synchronized long getQueuedBytes() {
+        return queuedBytes;
+    }
+
+    private void sanitize(final Sanitizer sanitizer, final WritableByteChannel output) {
+        try {
+            sanitizer.sanitize(new ChunkInputStream(), Channels.newOutputStream(output));
+            sanitizerDone(null);
+            sanitization.complete(null);
+        } catch (final IOException | RuntimeException e) {
+            sanitizerDone(e);
+            sanitization.completeExceptionally(e);
+        }
+    }
+
+    private synchronized void sanitizerDone(final Throwable error) {
+        isSanitizerDone = true;
+        sanitizerError = error;
+        chunks.clear();
+        queuedBytes = 0;
+        notifyAll();
+    }
+
+    /**
+     * What the sanitizer reads: the queued chunks, until the channel is closed
+     */
+    private class ChunkInputStream extends InputStream {
+
+        private byte[] chunk;
+        private int position;
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if ((chunk == null || position == chunk.length) && !nextChunk()) {
+                return -1;
+            }
+            final int n = Math.min(length, chunk.length - position);
+            System.arraycopy(chunk, position, bytes, offset, n);
+            position += n;
+            return n;
+        }
+
+        private boolean nextChunk() throws IOException {
+            synchronized (SanitizingChannel.this) {
+                try {
+                    while (chunks.isEmpty() && !isClosed) {
+                        SanitizingChannel.this.wait();
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for input");
+                }
+                if (chunks.isEmpty()) {
+                    return false;
+                }
+                chunk = chunks.remove();
+                position = 0;
+                queuedBytes -= chunk.length;
+                SanitizingChannel.this.notifyAll();
+                return true;
+            }
+        }
+    }
+}
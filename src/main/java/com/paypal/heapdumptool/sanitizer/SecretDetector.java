@@ -0,0 +1,320 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds character ranges of text which look like secrets:
+ * <ul>
+ * <li>Luhn-valid card numbers of 13 to 19 digits, optionally grouped by spaces or dashes</li>
+ * <li>JSON web tokens</li>
+ * <li>Bearer tokens, e.g. from Authorization headers</li>
+ * <li>Matches of additional regular expressions</li>
+ * </ul>
+ * Card numbers are found by a single scan over the text. The built-in regular expressions only run if a cheap scan finds
+ * their prefix, since most arrays in a heap dump contain neither. So do additional regular expressions which start with a
+ * literal, e.g. {@code ssn=\d+} or {@code (?i)apikey:\s*\w+}, as that same scan also looks for their literals. Others
+ * run on every text. Not thread-safe. Matchers and range arrays are reused.
+ */
+public class SecretDetector {
+
+    private static final int MIN_PAN_DIGITS = 13;
+    private static final int MAX_PAN_DIGITS = 19;
+
+    // flags of prefixes found by scanPrefixes, followed by one flag per additional regular expression with a literal prefix
+    private static final long JWT_PREFIX = 1;
+    private static final long BEARER_PREFIX = 2;
+    private static final int NUM_BUILT_IN_PREFIXES = 2;
+
+    private static final Pattern JWT = Pattern.compile("eyJ[A-Za-z0-9_-]+\\.eyJ[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]*");
+    private static final Pattern BEARER = Pattern.compile("(?i)bearer\\s+[A-Za-z0-9._~+/-]+=*");
+
+    private static final String CASE_INSENSITIVE_FLAG = "(?i)";
+    private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+
+    private final Matcher jwtMatcher = JWT.matcher("");
+    private final Matcher bearerMatcher = BEARER.matcher("");
+    private final List<ExtraPattern> extraPatterns = new ArrayList<>();
+    // US-ASCII characters which start a literal prefix of an additional regular expression
+    private final boolean[] extraPrefixStarts = new boolean[128];
+
+    private final int[] panDigits = new int[MAX_PAN_DIGITS];
+    private int[] rangeStarts = new int[16];
+    private int[] rangeEnds = new int[16];
+    private int numRanges;
+
+    /**
+     * @param extraPatterns additional regular expressions of secrets
+     */
+    public SecretDetector(final Collection<String> extraPatterns) {
+        for (final String pattern : extraPatterns) {
+            final int flagIndex = NUM_BUILT_IN_PREFIXES + this.extraPatterns.size();
+            final ExtraPattern extraPattern = new ExtraPattern(pattern, flagIndex < Long.SIZE ? 1L << flagIndex : 0);
+            if (extraPattern.prefix != null) {
+                final char first = extraPattern.prefix.charAt(0);
+                extraPrefixStarts[first] = true;
+                if (extraPattern.isCaseInsensitive) {
+                    extraPrefixStarts[Character.toLowerCase(first)] = true;
+                    extraPrefixStarts[Character.toUpperCase(first)] = true;
+                }
+            }
+            this.extraPatterns.add(extraPattern);
+        }
+    }
+
+    /**
+     * @return number of secret ranges found in given text. See {@link #getRangeStart(int)} and {@link #getRangeEnd(int)}
+     */
+    public int detect(final CharSequence text) {
+        numRanges = 0;
+        detectCardNumbers(text);
+
+        final long prefixes = scanPrefixes(text);
+        if ((prefixes & JWT_PREFIX) != 0) {
+            addMatches(jwtMatcher, text);
+        }
+        if ((prefixes & BEARER_PREFIX) != 0) {
+            addMatches(bearerMatcher, text);
+        }
+        for (final ExtraPattern extraPattern : extraPatterns) {
+            if (extraPattern.prefix == null || (prefixes & extraPattern.prefixFlag) != 0) {
+                addMatches(extraPattern.matcher, text);
+            }
+        }
+        return numRanges;
+    }
+
+    /**
+     * @return start index of given range, inclusive
+     */
+    public int getRangeStart(final int range) {
+        return rangeStarts[range];
+    }
+
+    /**
+     * @return end index of given range, exclusive
+     */
+    public int getRangeEnd(final int range) {
+        return rangeEnds[range];
+    }
+
+    private long scanPrefixes(final CharSequence text) {
+        long prefixes = 0;
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (c == 'e' && i + 2 < length && text.charAt(i + 1) == 'y' && text.charAt(i + 2) == 'J') {
+                prefixes |= JWT_PREFIX;
+            } else if ((c == 'b' || c == 'B') && regionMatchesIgnoreCase(text, i + 1, "earer")) {
+                prefixes |= BEARER_PREFIX;
+            }
+            if (c < extraPrefixStarts.length && extraPrefixStarts[c]) {
+                prefixes |= scanExtraPrefixes(text, i);
+            }
+        }
+        return prefixes;
+    }
+
+    private long scanExtraPrefixes(final CharSequence text, final int offset) {
+        long prefixes = 0;
+        for (final ExtraPattern extraPattern : extraPatterns) {
+            if (extraPattern.prefix != null && regionMatches(text, offset, extraPattern.prefix, extraPattern.isCaseInsensitive)) {
+                prefixes |= extraPattern.prefixFlag;
+            }
+        }
+        return prefixes;
+    }
+
+    private static boolean regionMatchesIgnoreCase(final CharSequence text, final int offset, final String lowerCase) {
+        if (offset + lowerCase.length() > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < lowerCase.length(); i++) {
+            if (Character.toLowerCase(text.charAt(offset + i)) != lowerCase.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionMatches(final CharSequence text, final int offset, final String literal, final boolean isCaseInsensitive) {
+        if (offset + literal.length() > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (foldCase(text.charAt(offset + i), isCaseInsensitive) != foldCase(literal.charAt(i), isCaseInsensitive)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // (?i) without UNICODE_CASE only folds US-ASCII
+    private static char foldCase(final char c, final boolean isCaseInsensitive) {
+        return isCaseInsensitive && c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * @return literal which every match of given regular expression starts with, or null if none can be derived. An
+     * optional leading (?i) flag is skipped. Derivation stops at the first meta character, and drops a last literal
+     * character which is quantified to be optional. Literals starting with a non US-ASCII character are not derived.
+     */
+    static String literalPrefix(final String regex) {
+        final String body = regex.startsWith(CASE_INSENSITIVE_FLAG) ? regex.substring(CASE_INSENSITIVE_FLAG.length()) : regex;
+        if (body.contains("\\Q") || hasTopLevelAlternation(body)) {
+            return null;
+        }
+
+        final StringBuilder prefix = new StringBuilder();
+        int i = 0;
+        while (i < body.length()) {
+            char c = body.charAt(i);
+            final int next;
+            if (c == '\\') {
+                // escaped meta character is a literal, while escaped letters and digits are classes or references
+                if (i + 1 == body.length() || Character.isLetterOrDigit(body.charAt(i + 1))) {
+                    break;
+                }
+                c = body.charAt(i + 1);
+                next = i + 2;
+            } else if (REGEX_META_CHARS.indexOf(c) >= 0) {
+                break;
+            } else {
+                next = i + 1;
+            }
+
+            final char quantifier = next < body.length() ? body.charAt(next) : 0;
+            if (quantifier == '?' || quantifier == '*' || quantifier == '{') {
+                break;
+            }
+            prefix.append(c);
+            if (quantifier == '+') {
+                break;
+            }
+            i = next;
+        }
+        return prefix.length() == 0 || prefix.charAt(0) >= 128 ? null : prefix.toString();
+    }
+
+    private static boolean hasTopLevelAlternation(final String regex) {
+        int groupDepth = 0;
+        int classDepth = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                classDepth++;
+            } else if (c == ']' && classDepth > 0) {
+                classDepth--;
+            } else if (classDepth == 0 && c == '(') {
+                groupDepth++;
+            } else if (classDepth == 0 && c == ')') {
+                groupDepth--;
+            } else if (classDepth == 0 && groupDepth == 0 && c == '|') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * A candidate is a run of digits, with single spaces or dashes allowed between them, which is not adjacent to
+     * other digits or letters.
+     */
+    private void detectCardNumbers(final CharSequence text) {
+        final int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (!isDigit(text.charAt(i)) || i > 0 && Character.isLetterOrDigit(text.charAt(i - 1))) {
+                i++;
+                continue;
+            }
+
+            final int start = i;
+            int end = i;
+            int numDigits = 0;
+            while (i < length) {
+                final char c = text.charAt(i);
+                if (isDigit(c)) {
+                    if (numDigits < MAX_PAN_DIGITS) {
+                        panDigits[numDigits] = c - '0';
+                    }
+                    numDigits++;
+                    end = ++i;
+                } else if ((c == ' ' || c == '-') && i + 1 < length && isDigit(text.charAt(i + 1))) {
+                    i++;
+                } else {
+                    break;
+                }
+            }
+
+            final boolean isDelimited = end == length || !Character.isLetter(text.charAt(end));
+            if (isDelimited && numDigits >= MIN_PAN_DIGITS && numDigits <= MAX_PAN_DIGITS && isLuhnValid(panDigits, numDigits)) {
+                addRange(start, end);
+            }
+        }
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static boolean isLuhnValid(final int[] digits, final int numDigits) {
+        int sum = 0;
+        boolean doubleIt = false;
+        for (int i = numDigits - 1; i >= 0; i--) {
+            int digit = digits[i];
+            if (doubleIt) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubleIt = !doubleIt;
+        }
+        return sum % 10 == 0;
+    }
+
+    private void addMatches(final Matcher matcher, final CharSequence text) {
+        matcher.reset(text);
+        while (matcher.find()) {
+            if (matcher.end() > matcher.start()) {
+                addRange(matcher.start(), matcher.end());
+            }
+        }
+    }
+
+    private void addRange(final int start, final int end) {
+        if (numRanges == rangeStarts.length) {
+            rangeStarts = Arrays.copyOf(rangeStarts, numRanges * 2);
+            rangeEnds = Arrays.copyOf(rangeEnds, numRanges * 2);
+        }
+        rangeStarts[numRanges] = start;
+        rangeEnds[numRanges] = end;
+        numRanges++;
+    }
+
+    private static class ExtraPattern {
+
+        final Matcher matcher;
+        final String prefix; // null to run on every text
+        final boolean isCaseInsensitive;
+        final long prefixFlag;
+
+        /**
+         * @param prefixFlag flag of scanPrefixes, or 0 if out of flags
+         */
+        ExtraPattern(final String regex, final long prefixFlag) {
+            this.matcher = Pattern.compile(regex).matcher("");
+            this.prefix = prefixFlag == 0 ? null : literalPrefix(regex);
+            this.isCaseInsensitive = regex.startsWith(CASE_INSENSITIVE_FLAG);
+            this.prefixFlag = prefixFlag;
+        }
+    }
+}
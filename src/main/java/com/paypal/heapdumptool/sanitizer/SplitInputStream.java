@@ -0,0 +1,94 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import org.apache.commons.io.function.IOFunction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+/**
+ * Input of the chunk files of a {@link SplitManifest}, read in order as if they were one file. Each chunk is checked
+ * against the size and checksum of the manifest once it is read, so that a corrupt or missing chunk fails the read.
+ */
+public class SplitInputStream extends InputStream {
+
+    private final SplitManifest manifest;
+    private final Path chunkDir;
+    private final IOFunction<Path, InputStream> chunkOpener;
+
+    private int chunkIndex = -1;
+    private InputStream chunkInput;
+    private MessageDigest checksum;
+    private long chunkPosition;
+
+    /**
+     * @param chunkOpener opens the input stream of a chunk file
+     */
+    public SplitInputStream(final Path manifestFile, final IOFunction<Path, InputStream> chunkOpener) throws IOException {
+        this.manifest = SplitManifest.read(manifestFile);
+        this.chunkDir = manifestFile.toAbsolutePath().getParent();
+        this.chunkOpener = chunkOpener;
+    }
+
+    public SplitManifest getManifest() {
+        return manifest;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (true) {
+            if (chunkInput == null && !nextChunk()) {
+                return -1;
+            }
+            final int n = chunkInput.read(bytes, offset, length);
+            if (n > 0) {
+                checksum.update(bytes, offset, n);
+                chunkPosition += n;
+                return n;
+            }
+            endChunk();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (chunkInput != null) {
+            chunkInput.close();
+            chunkInput = null;
+        }
+        chunkIndex = manifest.getChunks().size();
+    }
+
+    private boolean nextChunk() throws IOException {
+        if (chunkIndex + 1 >= manifest.getChunks().size()) {
+            return false;
+        }
+        chunkIndex++;
+        chunkInput = chunkOpener.apply(chunkDir.resolve(manifest.getChunks().get(chunkIndex).fileName));
+        checksum = SplitManifest.newChecksum();
+        chunkPosition = 0;
+        return true;
+    }
+
+    private void endChunk() throws IOException {
+        final SplitManifest.Chunk chunk = manifest.getChunks().get(chunkIndex);
+        chunkInput.close();
+        chunkInput = null;
+        if (chunkPosition != chunk.size) {
+            throw new IOException("Chunk " + chunk.fileName + " has " + chunkPosition + " bytes instead of " + chunk.size);
+        }
+        if (!SplitManifest.toHex(checksum.digest()).equals(chunk.checksum)) {
+            throw new IOException("Checksum mismatch of chunk " + chunk.fileName);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.utils.JsonReader;
+import com.paypal.heapdumptool.utils.JsonWriter;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Manifest of output split into chunk files by --split-size: the offset, size, and SHA-256 checksum of each chunk, so
+ * that chunks can be moved and verified independently, and reassembled in order.
+ * <p>
+ * The manifest lives next to the chunks, as output file name + ".manifest.json", and chunks as output file name + "." +
+ * 5-digit chunk number. Chunk file names are relative to the manifest's directory.
+ */
+public class SplitManifest {
+
+    public static final String MANIFEST_SUFFIX = ".manifest.json";
+
+    static final String CHECKSUM_ALGORITHM = "SHA-256";
+
+    private final String fileName;
+    private final long splitSize;
+    private final List<Chunk> chunks;
+
+    public SplitManifest(final String fileName, final long splitSize, final List<Chunk> chunks) {
+        this.fileName = fileName;
+        this.splitSize = splitSize;
+        this.chunks = Collections.unmodifiableList(new ArrayList<>(chunks));
+    }
+
+    public static Path manifestFile(final Path outputFile) {
+        return siblingOf(outputFile, MANIFEST_SUFFIX);
+    }
+
+    public static Path chunkFile(final Path outputFile, final int index) {
+        return siblingOf(outputFile, String.format(".%05d", index));
+    }
+
+    public static boolean isManifest(final Path file) {
+        return file.getFileName() != null && file.getFileName().toString().endsWith(MANIFEST_SUFFIX);
+    }
+
+    /**
+     * @return name of the file which the chunks reassemble into
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getSplitSize() {
+        return splitSize;
+    }
+
+    public List<Chunk> getChunks() {
+        return chunks;
+    }
+
+    /**
+     * @return size of the reassembled file
+     */
+    public long getSize() {
+        return chunks.isEmpty()
+               ? 0
+               : chunks.get(chunks.size() - 1).offset + chunks.get(chunks.size() - 1).size;
+    }
+
+    public void write(final Path manifestFile) throws IOException {
+        final Path tempFile = siblingOf(manifestFile, ".tmp");
+        try (final JsonWriter json = new JsonWriter(Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8))) {
+            json.beginObject();
+            json.property("file", fileName);
+            json.property("size", getSize());
+            json.property("splitSize", splitSize);
+            json.property("checksumAlgorithm", CHECKSUM_ALGORITHM);
+            json.name("chunks").beginArray();
+            for (final Chunk chunk : chunks) {
+                json.beginObject();
+                json.property("file", chunk.fileName);
+                json.property("offset", chunk.offset);
+                json.property("size", chunk.size);
+                json.property("checksum", chunk.checksum);
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+        Files.move(tempFile, manifestFile, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static SplitManifest read(final Path manifestFile) throws IOException {
+        final String text = new String(Files.readAllBytes(manifestFile), StandardCharsets.UTF_8);
+        final Object root = JsonReader.parse(text);
+        Validate.validState(root instanceof Map, "Not a split manifest: %s", manifestFile);
+
+        final Map<String, Object> manifest = (Map<String, Object>) root;
+        Validate.validState(CHECKSUM_ALGORITHM.equals(manifest.get("checksumAlgorithm")),
+                            "Unsupported checksum algorithm %s of %s", manifest.get("checksumAlgorithm"), manifestFile);
+        final List<Chunk> chunks = new ArrayList<>();
+        long offset = 0;
+        for (final Object value : (List<Object>) manifest.get("chunks")) {
+            final Map<String, Object> chunk = (Map<String, Object>) value;
+            final Chunk parsedChunk = new Chunk((String) chunk.get("file"),
+                                                Long.parseLong((String) chunk.get("offset")),
+                                                Long.parseLong((String) chunk.get("size")),
+                                                (String) chunk.get("checksum"));
+            Validate.validState(parsedChunk.offset == offset, "Chunk %s of %s is not contiguous", parsedChunk.fileName, manifestFile);
+            offset += parsedChunk.size;
+            chunks.add(parsedChunk);
+        }
+        return new SplitManifest((String) manifest.get("file"), Long.parseLong((String) manifest.get("splitSize")), chunks);
+    }
+
+    static MessageDigest newChecksum() {
+        try {
+            return MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(final byte[] digest) {
+        final StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (final byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static Path siblingOf(final Path file, final String suffix) {
+        final Path fileName = Paths.get(file.getFileName() + suffix);
+        final Path parent = file.toAbsolutePath().getParent();
+        return parent == null ? fileName : parent.resolve(fileName);
+    }
+
+    public static class Chunk {
+
+        public final String fileName;
+        public final long offset;
+        public final long size;
+        public final String checksum;
+
+        public Chunk(final String fileName, final long offset, final long size, final String checksum) {
+            this.fileName = fileName;
+            this.offset = offset;
+            this.size = size;
+            this.checksum = checksum;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import org.apache.commons.io.function.IOFunction;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Output split into numbered chunk files of the split size, along with a {@link SplitManifest} of their offsets and
+ * checksums, written on close once {@link #markComplete()} is called. Closed without it, e.g. by try-with-resources
+ * when sanitization fails, the manifest is left out, so that the chunks are not mistaken for complete output.
+ * <p>
+ * Written bytes are collected in buffers, which are handed to the writer of the current chunk. Each chunk has its own
+ * writer thread, which writes and checksums it, so that while a chunk is being finished, the next ones are already
+ * being written. Buffers are taken from a fixed pool, so that a writer which falls behind holds back the producer, and
+ * memory stays bounded.
+ */
+public class SplitOutputStream extends OutputStream {
+
+    // marks the end of a chunk in the queue of its writer
+    private static final byte[] END_OF_CHUNK = new byte[0];
+
+    private final Path outputFile;
+    private final long splitSize;
+    private final int bufferSize;
+    private final IOFunction<Path, OutputStream> chunkOpener;
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final ExecutorService executor;
+    private final int maxBuffers;
+    private final List<Future<SplitManifest.Chunk>> chunks = new ArrayList<>();
+
+    private int numBuffers;
+
+    private ChunkWriter chunkWriter;
+    private long chunkOffset;
+    private long chunkPosition;
+    private byte[] buffer;
+    private int count;
+    private boolean isClosed;
+    private boolean isFailed;
+    private boolean isComplete;
+
+    /**
+     * @param chunkOpener opens the output stream of a chunk file
+     * @param numWriters  max chunks written at once
+     */
+    public SplitOutputStream(final Path outputFile,
+                             final long splitSize,
+                             final int bufferSize,
+                             final int numWriters,
+                             final IOFunction<Path, OutputStream> chunkOpener) {
+        Validate.isTrue(splitSize > 0, "Invalid split size: %s", splitSize);
+        Validate.isTrue(numWriters > 0, "Invalid number of writers: %s", numWriters);
+        this.outputFile = outputFile;
+        this.splitSize = splitSize;
+        this.bufferSize = (int) Math.min(Math.max(bufferSize, 8192), splitSize);
+        this.chunkOpener = chunkOpener;
+        this.maxBuffers = numWriters * 2;
+        this.freeBuffers = new ArrayBlockingQueue<>(maxBuffers);
+        this.executor = Executors.newFixedThreadPool(numWriters);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        Validate.validState(!isClosed, "Split output is closed");
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            if (buffer == null) {
+                buffer = takeBuffer();
+                count = 0;
+            }
+            if (chunkWriter == null) {
+                startChunk();
+            }
+            final long chunkRemaining = splitSize - chunkPosition;
+            final int n = (int) Math.min(Math.min(remaining, buffer.length - count), chunkRemaining);
+            System.arraycopy(b, offset, buffer, count, n);
+            count += n;
+            chunkPosition += n;
+            offset += n;
+            remaining -= n;
+
+            if (chunkPosition == splitSize) {
+                handOffBuffer();
+                endChunk();
+            } else if (count == buffer.length) {
+                handOffBuffer();
+            }
+        }
+    }
+
+    /**
+     * Marks all output as written, so that close writes the manifest. Wrapping streams may still write until close, e.g.
+     * the trailer of a zip
+     */
+    public void markComplete() {
+        isComplete = true;
+    }
+
+    /**
+     * Ends the last chunk, waits for all writers, and writes the manifest if marked complete
+     */
+    @Override
+    public void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        try {
+            if (isFailed || !isComplete) {
+                return; // without a manifest, the chunks are not mistaken for complete output
+            }
+            if (chunkWriter == null && chunks.isEmpty()) {
+                startChunk(); // an empty chunk, so that empty output can also be joined
+            }
+            if (chunkWriter != null) {
+                handOffBuffer();
+                endChunk();
+            }
+            final List<SplitManifest.Chunk> writtenChunks = new ArrayList<>();
+            for (final Future<SplitManifest.Chunk> chunk : chunks) {
+                writtenChunks.add(await(chunk));
+            }
+            new SplitManifest(outputFile.getFileName().toString(), splitSize, writtenChunks)
+                    .write(SplitManifest.manifestFile(outputFile));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void startChunk() {
+        final int index = chunks.size();
+        chunkWriter = new ChunkWriter(SplitManifest.chunkFile(outputFile, index), chunkOffset);
+        chunks.add(executor.submit(chunkWriter));
+        chunkPosition = 0;
+    }
+
+    private void endChunk() throws IOException {
+        enqueue(END_OF_CHUNK);
+        chunkOffset += chunkPosition;
+        chunkWriter = null;
+        failFast();
+    }
+
+    private void handOffBuffer() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        if (count == 0) {
+            freeBuffers.add(buffer);
+        } else {
+            final byte[] full = count == buffer.length ? buffer : trimmed(buffer, count);
+            enqueue(full);
+            if (full != buffer) {
+                freeBuffers.add(buffer);
+            }
+        }
+        buffer = null;
+        count = 0;
+    }
+
+    private void enqueue(final byte[] bytes) throws IOException {
+        try {
+            chunkWriter.queue.put(bytes);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while handing off to chunk writer");
+        }
+    }
+
+    private byte[] takeBuffer() throws IOException {
+        final byte[] free = freeBuffers.poll();
+        if (free != null) {
+            return free;
+        }
+        if (numBuffers < maxBuffers) {
+            numBuffers++;
+            return new byte[bufferSize];
+        }
+        try {
+            // wait for a writer to be done with a buffer, unless one has failed
+            while (true) {
+                failFast();
+                final byte[] buffer = freeBuffers.poll(100, TimeUnit.MILLISECONDS);
+                if (buffer != null) {
+                    return buffer;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for chunk writers");
+        }
+    }
+
+    private void failFast() throws IOException {
+        for (final Future<SplitManifest.Chunk> chunk : chunks) {
+            if (chunk.isDone()) {
+                await(chunk);
+            }
+        }
+    }
+
+    private SplitManifest.Chunk await(final Future<SplitManifest.Chunk> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (final InterruptedException e) {
+            isFailed = true;
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for chunk writers");
+        } catch (final ExecutionException e) {
+            isFailed = true;
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e.getCause() instanceof IOException
+                  ? (IOException) e.getCause()
+                  : new IOException(e.getCause());
+        }
+    }
+
+    private static byte[] trimmed(final byte[] bytes, final int length) {
+        final byte[] trimmed = new byte[length];
+        System.arraycopy(bytes, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    /**
+     * Writes the buffers of one chunk, in order, until its end, and checksums them along the way
+     */
+    private class ChunkWriter implements Callable<SplitManifest.Chunk> {
+
+        private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+        private final Path chunkFile;
+        private final long offset;
+
+        ChunkWriter(final Path chunkFile, final long offset) {
+            this.chunkFile = chunkFile;
+            this.offset = offset;
+        }
+
+        @Override
+        public SplitManifest.Chunk call() throws Exception {
+            final MessageDigest checksum = SplitManifest.newChecksum();
+            long size = 0;
+            try (final OutputStream output = chunkOpener.apply(chunkFile)) {
+                for (byte[] bytes = queue.take(); bytes != END_OF_CHUNK; bytes = queue.take()) {
+                    output.write(bytes);
+                    checksum.update(bytes);
+                    size += bytes.length;
+                    if (bytes.length == bufferSize) {
+                        freeBuffers.offer(bytes);
+                    }
+                }
+            }
+            return new SplitManifest.Chunk(chunkFile.getFileName().toString(), offset, size, SplitManifest.toHex(checksum.digest()));
+        }
+    }
+}
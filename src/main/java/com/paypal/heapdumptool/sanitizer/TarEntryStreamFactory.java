@@ -0,0 +1,56 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import org.apache.commons.io.input.BoundedInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static com.paypal.heapdumptool.jfr.InstrumentedStreams.withIoWaitEvents;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Stream factory of one entry of a tar archive file. Each input stream reads the entry through a channel of its own,
+ * from the offset of the entry, so that entries can be sanitized concurrently, and read again by the passes of two-pass
+ * settings
+ */
+class TarEntryStreamFactory extends SanitizeStreamFactory {
+
+    private final long offset;
+    private final long size;
+
+    TarEntryStreamFactory(final SanitizeCommand command, final long offset, final long size) {
+        super(command);
+        this.offset = offset;
+        this.size = size;
+    }
+
+    @Override
+    protected InputStream newInputStream(final Path inputFile) throws IOException {
+        return withIoWaitEvents(newEntryInputStream(inputFile, offset, size));
+    }
+
+    @Override
+    public long getInputSize() {
+        return size;
+    }
+
+    @Override
+    public boolean isCheckpointSupported() {
+        return false;
+    }
+
+    /**
+     * Create input stream of given range of the archive, e.g. to copy an entry as is
+     */
+    static InputStream newEntryInputStream(final Path archiveFile, final long offset, final long size) throws IOException {
+        final FileChannel channel = FileChannel.open(archiveFile, READ);
+        channel.position(offset);
+        return BoundedInputStream.builder()
+                                 .setInputStream(Channels.newInputStream(channel))
+                                 .setMaxCount(size)
+                                 .get();
+    }
+}
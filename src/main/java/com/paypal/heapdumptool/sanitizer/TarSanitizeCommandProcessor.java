@@ -0,0 +1,285 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.cli.CliCommandProcessor;
+import com.paypal.heapdumptool.hserr.SanitizeHserrCommand;
+import com.paypal.heapdumptool.hserr.SanitizeHserrCommandProcessor;
+import com.paypal.heapdumptool.jfr.FlightRecording;
+import com.paypal.heapdumptool.utils.InternalLogger;
+import com.paypal.heapdumptool.utils.ResourceGovernor;
+import com.paypal.heapdumptool.utils.Throttle;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarFile;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Strings;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.paypal.heapdumptool.utils.DateTimeTool.getFriendlyDuration;
+
+/**
+ * Sanitizes every entry of a tar archive, e.g. a tarball of a crash collector with several heap dumps and logs, into a
+ * tar archive, or with --zip-output a zip, of the same entries.
+ * <p>
+ * .hprof entries are sanitized as heap dumps, and hs_err* entries as fatal error logs. Other files and directories are
+ * copied as is, and other entry types, e.g. links, are skipped. Entries are sanitized concurrently, up to the max
+ * concurrent sanitizations, into spool files in the temp dir, which are written to the output in archive order. An
+ * archive file is read in place, each entry from its own offset. Stdin is read once, spooling each entry before it is
+ * sanitized.
+ */
+public class TarSanitizeCommandProcessor implements CliCommandProcessor {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(TarSanitizeCommandProcessor.class);
+
+    private final SanitizeCommand command;
+
+    private final SanitizeStreamFactory streamFactory;
+
+    private Throttle throttle;
+
+    public TarSanitizeCommandProcessor(final SanitizeCommand command) {
+        this(command, new SanitizeStreamFactory(command));
+    }
+
+    public TarSanitizeCommandProcessor(final SanitizeCommand command, final SanitizeStreamFactory streamFactory) {
+        Validate.isTrue(command.isTarInput(), "--all-tar-entries requires --tar-input");
+        Validate.isTrue(!command.isResume(), "--all-tar-entries cannot be used with --resume");
+        Validate.isTrue(command.getHistogramOutput() == null, "--all-tar-entries cannot be used with --histogram-output");
+        Validate.isTrue(command.getMaxConcurrentSanitizations() >= 0,
+                        "Invalid max concurrent sanitizations: %s", command.getMaxConcurrentSanitizations());
+        Validate.isTrue(command.getMaxCpu() >= 0, "Invalid max cpu: %s", command.getMaxCpu());
+        Validate.isTrue(command.getMaxIoRate() == null || command.getMaxIoRate().toBytes() > 0, "Invalid max io rate: %s", command.getMaxIoRate());
+        this.command = command;
+        this.streamFactory = streamFactory;
+    }
+
+    @Override
+    @SuppressWarnings("try") // flight recording only needs to be closed
+    public void process() throws Exception {
+        final Instant now = Instant.now();
+        final int numThreads = command.getMaxConcurrentSanitizations() > 0
+                               ? command.getMaxConcurrentSanitizations()
+                               : ResourceGovernor.getInstance().getParallelism();
+        LOGGER.info("Sanitizing all tar entries. inputFile={} outputFile={} maxConcurrentSanitizations={}",
+                    command.getInputFile(), command.getOutputFile(), numThreads);
+        command.getPriority().apply();
+
+        // shared by all, so that --max-io-rate and --max-cpu bound the whole archive
+        final DataSize maxIoRate = command.getMaxIoRate();
+        throttle = Throttle.create(maxIoRate == null ? 0 : maxIoRate.toBytes(), command.getMaxCpu());
+        streamFactory.setThrottle(throttle);
+
+        final Path spoolDir = command.getTempDir() != null
+                              ? Files.createTempDirectory(command.getTempDir(), "heap-dump-tool-")
+                              : Files.createTempDirectory("heap-dump-tool-");
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        final List<EntryJob> jobs;
+        try (final FlightRecording recording = FlightRecording.start(command.getJfrOutput())) {
+            jobs = streamFactory.isStdinInput()
+                   ? submitStreamEntries(executor, spoolDir)
+                   : submitFileEntries(executor, spoolDir);
+            writeOutput(jobs);
+        } finally {
+            executor.shutdownNow();
+            FileUtils.deleteDirectory(spoolDir.toFile());
+        }
+        if (command.getJfrOutput() != null) {
+            LOGGER.info("Flight recording: {}", command.getJfrOutput());
+        }
+        LOGGER.info("Finished {} tar entries in {}", jobs.size(), getFriendlyDuration(now));
+    }
+
+    private List<EntryJob> submitFileEntries(final ExecutorService executor, final Path spoolDir) throws IOException {
+        final List<EntryJob> jobs = new ArrayList<>();
+        try (final TarFile tarFile = new TarFile(command.getInputFile())) {
+            for (final TarArchiveEntry entry : tarFile.getEntries()) {
+                Validate.isTrue(!entry.isSparse(), "Sparse tar entries are not supported: %s", entry.getName());
+                final EntryJob job = new EntryJob(entry, command.getInputFile(), entry.getDataOffset(), false);
+                jobs.add(submit(executor, job, spoolDir, jobs.size()));
+            }
+        }
+        return jobs;
+    }
+
+    private List<EntryJob> submitStreamEntries(final ExecutorService executor, final Path spoolDir) throws IOException {
+        final List<EntryJob> jobs = new ArrayList<>();
+        try (final TarArchiveInputStream tarStream = streamFactory.newTarInputStream()) {
+            for (TarArchiveEntry entry = tarStream.getNextEntry(); entry != null; entry = tarStream.getNextEntry()) {
+                Path source = null;
+                if (entry.isFile()) {
+                    source = spoolDir.resolve("input-" + jobs.size());
+                    Files.copy(tarStream, source);
+                }
+                jobs.add(submit(executor, new EntryJob(entry, source, 0, source != null), spoolDir, jobs.size()));
+            }
+        }
+        return jobs;
+    }
+
+    private EntryJob submit(final ExecutorService executor, final EntryJob job, final Path spoolDir, final int index) {
+        if (job.kind == EntryKind.HEAP_DUMP || job.kind == EntryKind.HSERR) {
+            final Path outputFile = spoolDir.resolve("output-" + index);
+            job.output = executor.submit(() -> sanitize(job, outputFile));
+        }
+        return job;
+    }
+
+    private Path sanitize(final EntryJob job, final Path outputFile) throws Exception {
+        final SanitizeCommand entryCommand = new SanitizeCommand();
+        entryCommand.copyFrom(command);
+        entryCommand.setJfrOutput(null); // already recording the whole archive
+        entryCommand.setReportOutput(null);
+        entryCommand.setPriority(Priority.NORMAL); // already applied to the whole archive
+        entryCommand.setTarInput(false);
+        entryCommand.setZipOutput(false); // zipped, if at all, along with the other entries
+        entryCommand.setDirectIo(false); // entries are not aligned to blocks
+        entryCommand.setInputFile(job.source);
+        entryCommand.setOutputFile(outputFile);
+        entryCommand.setCheckpointInterval(DataSize.ofBytes(0));
+
+        final TarEntryStreamFactory entryStreamFactory = new TarEntryStreamFactory(entryCommand, job.offset, job.entry.getSize());
+        entryStreamFactory.setThrottle(throttle);
+        if (job.kind == EntryKind.HEAP_DUMP) {
+            LOGGER.info("Sanitizing tar entry {} as heap dump", job.entry.getName());
+            SanitizeCommandProcessor.newInstance(entryCommand, entryStreamFactory).process();
+        } else {
+            LOGGER.info("Sanitizing tar entry {} as fatal error log", job.entry.getName());
+            final SanitizeHserrCommand hserrCommand = new SanitizeHserrCommand();
+            hserrCommand.setInputFile(job.source);
+            hserrCommand.setOutputFile(outputFile);
+            new SanitizeHserrCommandProcessor(hserrCommand, entryStreamFactory).process();
+        }
+        return outputFile;
+    }
+
+    private void writeOutput(final List<EntryJob> jobs) throws Exception {
+        try (final OutputStream output = streamFactory.newPlainOutputStream()) {
+            if (command.isZipOutput()) {
+                try (final ZipOutputStream zipStream = streamFactory.newZipOutputStream(output)) {
+                    for (final EntryJob job : jobs) {
+                        if (job.entry.isFile()) {
+                            final Path sanitizedFile = awaitOutput(job);
+                            zipStream.putNextEntry(new ZipEntry(job.entry.getName()));
+                            copyEntry(job, sanitizedFile, zipStream);
+                            zipStream.closeEntry();
+                        } else if (!job.entry.isDirectory()) {
+                            LOGGER.info("Skipping tar entry {} of unsupported type", job.entry.getName());
+                        }
+                    }
+                    streamFactory.markOutputComplete();
+                }
+                return;
+            }
+
+            try (final TarArchiveOutputStream tarStream = new TarArchiveOutputStream(output)) {
+                tarStream.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+                tarStream.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+                for (final EntryJob job : jobs) {
+                    if (job.entry.isFile()) {
+                        final Path sanitizedFile = awaitOutput(job);
+                        final TarArchiveEntry outputEntry = newOutputEntry(job.entry, job.entry.getName());
+                        outputEntry.setSize(sanitizedFile != null ? Files.size(sanitizedFile) : job.entry.getSize());
+                        tarStream.putArchiveEntry(outputEntry);
+                        copyEntry(job, sanitizedFile, tarStream);
+                        tarStream.closeArchiveEntry();
+                    } else if (job.entry.isDirectory()) {
+                        tarStream.putArchiveEntry(newOutputEntry(job.entry, Strings.CS.appendIfMissing(job.entry.getName(), "/")));
+                        tarStream.closeArchiveEntry();
+                    } else {
+                        LOGGER.info("Skipping tar entry {} of unsupported type", job.entry.getName());
+                    }
+                }
+                tarStream.finish();
+                streamFactory.markOutputComplete();
+            }
+        }
+    }
+
+    private static TarArchiveEntry newOutputEntry(final TarArchiveEntry entry, final String name) {
+        final TarArchiveEntry outputEntry = new TarArchiveEntry(name);
+        outputEntry.setMode(entry.getMode());
+        outputEntry.setModTime(entry.getModTime());
+        return outputEntry;
+    }
+
+    /**
+     * @return sanitized file of given entry, or null for an entry copied as is
+     */
+    private static Path awaitOutput(final EntryJob job) throws Exception {
+        if (job.output == null) {
+            return null;
+        }
+        try {
+            return job.output.get();
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Cannot sanitize tar entry " + job.entry.getName(), e.getCause());
+        }
+    }
+
+    private static void copyEntry(final EntryJob job, final Path sanitizedFile, final OutputStream output) throws IOException {
+        if (sanitizedFile != null) {
+            Files.copy(sanitizedFile, output);
+            Files.delete(sanitizedFile);
+        } else {
+            LOGGER.info("Copying tar entry {}", job.entry.getName());
+            try (final InputStream input = TarEntryStreamFactory.newEntryInputStream(job.source, job.offset, job.entry.getSize())) {
+                IOUtils.copyLarge(input, output);
+            }
+        }
+        if (job.isSpooled) {
+            Files.delete(job.source);
+        }
+    }
+
+    enum EntryKind {
+        HEAP_DUMP,
+        HSERR,
+        OTHER;
+
+        static EntryKind of(final TarArchiveEntry entry) {
+            if (!entry.isFile()) {
+                return OTHER;
+            }
+            final String fileName = StringUtils.substringAfterLast("/" + entry.getName(), "/");
+            if (fileName.endsWith(".hprof")) {
+                return HEAP_DUMP;
+            }
+            return fileName.startsWith("hs_err") ? HSERR : OTHER;
+        }
+    }
+
+    private static class EntryJob {
+
+        private final TarArchiveEntry entry;
+        private final EntryKind kind;
+        private final Path source;
+        private final long offset;
+        private final boolean isSpooled;
+        private Future<Path> output;
+
+        EntryJob(final TarArchiveEntry entry, final Path source, final long offset, final boolean isSpooled) {
+            this.entry = entry;
+            this.kind = EntryKind.of(entry);
+            this.source = source;
+            this.offset = offset;
+            this.isSpooled = isSpooled;
+        }
+    }
+}
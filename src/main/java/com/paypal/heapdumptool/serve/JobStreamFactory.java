@@ -0,0 +1,60 @@
+package com.paypal.heapdumptool.serve;
+
+import com.paypal.heapdumptool.sanitizer.IoProfile;
+import com.paypal.heapdumptool.sanitizer.SanitizeCommand;
+import com.paypal.heapdumptool.sanitizer.SanitizeStreamFactory;
+import org.apache.commons.lang3.Strings;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * Stream factory of a submitted job, which reads stdin input from the request and writes stdout output to the response
+ */
+class JobStreamFactory extends SanitizeStreamFactory {
+
+    private final SanitizeCommand command;
+    private final InputStream requestBody;
+    private final OutputStream responseBody;
+
+    JobStreamFactory(final SanitizeCommand command, final InputStream requestBody, final OutputStream responseBody) {
+        super(command);
+        Validate.isTrue(!command.isDirectIo() || !isStdoutOutput(command.getOutputFile()), "--direct-io cannot be used with stdout output");
+        this.command = command;
+        this.requestBody = requestBody;
+        this.responseBody = responseBody;
+    }
+
+    @Override
+    protected InputStream newInputStream(final Path inputFile) throws IOException {
+        return isStdinInput()
+               ? requestBody
+               : super.newInputStream(inputFile);
+    }
+
+    @Override
+    protected OutputStream newOutputStream(final Path outputFile) throws IOException {
+        return isStdoutOutput(outputFile)
+               ? responseBody
+               : super.newOutputStream(outputFile);
+    }
+
+    @Override
+    public boolean isCheckpointSupported() {
+        return !isStdoutOutput(command.getOutputFile()) && super.isCheckpointSupported();
+    }
+
+    @Override
+    public IoProfile getOutputProfile() {
+        return isStdoutOutput(command.getOutputFile()) && command.getIoProfile() == IoProfile.AUTO
+               ? IoProfile.PIPE
+               : super.getOutputProfile();
+    }
+
+    static boolean isStdoutOutput(final Path outputFile) {
+        return Strings.CS.equalsAny(outputFile.toString(), "stdout", "/dev/stdout");
+    }
+}
@@ -0,0 +1,72 @@
+package com.paypal.heapdumptool.serve;
+
+import com.paypal.heapdumptool.cli.CliCommand;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.nio.file.Path;
+
+import static org.apache.commons.lang3.builder.ToStringBuilder.reflectionToString;
+import static org.apache.commons.lang3.builder.ToStringStyle.MULTI_LINE_STYLE;
+import static picocli.CommandLine.Help.Visibility.ALWAYS;
+
+@Command(name = "serve",
+        description = {
+                "Run sanitize, sanitize-hserr, and capture jobs submitted on a localhost port",
+                "Jobs share one warmed-up JVM. See submit"
+        },
+        abbreviateSynopsis = true)
+public class ServeCommand implements CliCommand {
+
+    static final int DEFAULT_PORT = 7077;
+
+    // to allow field injection from picocli, these variables can't be final
+
+    @Option(names = {"--port"}, description = "Localhost port to listen on", defaultValue = "" + DEFAULT_PORT, showDefaultValue = ALWAYS)
+    private int port = DEFAULT_PORT;
+
+    @Option(names = {"--max-concurrent-jobs"},
+            description = "Max jobs to run at once. More jobs wait for a free one. 0 for one per CPU of the cgroup",
+            defaultValue = "0",
+            showDefaultValue = ALWAYS)
+    private int maxConcurrentJobs;
+
+    @Option(names = {"--token-file"},
+            description = "File to write the random token to, which submit must send. Readable by the owner only. Default ~/.heap-dump-tool/serve-PORT.token")
+    private Path tokenFile;
+
+    @Override
+    public Class<ServeCommandProcessor> getProcessorClass() {
+        return ServeCommandProcessor.class;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(final int port) {
+        this.port = port;
+    }
+
+    public int getMaxConcurrentJobs() {
+        return maxConcurrentJobs;
+    }
+
+    public void setMaxConcurrentJobs(final int maxConcurrentJobs) {
+        this.maxConcurrentJobs = maxConcurrentJobs;
+    }
+
+    public Path getTokenFile() {
+        return tokenFile;
+    }
+
+    public void setTokenFile(final Path tokenFile) {
+        this.tokenFile = tokenFile;
+    }
+
+    @Override
+    public String toString() {
+        return reflectionToString(this, MULTI_LINE_STYLE);
+    }
+
+}
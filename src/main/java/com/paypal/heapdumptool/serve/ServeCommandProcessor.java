@@ -0,0 +1,285 @@
+package com.paypal.heapdumptool.serve;
+
+import com.paypal.heapdumptool.Application;
+import com.paypal.heapdumptool.cli.CliCommand;
+import com.paypal.heapdumptool.cli.CliCommandProcessor;
+import com.paypal.heapdumptool.hserr.SanitizeHserrCommand;
+import com.paypal.heapdumptool.hserr.SanitizeHserrCommandProcessor;
+import com.paypal.heapdumptool.sanitizer.Priority;
+import com.paypal.heapdumptool.sanitizer.SanitizeCommand;
+import com.paypal.heapdumptool.sanitizer.SanitizeCommandProcessor;
+import com.paypal.heapdumptool.sanitizer.SanitizeOrCaptureCommandBase;
+import com.paypal.heapdumptool.sanitizer.TarSanitizeCommandProcessor;
+import com.paypal.heapdumptool.utils.InternalLogger;
+import com.paypal.heapdumptool.utils.ResourceGovernor;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import picocli.CommandLine;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.ParseResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.paypal.heapdumptool.utils.DateTimeTool.getFriendlyDuration;
+import static org.apache.commons.lang3.reflect.ConstructorUtils.invokeConstructor;
+
+/**
+ * Runs jobs submitted over http on localhost, so that repeated sanitizations skip JVM startup and JIT warm-up.
+ * <p>
+ * A job is POSTed to /jobs with its command line as arg query params, e.g. {@code /jobs?arg=sanitize&arg=in.hprof&arg=out.hprof}.
+ * For sanitize and sanitize-hserr jobs, stdin input is read from the request body, and stdout output is streamed in the
+ * response body while the input is still being read. Other paths are files of the server. A job which fails once its
+ * output is streaming has its connection closed before the end of the response, so that the client does not mistake
+ * a truncated output for a complete one.
+ * <p>
+ * Each job must have the random token of the server, see {@link ServeToken}, as any local user can connect to the port.
+ */
+public class ServeCommandProcessor implements CliCommandProcessor {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(ServeCommandProcessor.class);
+
+    static final String JOBS_PATH = "/jobs";
+    static final String ARG_PARAM = "arg";
+    static final String OUTPUT_HEADER = "X-Job-Output";
+    static final String STREAM_OUTPUT = "stream";
+
+    private static final List<String> STREAM_NAMES = Arrays.asList("-", "stdin", "stdout", "/dev/stdout");
+
+    private final ServeCommand command;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final AtomicLong jobIds = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private Path tokenFile;
+    private String token;
+
+    public ServeCommandProcessor(final ServeCommand command) {
+        Validate.isTrue(command.getPort() >= 0 && command.getPort() <= 0xFFFF, "Invalid port: %s", command.getPort());
+        Validate.isTrue(command.getMaxConcurrentJobs() >= 0, "Invalid max concurrent jobs: %s", command.getMaxConcurrentJobs());
+        this.command = command;
+    }
+
+    @Override
+    public void process() throws Exception {
+        start();
+        stopped.await();
+    }
+
+    /**
+     * @return port listened on, which is picked by the OS for port 0
+     */
+    synchronized int start() throws IOException {
+        final int numThreads = command.getMaxConcurrentJobs() > 0
+                               ? command.getMaxConcurrentJobs()
+                               : ResourceGovernor.getInstance().getParallelism();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), command.getPort()), 0);
+        server.createContext(JOBS_PATH, this::handle);
+        executor = Executors.newFixedThreadPool(numThreads);
+        server.setExecutor(executor);
+
+        // known once bound, for port 0
+        final InetSocketAddress address = server.getAddress();
+        tokenFile = ServeToken.resolveFile(command.getTokenFile(), address.getPort());
+        token = ServeToken.create(tokenFile);
+        tokenFile.toFile().deleteOnExit(); // serve is usually stopped by a signal rather than stop()
+        server.start();
+
+        LOGGER.info("Serving jobs on http://{}:{}{} maxConcurrentJobs={} tokenFile={}",
+                    address.getHostString(), address.getPort(), JOBS_PATH, numThreads, tokenFile);
+        return address.getPort();
+    }
+
+    synchronized void stop() throws IOException {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            Files.deleteIfExists(tokenFile);
+        }
+        stopped.countDown();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "POST a job to " + JOBS_PATH);
+            return;
+        }
+        if (!ServeToken.matches(token, exchange.getRequestHeaders().getFirst(ServeToken.HEADER))) {
+            LOGGER.info("Rejected job without the token of {}", tokenFile);
+            respond(exchange, 401, "Missing or invalid " + ServeToken.HEADER + ", see " + tokenFile);
+            return;
+        }
+
+        final long jobId = jobIds.incrementAndGet();
+        final long startNanos = System.nanoTime();
+        final StreamedResponse response = new StreamedResponse(exchange);
+        try {
+            final List<String> args = parseArgs(exchange.getRequestURI().getRawQuery());
+            final CliCommand job = parseJob(args);
+            // args are not logged, as they may have secrets such as --hmac-key
+            LOGGER.info("Job {} started: {}", jobId, job.getClass().getSimpleName());
+            runJob(job, args, exchange.getRequestBody(), response);
+        } catch (final Exception e) {
+            LOGGER.info("Job {} failed: {}", jobId, e.toString());
+            if (response.isStarted()) {
+                // propagating closes the connection, without ending the response
+                throw new IOException("Job failed after its output started streaming", e);
+            }
+            final boolean isInvalidJob = e instanceof IllegalArgumentException || e instanceof ParameterException;
+            respond(exchange, isInvalidJob ? 400 : 500, e.toString());
+            return;
+        }
+
+        if (response.isStarted()) {
+            response.finish();
+        } else {
+            respond(exchange, 200, "OK");
+        }
+        LOGGER.info("Job {} finished in {}", jobId, getFriendlyDuration(Duration.ofNanos(System.nanoTime() - startNanos)));
+    }
+
+    static List<String> parseArgs(final String rawQuery) throws IOException {
+        final List<String> args = new ArrayList<>();
+        if (rawQuery == null) {
+            return args;
+        }
+        for (final String param : rawQuery.split("&")) {
+            if (ARG_PARAM.equals(StringUtils.substringBefore(param, "="))) {
+                args.add(URLDecoder.decode(StringUtils.substringAfter(param, "="), StandardCharsets.UTF_8.name()));
+            }
+        }
+        return args;
+    }
+
+    static CliCommand parseJob(final List<String> args) {
+        final CommandLine commandLine = Application.newCommandLine();
+        final ParseResult subcommand = commandLine.parseArgs(args.toArray(new String[0])).subcommand();
+        Validate.isTrue(subcommand != null && subcommand.commandSpec().userObject() instanceof CliCommand,
+                        "No job command, e.g. sanitize in.hprof out.hprof");
+        final CliCommand job = (CliCommand) subcommand.commandSpec().userObject();
+        Validate.isTrue(!(job instanceof ServeCommand) && !(job instanceof SubmitCommand),
+                        "Cannot submit %s", subcommand.commandSpec().name());
+        if (job instanceof SanitizeOrCaptureCommandBase) {
+            // renicing applies to every thread of the process, i.e. to the server and its other jobs
+            Validate.isTrue(((SanitizeOrCaptureCommandBase) job).getPriority() == Priority.NORMAL,
+                            "Cannot submit --priority, as it applies to the whole server. Start serve with nice or ionice instead");
+        }
+        return job;
+    }
+
+    private static void runJob(final CliCommand job,
+                               final List<String> args,
+                               final InputStream requestBody,
+                               final StreamedResponse response) throws Exception {
+        if (job instanceof SanitizeCommand && ((SanitizeCommand) job).getBatch() == null) {
+            final SanitizeCommand sanitizeCommand = (SanitizeCommand) job;
+            final JobStreamFactory streamFactory = new JobStreamFactory(sanitizeCommand, requestBody, response);
+            if (sanitizeCommand.isAllTarEntries()) {
+                new TarSanitizeCommandProcessor(sanitizeCommand, streamFactory).process();
+            } else {
+                SanitizeCommandProcessor.newInstance(sanitizeCommand, streamFactory).process();
+            }
+
+        } else if (job instanceof SanitizeHserrCommand && ((SanitizeHserrCommand) job).getBatch() == null) {
+            final SanitizeHserrCommand hserrCommand = (SanitizeHserrCommand) job;
+            final SanitizeCommand sanitizeCommand = new SanitizeCommand();
+            sanitizeCommand.setInputFile(hserrCommand.getInputFile());
+            sanitizeCommand.setOutputFile(hserrCommand.getOutputFile());
+            final JobStreamFactory streamFactory = new JobStreamFactory(sanitizeCommand, requestBody, response);
+            new SanitizeHserrCommandProcessor(hserrCommand, streamFactory).process();
+
+        } else {
+            Validate.isTrue(args.stream().noneMatch(STREAM_NAMES::contains),
+                            "Only sanitize and sanitize-hserr jobs can stream stdin or stdout");
+            final CliCommandProcessor processor;
+            try {
+                processor = invokeConstructor(job.getProcessorClass(), job);
+            } catch (final InvocationTargetException e) {
+                throw e.getCause() != null ? ExceptionUtils.asRuntimeException(e.getCause()) : e;
+            }
+            processor.process();
+        }
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String message) throws IOException {
+        final byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (final OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+
+    /**
+     * Response body of stdout output, started on the first write. Closing it only flushes, as the job closes its output
+     * even when failing; the response is ended by {@link #finish()} once the job succeeds
+     */
+    static class StreamedResponse extends OutputStream {
+
+        private final HttpExchange exchange;
+        private OutputStream body;
+
+        StreamedResponse(final HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        boolean isStarted() {
+            return body != null;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            getBody().write(b);
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+            getBody().write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (body != null) {
+                body.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+        void finish() throws IOException {
+            getBody().close();
+        }
+
+        private OutputStream getBody() throws IOException {
+            if (body == null) {
+                exchange.getResponseHeaders().set(OUTPUT_HEADER, STREAM_OUTPUT);
+                exchange.sendResponseHeaders(200, 0); // chunked
+                body = exchange.getResponseBody();
+            }
+            return body;
+        }
+    }
+}
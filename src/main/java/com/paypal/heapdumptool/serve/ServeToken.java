@@ -0,0 +1,85 @@
+package com.paypal.heapdumptool.serve;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Random token of a running serve, which submit must send with each job. Any local user can connect to the loopback
+ * port, but only those who can read the token file, which is owner-only, can run jobs as the user of serve.
+ */
+final class ServeToken {
+
+    static final String HEADER = "X-Job-Token";
+
+    private static final int TOKEN_BYTES = 32;
+
+    /**
+     * @return given token file, or by default ~/.heap-dump-tool/serve-PORT.token
+     */
+    static Path resolveFile(final Path tokenFile, final int port) {
+        return tokenFile != null
+               ? tokenFile
+               : Paths.get(System.getProperty("user.home"), ".heap-dump-tool", "serve-" + port + ".token");
+    }
+
+    /**
+     * @return new random token, written to given file readable by its owner only
+     */
+    static String create(final Path tokenFile) throws IOException {
+        final byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        final String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        final Path dir = tokenFile.toAbsolutePath().getParent();
+        final boolean isPosix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (!Files.isDirectory(dir)) {
+            if (isPosix) {
+                Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(dir);
+            }
+        }
+
+        // created owner-only before the token is written, then moved into place
+        final Path tempFile = dir.resolve(tokenFile.getFileName() + ".tmp");
+        Files.deleteIfExists(tempFile);
+        if (isPosix) {
+            Files.createFile(tempFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(tempFile);
+        }
+        Files.write(tempFile, token.getBytes(StandardCharsets.US_ASCII));
+        Files.move(tempFile, tokenFile, REPLACE_EXISTING, ATOMIC_MOVE);
+        return token;
+    }
+
+    static String read(final Path tokenFile) throws IOException {
+        Validate.validState(Files.isReadable(tokenFile), "Cannot read token file %s of serve", tokenFile);
+        return new String(Files.readAllBytes(tokenFile), StandardCharsets.US_ASCII).trim();
+    }
+
+    /**
+     * @return whether given token is the expected one, compared in constant time
+     */
+    static boolean matches(final String expectedToken, final String token) {
+        return token != null
+               && MessageDigest.isEqual(expectedToken.getBytes(StandardCharsets.US_ASCII), token.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private ServeToken() {
+        throw new AssertionError();
+    }
+}
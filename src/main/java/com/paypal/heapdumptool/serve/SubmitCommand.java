@@ -0,0 +1,70 @@
+package com.paypal.heapdumptool.serve;
+
+import com.paypal.heapdumptool.cli.CliCommand;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Unmatched;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.commons.lang3.builder.ToStringBuilder.reflectionToString;
+import static org.apache.commons.lang3.builder.ToStringStyle.MULTI_LINE_STYLE;
+import static picocli.CommandLine.Help.Visibility.ALWAYS;
+
+@Command(name = "submit",
+        description = {
+                "Submit a job to a running serve, e.g. submit sanitize stdin stdout < in.hprof > out.hprof",
+                "stdin input and stdout output are streamed. Paths are resolved by the server"
+        },
+        abbreviateSynopsis = true)
+public class SubmitCommand implements CliCommand {
+
+    // to allow field injection from picocli, these variables can't be final
+
+    @Option(names = {"--port"}, description = "Localhost port serve listens on", defaultValue = "" + ServeCommand.DEFAULT_PORT, showDefaultValue = ALWAYS)
+    private int port = ServeCommand.DEFAULT_PORT;
+
+    @Option(names = {"--token-file"}, description = "Token file of serve. Default ~/.heap-dump-tool/serve-PORT.token")
+    private Path tokenFile;
+
+    // everything else is the job, e.g. sanitize in.hprof out.hprof --zip-output, optionally after --
+    @Unmatched
+    private List<String> jobArgs = new ArrayList<>();
+
+    @Override
+    public Class<SubmitCommandProcessor> getProcessorClass() {
+        return SubmitCommandProcessor.class;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(final int port) {
+        this.port = port;
+    }
+
+    public Path getTokenFile() {
+        return tokenFile;
+    }
+
+    public void setTokenFile(final Path tokenFile) {
+        this.tokenFile = tokenFile;
+    }
+
+    public List<String> getJobArgs() {
+        return jobArgs;
+    }
+
+    public void setJobArgs(final List<String> jobArgs) {
+        this.jobArgs = jobArgs;
+    }
+
+    @Override
+    public String toString() {
+        return reflectionToString(this, MULTI_LINE_STYLE);
+    }
+
+}
@@ -0,0 +1,222 @@
+package com.paypal.heapdumptool.serve;
+
+import com.paypal.heapdumptool.cli.CliCommandProcessor;
+import com.paypal.heapdumptool.utils.InternalLogger;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Strings;
+import org.apache.commons.lang3.Validate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * Submits a job to a running serve and waits for it.
+ * <p>
+ * The request body, stdin if streamed, is sent on its own thread while the response, stdout if streamed, is read, as
+ * the server sanitizes the input as it arrives. For that, http is spoken over a plain socket, as HttpURLConnection
+ * only reads the response once the whole request is sent.
+ */
+public class SubmitCommandProcessor implements CliCommandProcessor {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(SubmitCommandProcessor.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SubmitCommand command;
+    private final InputStream stdin;
+    private final OutputStream stdout;
+
+    public SubmitCommandProcessor(final SubmitCommand command) {
+        this(command, System.in, System.out);
+    }
+
+    SubmitCommandProcessor(final SubmitCommand command, final InputStream stdin, final OutputStream stdout) {
+        Validate.isTrue(!getJobArgs(command).isEmpty(), "No job to submit, e.g. submit sanitize in.hprof out.hprof");
+        this.command = command;
+        this.stdin = stdin;
+        this.stdout = stdout;
+    }
+
+    @Override
+    public void process() throws Exception {
+        final List<String> jobArgs = getJobArgs(command);
+        final boolean isStdinStreamed = jobArgs.contains("-") || jobArgs.contains("stdin");
+        final String token = ServeToken.read(ServeToken.resolveFile(command.getTokenFile(), command.getPort()));
+
+        try (final Socket socket = new Socket(InetAddress.getLoopbackAddress(), command.getPort())) {
+            final AtomicReference<IOException> requestError = new AtomicReference<>();
+            final Thread requestThread = new Thread(() -> {
+                try {
+                    sendRequest(socket.getOutputStream(), jobArgs, token, isStdinStreamed ? stdin : null);
+                } catch (final IOException e) {
+                    requestError.set(e);
+                }
+            }, "submit-request");
+            requestThread.setDaemon(true);
+            requestThread.start();
+
+            readResponse(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+            requestThread.join();
+            if (requestError.get() != null) {
+                throw requestError.get();
+            }
+        }
+    }
+
+    private static List<String> getJobArgs(final SubmitCommand command) {
+        final List<String> jobArgs = command.getJobArgs();
+        return !jobArgs.isEmpty() && jobArgs.get(0).equals("--")
+               ? jobArgs.subList(1, jobArgs.size())
+               : jobArgs;
+    }
+
+    private void sendRequest(final OutputStream socketOutput,
+                             final List<String> jobArgs,
+                             final String token,
+                             final InputStream body) throws IOException {
+        final StringBuilder query = new StringBuilder();
+        for (final String arg : jobArgs) {
+            query.append(query.length() == 0 ? "?" : "&")
+                 .append(ServeCommandProcessor.ARG_PARAM)
+                 .append('=')
+                 .append(URLEncoder.encode(arg, StandardCharsets.UTF_8.name()));
+        }
+        final OutputStream output = new BufferedOutputStream(socketOutput, BUFFER_SIZE);
+        final String head = "POST " + ServeCommandProcessor.JOBS_PATH + query + " HTTP/1.1\r\n"
+                            + "Host: localhost:" + command.getPort() + "\r\n"
+                            + ServeToken.HEADER + ": " + token + "\r\n"
+                            + "Transfer-Encoding: chunked\r\n"
+                            + "Connection: close\r\n"
+                            + "\r\n";
+        output.write(head.getBytes(ISO_8859_1));
+
+        if (body != null) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            for (int n = body.read(buffer); n >= 0; n = body.read(buffer)) {
+                if (n > 0) {
+                    output.write((Integer.toHexString(n) + "\r\n").getBytes(ISO_8859_1));
+                    output.write(buffer, 0, n);
+                    output.write("\r\n".getBytes(ISO_8859_1));
+                }
+            }
+        }
+        output.write("0\r\n\r\n".getBytes(ISO_8859_1));
+        output.flush();
+    }
+
+    private void readResponse(final InputStream input) throws IOException {
+        final String statusLine = readLine(input);
+        Validate.validState(statusLine != null, "No response to job from port %s", command.getPort());
+        final int status = Integer.parseInt(StringUtils.split(statusLine, ' ')[1]);
+
+        final Map<String, String> headers = new HashMap<>();
+        for (String line = readLine(input); StringUtils.isNotEmpty(line); line = readLine(input)) {
+            headers.put(StringUtils.substringBefore(line, ":").trim().toLowerCase(), StringUtils.substringAfter(line, ":").trim());
+        }
+        final InputStream body = "chunked".equalsIgnoreCase(headers.get("transfer-encoding"))
+                                 ? new ChunkedInputStream(input)
+                                 : BoundedInputStream.builder()
+                                                     .setInputStream(input)
+                                                     .setMaxCount(Long.parseLong(headers.getOrDefault("content-length", "0")))
+                                                     .get();
+
+        if (status == 200 && ServeCommandProcessor.STREAM_OUTPUT.equals(headers.get(ServeCommandProcessor.OUTPUT_HEADER.toLowerCase()))) {
+            IOUtils.copyLarge(body, stdout, new byte[BUFFER_SIZE]);
+            stdout.flush();
+            return;
+        }
+        final String message = IOUtils.toString(body, StandardCharsets.UTF_8);
+        Validate.validState(status == 200, "Job failed with status %s: %s", status, message);
+        LOGGER.info("Job finished: {}", message);
+    }
+
+    // http header line, without its line terminator, or null at the end of input
+    private static String readLine(final InputStream input) throws IOException {
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (int b = input.read(); b != '\n'; b = input.read()) {
+            if (b < 0) {
+                return line.size() == 0 ? null : line.toString(ISO_8859_1.name());
+            }
+            line.write(b);
+        }
+        return Strings.CS.removeEnd(line.toString(ISO_8859_1.name()), "\r");
+    }
+
+    /**
+     * Body of chunked transfer encoding. Ending before the last chunk is an error, as the server ends a streamed output
+     * that way when its job fails
+     */
+    private static class ChunkedInputStream extends InputStream {
+
+        private final InputStream input;
+        private long chunkRemaining;
+        private boolean isEnd;
+
+        ChunkedInputStream(final InputStream input) {
+            this.input = input;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (chunkRemaining == 0 && !nextChunk()) {
+                return -1;
+            }
+            final int n = input.read(bytes, offset, (int) Math.min(length, chunkRemaining));
+            if (n < 0) {
+                throw new EOFException("Job output ended early, the job failed");
+            }
+            chunkRemaining -= n;
+            if (chunkRemaining == 0) {
+                final String chunkEnd = readLine(input);
+                Validate.validState(chunkEnd != null && chunkEnd.isEmpty(), "Invalid chunk end: %s", chunkEnd);
+            }
+            return n;
+        }
+
+        private boolean nextChunk() throws IOException {
+            if (isEnd) {
+                return false;
+            }
+            final String sizeLine = readLine(input);
+            if (sizeLine == null) {
+                throw new EOFException("Job output ended early, the job failed");
+            }
+            chunkRemaining = Long.parseLong(StringUtils.substringBefore(sizeLine, ";").trim(), 16);
+            if (chunkRemaining > 0) {
+                return true;
+            }
+            // skip trailers
+            for (String line = readLine(input); StringUtils.isNotEmpty(line); line = readLine(input)) {
+                LOGGER.debug("Trailer: {}", line);
+            }
+            isEnd = true;
+            return false;
+        }
+    }
+}
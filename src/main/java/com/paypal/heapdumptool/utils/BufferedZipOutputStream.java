@@ -0,0 +1,90 @@
+package com.paypal.heapdumptool.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Zip output which collects small writes before deflating them, as each write to a {@link ZipOutputStream} is a call
+ * into the deflater, and the sanitizer writes mostly a few bytes at a time. Still a {@link ZipOutputStream}, so that more
+ * entries can be added.
+ */
+public class BufferedZipOutputStream extends ZipOutputStream {
+
+    private final byte[] buffer;
+    private int count;
+
+    /**
+     * @param bufferSize 0 to deflate every write
+     */
+    public BufferedZipOutputStream(final OutputStream out, final int bufferSize) {
+        super(out);
+        this.buffer = new byte[bufferSize];
+    }
+
+    @Override
+    public synchronized void write(final int b) throws IOException {
+        if (count >= buffer.length) {
+            flushBuffer();
+            if (buffer.length == 0) {
+                deflate(new byte[]{(byte) b}, 0, 1);
+                return;
+            }
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public synchronized void write(final byte[] b, final int off, final int len) throws IOException {
+        if (len >= buffer.length) {
+            flushBuffer();
+            deflate(b, off, len);
+            return;
+        }
+        if (len > buffer.length - count) {
+            flushBuffer();
+        }
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    @Override
+    public void putNextEntry(final ZipEntry e) throws IOException {
+        flushBuffer();
+        super.putNextEntry(e);
+    }
+
+    @Override
+    public void closeEntry() throws IOException {
+        flushBuffer();
+        super.closeEntry();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        flushBuffer();
+        super.finish();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        super.flush();
+    }
+
+    /**
+     * Deflates given bytes into the current entry
+     */
+    protected void deflate(final byte[] b, final int off, final int len) throws IOException {
+        super.write(b, off, len);
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            final int len = count;
+            count = 0;
+            deflate(buffer, 0, len);
+        }
+    }
+}
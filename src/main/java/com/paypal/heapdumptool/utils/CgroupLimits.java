@@ -0,0 +1,222 @@
+package com.paypal.heapdumptool.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.apache.commons.lang3.builder.ToStringBuilder.reflectionToString;
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+/**
+ * CPU, memory, and i/o limits of the cgroup of this process, from cgroup v2 (cpu.max, memory.max, io.max) or v1 (cpu,
+ * memory, and blkio controllers). The tightest limit of the cgroup and its ancestors applies.
+ */
+public class CgroupLimits {
+
+    private static final Path PROC_SELF_CGROUP = Paths.get("/proc/self/cgroup");
+    private static final Path CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+
+    // v1 reports no memory limit as about Long.MAX_VALUE rounded down to the page size
+    private static final long V1_UNLIMITED = 1L << 60;
+
+    private double cpus;
+    private long memoryBytes = -1;
+    private long readBytesPerSecond = -1;
+    private long writeBytesPerSecond = -1;
+
+    CgroupLimits() {
+    }
+
+    CgroupLimits(final double cpus, final long memoryBytes, final long readBytesPerSecond, final long writeBytesPerSecond) {
+        this.cpus = cpus;
+        this.memoryBytes = memoryBytes;
+        this.readBytesPerSecond = readBytesPerSecond;
+        this.writeBytesPerSecond = writeBytesPerSecond;
+    }
+
+    public static CgroupLimits detect() {
+        try {
+            return read(CGROUP_ROOT, Files.readAllLines(PROC_SELF_CGROUP, StandardCharsets.UTF_8));
+        } catch (final IOException | RuntimeException e) {
+            return new CgroupLimits();
+        }
+    }
+
+    /**
+     * @param procSelfCgroup lines of /proc/self/cgroup, e.g. "0::/docker/abc" for v2, or "4:cpu,cpuacct:/docker/abc" for v1
+     */
+    static CgroupLimits read(final Path cgroupRoot, final List<String> procSelfCgroup) throws IOException {
+        final CgroupLimits limits = new CgroupLimits();
+        for (final String line : procSelfCgroup) {
+            final String[] fields = line.split(":", 3);
+            if (fields.length < 3) {
+                continue;
+            }
+            if (fields[1].isEmpty()) {
+                // hybrid hierarchy mounts v2 under unified
+                final Path mount = Files.exists(cgroupRoot.resolve("cgroup.controllers")) ? cgroupRoot : cgroupRoot.resolve("unified");
+                limits.readV2(cgroupDirs(mount, fields[2]));
+            } else {
+                final List<String> controllers = Arrays.asList(fields[1].split(","));
+                if (controllers.contains("cpu")) {
+                    limits.readV1Cpu(cgroupDirs(cgroupRoot.resolve(fields[1]), fields[2]));
+                }
+                if (controllers.contains("memory")) {
+                    limits.readV1Memory(cgroupDirs(cgroupRoot.resolve(fields[1]), fields[2]));
+                }
+                if (controllers.contains("blkio")) {
+                    limits.readV1Blkio(cgroupDirs(cgroupRoot.resolve(fields[1]), fields[2]));
+                }
+            }
+        }
+        return limits;
+    }
+
+    /**
+     * @return CPU cores of the quota, or 0 if none
+     */
+    public double getCpus() {
+        return cpus;
+    }
+
+    /**
+     * @return memory limit, or -1 if none
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * @return lowest read bandwidth limit of any device, or -1 if none
+     */
+    public long getReadBytesPerSecond() {
+        return readBytesPerSecond;
+    }
+
+    /**
+     * @return lowest write bandwidth limit of any device, or -1 if none
+     */
+    public long getWriteBytesPerSecond() {
+        return writeBytesPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return reflectionToString(this, SHORT_PREFIX_STYLE);
+    }
+
+    private void readV2(final List<Path> dirs) throws IOException {
+        for (final Path dir : dirs) {
+            // "max 100000" or "150000 100000"
+            final String[] cpuMax = readFirstLine(dir.resolve("cpu.max")).split(" ");
+            if (cpuMax.length == 2 && !cpuMax[0].equals("max")) {
+                setCpus(Double.parseDouble(cpuMax[0]) / Double.parseDouble(cpuMax[1]));
+            }
+            final String memoryMax = readFirstLine(dir.resolve("memory.max"));
+            if (!memoryMax.isEmpty() && !memoryMax.equals("max")) {
+                setMemoryBytes(Long.parseLong(memoryMax));
+            }
+            // "8:0 rbps=1048576 wbps=max riops=max wiops=max"
+            for (final String line : readLines(dir.resolve("io.max"))) {
+                for (final String field : line.split(" ")) {
+                    if (field.startsWith("rbps=") && !field.endsWith("=max")) {
+                        setReadBytesPerSecond(Long.parseLong(field.substring("rbps=".length())));
+                    } else if (field.startsWith("wbps=") && !field.endsWith("=max")) {
+                        setWriteBytesPerSecond(Long.parseLong(field.substring("wbps=".length())));
+                    }
+                }
+            }
+        }
+    }
+
+    private void readV1Cpu(final List<Path> dirs) throws IOException {
+        for (final Path dir : dirs) {
+            final String quota = readFirstLine(dir.resolve("cpu.cfs_quota_us"));
+            final String period = readFirstLine(dir.resolve("cpu.cfs_period_us"));
+            if (!quota.isEmpty() && !period.isEmpty() && Long.parseLong(quota) > 0) {
+                setCpus(Double.parseDouble(quota) / Double.parseDouble(period));
+            }
+        }
+    }
+
+    private void readV1Memory(final List<Path> dirs) throws IOException {
+        for (final Path dir : dirs) {
+            final String limit = readFirstLine(dir.resolve("memory.limit_in_bytes"));
+            if (!limit.isEmpty() && Long.parseLong(limit) < V1_UNLIMITED) {
+                setMemoryBytes(Long.parseLong(limit));
+            }
+        }
+    }
+
+    private void readV1Blkio(final List<Path> dirs) throws IOException {
+        for (final Path dir : dirs) {
+            // "8:0 1048576"
+            for (final String line : readLines(dir.resolve("blkio.throttle.read_bps_device"))) {
+                setReadBytesPerSecond(Long.parseLong(line.split(" ")[1]));
+            }
+            for (final String line : readLines(dir.resolve("blkio.throttle.write_bps_device"))) {
+                setWriteBytesPerSecond(Long.parseLong(line.split(" ")[1]));
+            }
+        }
+    }
+
+    private void setCpus(final double value) {
+        cpus = cpus == 0 ? value : Math.min(cpus, value);
+    }
+
+    private void setMemoryBytes(final long value) {
+        memoryBytes = min(memoryBytes, value);
+    }
+
+    private void setReadBytesPerSecond(final long value) {
+        readBytesPerSecond = min(readBytesPerSecond, value);
+    }
+
+    private void setWriteBytesPerSecond(final long value) {
+        writeBytesPerSecond = min(writeBytesPerSecond, value);
+    }
+
+    private static long min(final long limit, final long value) {
+        return limit < 0 ? value : Math.min(limit, value);
+    }
+
+    /**
+     * @return dir of given cgroup path and its ancestors within the mount. Just the mount if the path is not visible in it,
+     * such as in a container without its own cgroup namespace, where the mount is the container's cgroup
+     */
+    private static List<Path> cgroupDirs(final Path mount, final String cgroupPath) {
+        final Path dir = mount.resolve(cgroupPath.replaceFirst("^/+", ""));
+        if (!Files.isDirectory(dir)) {
+            return Collections.singletonList(mount);
+        }
+        final List<Path> dirs = new ArrayList<>();
+        for (Path path = dir; path != null && path.startsWith(mount); path = path.getParent()) {
+            dirs.add(path);
+        }
+        return dirs;
+    }
+
+    private static String readFirstLine(final Path file) throws IOException {
+        final List<String> lines = readLines(file);
+        return lines.isEmpty() ? "" : lines.get(0);
+    }
+
+    private static List<String> readLines(final Path file) throws IOException {
+        if (!Files.isReadable(file)) {
+            return Collections.emptyList();
+        }
+        final List<String> lines = new ArrayList<>();
+        for (final String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+            if (!line.trim().isEmpty()) {
+                lines.add(line.trim());
+            }
+        }
+        return lines;
+    }
+}
@@ -2,22 +2,50 @@ package com.paypal.heapdumptool.utils;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static java.time.temporal.ChronoUnit.SECONDS;
 import static java.util.Locale.ENGLISH;
 
 public class DateTimeTool {
 
+    private static final Pattern SIMPLE_DURATION_PATTERN = Pattern.compile("(\\d+)(ms|s|m|h)");
+
     public static String getFriendlyDuration(final Instant start) {
         final Instant startSeconds = start.truncatedTo(SECONDS);
         final Instant endSeconds = Instant.now().truncatedTo(SECONDS);
 
-        final Duration duration = Duration.between(startSeconds, endSeconds);
+        return getFriendlyDuration(Duration.between(startSeconds, endSeconds));
+    }
+
+    public static String getFriendlyDuration(final Duration duration) {
         return duration.toString()
                        .substring(2)
                        .toLowerCase(ENGLISH);
     }
 
+    /**
+     * @param text e.g. 500ms, 10s, 2m, 1h, or ISO-8601 such as PT10S
+     */
+    public static Duration parseDuration(final String text) {
+        final Matcher matcher = SIMPLE_DURATION_PATTERN.matcher(text.trim().toLowerCase(ENGLISH));
+        if (!matcher.matches()) {
+            return Duration.parse(text.trim());
+        }
+        final long amount = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2)) {
+            case "ms":
+                return Duration.ofMillis(amount);
+            case "s":
+                return Duration.ofSeconds(amount);
+            case "m":
+                return Duration.ofMinutes(amount);
+            default:
+                return Duration.ofHours(amount);
+        }
+    }
+
     private DateTimeTool() {
         throw new AssertionError();
     }
@@ -0,0 +1,103 @@
+package com.paypal.heapdumptool.utils;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Buffered input from a channel opened for direct i/o, see {@link DirectIoChannels}. Only ever reads whole buffers at
+ * positions aligned to the block size, so that the only unaligned read is the short one at the end of the file.
+ */
+public class DirectInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int blockSize;
+
+    // file position of the end of the buffered bytes
+    private long channelPosition;
+    private boolean eof;
+
+    /**
+     * @param buffer aligned buffer, with capacity a multiple of the block size
+     */
+    public DirectInputStream(final FileChannel channel, final ByteBuffer buffer, final int blockSize) {
+        Validate.isTrue(buffer.capacity() % blockSize == 0, "Buffer capacity %s is not a multiple of block size %s", buffer.capacity(), blockSize);
+        this.channel = channel;
+        this.buffer = buffer;
+        this.blockSize = blockSize;
+        buffer.limit(0);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        final int count = Math.min(len, buffer.remaining());
+        buffer.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        if (n <= buffer.remaining()) {
+            buffer.position(buffer.position() + (int) Math.max(n, 0));
+            return Math.max(n, 0);
+        }
+        final long position = channelPosition - buffer.remaining();
+        final long target = Math.min(position + n, channel.size());
+        channelPosition = target - target % blockSize;
+        eof = false;
+        buffer.limit(0);
+        if (fill()) {
+            buffer.position(Math.min((int) (target - (channelPosition - buffer.limit())), buffer.limit()));
+        }
+        return target - position;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return false at end of file
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            final int count = channel.read(buffer, channelPosition + buffer.position());
+            // an unaligned short read is at the end of the file, and reading on from there would fail
+            if (count < 0 || buffer.position() % blockSize != 0) {
+                eof = true;
+                break;
+            }
+        }
+        buffer.flip();
+        channelPosition += buffer.limit();
+        return buffer.hasRemaining();
+    }
+}
@@ -0,0 +1,40 @@
+package com.paypal.heapdumptool.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+
+/**
+ * File channels which bypass the page cache, for {@code --direct-io}. Needs Java 11+, where the multi-release jar replaces
+ * this class (see src/main/java11)
+ */
+public class DirectIoChannels {
+
+    /**
+     * @return channel opened with O_DIRECT, whose reads and writes must be at aligned positions, of aligned lengths, from
+     * aligned buffers
+     */
+    public static FileChannel open(final Path file, final OpenOption... options) throws IOException {
+        throw new IllegalArgumentException("--direct-io requires Java 11 or later");
+    }
+
+    /**
+     * @return alignment of positions, lengths, and buffers for direct i/o on the file store of given file or directory
+     */
+    public static int getBlockSize(final Path path) throws IOException {
+        throw new IllegalArgumentException("--direct-io requires Java 11 or later");
+    }
+
+    /**
+     * @return direct buffer of given capacity, whose address is aligned to given block size
+     */
+    public static ByteBuffer allocateAligned(final int capacity, final int blockSize) {
+        throw new IllegalArgumentException("--direct-io requires Java 11 or later");
+    }
+
+    private DirectIoChannels() {
+        throw new AssertionError();
+    }
+}
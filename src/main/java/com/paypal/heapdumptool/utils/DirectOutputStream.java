@@ -0,0 +1,111 @@
+package com.paypal.heapdumptool.utils;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Buffered output to a channel opened for direct i/o, see {@link DirectIoChannels}. Writes whole buffers at positions
+ * aligned to the block size. An unaligned tail, on flush or close, is written padded to the block size and the file
+ * truncated back to its length. The tail stays buffered, and is written over by the next full buffer.
+ */
+public class DirectOutputStream extends OutputStream {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int blockSize;
+
+    // file position of the start of the buffer
+    private long channelPosition;
+    private boolean closed;
+
+    /**
+     * @param channel  channel opened for reading too, if offset is not aligned
+     * @param buffer   aligned buffer, with capacity a multiple of the block size
+     * @param offset   file position to write from, e.g. when resuming from a checkpoint
+     */
+    public DirectOutputStream(final FileChannel channel, final ByteBuffer buffer, final int blockSize, final long offset) throws IOException {
+        Validate.isTrue(buffer.capacity() % blockSize == 0, "Buffer capacity %s is not a multiple of block size %s", buffer.capacity(), blockSize);
+        this.channel = channel;
+        this.buffer = buffer;
+        this.blockSize = blockSize;
+        this.channelPosition = offset - offset % blockSize;
+
+        // unaligned head: start the buffer with the existing bytes of its block
+        final int headLength = (int) (offset - channelPosition);
+        if (headLength > 0) {
+            buffer.limit(blockSize);
+            channel.read(buffer, channelPosition);
+            Validate.validState(buffer.position() >= headLength, "File is shorter than offset %s", offset);
+            buffer.clear();
+            buffer.position(headLength);
+        }
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            writeBuffer();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(final byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (!buffer.hasRemaining()) {
+                writeBuffer();
+            }
+            final int count = Math.min(len, buffer.remaining());
+            buffer.put(b, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        final int length = buffer.position();
+        if (length == 0) {
+            return;
+        }
+        final ByteBuffer tail = buffer.duplicate();
+        tail.position(0);
+        tail.limit(Math.min(roundUp(length), buffer.capacity()));
+        writeFully(tail, channelPosition);
+        channel.truncate(channelPosition + length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        writeFully(buffer, channelPosition);
+        channelPosition += buffer.limit();
+        buffer.clear();
+    }
+
+    private void writeFully(final ByteBuffer source, final long position) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source, position + source.position());
+        }
+    }
+
+    private int roundUp(final int length) {
+        return (length + blockSize - 1) / blockSize * blockSize;
+    }
+}
@@ -0,0 +1,67 @@
+package com.paypal.heapdumptool.utils;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Convenience tool for finding the input files of a batch
+ */
+public class FileGlobTool {
+
+    /**
+     * @param dirOrGlob    directory, whose files matching the file name glob are taken, or glob
+     * @param fileNameGlob glob of the names of files taken from a directory, e.g. *.hprof
+     * @return matching files, sorted
+     */
+    public static List<Path> find(final String dirOrGlob, final String fileNameGlob) throws IOException {
+        final int globStart = indexOfGlob(dirOrGlob);
+        if (globStart < 0) {
+            final Path dir = Paths.get(dirOrGlob);
+            Validate.isTrue(Files.isDirectory(dir), "Not a directory or glob: %s", dirOrGlob);
+            final PathMatcher fileNameMatcher = FileSystems.getDefault().getPathMatcher("glob:" + fileNameGlob);
+            try (final Stream<Path> files = Files.list(dir)) {
+                return files.filter(Files::isRegularFile)
+                            .filter(file -> fileNameMatcher.matches(file.getFileName()))
+                            .sorted()
+                            .collect(Collectors.toList());
+            }
+        }
+
+        // walk from the deepest dir without glob chars, e.g. "dumps" of "dumps/**/*.hprof"
+        final int baseEnd = dirOrGlob.lastIndexOf('/', globStart);
+        final Path baseDir = Paths.get(baseEnd < 0 ? "." : dirOrGlob.substring(0, baseEnd + 1));
+        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + dirOrGlob);
+        if (!Files.isDirectory(baseDir)) {
+            return new ArrayList<>();
+        }
+        try (final Stream<Path> files = Files.walk(baseDir)) {
+            return files.filter(Files::isRegularFile)
+                        .filter(file -> matcher.matches(baseEnd < 0 ? file.normalize() : file))
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    private static int indexOfGlob(final String dirOrGlob) {
+        for (int i = 0; i < dirOrGlob.length(); i++) {
+            if ("*?[{".indexOf(dirOrGlob.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private FileGlobTool() {
+        throw new AssertionError();
+    }
+}
@@ -0,0 +1,140 @@
+package com.paypal.heapdumptool.utils;
+
+import org.apache.commons.text.StringEscapeUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Minimal streaming JSON writer for the tool's own reports, to avoid pulling in a JSON library
+ */
+public class JsonWriter implements Closeable {
+
+    private static final String INDENT = "  ";
+
+    private final Writer writer;
+
+    // one entry per open object/array: whether it already has a member
+    private final Deque<Boolean> hasMembers = new ArrayDeque<>();
+
+    private boolean afterName;
+
+    public JsonWriter(final Writer writer) {
+        this.writer = writer;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    public JsonWriter name(final String name) throws IOException {
+        beforeValue();
+        writer.write(quote(name));
+        writer.write(": ");
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(final String value) throws IOException {
+        beforeValue();
+        writer.write(value == null ? "null" : quote(value));
+        return this;
+    }
+
+    public JsonWriter value(final long value) throws IOException {
+        beforeValue();
+        writer.write(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(final double value) throws IOException {
+        beforeValue();
+        writer.write(Double.isFinite(value) ? Double.toString(value) : "null");
+        return this;
+    }
+
+    public JsonWriter value(final boolean value) throws IOException {
+        beforeValue();
+        writer.write(Boolean.toString(value));
+        return this;
+    }
+
+    public JsonWriter property(final String name, final String value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public JsonWriter property(final String name, final long value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public JsonWriter property(final String name, final double value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public JsonWriter property(final String name, final boolean value) throws IOException {
+        return name(name).value(value);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.write(System.lineSeparator());
+        writer.close();
+    }
+
+    private JsonWriter open(final char bracket) throws IOException {
+        beforeValue();
+        writer.write(bracket);
+        hasMembers.push(false);
+        return this;
+    }
+
+    private JsonWriter close(final char bracket) throws IOException {
+        final boolean hadMembers = hasMembers.pop();
+        if (hadMembers) {
+            newLine();
+        }
+        writer.write(bracket);
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (hasMembers.isEmpty()) {
+            return;
+        }
+        if (hasMembers.pop()) {
+            writer.write(',');
+        }
+        hasMembers.push(true);
+        newLine();
+    }
+
+    private void newLine() throws IOException {
+        writer.write(System.lineSeparator());
+        for (int i = 0; i < hasMembers.size(); i++) {
+            writer.write(INDENT);
+        }
+    }
+
+    private static String quote(final String value) {
+        return '"' + StringEscapeUtils.escapeJson(value) + '"';
+    }
+}
@@ -0,0 +1,114 @@
+package com.paypal.heapdumptool.utils;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing long to int map, avoiding the boxing of {@link java.util.HashMap} on hot paths. Values must not be negative.
+ */
+public class LongIntHashMap {
+
+    public static final int MISSING = -1;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int zeroKeyValue = MISSING;
+
+    public LongIntHashMap() {
+        this(1024);
+    }
+
+    public LongIntHashMap(final int expectedSize) {
+        final int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @return value, or {@link #MISSING} if not found
+     */
+    public int get(final long key) {
+        if (key == 0) {
+            return zeroKeyValue;
+        }
+
+        final int mask = keys.length - 1;
+        int index = indexOf(key, mask);
+        while (true) {
+            final long currentKey = keys[index];
+            if (currentKey == key) {
+                return values[index];
+            }
+            if (currentKey == 0) {
+                return MISSING;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public void put(final long key, final int value) {
+        Validate.isTrue(value >= 0, "Negative value: %s", value);
+        if (key == 0) {
+            if (zeroKeyValue == MISSING) {
+                size++;
+            }
+            zeroKeyValue = value;
+            return;
+        }
+
+        if (size >= keys.length * LOAD_FACTOR) {
+            resize();
+        }
+        if (insert(key, value)) {
+            size++;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private boolean insert(final long key, final int value) {
+        final int mask = keys.length - 1;
+        int index = indexOf(key, mask);
+        while (true) {
+            final long currentKey = keys[index];
+            if (currentKey == 0) {
+                keys[index] = key;
+                values[index] = value;
+                return true;
+            }
+            if (currentKey == key) {
+                values[index] = value;
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void resize() {
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+    }
+
+    private static int indexOf(final long key, final int mask) {
+        // object ids are aligned addresses, so mix the bits before masking
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,91 @@
+package com.paypal.heapdumptool.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Base of primitive arrays stored in a memory-mapped temp file rather than on the java heap, so that arrays with
+ * hundreds of millions of elements only cost page cache. The file is mapped in fixed size chunks as the array grows.
+ * <p>
+ * Java 8 has no public way to unmap a buffer, so the chunks are only unmapped once garbage collected. The temp file is
+ * deleted on {@link #close()}, which on Linux releases its disk space once the chunks are unmapped.
+ * <p>
+ * Dirty pages of mapped files are charged to the memory limit of the cgroup. Once the chunks of all arrays exceed the
+ * {@link ResourceGovernor#getMappedBytesBudget() budget}, the chunks are written back as more are mapped, so that the
+ * kernel can reclaim their pages rather than OOM-kill the tool.
+ */
+public abstract class MappedArray implements Closeable {
+
+    static final int CHUNK_SHIFT = 28; // 256MB
+
+    static final long CHUNK_BYTES = 1L << CHUNK_SHIFT;
+
+    private static final AtomicLong MAPPED_BYTES = new AtomicLong();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int elementShift;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+
+    protected MappedArray(final Path tempDir, final int elementShift) throws IOException {
+        this.file = Files.createTempFile(tempDir, "heap-dump-tool-", ".bin");
+        this.channel = FileChannel.open(file, READ, WRITE);
+        this.elementShift = elementShift;
+    }
+
+    /**
+     * @return number of elements which can be set without mapping another chunk
+     */
+    public long capacity() {
+        return (chunks.size() * CHUNK_BYTES) >>> elementShift;
+    }
+
+    @Override
+    public void close() throws IOException {
+        MAPPED_BYTES.addAndGet(-chunks.size() * CHUNK_BYTES);
+        chunks.clear();
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    protected final MappedByteBuffer chunkForRead(final long byteOffset) {
+        return chunks.get((int) (byteOffset >>> CHUNK_SHIFT));
+    }
+
+    protected final MappedByteBuffer chunkForWrite(final long byteOffset) {
+        final int chunkIndex = (int) (byteOffset >>> CHUNK_SHIFT);
+        while (chunkIndex >= chunks.size()) {
+            chunks.add(mapChunk(chunks.size()));
+        }
+        return chunks.get(chunkIndex);
+    }
+
+    protected static int offsetInChunk(final long byteOffset) {
+        return (int) (byteOffset & (CHUNK_BYTES - 1));
+    }
+
+    private MappedByteBuffer mapChunk(final int chunkIndex) {
+        if (MAPPED_BYTES.addAndGet(CHUNK_BYTES) > ResourceGovernor.getInstance().getMappedBytesBudget()) {
+            chunks.forEach(MappedByteBuffer::force);
+        }
+        try {
+            final MappedByteBuffer chunk = channel.map(MapMode.READ_WRITE, chunkIndex * CHUNK_BYTES, CHUNK_BYTES);
+            chunk.order(ByteOrder.nativeOrder());
+            return chunk;
+        } catch (final IOException e) {
+            throw new IllegalStateException("Cannot map " + file, e);
+        }
+    }
+}
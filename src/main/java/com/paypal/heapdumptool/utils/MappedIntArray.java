@@ -0,0 +1,30 @@
+package com.paypal.heapdumptool.utils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Memory-mapped int array. Elements not set yet read as 0
+ */
+public class MappedIntArray extends MappedArray {
+
+    public MappedIntArray(final Path tempDir) throws IOException {
+        super(tempDir, 2);
+    }
+
+    public int get(final long index) {
+        final long byteOffset = index << 2;
+        return chunkForRead(byteOffset).getInt(offsetInChunk(byteOffset));
+    }
+
+    public void set(final long index, final int value) {
+        final long byteOffset = index << 2;
+        chunkForWrite(byteOffset).putInt(offsetInChunk(byteOffset), value);
+    }
+
+    public void fill(final long fromIndex, final long toIndex, final int value) {
+        for (long i = fromIndex; i < toIndex; i++) {
+            set(i, value);
+        }
+    }
+}
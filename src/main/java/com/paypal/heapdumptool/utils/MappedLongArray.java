@@ -0,0 +1,34 @@
+package com.paypal.heapdumptool.utils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Memory-mapped long array. Elements not set yet read as 0
+ */
+public class MappedLongArray extends MappedArray {
+
+    public MappedLongArray(final Path tempDir) throws IOException {
+        super(tempDir, 3);
+    }
+
+    public long get(final long index) {
+        final long byteOffset = index << 3;
+        return chunkForRead(byteOffset).getLong(offsetInChunk(byteOffset));
+    }
+
+    public void set(final long index, final long value) {
+        final long byteOffset = index << 3;
+        chunkForWrite(byteOffset).putLong(offsetInChunk(byteOffset), value);
+    }
+
+    public void add(final long index, final long delta) {
+        set(index, get(index) + delta);
+    }
+
+    public void fill(final long fromIndex, final long toIndex, final long value) {
+        for (long i = fromIndex; i < toIndex; i++) {
+            set(i, value);
+        }
+    }
+}
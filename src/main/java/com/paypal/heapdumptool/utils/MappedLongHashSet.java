@@ -0,0 +1,97 @@
+package com.paypal.heapdumptool.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Open addressing set of longs in a memory-mapped array, so that sets of hundreds of millions of object ids only cost disk
+ * and page cache. 0 marks an empty slot, so 0 cannot be added, which suits object ids where 0 is the null reference.
+ */
+public class MappedLongHashSet implements Closeable {
+
+    private static final long INITIAL_NUM_SLOTS = 1 << 16;
+
+    private final Path tempDir;
+
+    private MappedLongArray slots;
+    private long numSlots;
+    private long size;
+
+    public MappedLongHashSet(final Path tempDir) throws IOException {
+        this.tempDir = tempDir;
+        this.slots = newSlots(INITIAL_NUM_SLOTS);
+        this.numSlots = INITIAL_NUM_SLOTS;
+    }
+
+    /**
+     * @return true if the value was not in the set already
+     */
+    public boolean add(final long value) throws IOException {
+        if (value == 0) {
+            throw new IllegalArgumentException("0 cannot be added");
+        }
+        if (size >= numSlots / 2) {
+            grow();
+        }
+        final long slot = findSlot(slots, numSlots, value);
+        if (slots.get(slot) != 0) {
+            return false;
+        }
+        slots.set(slot, value);
+        size++;
+        return true;
+    }
+
+    public boolean contains(final long value) {
+        return value != 0 && slots.get(findSlot(slots, numSlots, value)) != 0;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        slots.close();
+    }
+
+    private void grow() throws IOException {
+        final long newNumSlots = numSlots * 2;
+        final MappedLongArray newSlots = newSlots(newNumSlots);
+        try {
+            for (long slot = 0; slot < numSlots; slot++) {
+                final long value = slots.get(slot);
+                if (value != 0) {
+                    newSlots.set(findSlot(newSlots, newNumSlots, value), value);
+                }
+            }
+        } catch (final RuntimeException e) {
+            newSlots.close();
+            throw e;
+        }
+        slots.close();
+        slots = newSlots;
+        numSlots = newNumSlots;
+    }
+
+    private MappedLongArray newSlots(final long count) throws IOException {
+        final MappedLongArray array = new MappedLongArray(tempDir);
+        array.set(count - 1, 0); // map all chunks up front
+        return array;
+    }
+
+    private static long findSlot(final MappedLongArray slots, final long numSlots, final long value) {
+        // object ids are aligned addresses, so mix the bits before masking
+        final long hash = value * 0x9E3779B97F4A7C15L;
+        final long mask = numSlots - 1;
+        long slot = (hash ^ hash >>> 32) & mask;
+        while (true) {
+            final long current = slots.get(slot);
+            if (current == 0 || current == value) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.paypal.heapdumptool.utils;
 
+import com.paypal.heapdumptool.jfr.ExternalProcessEvent;
 import org.apache.commons.io.IOUtils;
 
 import java.io.IOException;
@@ -24,6 +25,8 @@ public class ProcessTool {
     }
 
     public static ProcessResult run(final String... cmd) throws Exception {
+        final ExternalProcessEvent event = new ExternalProcessEvent();
+        event.begin();
         final Process process = processBuilder(cmd).start();
         try {
             process.getOutputStream().close();
@@ -35,7 +38,14 @@ public class ProcessTool {
             final Future<String> stdoutFuture = supplyAsync(() -> readStream(stdoutStream));
 
             final int exitCode = process.waitFor();
-            return new ProcessResult(exitCode, stdoutFuture.get(), stderrFuture.get());
+            final ProcessResult result = new ProcessResult(exitCode, stdoutFuture.get(), stderrFuture.get());
+            event.end();
+            if (event.shouldCommit()) {
+                event.command = String.join(" ", cmd);
+                event.exitCode = exitCode;
+                event.commit();
+            }
+            return result;
         } finally {
             process.destroy();
         }
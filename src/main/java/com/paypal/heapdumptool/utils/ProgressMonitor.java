@@ -1,10 +1,7 @@
 package com.paypal.heapdumptool.utils;
 
-import com.paypal.heapdumptool.sanitizer.DataSize;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.io.output.CountingOutputStream;
-import org.apache.commons.lang3.mutable.MutableLong;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -12,25 +9,13 @@ import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.util.function.Consumer;
 
+/**
+ * Told the number of bytes processed so far. See {@link ProgressTicker} for the one that logs progress without a call per
+ * read or write
+ */
 @FunctionalInterface
 public interface ProgressMonitor extends Consumer<Long> {
 
-    /**
-     * Create a new {@link ProgressMonitor} that logs a message for each stepSize processed
-     */
-    static ProgressMonitor numBytesProcessedMonitor(final DataSize stepSize, final InternalLogger logger) {
-        final long stepSizeBytes = stepSize.toBytes();
-        final MutableLong steps = new MutableLong();
-
-        return numBytesProcessed -> {
-            final long currentSteps = numBytesProcessed / stepSizeBytes;
-            if (currentSteps != steps.longValue()) {
-                steps.setValue(currentSteps);
-                logger.info("Processed {}", FileUtils.byteCountToDisplaySize(numBytesProcessed));
-            }
-        };
-    }
-
     /**
      * Create a OutputStream monitored by this
      */
@@ -0,0 +1,185 @@
+package com.paypal.heapdumptool.utils;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.paypal.heapdumptool.utils.DateTimeTool.getFriendlyDuration;
+import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
+
+/**
+ * Progress sampled by a background thread at a fixed interval: bytes processed, percentage of the input size if known,
+ * throughput as a moving average over the last few intervals, and ETA. The streams it monitors only add to a counter, so
+ * the i/o path pays for neither a callback nor any division per read or write.
+ * <p>
+ * The counter has a single writer, the thread reading or writing the monitored stream.
+ */
+public class ProgressTicker implements ProgressMonitor, Closeable {
+
+    public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(10);
+
+    private static final int NUM_RATE_SAMPLES = 6;
+    private static final double BYTES_PER_MB = 1024 * 1024;
+
+    private final AtomicLong numBytesProcessed = new AtomicLong();
+    private final long totalBytes;
+    private final InternalLogger logger;
+    private ScheduledExecutorService executor;
+
+    // ring of the last samples, for the moving average rate. Only accessed by the ticker thread
+    private final long[] sampleBytes = new long[NUM_RATE_SAMPLES];
+    private final long[] sampleNanos = new long[NUM_RATE_SAMPLES];
+    private int numSamples;
+
+    /**
+     * @param totalBytes input size, or -1 if not known, e.g. for stdin
+     */
+    public static ProgressTicker start(final long totalBytes, final Duration interval, final InternalLogger logger) {
+        return start(totalBytes, 0, interval, logger);
+    }
+
+    /**
+     * @param totalBytes input size, or -1 if not known, e.g. for stdin
+     * @param startBytes bytes already processed, e.g. when resuming from a checkpoint, which don't count towards the rate
+     */
+    public static ProgressTicker start(final long totalBytes, final long startBytes, final Duration interval, final InternalLogger logger) {
+        final ProgressTicker ticker = new ProgressTicker(totalBytes, logger);
+        ticker.accept(startBytes);
+        ticker.tick(System.nanoTime());
+        ticker.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "progress-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long intervalMillis = interval.toMillis();
+        ticker.executor.scheduleAtFixedRate(() -> ticker.logProgress(System.nanoTime()), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        return ticker;
+    }
+
+    ProgressTicker(final long totalBytes, final InternalLogger logger) {
+        this.totalBytes = totalBytes;
+        this.logger = logger;
+    }
+
+    /**
+     * Sets the number of bytes processed so far, e.g. when resuming from a checkpoint
+     */
+    @Override
+    public void accept(final Long numBytesProcessed) {
+        this.numBytesProcessed.lazySet(numBytesProcessed);
+    }
+
+    public void add(final long numBytes) {
+        // single writer, so a plain ordered store is enough
+        numBytesProcessed.lazySet(numBytesProcessed.get() + numBytes);
+    }
+
+    public long getNumBytesProcessed() {
+        return numBytesProcessed.get();
+    }
+
+    @Override
+    public OutputStream monitoredOutputStream(final OutputStream output) {
+        return new FilterOutputStream(output) {
+
+            @Override
+            public void write(final int b) throws IOException {
+                out.write(b);
+                add(1);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+                add(len);
+            }
+        };
+    }
+
+    @Override
+    public InputStream monitoredInputStream(final InputStream input) {
+        return new FilterInputStream(input) {
+
+            @Override
+            public int read() throws IOException {
+                final int b = in.read();
+                if (b != -1) {
+                    add(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                final int count = in.read(b, off, len);
+                if (count > 0) {
+                    add(count);
+                }
+                return count;
+            }
+
+            @Override
+            public long skip(final long n) throws IOException {
+                final long count = in.skip(n);
+                add(count);
+                return count;
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    void logProgress(final long nanoTime) {
+        final String progress = tick(nanoTime);
+        if (progress != null) {
+            logger.info(progress);
+        }
+    }
+
+    /**
+     * Takes a sample
+     *
+     * @return progress message, or null if there is not enough samples yet
+     */
+    String tick(final long nanoTime) {
+        final long bytes = numBytesProcessed.get();
+        final int oldest = numSamples < NUM_RATE_SAMPLES ? 0 : numSamples % NUM_RATE_SAMPLES;
+        final long oldestBytes = sampleBytes[oldest];
+        final long oldestNanos = sampleNanos[oldest];
+        final boolean hasSamples = numSamples > 0;
+
+        sampleBytes[numSamples % NUM_RATE_SAMPLES] = bytes;
+        sampleNanos[numSamples % NUM_RATE_SAMPLES] = nanoTime;
+        numSamples++;
+
+        if (!hasSamples || nanoTime <= oldestNanos) {
+            return null;
+        }
+        final double bytesPerSecond = (bytes - oldestBytes) * 1e9 / (nanoTime - oldestNanos);
+        final StringBuilder sb = new StringBuilder("Processed ").append(byteCountToDisplaySize(bytes));
+        if (totalBytes > 0) {
+            sb.append(" of ")
+              .append(byteCountToDisplaySize(totalBytes))
+              .append(String.format(" (%d%%)", Math.min(100, bytes * 100 / totalBytes)));
+        }
+        sb.append(String.format(", %.1f MB/s", bytesPerSecond / BYTES_PER_MB));
+        if (totalBytes > 0 && bytesPerSecond > 0 && bytes < totalBytes) {
+            final long etaSeconds = (long) Math.ceil((totalBytes - bytes) / bytesPerSecond);
+            sb.append(", ETA ").append(getFriendlyDuration(Duration.ofSeconds(etaSeconds)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,110 @@
+package com.paypal.heapdumptool.utils;
+
+import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
+
+/**
+ * Sizes the tool's use of resources to the limits of its cgroup, such as those of the heap-dump-tool container, so that
+ * it neither gets OOM-killed nor under-uses its allowance.
+ * <p>
+ * The JVM sizes its heap to the memory limit, e.g. with -XX:MaxRAMPercentage. What is left of the limit, less a reserve
+ * for the JVM itself, is the off-heap budget. It bounds the direct buffers of --direct-io, and the dirty pages of
+ * memory-mapped structures, which are charged to the cgroup too. I/O buffers are also kept to a tenth of a second of
+ * the cgroup's bandwidth limit, as larger ones only delay the first bytes.
+ */
+public class ResourceGovernor {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(ResourceGovernor.class);
+
+    // metaspace, code cache, thread stacks, GC structures
+    private static final long JVM_RESERVE_BYTES = 128 * 1024 * 1024;
+    private static final int MIN_BUFFER_SIZE = 64 * 1024;
+    private static final int NUM_BUFFERS = 3; // read, write, compress
+
+    private static volatile ResourceGovernor instance;
+
+    private final CgroupLimits limits;
+    private final int availableProcessors;
+    private final long maxHeapBytes;
+
+    public static ResourceGovernor getInstance() {
+        if (instance == null) {
+            synchronized (ResourceGovernor.class) {
+                if (instance == null) {
+                    final Runtime runtime = Runtime.getRuntime();
+                    instance = new ResourceGovernor(CgroupLimits.detect(), runtime.availableProcessors(), runtime.maxMemory());
+                }
+            }
+        }
+        return instance;
+    }
+
+    ResourceGovernor(final CgroupLimits limits, final int availableProcessors, final long maxHeapBytes) {
+        this.limits = limits;
+        this.availableProcessors = availableProcessors;
+        this.maxHeapBytes = maxHeapBytes;
+    }
+
+    /**
+     * @return threads for parallel work: the CPU quota rounded down, or the available processors if less. At least 1
+     */
+    public int getParallelism() {
+        final double cpus = limits.getCpus() > 0
+                            ? Math.min(limits.getCpus(), availableProcessors)
+                            : availableProcessors;
+        return Math.max(1, (int) cpus);
+    }
+
+    /**
+     * @return memory limit less the max heap and a reserve for the JVM, or Long.MAX_VALUE if there is no limit
+     */
+    public long getOffHeapBudget() {
+        if (limits.getMemoryBytes() < 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, limits.getMemoryBytes() - maxHeapBytes - JVM_RESERVE_BYTES);
+    }
+
+    /**
+     * @return bytes of memory-mapped structures to keep at most dirty, i.e. not yet written back to their files: half the
+     * off-heap budget, the other half being for buffers
+     */
+    public long getMappedBytesBudget() {
+        final long offHeapBudget = getOffHeapBudget();
+        return offHeapBudget == Long.MAX_VALUE ? offHeapBudget : offHeapBudget / 2;
+    }
+
+    /**
+     * @return given read buffer size, capped by the memory and read bandwidth limits
+     */
+    public int capReadBufferSize(final int bufferSize) {
+        return capBufferSize(bufferSize, limits.getReadBytesPerSecond());
+    }
+
+    /**
+     * @return given write or compress buffer size, capped by the memory and write bandwidth limits
+     */
+    public int capWriteBufferSize(final int bufferSize) {
+        return capBufferSize(bufferSize, limits.getWriteBytesPerSecond());
+    }
+
+    public void log() {
+        if (limits.getCpus() == 0 && limits.getMemoryBytes() < 0 && limits.getReadBytesPerSecond() < 0 && limits.getWriteBytesPerSecond() < 0) {
+            return;
+        }
+        LOGGER.info("cgroup limits: {}. Parallelism: {}, max heap: {}, off-heap budget: {}",
+                    limits,
+                    getParallelism(),
+                    byteCountToDisplaySize(maxHeapBytes),
+                    getOffHeapBudget() == Long.MAX_VALUE ? "unlimited" : byteCountToDisplaySize(getOffHeapBudget()));
+    }
+
+    private int capBufferSize(final int bufferSize, final long bytesPerSecond) {
+        // i/o buffers are on heap, or off heap for --direct-io
+        long cap = Math.min(maxHeapBytes / 8, getOffHeapBudget() / 2) / NUM_BUFFERS;
+        if (bytesPerSecond > 0) {
+            cap = Math.min(cap, bytesPerSecond / 10);
+        }
+        cap = Math.max(cap, MIN_BUFFER_SIZE);
+        return (int) Math.min(bufferSize, cap);
+    }
+}
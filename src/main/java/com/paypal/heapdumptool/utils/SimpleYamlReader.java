@@ -0,0 +1,221 @@
+package com.paypal.heapdumptool.utils;
+
+import org.apache.commons.text.StringEscapeUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader of the block subset of YAML used by the tool's own config files, to avoid pulling in a YAML library. Values are
+ * read as by {@link JsonReader}.
+ * <p>
+ * Supported: nested block mappings and sequences by indentation, {@code - key: value} sequence items, plain, single-quoted
+ * and double-quoted scalars, flow sequences of scalars such as {@code [a, b]}, {@code {}}, and {@code #} comments. Not
+ * supported: anchors, aliases, tags, multi-line scalars, and multiple documents.
+ */
+public class SimpleYamlReader {
+
+    private final List<Line> lines = new ArrayList<>();
+    private int index;
+
+    private SimpleYamlReader(final String text) {
+        final String[] rawLines = text.split("\r?\n", -1);
+        for (int i = 0; i < rawLines.length; i++) {
+            final String content = stripComment(rawLines[i]);
+            if (content.trim().isEmpty() || content.trim().equals("---")) {
+                continue;
+            }
+            int indent = 0;
+            while (content.charAt(indent) == ' ') {
+                indent++;
+            }
+            if (content.charAt(indent) == '\t') {
+                throw new IllegalArgumentException("Tabs cannot be used for indentation at line " + (i + 1));
+            }
+            lines.add(new Line(i + 1, indent, content.trim()));
+        }
+    }
+
+    public static Object parse(final String text) {
+        final SimpleYamlReader reader = new SimpleYamlReader(text);
+        if (reader.lines.isEmpty()) {
+            return null;
+        }
+        final Object value = reader.parseBlock(reader.lines.get(0).indent);
+        if (reader.index < reader.lines.size()) {
+            throw reader.error("Unexpected indentation");
+        }
+        return value;
+    }
+
+    private Object parseBlock(final int indent) {
+        final Line line = lines.get(index);
+        if (!isListItem(line.content) && findMappingColon(line.content) < 0) {
+            index++;
+            return parseScalar(line.content);
+        }
+        return isListItem(line.content)
+               ? parseList(indent)
+               : parseMap(indent);
+    }
+
+    private List<Object> parseList(final int indent) {
+        final List<Object> list = new ArrayList<>();
+        while (index < lines.size() && lines.get(index).indent == indent && isListItem(lines.get(index).content)) {
+            final Line line = lines.get(index);
+            final String rest = line.content.substring(1).trim();
+            if (rest.isEmpty()) {
+                index++;
+                list.add(hasDeeperBlock(indent) ? parseBlock(lines.get(index).indent) : null);
+
+            } else if (findMappingColon(rest) >= 0) {
+                // the item is a mapping starting on the same line, continued at the column of its first key
+                final int itemIndent = indent + line.content.length() - rest.length();
+                lines.set(index, new Line(line.number, itemIndent, rest));
+                list.add(parseMap(itemIndent));
+
+            } else {
+                index++;
+                list.add(parseScalar(rest));
+            }
+        }
+        return list;
+    }
+
+    private Map<String, Object> parseMap(final int indent) {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        while (index < lines.size() && lines.get(index).indent == indent && !isListItem(lines.get(index).content)) {
+            final Line line = lines.get(index);
+            final int colon = findMappingColon(line.content);
+            if (colon < 0) {
+                throw error("Expected key: value");
+            }
+            final String key = String.valueOf(parseScalar(line.content.substring(0, colon).trim()));
+            final String value = line.content.substring(colon + 1).trim();
+            index++;
+
+            if (!value.isEmpty()) {
+                map.put(key, parseScalar(value));
+            } else if (hasDeeperBlock(indent)
+                    || index < lines.size() && lines.get(index).indent == indent && isListItem(lines.get(index).content)) {
+                map.put(key, parseBlock(lines.get(index).indent));
+            } else {
+                map.put(key, null);
+            }
+        }
+        if (index < lines.size() && lines.get(index).indent > indent) {
+            throw error("Unexpected indentation");
+        }
+        return map;
+    }
+
+    private boolean hasDeeperBlock(final int indent) {
+        return index < lines.size() && lines.get(index).indent > indent;
+    }
+
+    private Object parseScalar(final String text) {
+        if (text.startsWith("\"") && text.endsWith("\"") && text.length() >= 2) {
+            return StringEscapeUtils.unescapeJson(text.substring(1, text.length() - 1));
+        }
+        if (text.startsWith("'") && text.endsWith("'") && text.length() >= 2) {
+            return text.substring(1, text.length() - 1).replace("''", "'");
+        }
+        if (text.startsWith("[") && text.endsWith("]")) {
+            final List<Object> list = new ArrayList<>();
+            for (final String item : splitFlowSequence(text.substring(1, text.length() - 1))) {
+                list.add(parseScalar(item));
+            }
+            return list;
+        }
+        if (text.equals("{}")) {
+            return Collections.emptyMap();
+        }
+        if (text.startsWith("{") || text.startsWith("&") || text.startsWith("!") || text.startsWith("|") || text.startsWith(">")) {
+            throw error("Unsupported YAML: " + text);
+        }
+        return text.equals("~") || text.equals("null") ? null : text;
+    }
+
+    private static List<String> splitFlowSequence(final String text) {
+        final List<String> items = new ArrayList<>();
+        if (text.trim().isEmpty()) {
+            return items;
+        }
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (quote != 0) {
+                quote = c == quote ? 0 : quote;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == ',') {
+                items.add(text.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        items.add(text.substring(start).trim());
+        return items;
+    }
+
+    private static boolean isListItem(final String content) {
+        return content.equals("-") || content.startsWith("- ");
+    }
+
+    /**
+     * @return index of the colon separating key and value, or -1 if not a mapping entry
+     */
+    private static int findMappingColon(final String content) {
+        if (content.startsWith("[")) {
+            return -1;
+        }
+        char quote = 0;
+        for (int i = 0; i < content.length(); i++) {
+            final char c = content.charAt(i);
+            if (quote != 0) {
+                quote = c == quote ? 0 : quote;
+            } else if (i == 0 && (c == '"' || c == '\'')) {
+                quote = c;
+            } else if (c == ':' && (i + 1 == content.length() || content.charAt(i + 1) == ' ')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String stripComment(final String line) {
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (quote != 0) {
+                quote = c == quote ? 0 : quote;
+            } else if ((c == '"' || c == '\'') && (i == 0 || " [,".indexOf(line.charAt(i - 1)) >= 0)) {
+                quote = c;
+            } else if (c == '#' && (i == 0 || line.charAt(i - 1) == ' ')) {
+                return line.substring(0, i);
+            }
+        }
+        return line;
+    }
+
+    private IllegalArgumentException error(final String message) {
+        final int lineNumber = index < lines.size() ? lines.get(index).number : lines.get(lines.size() - 1).number;
+        return new IllegalArgumentException(message + " at line " + lineNumber);
+    }
+
+    private static class Line {
+
+        private final int number;
+        private final int indent;
+        private final String content;
+
+        Line(final int number, final int indent, final String content) {
+            this.number = number;
+            this.indent = indent;
+            this.content = content;
+        }
+    }
+}
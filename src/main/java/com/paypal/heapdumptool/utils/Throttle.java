@@ -0,0 +1,257 @@
+package com.paypal.heapdumptool.utils;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
+
+/**
+ * Bounds the i/o rate and CPU usage of the tool, to limit its impact on apps on the same host.
+ * <p>
+ * The i/o rate is a token bucket holding up to a second worth of bytes. While the host's iowait is high, the rate backs
+ * off by halves down to 1/16th, and recovers by 1/8ths when it is low again. CPU usage is the process CPU time over
+ * wall time, checked every 100ms, and slept off when above the limit.
+ * <p>
+ * Calls to {@link #acquire(long)} only subtract from a budget, until it runs out every 1MB or 1/10th of a second of i/o,
+ * so that it can be called for every read and write. Thread-safe, so that one throttle can bound all sanitizations of a
+ * batch together; a thread which sleeps holds up the others, as they would be over the limits too.
+ */
+public class Throttle {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(Throttle.class);
+
+    private static final long MAX_CHECK_BYTES = 1024 * 1024;
+    private static final long CPU_CHECK_NANOS = MILLISECONDS.toNanos(100);
+    private static final long IOWAIT_CHECK_NANOS = SECONDS.toNanos(1);
+    private static final double HIGH_IOWAIT = 0.2;
+    private static final double LOW_IOWAIT = 0.1;
+    private static final int MAX_BACKOFF = 16;
+
+    private static final Path PROC_STAT = Paths.get("/proc/stat");
+
+    private final double maxBytesPerSecond;
+    private final double maxCpu;
+    private final LongSupplier nanoTime;
+    private final LongSupplier cpuNanos;
+    private final DoubleSupplier iowait;
+    private final Sleeper sleeper;
+
+    private final long checkBytes;
+    private long budget;
+
+    private double bytesPerSecond;
+    private long allowedAtNanos;
+    private long lastIowaitCheckNanos;
+    private long cpuWindowStartNanos;
+    private long cpuAtWindowStart;
+
+    /**
+     * @param maxBytesPerSecond 0 for no limit
+     * @param maxCpu            cores, e.g. 0.5 for half a core. 0 for no limit
+     * @return throttle, or null if there are no limits
+     */
+    public static Throttle create(final long maxBytesPerSecond, final double maxCpu) {
+        if (maxBytesPerSecond <= 0 && maxCpu <= 0) {
+            return null;
+        }
+        return new Throttle(maxBytesPerSecond, maxCpu, System::nanoTime, Throttle::processCpuNanos, new IowaitSampler(), Throttle::sleep);
+    }
+
+    Throttle(final long maxBytesPerSecond,
+             final double maxCpu,
+             final LongSupplier nanoTime,
+             final LongSupplier cpuNanos,
+             final DoubleSupplier iowait,
+             final Sleeper sleeper) {
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        this.maxCpu = maxCpu;
+        this.nanoTime = nanoTime;
+        this.cpuNanos = cpuNanos;
+        this.iowait = iowait;
+        this.sleeper = sleeper;
+        this.bytesPerSecond = maxBytesPerSecond;
+        this.checkBytes = maxBytesPerSecond > 0
+                          ? Math.max(1, Math.min(MAX_CHECK_BYTES, maxBytesPerSecond / 10))
+                          : MAX_CHECK_BYTES;
+        this.budget = checkBytes;
+
+        final long now = nanoTime.getAsLong();
+        this.allowedAtNanos = now;
+        this.lastIowaitCheckNanos = now;
+        this.cpuWindowStartNanos = now;
+        this.cpuAtWindowStart = cpuNanos.getAsLong();
+    }
+
+    /**
+     * Accounts for given number of bytes read or written, and sleeps if over the limits
+     */
+    public synchronized void acquire(final long numBytes) {
+        budget -= numBytes;
+        if (budget < 0) {
+            check(checkBytes - budget);
+            budget = checkBytes;
+        }
+    }
+
+    public InputStream throttledInputStream(final InputStream input) {
+        return new FilterInputStream(input) {
+
+            @Override
+            public int read() throws IOException {
+                final int b = in.read();
+                if (b != -1) {
+                    acquire(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                final int count = in.read(b, off, len);
+                if (count > 0) {
+                    acquire(count);
+                }
+                return count;
+            }
+        };
+    }
+
+    public OutputStream throttledOutputStream(final OutputStream output) {
+        return new FilterOutputStream(output) {
+
+            @Override
+            public void write(final int b) throws IOException {
+                acquire(1);
+                out.write(b);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                acquire(len);
+                out.write(b, off, len);
+            }
+        };
+    }
+
+    synchronized double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    private void check(final long numBytes) {
+        long now = nanoTime.getAsLong();
+        if (maxBytesPerSecond > 0) {
+            adaptToIowait(now);
+            // token bucket holding up to a second of bytes
+            allowedAtNanos = Math.max(allowedAtNanos, now - SECONDS.toNanos(1))
+                             + (long) (numBytes * 1e9 / bytesPerSecond);
+            if (allowedAtNanos > now) {
+                sleeper.sleep(allowedAtNanos - now);
+                now = nanoTime.getAsLong();
+            }
+        }
+        if (maxCpu > 0 && now - cpuWindowStartNanos >= CPU_CHECK_NANOS) {
+            final long cpu = cpuNanos.getAsLong();
+            final long excessNanos = (long) ((cpu - cpuAtWindowStart) / maxCpu) - (now - cpuWindowStartNanos);
+            if (excessNanos > 0) {
+                sleeper.sleep(excessNanos);
+                now = nanoTime.getAsLong();
+            }
+            cpuWindowStartNanos = now;
+            cpuAtWindowStart = cpu;
+        }
+    }
+
+    private void adaptToIowait(final long now) {
+        if (now - lastIowaitCheckNanos < IOWAIT_CHECK_NANOS) {
+            return;
+        }
+        lastIowaitCheckNanos = now;
+        final double fraction = iowait.getAsDouble();
+        final double previous = bytesPerSecond;
+        if (fraction > HIGH_IOWAIT) {
+            bytesPerSecond = Math.max(bytesPerSecond / 2, maxBytesPerSecond / MAX_BACKOFF);
+        } else if (fraction < LOW_IOWAIT) {
+            bytesPerSecond = Math.min(bytesPerSecond + maxBytesPerSecond / 8, maxBytesPerSecond);
+        }
+        if (bytesPerSecond != previous) {
+            LOGGER.debug("iowait {}%, i/o rate limit now {}/s",
+                         Math.round(fraction * 100),
+                         byteCountToDisplaySize((long) bytesPerSecond));
+        }
+    }
+
+    private static long processCpuNanos() {
+        final OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean).getProcessCpuTime();
+        }
+        return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+    }
+
+    private static void sleep(final long nanos) {
+        try {
+            NANOSECONDS.sleep(nanos);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    interface Sleeper {
+
+        void sleep(long nanos);
+    }
+
+    /**
+     * Host iowait as the fraction of CPU time since the last sample, from the first line of /proc/stat. NaN if not
+     * available, e.g. not on Linux
+     */
+    static class IowaitSampler implements DoubleSupplier {
+
+        private long lastIowait;
+        private long lastTotal;
+
+        @Override
+        public double getAsDouble() {
+            try {
+                final List<String> lines = Files.readAllLines(PROC_STAT, StandardCharsets.US_ASCII);
+                return sample(lines.get(0));
+            } catch (final Exception e) {
+                return Double.NaN;
+            }
+        }
+
+        /**
+         * @param cpuLine e.g. "cpu  4705 356 584 3699 23 23 0 0 0 0", where the 5th value is iowait
+         */
+        double sample(final String cpuLine) {
+            final String[] fields = cpuLine.trim().split("\\s+");
+            long total = 0;
+            for (int i = 1; i < fields.length; i++) {
+                total += Long.parseLong(fields[i]);
+            }
+            final long iowait = Long.parseLong(fields[5]);
+            final long deltaTotal = total - lastTotal;
+            final double fraction = lastTotal == 0 || deltaTotal <= 0
+                                    ? Double.NaN
+                                    : (double) (iowait - lastIowait) / deltaTotal;
+            lastIowait = iowait;
+            lastTotal = total;
+            return fraction;
+        }
+    }
+}
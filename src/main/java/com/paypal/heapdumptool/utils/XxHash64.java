@@ -0,0 +1,147 @@
+package com.paypal.heapdumptool.utils;
+
+/**
+ * Streaming <a href="https://github.com/Cyan4973/xxHash/blob/dev/doc/xxhash_spec.md">xxHash64</a>, for hashing data
+ * which arrives in chunks without copying it into one array first. Not thread-safe. Reusable via {@link #reset(long)}.
+ */
+public class XxHash64 {
+
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private static final int STRIPE_SIZE = 32;
+
+    private final byte[] pending = new byte[STRIPE_SIZE];
+    private int numPending;
+
+    private long seed;
+    private long totalLength;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+
+    public XxHash64() {
+        reset(0);
+    }
+
+    public static long hash(final byte[] bytes, final long seed) {
+        final XxHash64 hash = new XxHash64();
+        hash.reset(seed);
+        hash.update(bytes, 0, bytes.length);
+        return hash.digest();
+    }
+
+    public void reset(final long seed) {
+        this.seed = seed;
+        this.totalLength = 0;
+        this.numPending = 0;
+        this.v1 = seed + PRIME64_1 + PRIME64_2;
+        this.v2 = seed + PRIME64_2;
+        this.v3 = seed;
+        this.v4 = seed - PRIME64_1;
+    }
+
+    public void update(final byte[] bytes, int offset, int length) {
+        totalLength += length;
+
+        if (numPending > 0) {
+            final int count = Math.min(length, STRIPE_SIZE - numPending);
+            System.arraycopy(bytes, offset, pending, numPending, count);
+            numPending += count;
+            offset += count;
+            length -= count;
+            if (numPending < STRIPE_SIZE) {
+                return;
+            }
+            processStripe(pending, 0);
+            numPending = 0;
+        }
+
+        final int end = offset + length;
+        while (offset + STRIPE_SIZE <= end) {
+            processStripe(bytes, offset);
+            offset += STRIPE_SIZE;
+        }
+
+        numPending = end - offset;
+        System.arraycopy(bytes, offset, pending, 0, numPending);
+    }
+
+    public long digest() {
+        long hash;
+        if (totalLength >= STRIPE_SIZE) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = seed + PRIME64_5;
+        }
+        hash += totalLength;
+
+        int offset = 0;
+        while (offset + 8 <= numPending) {
+            hash ^= round(0, readLong(pending, offset));
+            hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+            offset += 8;
+        }
+        if (offset + 4 <= numPending) {
+            hash ^= (readInt(pending, offset) & 0xFFFFFFFFL) * PRIME64_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+            offset += 4;
+        }
+        while (offset < numPending) {
+            hash ^= (pending[offset] & 0xFFL) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+            offset++;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private void processStripe(final byte[] bytes, final int offset) {
+        v1 = round(v1, readLong(bytes, offset));
+        v2 = round(v2, readLong(bytes, offset + 8));
+        v3 = round(v3, readLong(bytes, offset + 16));
+        v4 = round(v4, readLong(bytes, offset + 24));
+    }
+
+    private static long round(long acc, final long input) {
+        acc += input * PRIME64_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME64_1;
+    }
+
+    private static long mergeRound(long acc, final long value) {
+        acc ^= round(0, value);
+        return acc * PRIME64_1 + PRIME64_4;
+    }
+
+    private static long readLong(final byte[] bytes, final int offset) {
+        return (bytes[offset] & 0xFFL)
+                | (bytes[offset + 1] & 0xFFL) << 8
+                | (bytes[offset + 2] & 0xFFL) << 16
+                | (bytes[offset + 3] & 0xFFL) << 24
+                | (bytes[offset + 4] & 0xFFL) << 32
+                | (bytes[offset + 5] & 0xFFL) << 40
+                | (bytes[offset + 6] & 0xFFL) << 48
+                | (bytes[offset + 7] & 0xFFL) << 56;
+    }
+
+    private static int readInt(final byte[] bytes, final int offset) {
+        return (bytes[offset] & 0xFF)
+                | (bytes[offset + 1] & 0xFF) << 8
+                | (bytes[offset + 2] & 0xFF) << 16
+                | (bytes[offset + 3] & 0xFF) << 24;
+    }
+}
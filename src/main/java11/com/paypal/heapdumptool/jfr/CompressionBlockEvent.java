@@ -0,0 +1,30 @@
+package com.paypal.heapdumptool.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.paypal.heapdumptool.CompressionBlock")
+@Label("Compression Block")
+@Category({"Heap Dump Tool", "I/O"})
+@Description("Block of zip output, with the time spent in deflating and writing it")
+@StackTrace(false)
+public class CompressionBlockEvent extends Event {
+
+    @Label("Uncompressed Bytes")
+    @DataAmount
+    public long uncompressedBytes;
+
+    @Label("Compressed Bytes")
+    @DataAmount
+    public long compressedBytes;
+
+    @Label("Deflate Time")
+    @Timespan
+    public long deflateTime;
+}
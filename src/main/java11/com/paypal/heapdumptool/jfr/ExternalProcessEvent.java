@@ -0,0 +1,20 @@
+package com.paypal.heapdumptool.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.paypal.heapdumptool.ExternalProcess")
+@Label("External Process")
+@Category({"Heap Dump Tool", "Capture"})
+@Description("External process run to completion, such as docker exec or docker cp")
+public class ExternalProcessEvent extends Event {
+
+    @Label("Command")
+    public String command;
+
+    @Label("Exit Code")
+    public int exitCode;
+}
@@ -0,0 +1,77 @@
+package com.paypal.heapdumptool.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * JDK Flight Recorder recording of a run, for {@code --jfr}. Records the JDK's default events, such as GC and CPU load,
+ * along with the pipeline events.
+ * <p>
+ * Like all classes of this layer, it must only depend on the JDK: the executable jar keeps META-INF/versions at its root,
+ * where classes are loaded by the application class loader, which cannot see BOOT-INF/classes.
+ */
+public class FlightRecording implements Closeable {
+
+    private static final List<Class<? extends jdk.jfr.Event>> EVENT_CLASSES = Arrays.asList(
+            RecordParsedEvent.class,
+            SegmentSanitizedEvent.class,
+            IoWaitEvent.class,
+            CompressionBlockEvent.class,
+            ExternalProcessEvent.class);
+
+    private final Recording recording;
+
+    /**
+     * @return started recording, to be written to given file on close. Or null if given file is null
+     */
+    public static FlightRecording start(final Path output) throws IOException {
+        if (output == null) {
+            return null;
+        }
+        final Recording recording = new Recording(defaultConfiguration());
+        recording.setName("heap-dump-tool");
+        EVENT_CLASSES.forEach(recording::enable);
+        recording.setDestination(output);
+        recording.start();
+        return new FlightRecording(recording);
+    }
+
+    /**
+     * @return true if any recording is running, including ones started with -XX:StartFlightRecording
+     */
+    public static boolean isRecording() {
+        return FlightRecorder.isInitialized()
+                && FlightRecorder.getFlightRecorder()
+                        .getRecordings()
+                        .stream()
+                        .anyMatch(recording -> recording.getState() == RecordingState.RUNNING);
+    }
+
+    private static Configuration defaultConfiguration() throws IOException {
+        try {
+            return Configuration.getConfiguration("default");
+        } catch (final ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private FlightRecording(final Recording recording) {
+        this.recording = recording;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // stopping writes the recording to its destination
+        recording.stop();
+        recording.close();
+    }
+}
@@ -0,0 +1,24 @@
+package com.paypal.heapdumptool.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.paypal.heapdumptool.IoWait")
+@Label("I/O Wait")
+@Category({"Heap Dump Tool", "I/O"})
+@Description("Read from the input file or write to the output file, below any buffering")
+@StackTrace(false)
+public class IoWaitEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Bytes")
+    @DataAmount
+    public long numBytes;
+}
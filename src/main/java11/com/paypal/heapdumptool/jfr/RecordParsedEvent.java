@@ -0,0 +1,26 @@
+package com.paypal.heapdumptool.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.paypal.heapdumptool.RecordParsed")
+@Label("Record Parsed")
+@Category({"Heap Dump Tool", "Sanitizer"})
+@Description("Top level heap dump record copied, sanitizing as needed")
+@Threshold("1 ms")
+@StackTrace(false)
+public class RecordParsedEvent extends Event {
+
+    @Label("Tag")
+    public int tag;
+
+    @Label("Length")
+    @DataAmount
+    public long length;
+}
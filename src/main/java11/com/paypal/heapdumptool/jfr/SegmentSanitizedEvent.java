@@ -0,0 +1,28 @@
+package com.paypal.heapdumptool.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.paypal.heapdumptool.SegmentSanitized")
+@Label("Segment Sanitized")
+@Category({"Heap Dump Tool", "Sanitizer"})
+@Description("Heap dump segment record copied, sanitizing as needed")
+@StackTrace(false)
+public class SegmentSanitizedEvent extends Event {
+
+    @Label("Length")
+    @DataAmount
+    public long length;
+
+    @Label("Sub-records")
+    public long numSubRecords;
+
+    @Label("Bytes Sanitized")
+    @DataAmount
+    public long numBytesSanitized;
+}
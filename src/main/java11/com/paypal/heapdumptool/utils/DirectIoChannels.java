@@ -0,0 +1,71 @@
+package com.paypal.heapdumptool.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.lang.Math.toIntExact;
+
+/**
+ * File channels which bypass the page cache, for {@code --direct-io}, so that sanitizing a large heap dump does not evict
+ * the page cache of the apps on the same host.
+ * <p>
+ * Like all classes of this layer, it must only depend on the JDK, see FlightRecording.
+ */
+public class DirectIoChannels {
+
+    // not linked against, as com.sun.nio.file is not part of the Java SE API, and not every JDK has it
+    private static final OpenOption DIRECT = findOpenOption("com.sun.nio.file.ExtendedOpenOption", "DIRECT");
+
+    /**
+     * @return channel opened with O_DIRECT, whose reads and writes must be at aligned positions, of aligned lengths, from
+     * aligned buffers
+     */
+    public static FileChannel open(final Path file, final OpenOption... options) throws IOException {
+        if (DIRECT == null) {
+            throw new IllegalArgumentException("--direct-io requires a JDK with com.sun.nio.file.ExtendedOpenOption.DIRECT");
+        }
+        final OpenOption[] directOptions = Arrays.copyOf(options, options.length + 1);
+        directOptions[options.length] = DIRECT;
+        return FileChannel.open(file, directOptions);
+    }
+
+    /**
+     * @return alignment of positions, lengths, and buffers for direct i/o on the file store of given file or directory
+     */
+    public static int getBlockSize(final Path path) throws IOException {
+        final Path existingPath = Files.exists(path) ? path : path.toAbsolutePath().getParent();
+        return toIntExact(Files.getFileStore(existingPath).getBlockSize());
+    }
+
+    /**
+     * @return direct buffer of given capacity, whose address is aligned to given block size
+     */
+    public static ByteBuffer allocateAligned(final int capacity, final int blockSize) {
+        return ByteBuffer.allocateDirect(capacity + blockSize - 1)
+                         .alignedSlice(blockSize)
+                         .limit(capacity)
+                         .slice();
+    }
+
+    private static OpenOption findOpenOption(final String className, final String name) {
+        try {
+            for (final Object option : Class.forName(className).getEnumConstants()) {
+                if (((Enum<?>) option).name().equals(name)) {
+                    return (OpenOption) option;
+                }
+            }
+        } catch (final ClassNotFoundException e) {
+            // not in this JDK
+        }
+        return null;
+    }
+
+    private DirectIoChannels() {
+        throw new AssertionError();
+    }
+}
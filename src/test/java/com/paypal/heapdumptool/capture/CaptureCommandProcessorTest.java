@@ -1,6 +1,7 @@
 package com.paypal.heapdumptool.capture;
 
 import com.paypal.heapdumptool.fixture.ResourceTool;
+import com.paypal.heapdumptool.sanitizer.SanitizeCommand;
 import com.paypal.heapdumptool.sanitizer.SanitizeCommandProcessor;
 import com.paypal.heapdumptool.utils.ProcessTool;
 import com.paypal.heapdumptool.utils.ProcessTool.ProcessResult;
@@ -20,6 +21,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import static java.time.temporal.ChronoUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -63,14 +66,41 @@ public class CaptureCommandProcessorTest {
 
         final CaptureCommand command = new CaptureCommand();
         command.setContainerName("my-app");
+        command.setHistogram(true);
 
         final CaptureCommandProcessor processor = new CaptureCommandProcessor(command);
         processor.process();
 
         assertThat(outputFile).exists();
+        try (final ZipFile zipFile = new ZipFile(outputFile.toFile())) {
+            assertThat(zipFile.stream().map(ZipEntry::getName))
+                    .contains("my-app-2020-09-18T23-33-17.764866Z.threads.txt",
+                              "my-app-2020-09-18T23-33-17.764866Z.histogram.csv",
+                              "my-app-2020-09-18T23-33-17.764866Z.report.json");
+        }
         processToolMock.verify(() -> ProcessTool.run("nsenter1", "docker", "ps", "--filter", "name=my-app"));
     }
 
+    @Test
+    public void testProcessInContainerWithoutHistogram() throws Exception {
+        freezeTime();
+        expectIsInDockerContainer(true);
+        expectedProcessInvocations(true);
+        expectSanitize();
+
+        final CaptureCommand command = new CaptureCommand();
+        command.setContainerName("my-app");
+
+        final CaptureCommandProcessor processor = new CaptureCommandProcessor(command);
+        processor.process();
+
+        try (final ZipFile zipFile = new ZipFile(outputFile.toFile())) {
+            assertThat(zipFile.stream().map(ZipEntry::getName))
+                    .contains("my-app-2020-09-18T23-33-17.764866Z.threads.txt")
+                    .doesNotContain("my-app-2020-09-18T23-33-17.764866Z.histogram.csv");
+        }
+    }
+
     @Test
     public void testProcessOnHost() throws Exception {
         expectIsInDockerContainer(false);
@@ -103,6 +133,10 @@ public class CaptureCommandProcessorTest {
                      .thenAnswer(invocation -> {
                          final CaptureStreamFactory streamFactory = invocation.getArgument(1, CaptureStreamFactory.class);
                          streamFactory.newOutputStream(); // create now
+                         final SanitizeCommand sanitizeCommand = invocation.getArgument(0, SanitizeCommand.class);
+                         if (sanitizeCommand.getHistogramOutput() != null) {
+                             Files.write(sanitizeCommand.getHistogramOutput(), "class,instances,bytes\n".getBytes());
+                         }
                          return processor;
                      });
     }
@@ -4,6 +4,8 @@ import com.paypal.heapdumptool.sanitizer.DataSize;
 import org.junit.jupiter.api.Test;
 import org.meanbean.test.BeanVerifier;
 
+import java.time.Duration;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class CaptureCommandTest {
@@ -12,7 +14,10 @@ public class CaptureCommandTest {
     public void testBean() {
         BeanVerifier.forClass(CaptureCommand.class)
                     .withSettings(settings -> settings.addOverridePropertyFactory(CaptureCommand::getBufferSize, () -> DataSize.ofMegabytes(5)))
+                    .withSettings(settings -> settings.addOverridePropertyFactory(CaptureCommand::getMaxIoRate, () -> DataSize.ofMegabytes(7)))
+                    .withSettings(settings -> settings.addOverridePropertyFactory(CaptureCommand::getProgressInterval, () -> Duration.ofSeconds(5)))
                     .withSettings(settings -> settings.addIgnoredPropertyName("excludeStringFields"))
+                    .withSettings(settings -> settings.addIgnoredPropertyName("containerName")) // first of containerNames
                     .verifyGettersAndSetters();
     }
 
@@ -0,0 +1,152 @@
+package com.paypal.heapdumptool.capture;
+
+import com.paypal.heapdumptool.capture.CaptureScheduler.CaptureState;
+import com.paypal.heapdumptool.capture.CaptureScheduler.CaptureStatus;
+import com.paypal.heapdumptool.fixture.HeapDumper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.Mockito.mockStatic;
+
+public class CaptureSchedulerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger dumping = new AtomicInteger();
+    private final AtomicInteger maxDumping = new AtomicInteger();
+    private final AtomicInteger sanitizing = new AtomicInteger();
+    private final AtomicInteger maxSanitizing = new AtomicInteger();
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        System.clearProperty("hdt.DOCKER");
+        try (final Stream<Path> files = Files.list(Paths.get("."))) {
+            for (final Path file : files.filter(file -> file.getFileName().toString().startsWith("fleet-")).collect(toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrencyLimits() throws Exception {
+        final CaptureScheduler scheduler = new CaptureScheduler(1, 2);
+        final Map<String, Callable<Path>> captures = new LinkedHashMap<>();
+        for (int i = 0; i < 6; i++) {
+            final String name = "app-" + i;
+            captures.put(name, () -> {
+                scheduler.dump(name, () -> track(dumping, maxDumping, 10));
+                return scheduler.sanitize(name, () -> {
+                    track(sanitizing, maxSanitizing, 50);
+                    return Paths.get(name + ".zip");
+                });
+            });
+        }
+        captures.put("app-failing", () -> scheduler.dump("app-failing", () -> {
+            throw new IllegalArgumentException("Cannot find container");
+        }));
+
+        final List<CaptureStatus> statuses = scheduler.run(captures);
+
+        assertThat(maxDumping).hasValue(1);
+        assertThat(maxSanitizing).hasValue(2);
+        assertThat(statuses.stream().map(CaptureStatus::getContainerName))
+                .containsExactly("app-0", "app-1", "app-2", "app-3", "app-4", "app-5", "app-failing");
+        assertThat(statuses.subList(0, 6))
+                .allMatch(status -> status.getState() == CaptureState.CAPTURED);
+        assertThat(statuses.get(0).getOutput())
+                .isEqualTo(Paths.get("app-0.zip"));
+        assertThat(statuses.get(6).getState())
+                .isEqualTo(CaptureState.FAILED);
+        assertThat(statuses.get(6).getError())
+                .contains("Cannot find container");
+    }
+
+    @Test
+    public void testFleetCapture() throws Exception {
+        final Path heapDump = tempDir.resolve("app.hprof");
+        HeapDumper.dumpHeap(heapDump, true);
+        System.setProperty("hdt.DOCKER", newFakeDocker(heapDump).toString());
+
+        final CaptureCommand command = new CaptureCommand();
+        command.setContainerNames(Arrays.asList("fleet-a", "fleet-missing"));
+        command.setLabel("app=fleet");
+        command.setMaxConcurrentSanitizations(2);
+        command.setReportOutput(tempDir.resolve("report.json"));
+
+        final CaptureCommandProcessor processor;
+        try (final MockedStatic<PrivilegeEscalator> privilegeEscalatorMock = mockStatic(PrivilegeEscalator.class)) {
+            privilegeEscalatorMock.when(PrivilegeEscalator::isInDockerContainer)
+                                  .thenReturn(false);
+            processor = new CaptureCommandProcessor(command);
+        }
+        assertThatIllegalStateException()
+                .isThrownBy(processor::process)
+                .withMessage("Cannot capture 1 of 4 containers");
+
+        try (final Stream<Path> files = Files.list(Paths.get("."))) {
+            assertThat(files.map(file -> file.getFileName().toString()).filter(name -> name.startsWith("fleet-")))
+                    .hasSize(3)
+                    .allMatch(name -> name.endsWith(".hprof.zip"))
+                    .anyMatch(name -> name.startsWith("fleet-b-"));
+        }
+        assertThat(new String(Files.readAllBytes(tempDir.resolve("report.json")), UTF_8))
+                .contains("\"name\": \"fleet-c\"", "\"state\": \"CAPTURED\"")
+                .contains("\"name\": \"fleet-missing\"", "\"state\": \"FAILED\"");
+    }
+
+    private static Void track(final AtomicInteger running, final AtomicInteger maxRunning, final long millis) throws InterruptedException {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        Thread.sleep(millis);
+        running.decrementAndGet();
+        return null;
+    }
+
+    // docker ps, exec, and cp of containers fleet-a, fleet-b, and fleet-c, which have label app=fleet
+    private Path newFakeDocker(final Path heapDump) throws IOException {
+        final String script = String.join("\n",
+                "#!/bin/sh",
+                "case \"$1\" in",
+                "  ps)",
+                "    if [ \"$3\" = label=app=fleet ]; then printf 'fleet-a\\nfleet-b\\nfleet-c\\n'; exit 0; fi",
+                "    echo 'CONTAINER ID   IMAGE   NAMES'",
+                "    case \"${3#name=}\" in fleet-a|fleet-b|fleet-c) echo \"1234   app   ${3#name=}\";; esac",
+                "    ;;",
+                "  exec)",
+                "    shift 2",
+                "    case \"$1\" in",
+                "      jps) printf '55 App\\n66 Jps\\n' ;;",
+                "      jcmd) if [ \"$3\" = GC.heap_dump ]; then cp '" + heapDump + "' \"$4\" && echo 'Heap dump file created'; else echo 'Full thread dump'; fi ;;",
+                "      rm) rm -f \"$2\" ;;",
+                "    esac",
+                "    ;;",
+                "  cp)",
+                "    [ \"${2#*:}\" = \"$3\" ] || cp \"${2#*:}\" \"$3\"",
+                "    ;;",
+                "esac",
+                "");
+        final Path docker = tempDir.resolve("docker");
+        Files.write(docker, script.getBytes(UTF_8));
+        Files.setPosixFilePermissions(docker, PosixFilePermissions.fromString("rwx------"));
+        return docker;
+    }
+}
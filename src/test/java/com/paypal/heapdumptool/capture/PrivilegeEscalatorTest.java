@@ -6,6 +6,7 @@ import com.paypal.heapdumptool.capture.PrivilegeEscalator.Escalation;
 import com.paypal.heapdumptool.fixture.ConstructorTester;
 import com.paypal.heapdumptool.fixture.ResourceTool;
 import com.paypal.heapdumptool.sanitizer.DataSize;
+import com.paypal.heapdumptool.utils.DateTimeTool;
 import org.apache.commons.lang3.RuntimeEnvironment;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -21,6 +22,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 
 import static com.paypal.heapdumptool.capture.PrivilegeEscalator.escalatePrivilegesIfNeeded;
 import static com.paypal.heapdumptool.capture.PrivilegeEscalator.Escalation.REQUIRED_AND_PROMPTED;
@@ -136,6 +138,7 @@ public class PrivilegeEscalatorTest {
         final CommandLine commandLine = new CommandLine(new Application());
         commandLine.setUsageHelpWidth(120);
         commandLine.registerConverter(DataSize.class, DataSize::parse);
+        commandLine.registerConverter(Duration.class, DateTimeTool::parseDuration);
         commandLine.setAbbreviatedOptionsAllowed(true);
         return commandLine;
     }
@@ -0,0 +1,108 @@
+package com.paypal.heapdumptool.dominators;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DominatorTreeTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testDominators() throws Exception {
+        // 0 is the virtual root. 7 is unreachable
+        final int[][] successors = {
+                {1},        // 0
+                {2, 3},     // 1
+                {4},        // 2
+                {4, 6},     // 3
+                {5},        // 4
+                {1, 4},     // 5: cycles back
+                {},         // 6
+                {5},        // 7
+        };
+
+        try (final ObjectGraph graph = newGraph(successors);
+             final DominatorTree dominatorTree = new DominatorTree(graph, tempDir)) {
+            dominatorTree.compute();
+
+            assertThat(dominatorTree.getNumReachable()).isEqualTo(7);
+            assertThat(dominatorTree.getImmediateDominator(0)).isEqualTo(-1);
+            assertThat(dominatorTree.getImmediateDominator(1)).isEqualTo(0);
+            assertThat(dominatorTree.getImmediateDominator(2)).isEqualTo(1);
+            assertThat(dominatorTree.getImmediateDominator(3)).isEqualTo(1);
+            assertThat(dominatorTree.getImmediateDominator(4)).isEqualTo(1);
+            assertThat(dominatorTree.getImmediateDominator(5)).isEqualTo(4);
+            assertThat(dominatorTree.getImmediateDominator(6)).isEqualTo(3);
+            assertThat(dominatorTree.getImmediateDominator(7)).isEqualTo(-1);
+            assertThat(dominatorTree.getDfnum(7)).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    public void testRetainedSizes() throws Exception {
+        final int[][] successors = {
+                {1, 2},     // 0
+                {3},        // 1
+                {3, 4},     // 2
+                {},         // 3: shared by 1 and 2
+                {5},        // 4
+                {},         // 5
+        };
+
+        try (final ObjectGraph graph = newGraph(successors);
+             final DominatorTree dominatorTree = new DominatorTree(graph, tempDir);
+             final RetainedSizes retainedSizes = new RetainedSizes(graph, dominatorTree, tempDir)) {
+            dominatorTree.compute();
+            retainedSizes.compute();
+
+            assertThat(retainedSizes.getRetainedSize(1)).isEqualTo(10);
+            assertThat(retainedSizes.getRetainedSize(2)).isEqualTo(20 + 40 + 50);
+            assertThat(retainedSizes.getRetainedSize(3)).isEqualTo(30);
+            assertThat(retainedSizes.getRetainedSize(4)).isEqualTo(40 + 50);
+
+            // 4 and 5 are of the same class, and 5 is dominated by 4
+            assertThat(retainedSizes.getTopClasses(2))
+                    .extracting(entry -> entry.className)
+                    .containsExactly("Other", "Node");
+            assertThat(retainedSizes.getTopClasses(2).get(1))
+                    .satisfies(entry -> {
+                        assertThat(entry.className).isEqualTo("Node");
+                        assertThat(entry.objectCount).isEqualTo(2);
+                        assertThat(entry.shallowSize).isEqualTo(40 + 50);
+                        assertThat(entry.retainedSize).isEqualTo(40 + 50);
+                    });
+            assertThat(retainedSizes.getTopObjects(2))
+                    .extracting(entry -> entry.objectId)
+                    .containsExactly(0x200L, 0x400L);
+        }
+    }
+
+    /**
+     * Vertex v has shallow size v * 10 and object id v * 0x100. Vertices 4 and up are of class Node, others of class Other
+     */
+    private ObjectGraph newGraph(final int[][] successors) throws Exception {
+        final ObjectGraph graph = new ObjectGraph(tempDir);
+        graph.classNames.add("Other");
+        graph.classNames.add("Node");
+        graph.numVertices = successors.length;
+        for (int v = 1; v < successors.length; v++) {
+            graph.objectIds.set(v, v * 0x100L);
+            graph.classIndexes.set(v, v >= 4 ? 1 : 0);
+            graph.shallowSizes.set(v, v * 10L);
+            graph.edgeStarts.set(v, graph.numEdges);
+            for (final int w : successors[v]) {
+                graph.edges.set(graph.numEdges++, w);
+            }
+        }
+        graph.rootEdgeStart = graph.numEdges;
+        for (final int w : successors[0]) {
+            graph.edges.set(graph.numEdges++, w);
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,81 @@
+package com.paypal.heapdumptool.dominators;
+
+import com.paypal.heapdumptool.fixture.HeapDumper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class DominatorsCommandProcessorTest {
+
+    private static final int PAYLOAD_SIZE = 16 * 1024 * 1024;
+
+    private static Holder holder;
+
+    @TempDir
+    Path tempDir;
+
+    // large arrays would otherwise slow down heap dumps of later tests in the same jvm
+    @AfterEach
+    void releaseArrays() {
+        holder = null;
+    }
+
+    @Test
+    public void testReport() throws Exception {
+        holder = new Holder(new Holder(new Holder(null)));
+        final Path heapDump = tempDir.resolve("input.hprof");
+        HeapDumper.dumpHeap(heapDump, true);
+
+        final DominatorsCommand command = new DominatorsCommand();
+        command.setInputFile(heapDump);
+        command.setOutputFile(tempDir.resolve("report.txt"));
+        command.setTempDir(tempDir);
+        command.setTop(5);
+        new DominatorsCommandProcessor(command).process();
+
+        final List<String> lines = Files.readAllLines(command.getOutputFile());
+        assertThat(lines.get(0)).startsWith("Objects: ");
+        assertThat(lines).contains("Top 5 classes by retained size", "Top 5 objects by retained size");
+
+        final Pattern holderLine = Pattern.compile("\\s*([\\d,]+)\\s+([\\d,]+)\\s+([\\d,]+)\\s+" + Pattern.quote(Holder.class.getName()));
+        final long holderClassRetainedSize = lines.stream()
+                .map(holderLine::matcher)
+                .filter(Matcher::matches)
+                .mapToLong(matcher -> Long.parseLong(matcher.group(1).replace(",", "")))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+
+        // outermost holder retains the inner ones, so the class is not counted three times
+        assertThat(holderClassRetainedSize).isBetween(3L * PAYLOAD_SIZE, 4L * PAYLOAD_SIZE);
+        assertThat(Files.list(tempDir)).hasSize(2);
+    }
+
+    @Test
+    public void testInvalidTop() {
+        final DominatorsCommand command = new DominatorsCommand();
+        command.setTop(0);
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new DominatorsCommandProcessor(command))
+                .withMessageContaining("Invalid top");
+    }
+
+    private static class Holder {
+
+        private final byte[] payload = new byte[PAYLOAD_SIZE];
+        private final Holder next;
+
+        Holder(final Holder next) {
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.paypal.heapdumptool.duplicates;
+
+import com.paypal.heapdumptool.duplicates.DuplicateArrayTable.Group;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.paypal.heapdumptool.sanitizer.BasicType.BYTE;
+import static com.paypal.heapdumptool.sanitizer.BasicType.CHAR;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DuplicateArrayTableTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testTopGroups() throws Exception {
+        try (final DuplicateArrayTable table = new DuplicateArrayTable(tempDir)) {
+            for (int i = 0; i < 3; i++) {
+                table.add(1, BYTE.getU1Code(), 100);
+            }
+            table.add(1, CHAR.getU1Code(), 100);
+            table.add(1, BYTE.getU1Code(), 200);
+            table.add(2, BYTE.getU1Code(), 1000);
+            table.add(2, BYTE.getU1Code(), 1000);
+
+            assertThat(table.getNumGroups()).isEqualTo(4);
+
+            final List<Group> groups = table.getTopGroups(10);
+            assertThat(groups).hasSize(2);
+            assertThat(groups.get(0).hash).isEqualTo(2);
+            assertThat(groups.get(0).getWastedBytes()).isEqualTo(1000);
+            assertThat(groups.get(1).hash).isEqualTo(1);
+            assertThat(groups.get(1).elementType).isEqualTo(BYTE.getU1Code());
+            assertThat(groups.get(1).count).isEqualTo(3);
+            assertThat(groups.get(1).getWastedBytes()).isEqualTo(200);
+
+            assertThat(table.getTopGroups(1)).hasSize(1);
+        }
+        assertThat(Files.list(tempDir)).isEmpty();
+    }
+
+    @Test
+    public void testGrow() throws Exception {
+        final int numGroups = 200_000;
+        try (final DuplicateArrayTable table = new DuplicateArrayTable(tempDir)) {
+            for (int i = 0; i < numGroups; i++) {
+                table.add(i * 31L, BYTE.getU1Code(), 16);
+                if (i % 2 == 0) {
+                    table.add(i * 31L, BYTE.getU1Code(), 16);
+                }
+            }
+
+            assertThat(table.getNumGroups()).isEqualTo(numGroups);
+            final long[] numDuplicates = new long[1];
+            table.forEachDuplicate((hash, elementType, numBytes, count) -> {
+                assertThat(count).isEqualTo(2);
+                numDuplicates[0]++;
+            });
+            assertThat(numDuplicates[0]).isEqualTo(numGroups / 2);
+            assertThat(Files.list(tempDir)).hasSize(1);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.paypal.heapdumptool.duplicates;
+
+import com.paypal.heapdumptool.fixture.HeapDumper;
+import com.paypal.heapdumptool.sanitizer.DataSize;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class DuplicatesCommandProcessorTest {
+
+    private static final int ARRAY_SIZE = 3 * 1024 * 1024 + 7;
+
+    private static long[][] copies;
+
+    @TempDir
+    Path tempDir;
+
+    // large arrays would otherwise slow down heap dumps of later tests in the same jvm
+    @AfterEach
+    void releaseArrays() {
+        copies = null;
+    }
+
+    @Test
+    public void testReport() throws Exception {
+        copies = new long[5][ARRAY_SIZE];
+        for (final long[] copy : copies) {
+            Arrays.fill(copy, 0x5EC12E7L);
+        }
+        final Path heapDump = tempDir.resolve("input.hprof");
+        HeapDumper.dumpHeap(heapDump, true);
+
+        final DuplicatesCommand command = new DuplicatesCommand();
+        command.setInputFile(heapDump);
+        command.setOutputFile(tempDir.resolve("report.txt"));
+        command.setTempDir(tempDir);
+        command.setTop(3);
+        new DuplicatesCommandProcessor(command).process();
+
+        final List<String> lines = Files.readAllLines(command.getOutputFile());
+        assertThat(lines.get(0)).startsWith("Distinct array contents of at least 16B: ");
+        assertThat(lines).contains("Top 3 duplicate groups by wasted bytes");
+
+        final long numBytes = ARRAY_SIZE * 8L;
+        final String topGroup = lines.get(lines.indexOf("Top 3 duplicate groups by wasted bytes") + 2);
+        assertThat(topGroup.trim().split("\\s+"))
+                .startsWith(String.format("%,d", 4 * numBytes), String.format("%,d", numBytes), "5", "long[]");
+
+        assertThat(String.join("\n", lines)).doesNotContain(Long.toHexString(0x5EC12E7L));
+        assertThat(Files.list(tempDir)).hasSize(2);
+    }
+
+    @Test
+    public void testInvalidMinSize() {
+        final DuplicatesCommand command = new DuplicatesCommand();
+        command.setMinSize(DataSize.ofBytes(-1));
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new DuplicatesCommandProcessor(command))
+                .withMessageContaining("Invalid min size");
+    }
+}
@@ -0,0 +1,149 @@
+package com.paypal.heapdumptool.hprof;
+
+import com.paypal.heapdumptool.fixture.HeapDumper;
+import com.paypal.heapdumptool.sanitizer.BasicType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class HeapDumpParserTest {
+
+    private static final long MARKER_VALUE = 0x1234_5678_9ABC_DEF0L;
+
+    private static Marker marker;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testParse() throws Exception {
+        marker = new Marker(MARKER_VALUE, new int[] {3, 1, 4, 1, 5, 9, 2, 6});
+        final Path heapDump = tempDir.resolve("input.hprof");
+        HeapDumper.dumpHeap(heapDump, true);
+
+        final MarkerVisitor visitor = new MarkerVisitor();
+        try (final InputStream inputStream = Files.newInputStream(heapDump)) {
+            new HeapDumpParser(inputStream, numBytes -> { }).parse(visitor);
+        }
+
+        assertThat(visitor.format).startsWith("JAVA PROFILE");
+        assertThat(visitor.idSize).isIn(4, 8);
+        assertThat(visitor.numGcRoots).isPositive();
+        assertThat(visitor.markerInstanceFieldTypes).containsExactlyInAnyOrder(BasicType.LONG.getU1Code(), BasicType.OBJECT.getU1Code());
+        assertThat(visitor.markerValues).containsExactly(MARKER_VALUE);
+        assertThat(visitor.intArrayContents.get(visitor.markerArrayId)).containsExactly(3, 1, 4, 1, 5, 9, 2, 6);
+    }
+
+    @Test
+    public void testUnknownIdSize() {
+        final byte[] header = "JAVA PROFILE 1.0.2\0\0\0\0\3\0\0\0\0\0\0\0\0".getBytes(UTF_8);
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new HeapDumpParser(new ByteArrayInputStream(header), numBytes -> { }).parse(new HeapDumpVisitor() { }))
+                .withMessageContaining("Unknown id size");
+    }
+
+    private static class MarkerVisitor implements HeapDumpVisitor {
+
+        private final String markerClassName = Marker.class.getName().replace('.', '/');
+        private final Map<Long, Long> classObjectIdToNameId = new HashMap<>();
+        private long markerNameId = -1;
+        private long markerClassObjectId = -1;
+        private long markerArrayId = -1;
+
+        private String format;
+        private int idSize;
+        private long numGcRoots;
+        private final List<Integer> markerInstanceFieldTypes = new ArrayList<>();
+        private final List<Long> markerValues = new ArrayList<>();
+        private final Map<Long, List<Integer>> intArrayContents = new HashMap<>();
+
+        @Override
+        public void onHeader(final String format, final int idSize, final long timestamp) {
+            this.format = format;
+            this.idSize = idSize;
+        }
+
+        @Override
+        public void onUtf8(final long id, final byte[] bytes, final int offset, final int length) {
+            if (new String(bytes, offset, length, UTF_8).equals(markerClassName)) {
+                markerNameId = id;
+            }
+        }
+
+        @Override
+        public void onLoadClass(final long classSerialNumber, final long classObjectId, final long stackTraceSerialNumber, final long nameStringId) {
+            classObjectIdToNameId.put(classObjectId, nameStringId);
+        }
+
+        @Override
+        public void onGcRoot(final int tag, final long objectId) {
+            numGcRoots++;
+        }
+
+        @Override
+        public void onClassDump(final ClassDump classDump) {
+            if (classObjectIdToNameId.get(classDump.getClassObjectId()) == markerNameId) {
+                markerClassObjectId = classDump.getClassObjectId();
+                for (int i = 0; i < classDump.getNumInstanceFields(); i++) {
+                    markerInstanceFieldTypes.add(classDump.getInstanceFieldType(i));
+                }
+            }
+        }
+
+        @Override
+        public void onInstance(final long objectId, final long classObjectId, final RecordBody body) throws IOException {
+            if (classObjectId != markerClassObjectId) {
+                return;
+            }
+            for (final int type : markerInstanceFieldTypes) {
+                final long value = body.readValue(type);
+                if (type == BasicType.OBJECT.getU1Code()) {
+                    markerArrayId = value;
+                } else {
+                    markerValues.add(value);
+                }
+            }
+        }
+
+        @Override
+        public void onPrimitiveArray(final long objectId, final int elementType, final long numElements, final RecordBody body) throws IOException {
+            if (elementType != BasicType.INT.getU1Code() || numElements != 8) {
+                return;
+            }
+            final byte[] buffer = new byte[(int) body.remaining()];
+            assertThat(body.read(buffer, 0, buffer.length + 1)).isEqualTo(buffer.length);
+            final DataInputStream elements = new DataInputStream(new ByteArrayInputStream(buffer));
+            final List<Integer> contents = new ArrayList<>();
+            for (int i = 0; i < numElements; i++) {
+                contents.add(elements.readInt());
+            }
+            intArrayContents.put(objectId, contents);
+        }
+    }
+
+    private static class Marker {
+
+        private final long value;
+        private final int[] array;
+
+        Marker(final long value, final int[] array) {
+            this.value = value;
+            this.array = array;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.paypal.heapdumptool.hserr;
+
+import com.paypal.heapdumptool.fixture.ResourceTool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class BatchSanitizeHserrCommandProcessorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testBatch() throws Exception {
+        final String log = ResourceTool.contentOf(SanitizeHserrCommandProcessorTest.class, "hs_err_pid123.txt");
+        final Path inputDir = Files.createDirectories(tempDir.resolve("crashes"));
+        for (final String name : new String[]{"hs_err_pid1.log", "hs_err_pid2.log", "hs_err_pid3.log"}) {
+            Files.write(inputDir.resolve(name), log.getBytes(UTF_8));
+        }
+        Files.write(inputDir.resolve("notes.txt"), "LANG=en_US.UTF-8".getBytes(UTF_8));
+
+        final SanitizeHserrCommand command = new SanitizeHserrCommand();
+        command.setBatch(inputDir.toString());
+        command.setOutDir(tempDir.resolve("out"));
+        command.setMaxConcurrentSanitizations(2);
+        new BatchSanitizeHserrCommandProcessor(command).process();
+
+        for (final String name : new String[]{"hs_err_pid1.log", "hs_err_pid2.log", "hs_err_pid3.log"}) {
+            assertThat(new String(Files.readAllBytes(tempDir.resolve("out").resolve(name)), UTF_8))
+                    .contains("LANG=****")
+                    .doesNotContain("LANG=en_US.UTF-8");
+        }
+        assertThat(tempDir.resolve("out/notes.txt")).doesNotExist();
+    }
+
+    @Test
+    public void testNoFiles() {
+        final SanitizeHserrCommand command = new SanitizeHserrCommand();
+        command.setBatch(tempDir.toString());
+        command.setOutDir(tempDir.resolve("out"));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new BatchSanitizeHserrCommandProcessor(command).process())
+                .withMessage("Cannot find fatal error logs. batch=%s", tempDir);
+    }
+}
@@ -0,0 +1,62 @@
+package com.paypal.heapdumptool.hserr;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HserrSanitizerTest {
+
+    private final HserrSanitizer sanitizer = new HserrSanitizer(EnumSet.allOf(HserrRuleSet.class), HserrRuleSet.DEFAULT_SENSITIVE_KEYS);
+
+    @Test
+    public void testCommandLine() {
+        assertThat(sanitizer.sanitize("Command Line: -Dfile.encoding=UTF-8 -Djavax.net.ssl.keyStorePassword=changeit com.example.App --db-password hunter2 --port 80"))
+                .isEqualTo("Command Line: -Dfile.encoding=UTF-8 -Djavax.net.ssl.keyStorePassword=**** com.example.App --db-password **** --port 80");
+        assertThat(sanitizer.sanitize("java_command: com.example.App API_TOKEN=abc"))
+                .isEqualTo("java_command: com.example.App API_TOKEN=****");
+    }
+
+    @Test
+    public void testSectionWithLeadingBlankLine() throws IOException {
+        final String log = String.join(System.lineSeparator(),
+                                       "Register to memory mapping:",
+                                       "",
+                                       "RAX=0x0 is NULL",
+                                       "stack at sp + 0 slots: 0x00007fab2ed947f0 is an oop: java.lang.String",
+                                       "",
+                                       "RBX=kept",
+                                       "");
+        assertThat(sanitize(log))
+                .isEqualTo(String.join(System.lineSeparator(),
+                                       "Register to memory mapping:",
+                                       "",
+                                       "RAX= ****",
+                                       "stack at sp + 0 slots: ****",
+                                       "",
+                                       "RBX=kept",
+                                       ""));
+    }
+
+    @Test
+    public void testCustomRule() {
+        final HserrSanitizer custom = new HserrSanitizer(Collections.emptyList(), Collections.emptyList())
+                .addSectionRule("Secrets", line -> "censored");
+
+        assertThat(Arrays.asList(custom.sanitize("Secrets:"), custom.sanitize("a"), custom.sanitize(""), custom.sanitize("b")))
+                .containsExactly("Secrets:", "censored", "", "b");
+    }
+
+    private String sanitize(final String log) throws IOException {
+        final StringWriter writer = new StringWriter();
+        sanitizer.sanitize(new BufferedReader(new StringReader(log)), writer);
+        return writer.toString();
+    }
+}
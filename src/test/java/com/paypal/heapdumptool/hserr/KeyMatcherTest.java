@@ -0,0 +1,40 @@
+package com.paypal.heapdumptool.hserr;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KeyMatcherTest {
+
+    @Test
+    public void testContainsAny() {
+        final KeyMatcher matcher = KeyMatcher.of("password", "token", "apikey");
+
+        assertThat(matcher.containsAny("javax.net.ssl.keyStorePassword")).isTrue();
+        assertThat(matcher.containsAny("--db-password")).isTrue();
+        assertThat(matcher.containsAny("AUTH_TOKEN")).isTrue();
+        assertThat(matcher.containsAny("x-apikey")).isTrue();
+        assertThat(matcher.containsAny("file.encoding")).isFalse();
+        assertThat(matcher.containsAny("passwor")).isFalse();
+        assertThat(matcher.containsAny("")).isFalse();
+    }
+
+    @Test
+    public void testOverlappingKeys() {
+        // "abd" has to fall back from "ab" of "abc" to "b" of "bd"
+        final KeyMatcher matcher = KeyMatcher.of("abc", "bd", "c");
+
+        assertThat(matcher.containsAny("abd")).isTrue();
+        assertThat(matcher.containsAny("xabx")).isFalse();
+        assertThat(matcher.containsAny("aac")).isTrue();
+    }
+
+    @Test
+    public void testNoKeys() {
+        final KeyMatcher matcher = new KeyMatcher(Arrays.asList("", ""));
+
+        assertThat(matcher.containsAny("password")).isFalse();
+    }
+}
@@ -9,6 +9,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.Collections;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -47,6 +48,26 @@ public class SanitizeHserrCommandProcessorTest {
         assertThat(output)
                 .contains("#  SIGSEGV (0xb) at pc=0x00007fab2dfe7a6d, pid=32369, tid=32375")
                 .doesNotContain("LANG=en_US.UTF-8")
-                .contains("LANG=****");
+                .contains("LANG=****")
+                .contains("RAX=****, RBX=****, RCX=****, RDX=****")
+                .contains("0x00007fab2ed947a0: ****")
+                .contains("stack at sp + 5 slots: ****")
+                .doesNotContain("d93a77655b6ad900")
+                .contains("****/libjvm.so")
+                .contains("java_class_path (initial): ****/classes:****/assertj-core-3.19.0.jar:")
+                .doesNotContain("/home/m/.sdkman", "/home/m/.m2")
+                .contains("jvm_args: -Dfile.encoding=UTF-8");
+    }
+
+    @Test
+    public void testEnvironmentRuleOnly() throws Exception {
+        command.setRules(Collections.singletonList(HserrRuleSet.ENVIRONMENT));
+        processor.process();
+
+        final String output = outputStream.toString(UTF_8.name());
+        assertThat(output)
+                .contains("LANG=****")
+                .contains("RAX=0x0000000000000000")
+                .contains("/home/m/");
     }
 }
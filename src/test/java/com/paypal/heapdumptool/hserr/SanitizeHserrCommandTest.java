@@ -13,8 +13,13 @@ public class SanitizeHserrCommandTest {
                     .verifyGettersAndSetters()
                     .verifyToString();
         
-        assertThat(new SanitizeHserrCommand().getProcessorClass())
+        final SanitizeHserrCommand command = new SanitizeHserrCommand();
+        assertThat(command.getProcessorClass())
                 .isEqualTo(SanitizeHserrCommandProcessor.class);
+
+        command.setBatch("crashes");
+        assertThat(command.getProcessorClass())
+                .isEqualTo(BatchSanitizeHserrCommandProcessor.class);
     }
     
 }
@@ -0,0 +1,25 @@
+package com.paypal.heapdumptool.jfr;
+
+import com.paypal.heapdumptool.utils.BufferedZipOutputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InstrumentedStreamsTest {
+
+    @Test
+    public void testNotInstrumentedWithoutRecording() {
+        assertThat(FlightRecording.isRecording()).isFalse();
+
+        final InputStream inputStream = new ByteArrayInputStream(new byte[0]);
+        final OutputStream outputStream = new ByteArrayOutputStream();
+        assertThat(InstrumentedStreams.withIoWaitEvents(inputStream)).isSameAs(inputStream);
+        assertThat(InstrumentedStreams.withIoWaitEvents(outputStream)).isSameAs(outputStream);
+        assertThat(InstrumentedStreams.newZipOutputStream(outputStream, 1024)).isExactlyInstanceOf(BufferedZipOutputStream.class);
+    }
+}
@@ -0,0 +1,78 @@
+package com.paypal.heapdumptool.join;
+
+import com.paypal.heapdumptool.fixture.HeapDumper;
+import com.paypal.heapdumptool.sanitizer.SanitizeCommand;
+import com.paypal.heapdumptool.sanitizer.SanitizeCommandProcessor;
+import com.paypal.heapdumptool.sanitizer.SplitManifest;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static com.paypal.heapdumptool.sanitizer.DataSize.ofKilobytes;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JoinCommandProcessorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testSplitAndJoin() throws Exception {
+        final Path heapDump = tempDir.resolve("input.hprof");
+        HeapDumper.dumpHeap(heapDump, true);
+
+        final SanitizeCommand command = new SanitizeCommand();
+        command.setInputFile(heapDump);
+        command.setOutputFile(tempDir.resolve("expected.hprof"));
+        new SanitizeCommandProcessor(command).process();
+
+        command.setOutputFile(tempDir.resolve("split.hprof"));
+        command.setSplitSize(ofKilobytes(512));
+        new SanitizeCommandProcessor(command).process();
+        assertThat(command.getOutputFile()).doesNotExist();
+        assertThat(SplitManifest.read(SplitManifest.manifestFile(command.getOutputFile())).getChunks().size()).isGreaterThan(1);
+
+        final JoinCommand joinCommand = new JoinCommand();
+        joinCommand.setManifestFile(tempDir.resolve("split.hprof.manifest.json"));
+        joinCommand.setOutputFile(tempDir.resolve("joined.hprof"));
+        new JoinCommandProcessor(joinCommand).process();
+
+        assertThat(FileUtils.contentEquals(tempDir.resolve("expected.hprof").toFile(), joinCommand.getOutputFile().toFile()))
+                .isTrue();
+    }
+
+    @Test
+    public void testSplitOfFailedSanitization() throws Exception {
+        final Path heapDump = tempDir.resolve("input.hprof");
+        HeapDumper.dumpHeap(heapDump, true);
+        final byte[] input = Files.readAllBytes(heapDump);
+        final Path truncatedHeapDump = Files.write(tempDir.resolve("truncated.hprof"), Arrays.copyOf(input, input.length / 2));
+
+        final SanitizeCommand command = new SanitizeCommand();
+        command.setInputFile(truncatedHeapDump);
+        command.setOutputFile(tempDir.resolve("split.hprof"));
+        command.setSplitSize(ofKilobytes(512));
+        assertThatThrownBy(() -> new SanitizeCommandProcessor(command).process())
+                .isInstanceOf(EOFException.class);
+
+        assertThat(SplitManifest.chunkFile(command.getOutputFile(), 0)).exists();
+        assertThat(SplitManifest.manifestFile(command.getOutputFile())).doesNotExist();
+    }
+
+    @Test
+    public void testNotManifest() {
+        final JoinCommand command = new JoinCommand();
+        command.setManifestFile(tempDir.resolve("split.hprof"));
+        command.setOutputFile(tempDir.resolve("joined.hprof"));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new JoinCommandProcessor(command))
+                .withMessage("Not a .manifest.json file: %s", command.getManifestFile());
+    }
+}
@@ -0,0 +1,65 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.sanitizer.ArrayOwnerPolicy.Decision;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ArrayOwnerPolicyTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testDecisions() throws Exception {
+        try (final ArrayOwnerPolicy policy = new ArrayOwnerPolicy(asList("io.netty.buffer.**", "com.example.secure.Both"),
+                                                                  singletonList("com.example.secure.*"),
+                                                                  tempDir)) {
+            assertThat(policy.getOwnerDecision(1, "io.netty.buffer.PooledByteBuf")).isEqualTo(Decision.KEEP);
+            assertThat(policy.getOwnerDecision(2, "com.example.secure.Both")).isEqualTo(Decision.SANITIZE);
+            assertThat(policy.getOwnerDecision(3, "java.lang.Object")).isEqualTo(Decision.NONE);
+            assertThat(policy.getOwnerDecision(4, "io.netty.buffer.pool.Chunk")).isEqualTo(Decision.KEEP);
+            // memoized by class object id
+            assertThat(policy.getOwnerDecision(1, "")).isEqualTo(Decision.KEEP);
+
+            policy.addReference(Decision.KEEP, 100);
+            policy.addReference(Decision.KEEP, 200);
+            policy.addReference(Decision.SANITIZE, 200);
+            policy.addReference(Decision.KEEP, 0);
+
+            assertThat(policy.getReferenceDecision(100)).isEqualTo(Decision.KEEP);
+            assertThat(policy.getReferenceDecision(200)).isEqualTo(Decision.SANITIZE);
+            assertThat(policy.getReferenceDecision(300)).isEqualTo(Decision.NONE);
+            assertThat(policy.getReferenceDecision(0)).isEqualTo(Decision.NONE);
+            assertThat(policy.getNumKeepIds()).isEqualTo(2);
+            assertThat(policy.getNumSanitizeIds()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testTokenizeDecisions() throws Exception {
+        final ClassPatternTrie<Decision> ownerPatterns = new ClassPatternTrie<>();
+        ownerPatterns.add("com.example.**", Decision.KEEP);
+        ownerPatterns.add("com.example.*Token", Decision.TOKENIZE);
+        ownerPatterns.add("com.example.SecretToken", Decision.SANITIZE);
+        try (final ArrayOwnerPolicy policy = new ArrayOwnerPolicy(ownerPatterns, tempDir)) {
+            assertThat(policy.getOwnerDecision(1, "com.example.AccessToken")).isEqualTo(Decision.TOKENIZE);
+            assertThat(policy.getOwnerDecision(2, "com.example.SecretToken")).isEqualTo(Decision.SANITIZE);
+            assertThat(policy.getOwnerDecision(3, "com.example.Other")).isEqualTo(Decision.KEEP);
+
+            policy.addReference(Decision.KEEP, 100);
+            policy.addReference(Decision.TOKENIZE, 100);
+            policy.addReference(Decision.TOKENIZE, 200);
+            policy.addReference(Decision.SANITIZE, 200);
+
+            assertThat(policy.getReferenceDecision(100)).isEqualTo(Decision.TOKENIZE);
+            assertThat(policy.getReferenceDecision(200)).isEqualTo(Decision.SANITIZE);
+            assertThat(policy.getNumTokenizeIds()).isEqualTo(2);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.fixture.HeapDumper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static com.paypal.heapdumptool.sanitizer.DataSize.ofKilobytes;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+public class BatchSanitizeCommandProcessorTest {
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path heapDump;
+
+    private static byte[] expectedOutput;
+
+    @BeforeAll
+    public static void beforeAll() throws Exception {
+        heapDump = tempDir.resolve("input.hprof");
+        HeapDumper.dumpHeap(heapDump, true);
+
+        final SanitizeCommand command = new SanitizeCommand();
+        command.setInputFile(heapDump);
+        command.setOutputFile(tempDir.resolve("expected.hprof"));
+        new SanitizeCommandProcessor(command).process();
+        expectedOutput = Files.readAllBytes(command.getOutputFile());
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        final Path inputDir = Files.createDirectories(tempDir.resolve("testBatch"));
+        for (final String name : new String[]{"a.hprof", "b.hprof", "c.hprof"}) {
+            Files.copy(heapDump, inputDir.resolve(name));
+        }
+        Files.write(inputDir.resolve("notes.txt"), "not a heap dump".getBytes(UTF_8));
+
+        final Path outDir = tempDir.resolve("testBatch-out");
+        Files.createDirectories(outDir);
+        Files.write(outDir.resolve("b.hprof"), "already sanitized".getBytes(UTF_8));
+        // left over from an interrupted run, without checkpoint
+        Files.write(outDir.resolve("c.hprof.partial"), "partial".getBytes(UTF_8));
+
+        final SanitizeCommand command = newCommand(inputDir.toString(), outDir);
+        new BatchSanitizeCommandProcessor(command).process();
+
+        assertThat(Files.readAllBytes(outDir.resolve("a.hprof"))).isEqualTo(expectedOutput);
+        assertThat(Files.readAllBytes(outDir.resolve("b.hprof"))).isEqualTo("already sanitized".getBytes(UTF_8));
+        assertThat(Files.readAllBytes(outDir.resolve("c.hprof"))).isEqualTo(expectedOutput);
+        assertThat(outDir.resolve("c.hprof.partial")).doesNotExist();
+        assertThat(outDir.resolve("notes.txt")).doesNotExist();
+
+        final String report = new String(Files.readAllBytes(command.getReportOutput()), UTF_8);
+        assertThat(report)
+                .contains("\"sanitized\": 2", "\"skipped\": 1", "\"failed\": 0")
+                .contains("\"state\": \"SKIPPED\"");
+    }
+
+    @Test
+    public void testGlob() throws Exception {
+        final Path inputDir = Files.createDirectories(tempDir.resolve("testGlob/app-1"));
+        Files.copy(heapDump, inputDir.resolve("x.hprof"));
+        Files.write(inputDir.resolve("y.hprof"), "not a heap dump".getBytes(UTF_8));
+
+        final Path outDir = tempDir.resolve("testGlob-out");
+        final SanitizeCommand command = newCommand(tempDir + "/testGlob/*/?.hprof", outDir);
+        command.setZipOutput(true);
+        assertThatIllegalStateException()
+                .isThrownBy(() -> new BatchSanitizeCommandProcessor(command).process())
+                .withMessage("Cannot sanitize 1 of 2 heap dumps");
+
+        try (final ZipFile zipFile = new ZipFile(outDir.resolve("x.hprof.zip").toFile())) {
+            assertThat(zipFile.stream().map(ZipEntry::getName))
+                    .containsExactly("x.hprof");
+        }
+        assertThat(outDir.resolve("y.hprof.zip")).doesNotExist();
+        assertThat(new String(Files.readAllBytes(command.getReportOutput()), UTF_8))
+                .contains("\"state\": \"FAILED\"");
+    }
+
+    @Test
+    public void testSanitizationTextCharset() throws Exception {
+        final Path inputDir = Files.createDirectories(tempDir.resolve("testSanitizationTextCharset"));
+        Files.copy(heapDump, inputDir.resolve("a.hprof"));
+
+        final SanitizeCommand expectedCommand = new SanitizeCommand();
+        expectedCommand.setInputFile(heapDump);
+        expectedCommand.setOutputFile(tempDir.resolve("testSanitizationTextCharset-expected.hprof"));
+        expectedCommand.setSanitizationText("x");
+        expectedCommand.setSanitizationTextCharset("UTF-16LE");
+        new SanitizeCommandProcessor(expectedCommand).process();
+
+        final Path outDir = tempDir.resolve("testSanitizationTextCharset-out");
+        final SanitizeCommand command = newCommand(inputDir.toString(), outDir);
+        command.setSanitizationText("x");
+        command.setSanitizationTextCharset("UTF-16LE");
+        new BatchSanitizeCommandProcessor(command).process();
+
+        assertThat(outDir.resolve("a.hprof")).hasSameBinaryContentAs(expectedCommand.getOutputFile());
+        assertThat(Files.readAllBytes(outDir.resolve("a.hprof"))).isNotEqualTo(expectedOutput);
+    }
+
+    @Test
+    public void testFindInputFiles() throws IOException {
+        final Path dir = Files.createDirectories(tempDir.resolve("testFindInputFiles/sub"));
+        Files.createFile(dir.resolve("1.hprof"));
+        Files.createFile(dir.resolve("2.hprof"));
+        Files.createFile(dir.resolve("3.txt"));
+
+        assertThat(BatchSanitizeCommandProcessor.findInputFiles(dir.toString()))
+                .containsExactly(dir.resolve("1.hprof"), dir.resolve("2.hprof"));
+        assertThat(BatchSanitizeCommandProcessor.findInputFiles(tempDir + "/testFindInputFiles/**/{1,3}.*"))
+                .containsExactly(dir.resolve("1.hprof"), dir.resolve("3.txt"));
+        assertThat(BatchSanitizeCommandProcessor.findInputFiles(tempDir + "/missing/*.hprof"))
+                .isEmpty();
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> BatchSanitizeCommandProcessor.findInputFiles(dir.resolve("1.hprof").toString()))
+                .withMessageContaining("Not a directory or glob");
+    }
+
+    private static SanitizeCommand newCommand(final String batch, final Path outDir) {
+        final SanitizeCommand command = new SanitizeCommand();
+        command.setBatch(batch);
+        command.setOutDir(outDir);
+        command.setMaxConcurrentSanitizations(2);
+        command.setCheckpointInterval(ofKilobytes(256));
+        command.setReportOutput(tempDir.resolve(outDir.getFileName() + ".json"));
+        return command;
+    }
+}
@@ -0,0 +1,82 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchSchedulerTest {
+
+    private final List<String> started = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    @Test
+    public void testLargestFirstWithinBudget() throws InterruptedException {
+        final BatchScheduler scheduler = new BatchScheduler(4, 100);
+        scheduler.run(Arrays.asList(newJob("small-1", 10, 20),
+                                    newJob("big-1", 60, 100),
+                                    newJob("small-2", 10, 20),
+                                    newJob("big-2", 60, 100),
+                                    newJob("small-3", 10, 20)));
+
+        // big-2 waits for big-1, while the small ones run beside big-1
+        assertThat(started.subList(0, 4))
+                .containsExactlyInAnyOrder("big-1", "small-1", "small-2", "small-3");
+        assertThat(started.get(4))
+                .isEqualTo("big-2");
+        assertThat(maxRunning).hasValue(4);
+        assertThat(scheduler.getMemoryInUse()).isZero();
+    }
+
+    @Test
+    public void testOverBudget() throws InterruptedException {
+        final BatchScheduler scheduler = new BatchScheduler(4, 100);
+        scheduler.run(Arrays.asList(newJob("small", 10, 20),
+                                    newJob("huge", 500, 20)));
+
+        // runs alone rather than never
+        assertThat(started).containsExactly("huge", "small");
+        assertThat(maxRunning).hasValue(1);
+    }
+
+    @Test
+    public void testWorkers() throws InterruptedException {
+        final BatchScheduler scheduler = new BatchScheduler(2, Long.MAX_VALUE);
+        final List<BatchScheduler.Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            jobs.add(newJob("job-" + i, 1, 20));
+        }
+        scheduler.run(jobs);
+
+        assertThat(started).hasSize(6);
+        assertThat(maxRunning).hasValue(2);
+    }
+
+    private BatchScheduler.Job newJob(final String name, final long memoryBytes, final long millis) {
+        return new BatchScheduler.Job() {
+
+            @Override
+            public long getMemoryBytes() {
+                return memoryBytes;
+            }
+
+            @Override
+            public void run() {
+                started.add(name);
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(millis);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+            }
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.fixture.HeapDumper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.paypal.heapdumptool.sanitizer.DataSize.ofBytes;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClassHistogramTest {
+
+    private static final Marker[] MARKERS = new Marker[7];
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path heapDump;
+
+    @BeforeAll
+    public static void beforeAll() throws Exception {
+        for (int i = 0; i < MARKERS.length; i++) {
+            MARKERS[i] = new Marker(i);
+        }
+        heapDump = tempDir.resolve("input.hprof");
+        HeapDumper.dumpHeap(heapDump, true);
+    }
+
+    @Test
+    public void testCsvOutput() throws Exception {
+        final Path histogramFile = sanitizeWithHistogram("histogram.csv");
+
+        final List<String> lines = Files.readAllLines(histogramFile);
+        assertThat(lines.get(0)).isEqualTo("class,instances,bytes");
+        assertThat(lines).contains(Marker.class.getName() + ",7,56");
+        assertThat(lines).anyMatch(line -> line.startsWith(Marker.class.getName() + "[],"));
+        assertThat(lines).anyMatch(line -> line.startsWith("byte[],"));
+        assertThat(lines).noneMatch(line -> line.startsWith("[L"));
+    }
+
+    @Test
+    public void testJsonOutput() throws Exception {
+        final Path histogramFile = sanitizeWithHistogram("histogram.json");
+
+        final String json = new String(Files.readAllBytes(histogramFile));
+        assertThat(json)
+                .startsWith("{")
+                .contains("\"totalInstances\": ")
+                .contains("\"class\": \"" + Marker.class.getName() + "\",")
+                .contains("\"instances\": 7,")
+                .contains("\"bytes\": 56");
+    }
+
+    @Test
+    public void testDisplayName() {
+        assertThat(ClassHistogram.toDisplayName("java.lang.String")).isEqualTo("java.lang.String");
+        assertThat(ClassHistogram.toDisplayName("[Ljava.lang.String;")).isEqualTo("java.lang.String[]");
+        assertThat(ClassHistogram.toDisplayName("[[I")).isEqualTo("int[][]");
+    }
+
+    private static Path sanitizeWithHistogram(final String fileName) throws Exception {
+        final SanitizeCommand command = new SanitizeCommand();
+        command.setInputFile(heapDump);
+        command.setOutputFile(tempDir.resolve(fileName + ".hprof"));
+        command.setCheckpointInterval(ofBytes(0));
+        command.setHistogramOutput(tempDir.resolve(fileName));
+
+        new SanitizeCommandProcessor(command).process();
+        return command.getHistogramOutput();
+    }
+
+    private static class Marker {
+
+        private final long value;
+
+        Marker(final long value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClassPatternTrieTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "java.lang.Thread, java.lang.Thread, true",
+            "java.lang.Thread, java.lang.ThreadGroup, false",
+            "*Thread, Thread, true",
+            "*Thread, java.lang.Thread, true",
+            "*Thread, java.lang.ThreadGroup, false",
+            "Thread, java.lang.Thread, true",
+            "java.*.Thread, java.lang.Thread, true",
+            "**.*Thread, java.lang.Thread, true",
+            "**.*Thread, java.lang.ThreadGroup, false",
+            "com.example.**, com.example.Foo, true",
+            "com.example.**, com.example.a.b.Foo, true",
+            "com.example.**, com.examples.Foo, false",
+            "com.example.*, com.example.a.Foo, false",
+            "com.**.Foo, com.Foo, true",
+            "com.**.Foo, com.a.b.Foo, true",
+            "com.**.Foo, com.a.b.Bar, false",
+            "com.example.Outer$*, com.example.Outer$Inner, true",
+            "com.example.Fo?, com.example.Foo, true",
+            "com.example.Fo?, com.example.Fooo, false",
+    })
+    public void testMatch(final String pattern, final String className, final boolean expected) {
+        final ClassPatternTrie<String> trie = new ClassPatternTrie<>();
+        trie.add(pattern, "value");
+
+        assertThat(trie.match(className).contains("value"))
+                .isEqualTo(expected);
+    }
+
+    @Test
+    public void testManyPatterns() {
+        final ClassPatternTrie<String> trie = new ClassPatternTrie<>();
+        for (int i = 0; i < 1000; i++) {
+            trie.add("com.example.Class" + i, "field" + i);
+        }
+        trie.add("com.example.**", "anyField");
+        trie.add("com.*.Class7", "otherField");
+
+        assertThat(trie.match("com.example.Class7"))
+                .containsExactlyInAnyOrder("field7", "anyField", "otherField");
+        assertThat(trie.match("org.example.Class7"))
+                .isEmpty();
+    }
+
+    @Test
+    public void testGlobMatches() {
+        assertThat(ClassPatternTrie.globMatches("token*", "tokenValue")).isTrue();
+        assertThat(ClassPatternTrie.globMatches("token*", "token")).isTrue();
+        assertThat(ClassPatternTrie.globMatches("token*", "myToken")).isFalse();
+        assertThat(ClassPatternTrie.globMatches("*a*b", "xaybzab")).isTrue();
+        assertThat(ClassPatternTrie.globMatches("*a*b", "xaybza")).isFalse();
+        assertThat(ClassPatternTrie.globMatches("name", "name")).isTrue();
+        assertThat(ClassPatternTrie.globMatches("name", "names")).isFalse();
+    }
+}
@@ -0,0 +1,58 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ContentTokenizerTest {
+
+    private final ContentTokenizer tokenizer = new ContentTokenizer("key", 100);
+
+    @Test
+    public void testDeterministic() {
+        assertThat(tokenize(tokenizer, "secret", 0))
+                .isEqualTo(tokenize(new ContentTokenizer("key", 10), "secret", 0))
+                .isNotEqualTo("secret".getBytes(UTF_8));
+    }
+
+    @Test
+    public void testDifferentTokens() {
+        final byte[] token = tokenize(tokenizer, "secret", 0);
+        assertThat(tokenize(tokenizer, "secreT", 0))
+                .isNotEqualTo(token);
+        assertThat(tokenize(tokenizer, "secret", 1))
+                .isNotEqualTo(token);
+        assertThat(tokenize(new ContentTokenizer("other key", 100), "secret", 0))
+                .isNotEqualTo(token);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 15, 16, 17, 100})
+    public void testLengthPreserved(final int length) {
+        final byte[] buffer = new byte[length + 2];
+        Arrays.fill(buffer, (byte) 'x');
+
+        tokenizer.tokenize(buffer, 1, length, 0);
+
+        assertThat(buffer[0]).isEqualTo((byte) 'x');
+        assertThat(buffer[length + 1]).isEqualTo((byte) 'x');
+    }
+
+    @Test
+    public void testTooLong() {
+        assertThatThrownBy(() -> tokenizer.tokenize(new byte[200], 0, 200, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] tokenize(final ContentTokenizer tokenizer, final String content, final long context) {
+        final byte[] bytes = content.getBytes(UTF_8);
+        tokenizer.tokenize(bytes, 0, bytes.length, context);
+        return bytes;
+    }
+}
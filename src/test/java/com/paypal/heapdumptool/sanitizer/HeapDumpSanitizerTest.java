@@ -4,6 +4,7 @@ import com.paypal.heapdumptool.fixture.HeapDumper;
 import com.paypal.heapdumptool.fixture.ResourceTool;
 import com.paypal.heapdumptool.sanitizer.example.ClassWithManyInstanceFields;
 import com.paypal.heapdumptool.sanitizer.example.ClassWithManyStaticFields;
+import com.paypal.heapdumptool.utils.JsonReader;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,18 +16,22 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.paypal.heapdumptool.ApplicationTestSupport.runApplicationPrivileged;
 import static com.paypal.heapdumptool.fixture.ByteArrayTool.countOfSequence;
@@ -34,6 +39,7 @@ import static com.paypal.heapdumptool.fixture.ByteArrayTool.lengthen;
 import static com.paypal.heapdumptool.fixture.ByteArrayTool.nCopiesLongToBytes;
 import static java.nio.ByteOrder.BIG_ENDIAN;
 import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
@@ -193,8 +199,10 @@ class HeapDumpSanitizerTest {
         verifyDoesNotContainsSequence(heapDump, secretArrays.getBooleanArraySequence());
     }
 
-    @Test
-    void testThreadNameExcludedFromSanitization() throws Exception {
+    @ParameterizedTest
+    @ValueSource(strings = {"--exclude-string-fields=java.lang.Thread#name,java.lang.ThreadGroup#name",
+                            "--exclude-string-fields=*Thread#na*,java.**.ThreadGroup#name"})
+    void testThreadNameExcludedFromSanitization(final String cliArg) throws Exception {
         // "xN-classified-value" with each letter incremented by 1
         final String x2ClassifiedValue = "y3.dmbttjgjfe.wbmvf";
         final String x5ClassifiedValue = "y6.dmbttjgjfe.wbmvf";
@@ -204,7 +212,7 @@ class HeapDumpSanitizerTest {
         thread.setName(adjustLetters(x2ClassifiedValue));
 
         final Charset charset = isJavaVersionAtMost(JAVA_1_8) ? UTF_16BE : UTF_8;
-        final byte[] sanitizedHeapDump = loadSanitizedHeapDump();
+        final byte[] sanitizedHeapDump = loadSanitizedHeapDump(cliArg);
         assertThat(sanitizedHeapDump)
                 .withFailMessage("threadGroupName " + threadGroup.getName())
                 .containsSequence(butLast(threadGroup.getName()).getBytes(charset))
@@ -231,6 +239,145 @@ class HeapDumpSanitizerTest {
         verifyDoesNotContainsSequence(sanitizedHeapDump, thread.getName().getBytes(UTF_8));
     }
 
+    @Test
+    void testSanitizeDetectedSecretsOnly() throws Exception {
+        // "5555555555554444" with each digit incremented by 1
+        final String cardNumber = adjustLetters("6666666666665555");
+        final String keptValue = "detect-mode-kept-value=";
+        final byte[] byteArray = (keptValue + cardNumber).getBytes(UTF_8);
+        final char[] charArray = (keptValue + cardNumber).toCharArray();
+        unused(byteArray, charArray);
+
+        final byte[] heapDump = loadSanitizedHeapDump("--sanitize-mode=detect");
+        verifyDoesNotContainsSequence(heapDump, cardNumber.getBytes(UTF_8));
+        verifyDoesNotContainsSequence(heapDump, cardNumber.getBytes(UTF_16BE));
+
+        final byte[] sanitizedCardNumber = new byte[cardNumber.length()];
+        assertThat(heapDump)
+                .overridingErrorMessage("sequences do not match") // normal error message would be long and not helpful at all
+                .containsSequence(concat(keptValue.getBytes(UTF_8), sanitizedCardNumber))
+                .containsSequence(concat(keptValue.getBytes(UTF_16BE), sanitizedCardNumber, sanitizedCardNumber));
+    }
+
+    @Test
+    void testSanitizeDetectedSecretsOfUtf16Strings() throws Exception {
+        // "5555555555554444" with each digit incremented by 1
+        final String cardNumber = adjustLetters("6666666666665555");
+        // not Latin-1, so that the String is UTF-16 on JDK 9+, in the byte order of this JVM
+        final String keptValue = "detect-mode-kept-\u20ac=";
+        final String value = keptValue + cardNumber;
+        unused(value);
+
+        final Charset charset = isJavaVersionAtMost(JAVA_1_8) || ByteOrder.nativeOrder() == BIG_ENDIAN ? UTF_16BE : UTF_16LE;
+        final byte[] heapDump = loadSanitizedHeapDump("--sanitize-mode=detect");
+        verifyDoesNotContainsSequence(heapDump, cardNumber.getBytes(charset));
+
+        final byte[] sanitizedCardNumber = new byte[cardNumber.length() * 2];
+        assertThat(heapDump)
+                .overridingErrorMessage("sequences do not match") // normal error message would be long and not helpful at all
+                .containsSequence(concat(keptValue.getBytes(charset), sanitizedCardNumber));
+    }
+
+    @Test
+    void testSanitizeWithHmacTokens() throws Exception {
+        final String secret = adjustLetters("hmac-mode-secret-value");
+        final byte[] secretArray = secret.getBytes(UTF_8);
+        final byte[] secretArrayCopy = secret.getBytes(UTF_8);
+        unused(secretArray, secretArrayCopy);
+
+        final byte[] heapDump = loadSanitizedHeapDump("--sanitize-mode=hmac", "--hmac-key=test-key");
+        verifyDoesNotContainsSequence(heapDump, secretArray);
+
+        final byte[] token = secret.getBytes(UTF_8);
+        new ContentTokenizer("test-key", token.length).tokenize(token, 0, token.length, 0);
+        assertThat(countOfSequence(heapDump, token))
+                .isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRunReport() throws Exception {
+        final Path report = Files.createTempFile(tempDir, "report", ".json");
+        final byte[] heapDump = loadSanitizedHeapDump("--report=" + report);
+
+        final Map<String, Object> json = (Map<String, Object>) JsonReader.parse(new String(Files.readAllBytes(report), UTF_8));
+        assertThat(json).containsEntry("bytesWritten", String.valueOf(heapDump.length));
+        final Map<String, Object> mainPass = (Map<String, Object>) ((Map<String, Object>) json.get("phases")).get("mainPass");
+        assertThat(mainPass).containsEntry("bytes", String.valueOf(heapDump.length));
+        assertThat((Map<String, Object>) json.get("records")).containsKeys("STRING_IN_UTF8", "LOAD_CLASS");
+        assertThat((Map<String, Object>) json.get("heapDumpRecords")).containsKeys("CLASS_DUMP", "INSTANCE_DUMP", "PRIMITIVE_ARRAY_DUMP");
+        assertThat((Map<String, Object>) json.get("bytesSanitized")).containsKeys("byte");
+    }
+
+    @Test
+    void testSanitizeByArrayOwner() throws Exception {
+        final OwnedArrays sanitizedArrays = new OwnedArrays();
+        final KeptArrayHolder keptArrayHolder = new KeptArrayHolder();
+        unused(sanitizedArrays, keptArrayHolder);
+
+        final byte[] heapDump = loadSanitizedHeapDump("--sanitize-arrays-of=" + OwnedArrays.class.getName(),
+                                                      "--keep-arrays-of=" + KeptArrayHolder.class.getName());
+
+        // all element types are sanitized for owners to sanitize
+        verifyDoesNotContainsSequence(heapDump, sanitizedArrays.byteArray);
+        verifyDoesNotContainsSequence(heapDump, sanitizedArrays.getLongArraySequence());
+
+        assertThat(heapDump)
+                .overridingErrorMessage("sequences do not match") // normal error message would be long and not helpful at all
+                .containsSequence(keptArrayHolder.byteArray);
+    }
+
+    @Test
+    void testSanitizeByPolicy() throws Exception {
+        final PolicyHolder policyHolder = new PolicyHolder();
+        unused(policyHolder);
+        final Path policy = Files.write(Files.createTempFile(tempDir, "policy", ".yaml"), String.join("\n",
+                "arrays:",
+                "  byte: keep",
+                "classes:",
+                "  - class: " + PolicyHolder.class.getName(),
+                "    fields:",
+                "      tokenized*: tokenize",
+                "      pin: sanitize").getBytes(UTF_8));
+
+        final byte[] heapDump = loadSanitizedHeapDump("--policy=" + policy, "--hmac-key=test-key");
+
+        verifyDoesNotContainsSequence(heapDump, policyHolder.tokenizedBytes);
+        verifyDoesNotContainsSequence(heapDump, ByteBuffer.allocate(Long.BYTES).putLong(policyHolder.pin).array());
+
+        final byte[] token = policyHolder.tokenizedBytes.clone();
+        new ContentTokenizer("test-key", token.length).tokenize(token, 0, token.length, 0);
+        assertThat(heapDump)
+                .overridingErrorMessage("sequences do not match") // normal error message would be long and not helpful at all
+                .containsSequence(token)
+                .containsSequence(policyHolder.keptBytes);
+    }
+
+    @Test
+    void testFieldRuleOverridesPolicyDefault() throws Exception {
+        final FieldDefaultHolder fieldDefaultHolder = new FieldDefaultHolder();
+        unused(fieldDefaultHolder);
+        final Path policy = Files.write(Files.createTempFile(tempDir, "policy", ".yaml"), String.join("\n",
+                "fields: sanitize",
+                "classes:",
+                "  - class: " + FieldDefaultHolder.class.getName(),
+                "    fields:",
+                "      pin: keep").getBytes(UTF_8));
+
+        final byte[] heapDump = loadSanitizedHeapDump("--policy=" + policy);
+
+        verifyDoesNotContainsSequence(heapDump, ByteBuffer.allocate(Long.BYTES).putLong(fieldDefaultHolder.secret).array());
+        assertThat(heapDump)
+                .overridingErrorMessage("sequences do not match") // normal error message would be long and not helpful at all
+                .containsSequence(ByteBuffer.allocate(Long.BYTES).putLong(fieldDefaultHolder.pin).array());
+    }
+
+    private static byte[] concat(final byte[]... arrays) {
+        final ByteBuffer buffer = ByteBuffer.allocate(Stream.of(arrays).mapToInt(array -> array.length).sum());
+        Stream.of(arrays).forEach(buffer::put);
+        return buffer.array();
+    }
+
     // 0xDEADBEEF
     private long deadcow() {
         return 0xDEADBEEE + Integer.parseInt("1");
@@ -306,6 +453,52 @@ class HeapDumpSanitizerTest {
         return path;
     }
 
+    private static class OwnedArrays {
+        private final byte[] byteArray = new byte[SecretArrays.LENGTH];
+        private final long[] longArray = new long[SecretArrays.LENGTH];
+
+        {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            random.nextBytes(byteArray);
+            for (int i = 0; i < longArray.length; i++) {
+                longArray[i] = random.nextLong();
+            }
+        }
+
+        public byte[] getLongArraySequence() {
+            final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES * longArray.length);
+            buffer.order(BIG_ENDIAN);
+            for (int i = 0; i < longArray.length; i++) {
+                buffer.putLong(i * Long.BYTES, longArray[i]);
+            }
+            return buffer.array();
+        }
+    }
+
+    private static class PolicyHolder {
+        private final byte[] tokenizedBytes = new byte[SecretArrays.LENGTH];
+        private final byte[] keptBytes = new byte[SecretArrays.LENGTH];
+        private final long pin = ThreadLocalRandom.current().nextLong();
+
+        {
+            ThreadLocalRandom.current().nextBytes(tokenizedBytes);
+            ThreadLocalRandom.current().nextBytes(keptBytes);
+        }
+    }
+
+    private static class FieldDefaultHolder {
+        private final long pin = ThreadLocalRandom.current().nextLong();
+        private final long secret = ThreadLocalRandom.current().nextLong();
+    }
+
+    private static class KeptArrayHolder {
+        private final byte[] byteArray = new byte[SecretArrays.LENGTH];
+
+        {
+            ThreadLocalRandom.current().nextBytes(byteArray);
+        }
+    }
+
     private static class SecretArrays {
         private static final int LENGTH = 512;
 
@@ -0,0 +1,70 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IoTunerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testFindMountDevice() {
+        final List<String> mountInfo = Arrays.asList(
+                "22 1 259:2 / / rw,relatime shared:1 - ext4 /dev/nvme0n1p2 rw",
+                "23 22 8:17 / /data rw,relatime shared:2 - xfs /dev/sdb1 rw",
+                "24 23 0:45 / /data/tmp rw,relatime shared:3 - tmpfs tmpfs rw",
+                "bad line");
+
+        assertThat(IoTuner.findMountDevice(Paths.get("/home/app/heap.hprof"), mountInfo))
+                .isEqualTo("259:2");
+        assertThat(IoTuner.findMountDevice(Paths.get("/data/dumps/heap.hprof"), mountInfo))
+                .isEqualTo("8:17");
+        assertThat(IoTuner.findMountDevice(Paths.get("/data/tmp/heap.hprof"), mountInfo))
+                .isEqualTo("0:45");
+        assertThat(IoTuner.findMountDevice(Paths.get("/database/heap.hprof"), mountInfo))
+                .isEqualTo("259:2");
+    }
+
+    @Test
+    public void testClassify() {
+        assertThat(IoTuner.classify(true, 3000))
+                .isEqualTo(IoProfile.HDD);
+        assertThat(IoTuner.classify(null, 100))
+                .isEqualTo(IoProfile.HDD);
+        assertThat(IoTuner.classify(false, 100))
+                .isEqualTo(IoProfile.SSD);
+        assertThat(IoTuner.classify(false, 500))
+                .isEqualTo(IoProfile.SSD);
+        assertThat(IoTuner.classify(null, 3000))
+                .isEqualTo(IoProfile.NVME);
+    }
+
+    @Test
+    public void testDetect() throws IOException {
+        final Path inputFile = Files.write(tempDir.resolve("input.hprof"), new byte[1024 * 1024]);
+
+        assertThat(IoTuner.detectInputProfile(inputFile))
+                .isIn(IoProfile.HDD, IoProfile.SSD, IoProfile.NVME);
+        assertThat(IoTuner.detectInputProfile(tempDir))
+                .isEqualTo(IoProfile.PIPE);
+        assertThat(IoTuner.detectOutputProfile(tempDir.resolve("output.hprof")))
+                .isIn(IoProfile.HDD, IoProfile.SSD, IoProfile.NVME);
+        assertThat(IoTuner.detectOutputProfile(tempDir))
+                .isEqualTo(IoProfile.PIPE);
+        try (final Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files)
+                    .containsExactly(inputFile);
+        }
+    }
+}
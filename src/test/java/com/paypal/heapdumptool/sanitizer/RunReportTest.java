@@ -0,0 +1,65 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.utils.JsonReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+class RunReportTest {
+
+    @Test
+    void testPhases() throws Exception {
+        final RunReport report = new RunReport();
+        report.time(RunReport.DOCKER_EXEC, () -> Thread.sleep(5));
+        final long firstWallNanos = report.getPhaseWallNanos(RunReport.DOCKER_EXEC);
+        assertThat(firstWallNanos).isGreaterThan(0);
+
+        report.time(RunReport.DOCKER_EXEC, () -> Thread.sleep(5));
+        assertThat(report.getPhaseWallNanos(RunReport.DOCKER_EXEC)).isGreaterThan(firstWallNanos);
+        assertThat(report.getPhaseWallNanos(RunReport.ZIP)).isZero();
+    }
+
+    @Test
+    void testTimeReturnsResult() {
+        final RunReport report = new RunReport();
+        assertThat(report.time(RunReport.ZIP, () -> "zipped")).isEqualTo("zipped");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWrite() throws Exception {
+        final RunReport report = new RunReport();
+        report.time(RunReport.MAIN_PASS, () -> {
+            report.countRecord(HeapRecord.HEAP_DUMP_SEGMENT.getTag());
+            report.countRecord(HeapRecord.HEAP_DUMP_SEGMENT.getTag());
+            report.countHeapDumpRecord(0x23);
+            report.addBytesSanitized(BasicType.BYTE.getU1Code(), 100);
+            report.addBytesSanitized(BasicType.BYTE.getU1Code(), 50);
+        });
+        report.addBytes(RunReport.PREPASS, 1000, 0);
+        report.addBytes(RunReport.MAIN_PASS, 1000, 1000);
+
+        final StringWriter writer = new StringWriter();
+        report.write(writer);
+        final Map<String, Object> json = (Map<String, Object>) JsonReader.parse(writer.toString());
+
+        assertThat(json).containsEntry("bytesRead", "2000")
+                        .containsEntry("bytesWritten", "1000")
+                        .containsKeys("startTime", "wallMillis", "mbPerSecond", "peakHeapBytes");
+        assertThat(Long.parseLong((String) json.get("peakHeapBytes"))).isGreaterThan(0);
+
+        final Map<String, Object> phases = (Map<String, Object>) json.get("phases");
+        assertThat(phases).containsOnlyKeys(RunReport.MAIN_PASS, RunReport.PREPASS);
+        assertThat((Map<String, Object>) phases.get(RunReport.MAIN_PASS))
+                .containsEntry("bytes", "1000")
+                .containsKeys("wallMillis", "cpuMillis", "mbPerSecond");
+
+        assertThat((Map<String, Object>) json.get("records")).containsOnly(entry("HEAP_DUMP_SEGMENT", "2"));
+        assertThat((Map<String, Object>) json.get("heapDumpRecords")).containsOnly(entry("PRIMITIVE_ARRAY_DUMP", "1"));
+        assertThat((Map<String, Object>) json.get("bytesSanitized")).containsOnly(entry("byte", "150"));
+    }
+}
@@ -0,0 +1,185 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.fixture.HeapDumper;
+import org.apache.commons.io.output.ProxyOutputStream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.paypal.heapdumptool.sanitizer.DataSize.ofBytes;
+import static com.paypal.heapdumptool.sanitizer.DataSize.ofKilobytes;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SanitizeCheckpointTest {
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path heapDump;
+
+    private static byte[] expectedOutput;
+
+    @BeforeAll
+    public static void beforeAll() throws Exception {
+        heapDump = tempDir.resolve("input.hprof");
+        HeapDumper.dumpHeap(heapDump, true);
+
+        final SanitizeCommand command = newCommand(tempDir.resolve("expected.hprof"));
+        command.setCheckpointInterval(ofBytes(0));
+        new SanitizeCommandProcessor(command).process();
+        expectedOutput = Files.readAllBytes(command.getOutputFile());
+    }
+
+    @Test
+    public void testResumeAfterFailure() throws Exception {
+        final Path outputFile = tempDir.resolve("testResumeAfterFailure.hprof");
+        final SanitizeCommand command = newCommand(outputFile);
+
+        final long failAfter = expectedOutput.length / 2;
+        assertThatThrownBy(() -> new SanitizeCommandProcessor(command, new FailingStreamFactory(command, failAfter)).process())
+                .isInstanceOf(IOException.class)
+                .hasMessage("disk full");
+        assertThat(SanitizeCheckpoint.checkpointFile(outputFile)).exists();
+
+        final SanitizeCheckpoint checkpoint = SanitizeCheckpoint.read(outputFile).orElseThrow(IllegalStateException::new);
+        assertThat(SanitizeCheckpoint.stateFile(outputFile, checkpoint.stateGeneration)).exists();
+        assertThat(checkpoint.inputOffset)
+                .isGreaterThan(0)
+                .isLessThanOrEqualTo(failAfter)
+                .isEqualTo(checkpoint.outputOffset);
+
+        command.setResume(true);
+        new SanitizeCommandProcessor(command).process();
+
+        assertThat(Files.readAllBytes(outputFile)).isEqualTo(expectedOutput);
+        assertThat(SanitizeCheckpoint.checkpointFile(outputFile)).doesNotExist();
+        assertThat(SanitizeCheckpoint.stateFile(outputFile, checkpoint.stateGeneration)).doesNotExist();
+    }
+
+    @Test
+    public void testResumeAfterCrashBetweenStateAndCheckpoint() throws Exception {
+        final Path outputFile = tempDir.resolve("testResumeAfterCrashBetweenStateAndCheckpoint.hprof");
+        final SanitizeCommand command = newCommand(outputFile);
+
+        assertThatThrownBy(() -> new SanitizeCommandProcessor(command, new FailingStreamFactory(command, expectedOutput.length / 2)).process())
+                .isInstanceOf(IOException.class);
+        final SanitizeCheckpoint checkpoint = SanitizeCheckpoint.read(outputFile).orElseThrow(IllegalStateException::new);
+
+        // state of the next generation written, but crashed before its checkpoint file
+        final SanitizeCheckpoint nextCheckpoint = new SanitizeCheckpoint(
+                checkpoint.inputOffset,
+                checkpoint.outputOffset,
+                checkpoint.outputChecksum,
+                checkpoint.inputFileSize,
+                checkpoint.idSize,
+                checkpoint.isLikelyJdk9Plus,
+                checkpoint.stateGeneration + 1,
+                checkpoint.stringIdToStringMap,
+                checkpoint.classObjectIdToStringIdMap,
+                checkpoint.classNameToClassObjectsMap,
+                checkpoint.excludeStringObjectIds,
+                checkpoint.excludeStringValueArrayObjectIds,
+                checkpoint.histogram);
+        nextCheckpoint.writeStateFile(outputFile);
+
+        assertThat(SanitizeCheckpoint.read(outputFile).orElseThrow(IllegalStateException::new).stateGeneration)
+                .isEqualTo(checkpoint.stateGeneration);
+
+        command.setResume(true);
+        new SanitizeCommandProcessor(command).process();
+
+        assertThat(Files.readAllBytes(outputFile)).isEqualTo(expectedOutput);
+        assertThat(SanitizeCheckpoint.stateFile(outputFile, checkpoint.stateGeneration)).doesNotExist();
+        assertThat(SanitizeCheckpoint.stateFile(outputFile, nextCheckpoint.stateGeneration)).doesNotExist();
+    }
+
+    @Test
+    public void testResumeWithHistogram() throws Exception {
+        final Path outputFile = tempDir.resolve("testResumeWithHistogram.hprof");
+        final SanitizeCommand command = newCommand(outputFile);
+        command.setHistogramOutput(tempDir.resolve("testResumeWithHistogram.csv"));
+
+        assertThatThrownBy(() -> new SanitizeCommandProcessor(command, new FailingStreamFactory(command, expectedOutput.length / 2)).process())
+                .isInstanceOf(IOException.class);
+        command.setResume(true);
+        new SanitizeCommandProcessor(command).process();
+
+        final SanitizeCommand uninterruptedCommand = newCommand(tempDir.resolve("testResumeWithHistogram-uninterrupted.hprof"));
+        uninterruptedCommand.setHistogramOutput(tempDir.resolve("testResumeWithHistogram-uninterrupted.csv"));
+        new SanitizeCommandProcessor(uninterruptedCommand).process();
+
+        assertThat(Files.readAllBytes(outputFile)).isEqualTo(expectedOutput);
+        assertThat(command.getHistogramOutput()).hasSameTextualContentAs(uninterruptedCommand.getHistogramOutput());
+    }
+
+    @Test
+    public void testResumeWithoutCheckpoint() throws Exception {
+        final Path outputFile = tempDir.resolve("testResumeWithoutCheckpoint.hprof");
+        final SanitizeCommand command = newCommand(outputFile);
+        command.setResume(true);
+
+        new SanitizeCommandProcessor(command).process();
+
+        assertThat(Files.readAllBytes(outputFile)).isEqualTo(expectedOutput);
+    }
+
+    @Test
+    public void testResumeWithModifiedOutput() throws Exception {
+        final Path outputFile = tempDir.resolve("testResumeWithModifiedOutput.hprof");
+        final SanitizeCommand command = newCommand(outputFile);
+
+        assertThatThrownBy(() -> new SanitizeCommandProcessor(command, new FailingStreamFactory(command, expectedOutput.length / 2)).process())
+                .isInstanceOf(IOException.class);
+
+        final byte[] partialOutput = Files.readAllBytes(outputFile);
+        partialOutput[10]++;
+        Files.write(outputFile, partialOutput);
+
+        command.setResume(true);
+        assertThatIllegalStateException()
+                .isThrownBy(() -> new SanitizeCommandProcessor(command).process())
+                .withMessageContaining("Output file does not match checkpoint");
+    }
+
+    private static SanitizeCommand newCommand(final Path outputFile) {
+        final SanitizeCommand command = new SanitizeCommand();
+        command.setInputFile(heapDump);
+        command.setOutputFile(outputFile);
+        command.setBufferSize(ofKilobytes(64));
+        command.setCheckpointInterval(ofKilobytes(256));
+        return command;
+    }
+
+    private static class FailingStreamFactory extends SanitizeStreamFactory {
+
+        private final long failAfter;
+
+        FailingStreamFactory(final SanitizeCommand command, final long failAfter) {
+            super(command);
+            this.failAfter = failAfter;
+        }
+
+        @Override
+        public OutputStream newOutputStream() throws IOException {
+            return new ProxyOutputStream(super.newOutputStream()) {
+
+                private long count;
+
+                @Override
+                protected void beforeWrite(final int n) throws IOException {
+                    count += n;
+                    if (count > failAfter) {
+                        throw new IOException("disk full");
+                    }
+                }
+            };
+        }
+    }
+}
@@ -2,13 +2,17 @@ package com.paypal.heapdumptool.sanitizer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.MockedConstruction;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
 
 import static com.paypal.heapdumptool.sanitizer.DataSize.ofBytes;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doNothing;
@@ -45,6 +49,39 @@ class SanitizeCommandProcessorTest {
                 .hasMessage("Invalid buffer size");
     }
 
+    @Test
+    void testHmacKeyValidation() {
+        command.setSanitizeMode(SanitizeMode.HMAC);
+        final SanitizeCommandProcessor processor = new SanitizeCommandProcessor(command, streamFactory);
+
+        assertThatThrownBy(processor::process)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("HMAC sanitize mode requires --hmac-key");
+    }
+
+    @Test
+    void testPolicyTokenizeValidation(@TempDir final Path tempDir) throws IOException {
+        final Path policy = Files.write(tempDir.resolve("policy.yaml"), "arrays:\n  int: tokenize".getBytes(UTF_8));
+        command.setPolicy(policy);
+        final SanitizeCommandProcessor processor = new SanitizeCommandProcessor(command, streamFactory);
+
+        assertThatThrownBy(processor::process)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Policy tokenize rules require --hmac-key");
+    }
+
+    @Test
+    void testArrayOwnerRulesValidation() {
+        command.setExcludeStringFields(Collections.emptyList());
+        command.setKeepArraysOf(Collections.singletonList("io.netty.buffer.*"));
+        doReturn(true).when(streamFactory).isStdinInput();
+        final SanitizeCommandProcessor processor = new SanitizeCommandProcessor(command, streamFactory);
+
+        assertThatThrownBy(processor::process)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("stdin input cannot be used with --keep-arrays-of or --sanitize-arrays-of, which need two passes");
+    }
+
     @Test
     void testProcess() throws Exception {
         final SanitizeCommandProcessor processor = new SanitizeCommandProcessor(command, streamFactory);
@@ -3,6 +3,8 @@ package com.paypal.heapdumptool.sanitizer;
 import org.junit.jupiter.api.Test;
 import org.meanbean.test.BeanVerifier;
 
+import java.time.Duration;
+
 import static com.paypal.heapdumptool.sanitizer.DataSize.ofMegabytes;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -12,6 +14,11 @@ public class SanitizeCommandTest {
     public void testBean() {
         BeanVerifier.forClass(SanitizeCommand.class)
                     .withSettings(settings -> settings.addOverridePropertyFactory(SanitizeCommand::getBufferSize, () -> ofMegabytes(5)))
+                    .withSettings(settings -> settings.addOverridePropertyFactory(SanitizeCommand::getMaxIoRate, () -> ofMegabytes(7)))
+                    .withSettings(settings -> settings.addOverridePropertyFactory(SanitizeCommand::getProgressInterval, () -> Duration.ofSeconds(5)))
+                    .withSettings(settings -> settings.addOverridePropertyFactory(SanitizeCommand::getCheckpointInterval, () -> ofMegabytes(6)))
+                    .withSettings(settings -> settings.addOverridePropertyFactory(SanitizeCommand::getBatchMemory, () -> ofMegabytes(8)))
+                    .withSettings(settings -> settings.addOverridePropertyFactory(SanitizeCommand::getSplitSize, () -> ofMegabytes(9)))
                     .withSettings(settings -> settings.addIgnoredPropertyName("excludeStringFields"))
                     .verifyGettersAndSetters();
     }
@@ -27,6 +34,22 @@ public class SanitizeCommandTest {
                 .isEqualTo("foobar");
     }
 
+    @Test
+    public void testProcessorClass() {
+        final SanitizeCommand cmd = new SanitizeCommand();
+        assertThat(cmd.getProcessorClass())
+                .isEqualTo(SanitizeCommandProcessor.class);
+
+        cmd.setTarInput(true);
+        cmd.setAllTarEntries(true);
+        assertThat(cmd.getProcessorClass())
+                .isEqualTo(TarSanitizeCommandProcessor.class);
+
+        cmd.setBatch("dumps");
+        assertThat(cmd.getProcessorClass())
+                .isEqualTo(BatchSanitizeCommandProcessor.class);
+    }
+
     private String escapedSanitizationText(final String sanitizationText) {
         final SanitizeCommand cmd = new SanitizeCommand();
         cmd.setSanitizationText(sanitizationText);
@@ -0,0 +1,126 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.sanitizer.ArrayOwnerPolicy.Decision;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class SanitizePolicyTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final SanitizeCommand command = new SanitizeCommand();
+
+    @Test
+    public void testCommandRules() throws Exception {
+        command.setExcludeStringFields(Collections.singletonList("java.lang.Thread#name"));
+        command.setSanitizeByteCharArraysOnly(true);
+
+        final SanitizePolicy policy = SanitizePolicy.compile(command);
+        assertThat(policy.getArrayDecision(BasicType.BYTE.getU1Code())).isEqualTo(Decision.SANITIZE);
+        assertThat(policy.getArrayDecision(BasicType.INT.getU1Code())).isEqualTo(Decision.NONE);
+        assertThat(policy.getArrayDecision(99)).isEqualTo(Decision.NONE);
+        assertThat(policy.getPrimitiveFieldDecision()).isEqualTo(Decision.NONE);
+        assertThat(fieldDecisions(policy, "java.lang.Thread")).containsExactly("name=KEEP");
+        assertThat(policy.hasFieldRules()).isTrue();
+        assertThat(policy.hasReferenceRules()).isFalse();
+        assertThat(policy.isTokenizeUsed()).isFalse();
+
+        command.setSanitizeByteCharArraysOnly(false);
+        assertThat(SanitizePolicy.compile(command).getArrayDecision(BasicType.INT.getU1Code())).isEqualTo(Decision.SANITIZE);
+        assertThat(SanitizePolicy.compile(command).getPrimitiveFieldDecision()).isEqualTo(Decision.SANITIZE);
+    }
+
+    @Test
+    public void testYamlPolicy() throws Exception {
+        command.setExcludeStringFields(Collections.emptyList());
+        command.setPolicy(write("policy.yaml", String.join("\n",
+                "arrays:",
+                "  byte: keep",
+                "  int: tokenize",
+                "minArrayLength: 8",
+                "fields: sanitize",
+                "excludeStringFields:",
+                "  - com.example.Config#name",
+                "classes:",
+                "  - class: com.example.secure.**",
+                "    arrays: sanitize",
+                "    fields:",
+                "      pin: sanitize",
+                "      token*: tokenize",
+                "  - class: com.example.secure.Account",
+                "    fields:",
+                "      pin: keep",
+                "      displayName: keep")));
+
+        final SanitizePolicy policy = SanitizePolicy.compile(command);
+        assertThat(policy.getArrayDecision(BasicType.BYTE.getU1Code())).isEqualTo(Decision.KEEP);
+        assertThat(policy.getArrayDecision(BasicType.CHAR.getU1Code())).isEqualTo(Decision.SANITIZE);
+        assertThat(policy.getArrayDecision(BasicType.INT.getU1Code())).isEqualTo(Decision.TOKENIZE);
+        assertThat(policy.getMinArrayLength()).isEqualTo(8);
+        assertThat(policy.getPrimitiveFieldDecision()).isEqualTo(Decision.SANITIZE);
+        assertThat(policy.getOwnerRules().match("com.example.secure.Account")).containsExactly(Decision.SANITIZE);
+        assertThat(policy.getOwnerRules().match("com.example.Config")).isEmpty();
+        assertThat(fieldDecisions(policy, "com.example.Config")).containsExactly("name=KEEP");
+        assertThat(fieldDecisions(policy, "com.example.secure.Account"))
+                .containsExactlyInAnyOrder("pin=SANITIZE", "token*=TOKENIZE", "pin=KEEP", "displayName=KEEP");
+        assertThat(policy.hasReferenceRules()).isTrue();
+        assertThat(policy.isTokenizeUsed()).isTrue();
+    }
+
+    @Test
+    public void testJsonPolicy() throws Exception {
+        command.setPolicy(write("policy.json",
+                "{\"arrays\": {\"long\": \"sanitize\"}, \"classes\": [{\"class\": \"*Holder\", \"arrays\": \"keep\"}]}"));
+
+        final SanitizePolicy policy = SanitizePolicy.compile(command);
+        assertThat(policy.getArrayDecision(BasicType.LONG.getU1Code())).isEqualTo(Decision.SANITIZE);
+        assertThat(policy.getOwnerRules().match("com.example.KeyHolder")).containsExactly(Decision.KEEP);
+        assertThat(policy.isTokenizeUsed()).isFalse();
+    }
+
+    @Test
+    public void testInvalidPolicy() throws Exception {
+        command.setPolicy(write("unknown-key.yaml", "array:\n  byte: keep"));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> SanitizePolicy.compile(command))
+                .withMessageEndingWith("unknown-key.yaml: Unknown key array in policy");
+
+        command.setPolicy(write("bad-decision.yaml", "arrays:\n  byte: mask"));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> SanitizePolicy.compile(command))
+                .withMessageEndingWith("bad-decision.yaml: Expected keep, sanitize or tokenize, got mask");
+
+        command.setPolicy(write("bad-type.yaml", "arrays:\n  object: keep"));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> SanitizePolicy.compile(command))
+                .withMessageEndingWith("bad-type.yaml: Unknown array element type object");
+
+        command.setPolicy(write("missing-class.json", "{\"classes\": [{\"fields\": {}}]}"));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> SanitizePolicy.compile(command))
+                .withMessageEndingWith("missing-class.json: Missing class in classes item");
+    }
+
+    private Path write(final String fileName, final String content) throws Exception {
+        return Files.write(tempDir.resolve(fileName), content.getBytes(UTF_8));
+    }
+
+    private static List<String> fieldDecisions(final SanitizePolicy policy, final String className) {
+        return policy.getFieldRules()
+                .match(className)
+                .stream()
+                .map(rule -> rule.fieldPattern + "=" + rule.decision)
+                .collect(Collectors.toList());
+    }
+}
@@ -2,12 +2,14 @@ package com.paypal.heapdumptool.sanitizer;
 
 import com.paypal.heapdumptool.fixture.ResourceTool;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -35,6 +37,8 @@ public class SanitizeStreamFactoryTest {
         streamFactory = new SanitizeStreamFactory(cmd);
         assertThat(streamFactory.newInputStream())
                 .isEqualTo(System.in);
+        assertThat(streamFactory.getInputSize())
+                .isEqualTo(-1);
     }
 
     @Test
@@ -48,6 +52,26 @@ public class SanitizeStreamFactoryTest {
                 .isNotSameAs(System.in);
     }
 
+    @Test
+    public void testIoProfile() throws IOException {
+        final SanitizeCommand cmd = newCommand();
+        cmd.setInputFile(Paths.get("-"));
+        cmd.setOutputFile(tempDir.resolve("testIoProfile"));
+
+        streamFactory = new SanitizeStreamFactory(cmd);
+        assertThat(streamFactory.getInputProfile())
+                .isEqualTo(IoProfile.PIPE);
+        assertThat(streamFactory.getOutputProfile())
+                .isIn(IoProfile.HDD, IoProfile.SSD, IoProfile.NVME);
+
+        cmd.setIoProfile(IoProfile.NVME);
+        streamFactory = new SanitizeStreamFactory(cmd);
+        assertThat(streamFactory.getInputProfile())
+                .isEqualTo(IoProfile.NVME);
+        assertThat(streamFactory.getOutputProfile())
+                .isEqualTo(IoProfile.NVME);
+    }
+
     @Test
     public void testBufferedOutputStream() throws IOException {
         final SanitizeCommand cmd = newCommand();
@@ -66,8 +90,11 @@ public class SanitizeStreamFactoryTest {
         cmd.setBufferSize(ofBytes(0));
 
         streamFactory = new SanitizeStreamFactory(cmd);
+        Files.write(inputFile, new byte[42]);
         assertThat(streamFactory.newInputStream())
                 .isNotInstanceOf(PrintStream.class);
+        assertThat(streamFactory.getInputSize())
+                .isEqualTo(42);
     }
 
     @Test
@@ -94,8 +121,12 @@ public class SanitizeStreamFactoryTest {
         cmd.setTarInput(true);
 
         streamFactory = new SanitizeStreamFactory(cmd);
-        assertThat(streamFactory.newInputStream())
+        final InputStream inputStream = streamFactory.newInputStream();
+        assertThat(inputStream)
                 .isInstanceOf(TarArchiveInputStream.class);
+        assertThat(streamFactory.getInputSize())
+                .isEqualTo(IOUtils.consume(inputStream))
+                .isLessThan(Files.size(inputFile));
     }
 
     @Test
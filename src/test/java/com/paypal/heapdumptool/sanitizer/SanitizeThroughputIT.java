@@ -0,0 +1,134 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.fixture.HeapDumper;
+import com.paypal.heapdumptool.utils.InternalLogger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.paypal.heapdumptool.sanitizer.DataSize.ofBytes;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Repeatable throughput measurement of sanitize modes against FILL mode. Run by failsafe with mvn verify, or alone with
+ * mvn verify -Dit.test=SanitizeThroughputIT -Djacoco.skip=true, as coverage instrumentation skews the numbers. Each mode is
+ * run once to warm up, then -Dthroughput.runs times (default 5), and the best run is logged, so that JIT warmup and page
+ * cache don't skew the comparison.
+ */
+public class SanitizeThroughputIT {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(SanitizeThroughputIT.class);
+
+    private static final int RUNS = Integer.getInteger("throughput.runs", 5);
+
+    // text of the kind DETECT looks through, kept reachable while dumping the heap
+    private static final List<Object> TEXT = new ArrayList<>();
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path heapDump;
+
+    @BeforeAll
+    public static void beforeAll() throws Exception {
+        for (int i = 0; i < 300_000; i++) {
+            TEXT.add(("GET /checkout/cart/" + i + "?session=" + Long.toHexString(i * 0x9E3779B97F4A7C15L)
+                      + " HTTP/1.1 Accept: application/json User-Agent: Mozilla/5.0").getBytes());
+            TEXT.add(("com.example.cache.Key[region=eu-west-1, id=" + i + ", name=Customer " + i + "]").toCharArray());
+        }
+        heapDump = tempDir.resolve("input.hprof");
+        HeapDumper.dumpHeap(heapDump, true);
+        TEXT.clear();
+    }
+
+    @Test
+    public void testThroughput() throws Exception {
+        final List<Scenario> scenarios = new ArrayList<>();
+        scenarios.add(new Scenario("DETECT", command -> command.setSanitizeMode(SanitizeMode.DETECT)));
+        scenarios.add(new Scenario("DETECT --detect-pattern with literal prefix", command -> {
+            command.setSanitizeMode(SanitizeMode.DETECT);
+            command.setDetectPatterns(Collections.singletonList("ssn=\\d{3}-\\d{2}-\\d{4}"));
+        }));
+        scenarios.add(new Scenario("DETECT --detect-pattern without literal prefix", command -> {
+            command.setSanitizeMode(SanitizeMode.DETECT);
+            command.setDetectPatterns(Collections.singletonList("\\d{3}-\\d{2}-\\d{4}"));
+        }));
+        scenarios.add(new Scenario("HMAC", command -> {
+            command.setSanitizeMode(SanitizeMode.HMAC);
+            command.setHmacKey("throughput-test-key");
+        }));
+
+        final Scenario fillScenario = new Scenario("FILL", command -> command.setSanitizeMode(SanitizeMode.FILL));
+        sanitize(fillScenario); // warmup
+        for (final Scenario scenario : scenarios) {
+            sanitize(scenario);
+        }
+
+        final double fill = measure(fillScenario, 0);
+        for (final Scenario scenario : scenarios) {
+            measure(scenario, fill);
+        }
+    }
+
+    /**
+     * @return best throughput in MB/s
+     */
+    private static double measure(final Scenario scenario, final double baseline) throws Exception {
+        final long[] nanos = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            nanos[run] = sanitize(scenario);
+        }
+
+        final double megabytes = Files.size(heapDump) / (1024.0 * 1024.0);
+        final double best = megabytes / (Arrays.stream(nanos).min().getAsLong() / 1e9);
+        if (baseline == 0) {
+            LOGGER.info("Throughput of {}: {} MB/s, {} MB heap dump", scenario.name, format(best), format(megabytes));
+        } else {
+            LOGGER.info("Throughput of {}: {} MB/s, {}% of FILL", scenario.name, format(best), String.format("%.0f", 100 * best / baseline));
+        }
+        return best;
+    }
+
+    /**
+     * @return elapsed nanos
+     */
+    private static long sanitize(final Scenario scenario) throws Exception {
+        final Path outputFile = tempDir.resolve("output.hprof");
+        final SanitizeCommand command = new SanitizeCommand();
+        command.setInputFile(heapDump);
+        command.setOutputFile(outputFile);
+        command.setCheckpointInterval(ofBytes(0));
+        scenario.configurer.accept(command);
+
+        final long start = System.nanoTime();
+        new SanitizeCommandProcessor(command).process();
+        final long elapsed = System.nanoTime() - start;
+
+        assertThat(outputFile).hasSize(Files.size(heapDump));
+        Files.delete(outputFile);
+        return elapsed;
+    }
+
+    private static String format(final double value) {
+        return String.format("%.1f", value);
+    }
+
+    private static class Scenario {
+
+        final String name;
+        final Consumer<SanitizeCommand> configurer;
+
+        Scenario(final String name, final Consumer<SanitizeCommand> configurer) {
+            this.name = name;
+            this.configurer = configurer;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.paypal.heapdumptool.fixture.HeapDumper;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static com.paypal.heapdumptool.sanitizer.DataSize.ofKilobytes;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SanitizerTest {
+
+    private static final int CHUNK_SIZE = 10_000;
+
+    // built at runtime, as literals are also in the dump as symbols
+    private static final byte[] SECRET = new StringBuilder("terces-erutpac-fles").reverse()
+                                                                               .toString()
+                                                                               .getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path heapDump;
+
+    private static byte[] input;
+
+    private static byte[] expectedOutput;
+
+    @BeforeAll
+    public static void beforeAll() throws Exception {
+        heapDump = tempDir.resolve("input.hprof");
+        HeapDumper.dumpHeap(heapDump, true);
+        input = Files.readAllBytes(heapDump);
+
+        final SanitizeCommand command = new SanitizeCommand();
+        command.setInputFile(heapDump);
+        command.setOutputFile(tempDir.resolve("expected.hprof"));
+        new SanitizeCommandProcessor(command).process();
+        expectedOutput = Files.readAllBytes(command.getOutputFile());
+    }
+
+    @Test
+    public void testStreams() throws Exception {
+        final AtomicBoolean isOutputClosed = new AtomicBoolean();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                isOutputClosed.set(true);
+            }
+        };
+        Sanitizer.builder()
+                 .build()
+                 .sanitize(new ByteArrayInputStream(input), output);
+
+        assertThat(output.toByteArray()).isEqualTo(expectedOutput);
+        assertThat(isOutputClosed).isFalse();
+    }
+
+    @Test
+    public void testSanitizeAsync() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Sanitizer.builder()
+                 .build()
+                 .sanitizeAsync(Channels.newChannel(new ByteArrayInputStream(input)), Channels.newChannel(output))
+                 .get();
+
+        assertThat(output.toByteArray()).isEqualTo(expectedOutput);
+    }
+
+    @Test
+    public void testZipFiles() throws Exception {
+        final Path outputFile = tempDir.resolve("testZipFiles.hprof.zip");
+        Sanitizer.builder()
+                 .zipOutput(true)
+                 .build()
+                 .sanitize(heapDump, outputFile);
+
+        try (final ZipInputStream zipInput = new ZipInputStream(Files.newInputStream(outputFile))) {
+            final ZipEntry entry = zipInput.getNextEntry();
+            assertThat(entry.getName()).isEqualTo("testZipFiles.hprof");
+            assertThat(IOUtils.toByteArray(zipInput)).isEqualTo(expectedOutput);
+        }
+    }
+
+    @Test
+    public void testSanitizingChannelsSharingExecutor() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final Sanitizer sanitizer = Sanitizer.builder()
+                                                 .executor(executor)
+                                                 .channelBufferSize(ofKilobytes(64))
+                                                 .build();
+            final List<ByteArrayOutputStream> outputs = new ArrayList<>();
+            final List<SanitizingChannel> channels = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                final ByteArrayOutputStream output = new ByteArrayOutputStream();
+                outputs.add(output);
+                channels.add((SanitizingChannel) sanitizer.newSanitizingChannel(Channels.newChannel(output)));
+            }
+
+            // interleaved, like uploads arriving at once
+            for (int offset = 0; offset < input.length; offset += CHUNK_SIZE) {
+                for (final SanitizingChannel channel : channels) {
+                    channel.write(ByteBuffer.wrap(input, offset, Math.min(CHUNK_SIZE, input.length - offset)));
+                    assertThat(channel.getQueuedBytes()).isLessThanOrEqualTo(ofKilobytes(64).toBytes() + CHUNK_SIZE);
+                }
+            }
+            for (final SanitizingChannel channel : channels) {
+                channel.close();
+                assertThat(channel.isOpen()).isFalse();
+            }
+
+            for (final ByteArrayOutputStream output : outputs) {
+                assertThat(output.toByteArray()).isEqualTo(expectedOutput);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSanitizingChannelFailure() throws Exception {
+        final WritableByteChannel channel = Sanitizer.builder()
+                                                     .channelBufferSize(ofKilobytes(64))
+                                                     .build()
+                                                     .newSanitizingChannel(Channels.newChannel(new ByteArrayOutputStream()));
+
+        assertThatThrownBy(() -> {
+            for (int i = 0; i < 1000; i++) {
+                channel.write(ByteBuffer.wrap(new byte[CHUNK_SIZE]));
+            }
+        }).isInstanceOf(IOException.class)
+          .hasMessage("Sanitizer stopped before the end of the heap dump")
+          .hasCauseInstanceOf(Exception.class);
+        assertThatThrownBy(channel::close)
+                .isInstanceOf(Exception.class);
+    }
+
+    @Test
+    public void testTwoPassSettingsNeedFiles() {
+        final Sanitizer sanitizer = Sanitizer.builder()
+                                             .forceMatchStringCoder(true)
+                                             .build();
+        final InputStream inputStream = new ByteArrayInputStream(input);
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> sanitizer.sanitize(inputStream, new ByteArrayOutputStream()))
+                .withMessage("Stream input cannot be used with forceMatchStringCoder, which needs two passes");
+    }
+
+    @Test
+    public void testSanitizeAsyncFailure() {
+        final CompletableFuture<Void> future = Sanitizer.builder()
+                                                        .build()
+                                                        .sanitizeAsync(Channels.newChannel(new ByteArrayInputStream(new byte[10])),
+                                                                       Channels.newChannel(new ByteArrayOutputStream()));
+        assertThatThrownBy(future::join)
+                .isInstanceOf(CompletionException.class);
+    }
+
+    @Test
+    public void testDumpHeap() throws Exception {
+        final Path outputDir = Files.createDirectory(tempDir.resolve("testDumpHeap"));
+        final Path outputFile = outputDir.resolve("self.hprof.zip");
+        Sanitizer.builder()
+                 .zipOutput(true)
+                 .build()
+                 .dumpHeap(outputFile, true);
+
+        try (final Stream<Path> files = Files.list(outputDir)) {
+            assertThat(files).containsExactly(outputFile);
+        }
+        try (final ZipInputStream zipInput = new ZipInputStream(Files.newInputStream(outputFile))) {
+            assertThat(zipInput.getNextEntry().getName()).isEqualTo("self.hprof");
+            final byte[] output = IOUtils.toByteArray(zipInput);
+            assertThat(new String(output, 0, 18, StandardCharsets.US_ASCII)).isEqualTo("JAVA PROFILE 1.0.2");
+            assertThat(indexOf(output, SECRET)).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    public void testDumpHeapTempDir() throws Exception {
+        final Path dumpTempDir = Files.createDirectory(tempDir.resolve("testDumpHeapTempDir"));
+        final Path outputFile = tempDir.resolve("testDumpHeapTempDir.hprof");
+        Sanitizer.builder()
+                 .tempDir(dumpTempDir)
+                 .build()
+                 .dumpHeap(outputFile, true);
+
+        assertThat(outputFile).isNotEmptyFile();
+        assertThat(dumpTempDir).isEmptyDirectory();
+    }
+
+    private static int indexOf(final byte[] bytes, final byte[] target) {
+        outer:
+        for (int i = 0; i <= bytes.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (bytes[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
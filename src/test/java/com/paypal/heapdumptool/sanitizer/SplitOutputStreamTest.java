@@ -0,0 +1,139 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SplitOutputStreamTest {
+
+    private static final int SPLIT_SIZE = 64 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testSplit() throws Exception {
+        final byte[] bytes = randomBytes(16 * SPLIT_SIZE + 123);
+        final Path outputFile = tempDir.resolve("out.hprof");
+        write(outputFile, bytes);
+
+        final SplitManifest manifest = SplitManifest.read(SplitManifest.manifestFile(outputFile));
+        assertThat(manifest.getFileName()).isEqualTo("out.hprof");
+        assertThat(manifest.getSize()).isEqualTo(bytes.length);
+        assertThat(manifest.getChunks()).hasSize(17);
+        for (int i = 0; i < manifest.getChunks().size(); i++) {
+            final SplitManifest.Chunk chunk = manifest.getChunks().get(i);
+            assertThat(chunk.fileName).isEqualTo(String.format("out.hprof.%05d", i));
+            assertThat(chunk.offset).isEqualTo((long) i * SPLIT_SIZE);
+            assertThat(Files.readAllBytes(tempDir.resolve(chunk.fileName)))
+                    .isEqualTo(Arrays.copyOfRange(bytes, (int) chunk.offset, (int) (chunk.offset + chunk.size)));
+        }
+        assertThat(manifest.getChunks().get(16).size).isEqualTo(123);
+        assertThat(outputFile).doesNotExist();
+
+        assertThat(read(outputFile)).isEqualTo(bytes);
+    }
+
+    @Test
+    public void testExactMultiple() throws Exception {
+        final byte[] bytes = randomBytes(2 * SPLIT_SIZE);
+        final Path outputFile = tempDir.resolve("out.hprof");
+        write(outputFile, bytes);
+
+        assertThat(SplitManifest.read(SplitManifest.manifestFile(outputFile)).getChunks()).hasSize(2);
+        assertThat(read(outputFile)).isEqualTo(bytes);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        final Path outputFile = tempDir.resolve("out.hprof");
+        write(outputFile, new byte[0]);
+
+        final SplitManifest manifest = SplitManifest.read(SplitManifest.manifestFile(outputFile));
+        assertThat(manifest.getChunks()).hasSize(1);
+        assertThat(manifest.getSize()).isZero();
+        assertThat(read(outputFile)).isEmpty();
+    }
+
+    @Test
+    public void testCorruptChunk() throws Exception {
+        final Path outputFile = tempDir.resolve("out.hprof");
+        write(outputFile, randomBytes(3 * SPLIT_SIZE));
+
+        final Path chunkFile = SplitManifest.chunkFile(outputFile, 1);
+        final byte[] chunk = Files.readAllBytes(chunkFile);
+        chunk[100] ^= 1;
+        Files.write(chunkFile, chunk);
+
+        assertThatThrownBy(() -> read(outputFile))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Checksum mismatch of chunk out.hprof.00001");
+
+        Files.write(chunkFile, Arrays.copyOf(chunk, 10));
+        assertThatThrownBy(() -> read(outputFile))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Chunk out.hprof.00001 has 10 bytes instead of 65536");
+    }
+
+    @Test
+    public void testWriterFailure() {
+        final Path outputFile = tempDir.resolve("out.hprof");
+        final Path failingChunk = SplitManifest.chunkFile(outputFile, 2);
+        assertThatThrownBy(() -> {
+            try (final OutputStream output = new SplitOutputStream(outputFile, SPLIT_SIZE, 4096, 2, chunkFile -> {
+                if (chunkFile.equals(failingChunk)) {
+                    throw new IOException("disk full");
+                }
+                return Files.newOutputStream(chunkFile);
+            })) {
+                output.write(randomBytes(64 * SPLIT_SIZE));
+            }
+        }).isInstanceOf(IOException.class).hasMessage("disk full");
+        assertThat(SplitManifest.manifestFile(outputFile)).doesNotExist();
+    }
+
+    @Test
+    public void testCloseWithoutComplete() {
+        final Path outputFile = tempDir.resolve("out.hprof");
+        assertThatThrownBy(() -> {
+            try (final OutputStream output = new SplitOutputStream(outputFile, SPLIT_SIZE, 4096, 2, Files::newOutputStream)) {
+                output.write(randomBytes(3 * SPLIT_SIZE + 123));
+                throw new IOException("corrupt heap dump");
+            }
+        }).isInstanceOf(IOException.class).hasMessage("corrupt heap dump");
+        assertThat(SplitManifest.manifestFile(outputFile)).doesNotExist();
+    }
+
+    private static void write(final Path outputFile, final byte[] bytes) throws IOException {
+        try (final SplitOutputStream output = new SplitOutputStream(outputFile, SPLIT_SIZE, 10_000, 3, Files::newOutputStream)) {
+            // odd sizes, so that writes straddle buffers and chunks
+            for (int offset = 0; offset < bytes.length; offset += 7_777) {
+                output.write(bytes, offset, Math.min(7_777, bytes.length - offset));
+            }
+            output.markComplete();
+        }
+    }
+
+    private static byte[] read(final Path outputFile) throws IOException {
+        try (final InputStream input = new SplitInputStream(SplitManifest.manifestFile(outputFile), Files::newInputStream)) {
+            return IOUtils.toByteArray(input);
+        }
+    }
+
+    private static byte[] randomBytes(final int size) {
+        final byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,202 @@
+package com.paypal.heapdumptool.sanitizer;
+
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+import com.paypal.heapdumptool.fixture.HeapDumper;
+import com.paypal.heapdumptool.fixture.ResourceTool;
+import com.paypal.heapdumptool.hserr.SanitizeHserrCommandProcessorTest;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+public class TarSanitizeCommandProcessorTest {
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path archive;
+
+    private static String expectedHash;
+
+    @BeforeAll
+    public static void beforeAll() throws Exception {
+        final Path heapDump = tempDir.resolve("input.hprof");
+        HeapDumper.dumpHeap(heapDump, true);
+
+        final SanitizeCommand command = new SanitizeCommand();
+        command.setInputFile(heapDump);
+        command.setOutputFile(tempDir.resolve("expected.hprof"));
+        new SanitizeCommandProcessor(command).process();
+        try (final InputStream input = Files.newInputStream(command.getOutputFile())) {
+            expectedHash = contentOf("expected.hprof", input);
+        }
+
+        final Path log = tempDir.resolve("hs_err_pid123.log");
+        Files.write(log, ResourceTool.bytesOf(SanitizeHserrCommandProcessorTest.class, "hs_err_pid123.txt"));
+        final Path notes = tempDir.resolve("notes.txt");
+        Files.write(notes, "LANG=en_US.UTF-8".getBytes(UTF_8));
+
+        archive = tempDir.resolve("crash.tar");
+        try (final TarArchiveOutputStream tarStream = new TarArchiveOutputStream(Files.newOutputStream(archive))) {
+            tarStream.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            putDirectory(tarStream, "crash/");
+            putFile(tarStream, "crash/app-1.hprof", heapDump);
+            putFile(tarStream, "crash/hs_err_pid123.log", log);
+            putFile(tarStream, "crash/notes.txt", notes);
+            putFile(tarStream, "crash/app-2.hprof", heapDump);
+        }
+    }
+
+    @Test
+    public void testTarOutput() throws Exception {
+        final SanitizeCommand command = newCommand(archive, tempDir.resolve("testTarOutput.tar"));
+        new TarSanitizeCommandProcessor(command).process();
+
+        final Map<String, String> entries = new LinkedHashMap<>();
+        try (final TarArchiveInputStream tarStream = new TarArchiveInputStream(Files.newInputStream(command.getOutputFile()))) {
+            for (TarArchiveEntry entry = tarStream.getNextEntry(); entry != null; entry = tarStream.getNextEntry()) {
+                entries.put(entry.getName(), contentOf(entry.getName(), tarStream));
+            }
+        }
+        assertThat(entries).containsOnlyKeys("crash/", "crash/app-1.hprof", "crash/hs_err_pid123.log", "crash/notes.txt", "crash/app-2.hprof");
+        assertSanitized(entries);
+        assertThat(Files.list(command.getTempDir())).isEmpty();
+    }
+
+    @Test
+    public void testZipOutput() throws Exception {
+        final SanitizeCommand command = newCommand(archive, tempDir.resolve("testZipOutput.zip"));
+        command.setZipOutput(true);
+        new TarSanitizeCommandProcessor(command).process();
+
+        final Map<String, String> entries = readZip(Files.newInputStream(command.getOutputFile()));
+        assertThat(entries).containsOnlyKeys("crash/app-1.hprof", "crash/hs_err_pid123.log", "crash/notes.txt", "crash/app-2.hprof");
+        assertSanitized(entries);
+    }
+
+    @Test
+    public void testStdinInput() throws Exception {
+        final SanitizeCommand command = newCommand(Paths.get("stdin"), tempDir.resolve("testStdinInput.zip"));
+        command.setZipOutput(true);
+        final SanitizeStreamFactory streamFactory = new SanitizeStreamFactory(command) {
+
+            @Override
+            protected InputStream newInputStream(final Path inputFile) throws IOException {
+                return Files.newInputStream(archive);
+            }
+        };
+        new TarSanitizeCommandProcessor(command, streamFactory).process();
+
+        assertSanitized(readZip(Files.newInputStream(command.getOutputFile())));
+        assertThat(Files.list(command.getTempDir())).isEmpty();
+    }
+
+    @Test
+    public void testBadEntry() throws Exception {
+        final Path badArchive = tempDir.resolve("bad.tar");
+        try (final TarArchiveOutputStream tarStream = new TarArchiveOutputStream(Files.newOutputStream(badArchive))) {
+            putFile(tarStream, "bad.hprof", tempDir.resolve("notes.txt"));
+        }
+        final SanitizeCommand command = newCommand(badArchive, tempDir.resolve("testBadEntry.tar"));
+        assertThatIllegalStateException()
+                .isThrownBy(() -> new TarSanitizeCommandProcessor(command).process())
+                .withMessage("Cannot sanitize tar entry bad.hprof");
+        assertThat(Files.list(command.getTempDir())).isEmpty();
+    }
+
+    @Test
+    public void testValidation() {
+        final SanitizeCommand command = newCommand(archive, tempDir.resolve("testValidation.tar"));
+        command.setTarInput(false);
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new TarSanitizeCommandProcessor(command))
+                .withMessage("--all-tar-entries requires --tar-input");
+
+        command.setTarInput(true);
+        command.setResume(true);
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new TarSanitizeCommandProcessor(command))
+                .withMessage("--all-tar-entries cannot be used with --resume");
+    }
+
+    private static void assertSanitized(final Map<String, String> entries) {
+        assertThat(entries.get("crash/app-1.hprof")).isEqualTo(expectedHash);
+        assertThat(entries.get("crash/app-2.hprof")).isEqualTo(expectedHash);
+        assertThat(entries.get("crash/hs_err_pid123.log"))
+                .contains("LANG=****")
+                .doesNotContain("LANG=en_US.UTF-8");
+        assertThat(entries.get("crash/notes.txt"))
+                .isEqualTo("LANG=en_US.UTF-8");
+    }
+
+    private static SanitizeCommand newCommand(final Path inputFile, final Path outputFile) {
+        final SanitizeCommand command = new SanitizeCommand();
+        command.setInputFile(inputFile);
+        command.setOutputFile(outputFile);
+        command.setTarInput(true);
+        command.setAllTarEntries(true);
+        command.setMaxConcurrentSanitizations(2);
+        command.setTempDir(tempDir.resolve(outputFile.getFileName() + "-spool"));
+        try {
+            Files.createDirectories(command.getTempDir());
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return command;
+    }
+
+    private static Map<String, String> readZip(final InputStream input) throws IOException {
+        final Map<String, String> entries = new LinkedHashMap<>();
+        try (final ZipInputStream zipStream = new ZipInputStream(input)) {
+            for (ZipEntry entry = zipStream.getNextEntry(); entry != null; entry = zipStream.getNextEntry()) {
+                entries.put(entry.getName(), contentOf(entry.getName(), zipStream));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return sha-256 of a heap dump, as those of the test jvm can be large, or else the text of given entry
+     */
+    private static String contentOf(final String name, final InputStream input) throws IOException {
+        if (!name.endsWith(".hprof")) {
+            return IOUtils.toString(input, UTF_8);
+        }
+        final HashingInputStream hashingInput = new HashingInputStream(Hashing.sha256(), input);
+        ByteStreams.exhaust(hashingInput);
+        return hashingInput.hash().toString();
+    }
+
+    private static void putDirectory(final TarArchiveOutputStream tarStream, final String name) throws IOException {
+        tarStream.putArchiveEntry(new TarArchiveEntry(name));
+        tarStream.closeArchiveEntry();
+    }
+
+    private static void putFile(final TarArchiveOutputStream tarStream, final String name, final Path file) throws IOException {
+        final TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(Files.size(file));
+        tarStream.putArchiveEntry(entry);
+        Files.copy(file, tarStream);
+        tarStream.closeArchiveEntry();
+    }
+}
@@ -0,0 +1,169 @@
+package com.paypal.heapdumptool.serve;
+
+import com.paypal.heapdumptool.fixture.HeapDumper;
+import com.paypal.heapdumptool.sanitizer.SanitizeCommand;
+import com.paypal.heapdumptool.sanitizer.SanitizeCommandProcessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ServeCommandProcessorTest {
+
+    // stdin input cannot exclude fields or force string coders, which need two passes
+    private static final String NO_EXCLUDED_FIELDS = "--exclude-string-fields=";
+    private static final String NO_FORCED_CODER = "--force-string-coder-match=false";
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path heapDump;
+
+    private static byte[] expectedOutput;
+
+    private static ServeCommandProcessor server;
+
+    private static int port;
+
+    private static Path tokenFile;
+
+    @BeforeAll
+    public static void beforeAll() throws Exception {
+        heapDump = tempDir.resolve("input.hprof");
+        HeapDumper.dumpHeap(heapDump, true);
+
+        final SanitizeCommand command = new SanitizeCommand();
+        command.setInputFile(heapDump);
+        command.setOutputFile(tempDir.resolve("expected.hprof"));
+        command.setExcludeStringFields(Collections.emptyList());
+        command.setForceMatchStringCoder(false);
+        new SanitizeCommandProcessor(command).process();
+        expectedOutput = Files.readAllBytes(command.getOutputFile());
+
+        final ServeCommand serveCommand = new ServeCommand();
+        serveCommand.setPort(0);
+        serveCommand.setMaxConcurrentJobs(2);
+        tokenFile = tempDir.resolve("serve.token");
+        serveCommand.setTokenFile(tokenFile);
+        server = new ServeCommandProcessor(serveCommand);
+        port = server.start();
+    }
+
+    @AfterAll
+    public static void afterAll() throws Exception {
+        server.stop();
+        assertThat(tokenFile).doesNotExist();
+    }
+
+    @Test
+    public void testFileJob() throws Exception {
+        final Path outputFile = tempDir.resolve("testFileJob.hprof");
+        submit(null, "sanitize", heapDump.toString(), outputFile.toString(), NO_EXCLUDED_FIELDS, NO_FORCED_CODER);
+
+        assertThat(Files.readAllBytes(outputFile)).isEqualTo(expectedOutput);
+    }
+
+    @Test
+    public void testStreamedJob() throws Exception {
+        final byte[] output = submit(Files.readAllBytes(heapDump), "sanitize", "stdin", "stdout", NO_EXCLUDED_FIELDS, NO_FORCED_CODER);
+
+        assertThat(output).isEqualTo(expectedOutput);
+    }
+
+    @Test
+    public void testStreamedHserrJob() throws Exception {
+        final String hserr = String.join("\n", "Environment Variables:", "PASSWORD=secret", "", "Signal Handlers:", "");
+        final byte[] output = submit(hserr.getBytes(UTF_8), "sanitize-hserr", "stdin", "/dev/stdout");
+
+        assertThat(new String(output, UTF_8))
+                .contains("PASSWORD=****", "Signal Handlers:")
+                .doesNotContain("secret");
+    }
+
+    @Test
+    public void testFailedJob() {
+        assertThatIllegalStateException()
+                .isThrownBy(() -> submit(null, "sanitize", tempDir.resolve("missing.hprof").toString(), "out.hprof"))
+                .withMessageStartingWith("Job failed with status 500")
+                .withMessageContaining("NoSuchFileException");
+    }
+
+    @Test
+    public void testTruncatedStreamedJob() throws Exception {
+        final byte[] input = Files.readAllBytes(heapDump);
+        final byte[] truncatedInput = Arrays.copyOf(input, input.length / 2);
+
+        assertThatThrownBy(() -> submit(truncatedInput, "sanitize", "stdin", "stdout", NO_EXCLUDED_FIELDS, NO_FORCED_CODER))
+                .isInstanceOf(EOFException.class)
+                .hasMessage("Job output ended early, the job failed");
+    }
+
+    @Test
+    public void testInvalidJob() {
+        assertThatIllegalStateException()
+                .isThrownBy(() -> submit(null, "serve"))
+                .withMessage("Job failed with status 400: java.lang.IllegalArgumentException: Cannot submit serve");
+        assertThatIllegalStateException()
+                .isThrownBy(() -> submit(null, "dominators", "stdin", "stdout"))
+                .withMessageContaining("Only sanitize and sanitize-hserr jobs can stream stdin or stdout");
+        assertThatIllegalStateException()
+                .isThrownBy(() -> submit(null, "sanitize", "--no-such-option"))
+                .withMessageStartingWith("Job failed with status 400");
+        assertThatIllegalStateException()
+                .isThrownBy(() -> submit(null, "sanitize", heapDump.toString(), "out.hprof", "--priority=low"))
+                .withMessageContaining("Cannot submit --priority");
+    }
+
+    @Test
+    public void testTokenFile() throws Exception {
+        assertThat(Files.readAllBytes(tokenFile)).hasSize(43);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile)))
+                    .isEqualTo("rw-------");
+        }
+    }
+
+    @Test
+    public void testUnauthorizedJob() throws Exception {
+        final Path wrongTokenFile = tempDir.resolve("wrong.token");
+        Files.write(wrongTokenFile, "wrong".getBytes(UTF_8));
+        final Path outputFile = tempDir.resolve("testUnauthorizedJob.hprof");
+
+        assertThatIllegalStateException()
+                .isThrownBy(() -> submit(wrongTokenFile, null, "sanitize", heapDump.toString(), outputFile.toString()))
+                .withMessageStartingWith("Job failed with status 401: Missing or invalid X-Job-Token");
+        assertThatIllegalStateException()
+                .isThrownBy(() -> submit(tempDir.resolve("missing.token"), null, "sanitize", heapDump.toString(), outputFile.toString()))
+                .withMessageStartingWith("Cannot read token file");
+        assertThat(outputFile).doesNotExist();
+    }
+
+    private static byte[] submit(final byte[] stdin, final String... jobArgs) throws Exception {
+        return submit(tokenFile, stdin, jobArgs);
+    }
+
+    private static byte[] submit(final Path tokenFile, final byte[] stdin, final String... jobArgs) throws Exception {
+        final SubmitCommand command = new SubmitCommand();
+        command.setPort(port);
+        command.setTokenFile(tokenFile);
+        command.setJobArgs(Arrays.asList(jobArgs));
+        final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        new SubmitCommandProcessor(command, new ByteArrayInputStream(stdin == null ? new byte[0] : stdin), stdout).process();
+        return stdout.toByteArray();
+    }
+}
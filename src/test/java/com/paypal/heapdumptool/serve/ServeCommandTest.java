@@ -0,0 +1,20 @@
+package com.paypal.heapdumptool.serve;
+
+import org.junit.jupiter.api.Test;
+import org.meanbean.test.BeanVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ServeCommandTest {
+
+    @Test
+    public void testBean() {
+        BeanVerifier.forClass(ServeCommand.class)
+                    .verifyGettersAndSetters()
+                    .verifyToString();
+
+        assertThat(new ServeCommand().getProcessorClass())
+                .isEqualTo(ServeCommandProcessor.class);
+    }
+
+}
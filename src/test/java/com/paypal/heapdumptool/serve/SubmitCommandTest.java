@@ -0,0 +1,32 @@
+package com.paypal.heapdumptool.serve;
+
+import com.paypal.heapdumptool.Application;
+import org.junit.jupiter.api.Test;
+import org.meanbean.test.BeanVerifier;
+import picocli.CommandLine.ParseResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SubmitCommandTest {
+
+    @Test
+    public void testBean() {
+        BeanVerifier.forClass(SubmitCommand.class)
+                    .verifyGettersAndSetters()
+                    .verifyToString();
+
+        assertThat(new SubmitCommand().getProcessorClass())
+                .isEqualTo(SubmitCommandProcessor.class);
+    }
+
+    @Test
+    public void testJobArgs() {
+        final ParseResult parseResult = Application.newCommandLine()
+                                                   .parseArgs("submit", "--port", "1234", "sanitize", "in.hprof", "out.hprof", "--zip-output");
+        final SubmitCommand command = (SubmitCommand) parseResult.subcommand().commandSpec().userObject();
+
+        assertThat(command.getPort()).isEqualTo(1234);
+        assertThat(command.getJobArgs()).containsExactly("sanitize", "in.hprof", "out.hprof", "--zip-output");
+    }
+
+}
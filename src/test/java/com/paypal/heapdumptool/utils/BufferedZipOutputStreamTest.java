@@ -0,0 +1,52 @@
+package com.paypal.heapdumptool.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BufferedZipOutputStreamTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 7, 64 * 1024})
+    public void testEntries(final int bufferSize) throws IOException {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+        try (final ZipOutputStream zipStream = new BufferedZipOutputStream(zipped, bufferSize)) {
+            zipStream.putNextEntry(new ZipEntry("first"));
+            for (int i = 0; i < 1000; i++) {
+                zipStream.write(i);
+                expected.write(i);
+                final byte[] bytes = ("record " + i).getBytes();
+                zipStream.write(bytes, 0, bytes.length);
+                expected.write(bytes, 0, bytes.length);
+            }
+            final byte[] large = new byte[100_000];
+            zipStream.write(large);
+            expected.write(large);
+            zipStream.flush();
+
+            zipStream.putNextEntry(new ZipEntry("second"));
+            zipStream.write(42);
+        }
+
+        try (final ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(zipped.toByteArray()))) {
+            assertThat(input.getNextEntry().getName())
+                    .isEqualTo("first");
+            assertThat(IOUtils.toByteArray(input))
+                    .isEqualTo(expected.toByteArray());
+            assertThat(input.getNextEntry().getName())
+                    .isEqualTo("second");
+            assertThat(IOUtils.toByteArray(input))
+                    .containsExactly(42);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.paypal.heapdumptool.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CgroupLimitsTest {
+
+    @TempDir
+    Path cgroupRoot;
+
+    @Test
+    public void testV2() throws IOException {
+        write("cgroup.controllers", "cpu io memory");
+        write("kubepods/cpu.max", "max 100000");
+        write("kubepods/memory.max", "4294967296");
+        write("kubepods/app/cpu.max", "150000 100000");
+        write("kubepods/app/memory.max", "max");
+        write("kubepods/app/io.max", "8:0 rbps=10485760 wbps=max riops=max wiops=max\n259:0 rbps=max wbps=5242880 riops=max wiops=max");
+
+        final CgroupLimits limits = CgroupLimits.read(cgroupRoot, Collections.singletonList("0::/kubepods/app"));
+        assertThat(limits.getCpus()).isEqualTo(1.5);
+        assertThat(limits.getMemoryBytes()).isEqualTo(4294967296L);
+        assertThat(limits.getReadBytesPerSecond()).isEqualTo(10485760);
+        assertThat(limits.getWriteBytesPerSecond()).isEqualTo(5242880);
+    }
+
+    @Test
+    public void testV2Namespaced() throws IOException {
+        // own cgroup namespace: the cgroup is the root of the mount
+        write("cgroup.controllers", "cpu io memory");
+        write("cpu.max", "50000 100000");
+
+        final CgroupLimits limits = CgroupLimits.read(cgroupRoot, Collections.singletonList("0::/"));
+        assertThat(limits.getCpus()).isEqualTo(0.5);
+        assertThat(limits.getMemoryBytes()).isEqualTo(-1);
+        assertThat(limits.getReadBytesPerSecond()).isEqualTo(-1);
+    }
+
+    @Test
+    public void testV1() throws IOException {
+        write("cpu,cpuacct/cpu.cfs_quota_us", "200000");
+        write("cpu,cpuacct/cpu.cfs_period_us", "100000");
+        // container without its own cgroup namespace, where /docker/abc is the root of the mount
+        write("memory/memory.limit_in_bytes", "1073741824");
+        write("blkio/blkio.throttle.read_bps_device", "8:0 2097152\n");
+
+        final CgroupLimits limits = CgroupLimits.read(cgroupRoot, Arrays.asList("12:cpu,cpuacct:/",
+                                                                                 "11:memory:/docker/abc",
+                                                                                 "10:blkio:/",
+                                                                                 "1:name=systemd:/",
+                                                                                 "0::/"));
+        assertThat(limits.getCpus()).isEqualTo(2);
+        assertThat(limits.getMemoryBytes()).isEqualTo(1073741824);
+        assertThat(limits.getReadBytesPerSecond()).isEqualTo(2097152);
+        assertThat(limits.getWriteBytesPerSecond()).isEqualTo(-1);
+    }
+
+    @Test
+    public void testV1Unlimited() throws IOException {
+        write("cpu/cpu.cfs_quota_us", "-1");
+        write("cpu/cpu.cfs_period_us", "100000");
+        write("memory/memory.limit_in_bytes", "9223372036854771712");
+
+        final CgroupLimits limits = CgroupLimits.read(cgroupRoot, Arrays.asList("1:cpu:/", "4:memory:/"));
+        assertThat(limits.getCpus()).isZero();
+        assertThat(limits.getMemoryBytes()).isEqualTo(-1);
+    }
+
+    @Test
+    public void testDetect() {
+        assertThat(CgroupLimits.detect())
+                .isNotNull();
+    }
+
+    private void write(final String name, final String content) throws IOException {
+        final Path file = cgroupRoot.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(US_ASCII));
+    }
+}
@@ -2,10 +2,14 @@ package com.paypal.heapdumptool.utils;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 
 import static com.paypal.heapdumptool.utils.DateTimeTool.getFriendlyDuration;
+import static com.paypal.heapdumptool.utils.DateTimeTool.parseDuration;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class DateTimeToolTest {
 
@@ -18,4 +22,20 @@ public class DateTimeToolTest {
                                 display -> assertThat(display).isEqualTo("1m6s"));
     }
 
+    @Test
+    public void testParseDuration() {
+        assertThat(parseDuration("500ms"))
+                .isEqualTo(Duration.ofMillis(500));
+        assertThat(parseDuration("10s"))
+                .isEqualTo(Duration.ofSeconds(10));
+        assertThat(parseDuration("2M"))
+                .isEqualTo(Duration.ofMinutes(2));
+        assertThat(parseDuration("1h"))
+                .isEqualTo(Duration.ofHours(1));
+        assertThat(parseDuration("PT15S"))
+                .isEqualTo(Duration.ofSeconds(15));
+        assertThatThrownBy(() -> parseDuration("10 parsecs"))
+                .isInstanceOf(DateTimeParseException.class);
+    }
+
 }
@@ -0,0 +1,71 @@
+package com.paypal.heapdumptool.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class DirectInputStreamTest {
+
+    private static final int BLOCK_SIZE = 512;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRead() throws IOException {
+        final byte[] bytes = newBytes(10 * BLOCK_SIZE + 100);
+        try (final InputStream input = newInputStream(bytes, 2 * BLOCK_SIZE)) {
+            assertThat(input.read()).isEqualTo(bytes[0] & 0xFF);
+            assertThat(IOUtils.toByteArray(input))
+                    .isEqualTo(Arrays.copyOfRange(bytes, 1, bytes.length));
+            assertThat(input.read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    public void testSkip() throws IOException {
+        final byte[] bytes = newBytes(10 * BLOCK_SIZE + 100);
+        try (final InputStream input = newInputStream(bytes, 2 * BLOCK_SIZE)) {
+            assertThat(input.skip(10)).isEqualTo(10);
+            assertThat(input.read()).isEqualTo(bytes[10] & 0xFF);
+
+            // past the buffer, to an unaligned position
+            assertThat(input.skip(5 * BLOCK_SIZE + 7)).isEqualTo(5 * BLOCK_SIZE + 7);
+            assertThat(input.read()).isEqualTo(bytes[5 * BLOCK_SIZE + 18] & 0xFF);
+
+            assertThat(input.skip(100 * BLOCK_SIZE)).isEqualTo(bytes.length - (5 * BLOCK_SIZE + 19));
+            assertThat(input.read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    public void testUnalignedBuffer() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new DirectInputStream(null, ByteBuffer.allocate(BLOCK_SIZE + 1), BLOCK_SIZE));
+    }
+
+    private InputStream newInputStream(final byte[] bytes, final int bufferSize) throws IOException {
+        final Path file = Files.write(tempDir.resolve("input"), bytes);
+        return new DirectInputStream(FileChannel.open(file, READ), ByteBuffer.allocateDirect(bufferSize), BLOCK_SIZE);
+    }
+
+    static byte[] newBytes(final int length) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + i / 251);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,71 @@
+package com.paypal.heapdumptool.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static com.paypal.heapdumptool.utils.DirectInputStreamTest.newBytes;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DirectOutputStreamTest {
+
+    private static final int BLOCK_SIZE = 512;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testWrite() throws IOException {
+        final Path file = tempDir.resolve("output");
+        final byte[] bytes = newBytes(10 * BLOCK_SIZE + 100);
+        try (final OutputStream output = newOutputStream(file, 0)) {
+            output.write(bytes[0]);
+            output.write(bytes, 1, 3 * BLOCK_SIZE);
+
+            // unaligned tail is written and truncated on flush, and written over later
+            output.flush();
+            assertThat(Files.readAllBytes(file))
+                    .isEqualTo(Arrays.copyOf(bytes, 3 * BLOCK_SIZE + 1));
+
+            output.write(bytes, 3 * BLOCK_SIZE + 1, bytes.length - (3 * BLOCK_SIZE + 1));
+        }
+        assertThat(Files.readAllBytes(file))
+                .isEqualTo(bytes);
+    }
+
+    @Test
+    public void testWriteFromOffset() throws IOException {
+        final Path file = tempDir.resolve("output");
+        final byte[] bytes = newBytes(4 * BLOCK_SIZE);
+        final int offset = BLOCK_SIZE + 10;
+        Files.write(file, Arrays.copyOf(bytes, offset));
+
+        try (final OutputStream output = newOutputStream(file, offset)) {
+            output.write(bytes, offset, bytes.length - offset);
+        }
+        assertThat(Files.readAllBytes(file))
+                .isEqualTo(bytes);
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        final Path file = tempDir.resolve("output");
+        newOutputStream(file, 0).close();
+        assertThat(file).isEmptyFile();
+    }
+
+    private OutputStream newOutputStream(final Path file, final long offset) throws IOException {
+        final FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE);
+        return new DirectOutputStream(channel, ByteBuffer.allocateDirect(2 * BLOCK_SIZE), BLOCK_SIZE, offset);
+    }
+}
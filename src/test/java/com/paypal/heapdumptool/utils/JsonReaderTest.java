@@ -0,0 +1,38 @@
+package com.paypal.heapdumptool.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class JsonReaderTest {
+
+    @Test
+    public void testParse() {
+        final Map<?, ?> map = (Map<?, ?>) JsonReader.parse(
+                "{ \"a\": \"x\\\"y\\u0041\", \"b\": [1, true, null], \"c\": {}, \"d\": [] }");
+
+        assertThat(map.get("a")).isEqualTo("x\"yA");
+        assertThat(map.get("b")).isEqualTo(asList("1", "true", null));
+        assertThat(map.get("c")).isEqualTo(emptyMap());
+        assertThat(map.get("d")).isEqualTo(emptyList());
+    }
+
+    @Test
+    public void testErrors() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> JsonReader.parse("{\"a\": 1"))
+                .withMessage("Expected '}' at offset 7");
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> JsonReader.parse("[1] 2"))
+                .withMessage("Unexpected trailing content at offset 4");
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> JsonReader.parse("\"abc"))
+                .withMessage("Unterminated string at offset 4");
+    }
+}
@@ -0,0 +1,45 @@
+package com.paypal.heapdumptool.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static com.paypal.heapdumptool.utils.LongIntHashMap.MISSING;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void testPutAndGet() {
+        final LongIntHashMap map = new LongIntHashMap(4);
+        for (int i = 0; i < 10_000; i++) {
+            map.put(0x7f0000000000L + i * 16L, i);
+        }
+
+        assertThat(map.size()).isEqualTo(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(map.get(0x7f0000000000L + i * 16L)).isEqualTo(i);
+        }
+        assertThat(map.get(8)).isEqualTo(MISSING);
+    }
+
+    @Test
+    public void testOverwriteAndZeroKey() {
+        final LongIntHashMap map = new LongIntHashMap();
+        assertThat(map.get(0)).isEqualTo(MISSING);
+
+        map.put(0, 1);
+        map.put(0, 2);
+        map.put(-1, 3);
+        map.put(-1, 4);
+
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.get(0)).isEqualTo(2);
+        assertThat(map.get(-1)).isEqualTo(4);
+    }
+
+    @Test
+    public void testNegativeValue() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new LongIntHashMap().put(1, -1));
+    }
+}
@@ -0,0 +1,48 @@
+package com.paypal.heapdumptool.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedArrayTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testLongArrayAcrossChunks() throws Exception {
+        final long lastInFirstChunk = (MappedArray.CHUNK_BYTES >> 3) - 1;
+        try (final MappedLongArray array = new MappedLongArray(tempDir)) {
+            array.set(0, -1);
+            array.set(lastInFirstChunk, Long.MAX_VALUE);
+            array.set(lastInFirstChunk + 1, Long.MIN_VALUE);
+            array.add(lastInFirstChunk + 1, 1);
+
+            assertThat(array.capacity()).isEqualTo(2 * (lastInFirstChunk + 1));
+            assertThat(array.get(0)).isEqualTo(-1);
+            assertThat(array.get(1)).isZero();
+            assertThat(array.get(lastInFirstChunk)).isEqualTo(Long.MAX_VALUE);
+            assertThat(array.get(lastInFirstChunk + 1)).isEqualTo(Long.MIN_VALUE + 1);
+        }
+        assertThat(Files.list(tempDir)).isEmpty();
+    }
+
+    @Test
+    public void testIntArray() throws Exception {
+        try (final MappedIntArray array = new MappedIntArray(tempDir)) {
+            array.fill(0, 10, 7);
+            array.set(10, -7);
+
+            assertThat(array.get(9)).isEqualTo(7);
+            assertThat(array.get(10)).isEqualTo(-7);
+            assertThat(array.get(11)).isZero();
+            assertThatThrownBy(() -> array.get(array.capacity()))
+                    .isInstanceOf(IndexOutOfBoundsException.class);
+        }
+    }
+}
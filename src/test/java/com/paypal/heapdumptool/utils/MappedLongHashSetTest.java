@@ -0,0 +1,44 @@
+package com.paypal.heapdumptool.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class MappedLongHashSetTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testAddAndContains() throws Exception {
+        try (final MappedLongHashSet set = new MappedLongHashSet(tempDir)) {
+            for (int i = 0; i < 100_000; i++) {
+                assertThat(set.add(0x7f0000000000L + i * 16L)).isTrue();
+            }
+            assertThat(set.add(0x7f0000000000L)).isFalse();
+            assertThat(set.add(-1)).isTrue();
+
+            assertThat(set.size()).isEqualTo(100_001);
+            for (int i = 0; i < 100_000; i++) {
+                assertThat(set.contains(0x7f0000000000L + i * 16L)).isTrue();
+            }
+            assertThat(set.contains(-1)).isTrue();
+            assertThat(set.contains(8)).isFalse();
+            assertThat(set.contains(0)).isFalse();
+        }
+        assertThat(Files.list(tempDir)).isEmpty();
+    }
+
+    @Test
+    public void testZero() throws Exception {
+        try (final MappedLongHashSet set = new MappedLongHashSet(tempDir)) {
+            assertThatIllegalArgumentException()
+                    .isThrownBy(() -> set.add(0));
+        }
+    }
+}
@@ -2,9 +2,6 @@ package com.paypal.heapdumptool.utils;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.springframework.boot.test.system.CapturedOutput;
-import org.springframework.boot.test.system.OutputCaptureExtension;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -12,42 +9,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
-import static com.paypal.heapdumptool.sanitizer.DataSize.ofBytes;
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
-@ExtendWith(OutputCaptureExtension.class)
 public class ProgressMonitorTest {
 
-    private static final InternalLogger LOGGER = InternalLogger.getLogger(ProgressMonitorTest.class);
-
-    @Test
-    public void testNumBytesWrittenMonitor(final CapturedOutput output) {
-
-        final ProgressMonitor numBytesWrittenMonitor = ProgressMonitor.numBytesProcessedMonitor(ofBytes(5), LOGGER);
-        numBytesWrittenMonitor.accept(4L);
-
-        assertThat(output)
-                .isEmpty();
-
-        numBytesWrittenMonitor.accept(5L);
-        assertThat(output)
-                .hasLineCount(1)
-                .contains("Processed 5 bytes");
-
-        numBytesWrittenMonitor.accept(6L);
-        assertThat(output)
-                .hasLineCount(1)
-                .contains("Processed 5 bytes");
-
-        numBytesWrittenMonitor.accept(11L);
-        assertThat(output)
-                .hasLineCount(2)
-                .contains("Processed 5 bytes")
-                .contains("Processed 11 bytes");
-    }
-
     @Test
     public void testMonitoredInputStream() throws IOException {
 
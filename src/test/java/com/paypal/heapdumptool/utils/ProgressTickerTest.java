@@ -0,0 +1,109 @@
+package com.paypal.heapdumptool.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(OutputCaptureExtension.class)
+public class ProgressTickerTest {
+
+    private static final InternalLogger LOGGER = InternalLogger.getLogger(ProgressTickerTest.class);
+
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    public void testTick() {
+        final ProgressTicker ticker = new ProgressTicker(100 * MB, LOGGER);
+        assertThat(ticker.tick(0))
+                .isNull();
+
+        ticker.add(10 * MB);
+        assertThat(ticker.tick(SECONDS.toNanos(1)))
+                .isEqualTo("Processed 10 MB of 100 MB (10%), 10.0 MB/s, ETA 9s");
+
+        ticker.add(30 * MB);
+        assertThat(ticker.tick(SECONDS.toNanos(2)))
+                .isEqualTo("Processed 40 MB of 100 MB (40%), 20.0 MB/s, ETA 3s");
+
+        ticker.add(60 * MB);
+        assertThat(ticker.tick(SECONDS.toNanos(3)))
+                .isEqualTo("Processed 100 MB of 100 MB (100%), 33.3 MB/s");
+    }
+
+    @Test
+    public void testMovingAverage() {
+        final ProgressTicker ticker = new ProgressTicker(-1, LOGGER);
+        ticker.tick(0);
+        // fast start
+        ticker.add(1000 * MB);
+        ticker.tick(SECONDS.toNanos(1));
+        // then steady 1MB/s, until the fast start is out of the window
+        String progress = null;
+        for (int second = 2; second <= 8; second++) {
+            ticker.add(MB);
+            progress = ticker.tick(SECONDS.toNanos(second));
+        }
+        assertThat(progress)
+                .isEqualTo("Processed 1007 MB, 1.0 MB/s");
+    }
+
+    @Test
+    public void testResume() {
+        final ProgressTicker ticker = new ProgressTicker(100 * MB, LOGGER);
+        ticker.accept(50 * MB);
+        ticker.tick(0);
+        ticker.add(25 * MB);
+        assertThat(ticker.tick(SECONDS.toNanos(5)))
+                .isEqualTo("Processed 75 MB of 100 MB (75%), 5.0 MB/s, ETA 5s");
+    }
+
+    @Test
+    public void testMonitoredStreams() throws IOException {
+        final ProgressTicker ticker = new ProgressTicker(-1, LOGGER);
+
+        final InputStream input = ticker.monitoredInputStream(new ByteArrayInputStream(new byte[1000]));
+        assertThat(input.read()).isZero();
+        IOUtils.skipFully(input, 99);
+        IOUtils.toByteArray(input);
+        assertThat(ticker.getNumBytesProcessed())
+                .isEqualTo(1000);
+
+        final OutputStream output = ticker.monitoredOutputStream(NullOutputStream.INSTANCE);
+        output.write(1);
+        output.write(new byte[100], 10, 50);
+        assertThat(ticker.getNumBytesProcessed())
+                .isEqualTo(1051);
+    }
+
+    @Test
+    public void testStart(final CapturedOutput output) throws Exception {
+        try (final ProgressTicker ticker = ProgressTicker.start(100, Duration.ofMillis(10), LOGGER)) {
+            ticker.add(50);
+            Thread.sleep(200);
+        }
+        assertThat(output)
+                .contains("Processed 50 bytes of 100 bytes (50%)");
+    }
+
+    @Test
+    public void testStartFromOffset() {
+        try (final ProgressTicker ticker = ProgressTicker.start(100 * MB, 50 * MB, Duration.ofHours(1), LOGGER)) {
+            ticker.add(25 * MB);
+            // the skipped 50MB don't count towards the rate
+            assertThat(ticker.tick(System.nanoTime() + SECONDS.toNanos(5)))
+                    .startsWith("Processed 75 MB of 100 MB (75%), 5.0 MB/s");
+        }
+    }
+}
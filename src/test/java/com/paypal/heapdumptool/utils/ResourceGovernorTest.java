@@ -0,0 +1,56 @@
+package com.paypal.heapdumptool.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResourceGovernorTest {
+
+    private static final long MB = 1024 * 1024;
+    private static final long GB = 1024 * MB;
+
+    @Test
+    public void testNoLimits() {
+        final ResourceGovernor governor = new ResourceGovernor(new CgroupLimits(), 8, 4 * GB);
+        assertThat(governor.getParallelism()).isEqualTo(8);
+        assertThat(governor.getOffHeapBudget()).isEqualTo(Long.MAX_VALUE);
+        assertThat(governor.getMappedBytesBudget()).isEqualTo(Long.MAX_VALUE);
+        assertThat(governor.capReadBufferSize((int) (8 * MB))).isEqualTo(8 * MB);
+    }
+
+    @Test
+    public void testCpuQuota() {
+        assertThat(new ResourceGovernor(new CgroupLimits(1.5, -1, -1, -1), 8, GB).getParallelism())
+                .isEqualTo(1);
+        assertThat(new ResourceGovernor(new CgroupLimits(0.5, -1, -1, -1), 8, GB).getParallelism())
+                .isEqualTo(1);
+        assertThat(new ResourceGovernor(new CgroupLimits(16, -1, -1, -1), 8, GB).getParallelism())
+                .isEqualTo(8);
+    }
+
+    @Test
+    public void testMemoryLimit() {
+        // e.g. -XX:MaxRAMPercentage=50 of 2GB
+        final ResourceGovernor governor = new ResourceGovernor(new CgroupLimits(0, 2 * GB, -1, -1), 2, GB);
+        assertThat(governor.getOffHeapBudget()).isEqualTo(GB - 128 * MB);
+        assertThat(governor.getMappedBytesBudget()).isEqualTo(448 * MB);
+        // an eighth of the heap, shared by read, write, and compress buffers
+        assertThat(governor.capReadBufferSize((int) (100 * MB))).isEqualTo(GB / 8 / 3);
+        assertThat(governor.capWriteBufferSize((int) MB)).isEqualTo(MB);
+    }
+
+    @Test
+    public void testTightMemoryLimit() {
+        final ResourceGovernor governor = new ResourceGovernor(new CgroupLimits(0, 256 * MB, -1, -1), 2, 200 * MB);
+        assertThat(governor.getOffHeapBudget()).isZero();
+        assertThat(governor.capReadBufferSize((int) (8 * MB))).isEqualTo(64 * 1024);
+        assertThat(governor.capReadBufferSize(1024)).isEqualTo(1024);
+    }
+
+    @Test
+    public void testBandwidthLimit() {
+        final ResourceGovernor governor = new ResourceGovernor(new CgroupLimits(0, -1, 10 * MB, 20 * MB), 2, 4 * GB);
+        assertThat(governor.capReadBufferSize((int) (8 * MB))).isEqualTo(MB);
+        assertThat(governor.capWriteBufferSize((int) (8 * MB))).isEqualTo(2 * MB);
+    }
+}
@@ -0,0 +1,74 @@
+package com.paypal.heapdumptool.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class SimpleYamlReaderTest {
+
+    @Test
+    public void testParse() {
+        final String yaml = String.join("\n",
+                "# comment",
+                "arrays:",
+                "  byte: sanitize   # trailing comment",
+                "  int: keep",
+                "minArrayLength: 8",
+                "empty:",
+                "list: [a, 'b, c', \"d#e\"]",
+                "classes:",
+                "- class: com.example.**",
+                "  fields:",
+                "    token*: tokenize",
+                "- class: 'com.example.Other'",
+                "  fields: {}",
+                "items:",
+                "  - one",
+                "  -",
+                "    nested: ~",
+                "");
+
+        final Map<?, ?> map = (Map<?, ?>) SimpleYamlReader.parse(yaml);
+        assertThat(map.get("arrays")).isEqualTo(mapOf("byte", "sanitize", "int", "keep"));
+        assertThat(map.get("minArrayLength")).isEqualTo("8");
+        assertThat(map.containsKey("empty")).isTrue();
+        assertThat(map.get("empty")).isNull();
+        assertThat(map.get("list")).isEqualTo(asList("a", "b, c", "d#e"));
+        assertThat(map.get("classes")).isEqualTo(asList(
+                mapOf("class", "com.example.**", "fields", singletonMap("token*", "tokenize")),
+                mapOf("class", "com.example.Other", "fields", emptyMap())));
+        assertThat(map.get("items")).isEqualTo(asList("one", singletonMap("nested", null)));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertThat(SimpleYamlReader.parse("# nothing\n---\n")).isNull();
+    }
+
+    @Test
+    public void testErrors() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> SimpleYamlReader.parse("a:\n\tb: c"))
+                .withMessage("Tabs cannot be used for indentation at line 2");
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> SimpleYamlReader.parse("a: b\n  c: d"))
+                .withMessage("Unexpected indentation at line 2");
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> SimpleYamlReader.parse("a: &anchor b"))
+                .withMessage("Unsupported YAML: &anchor b at line 1");
+    }
+
+    private static Map<String, Object> mapOf(final String key1, final Object value1, final String key2, final Object value2) {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put(key1, value1);
+        map.put(key2, value2);
+        return map;
+    }
+}
@@ -0,0 +1,90 @@
+package com.paypal.heapdumptool.utils;
+
+import com.paypal.heapdumptool.utils.Throttle.IowaitSampler;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class ThrottleTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong cpu = new AtomicLong();
+    private double iowait = Double.NaN;
+
+    @Test
+    public void testNoLimits() {
+        assertThat(Throttle.create(0, 0))
+                .isNull();
+    }
+
+    @Test
+    public void testIoRate() throws IOException {
+        final Throttle throttle = newThrottle(10 * MB, 0);
+
+        // read and write share the rate
+        IOUtils.toByteArray(throttle.throttledInputStream(new ByteArrayInputStream(new byte[(int) (20 * MB)])));
+        final OutputStream output = throttle.throttledOutputStream(NullOutputStream.INSTANCE);
+        output.write(new byte[(int) (10 * MB)]);
+
+        assertThat(clock.get())
+                .isCloseTo(SECONDS.toNanos(3), within(MILLISECONDS.toNanos(200)));
+    }
+
+    @Test
+    public void testCpu() {
+        final Throttle throttle = newThrottle(0, 0.5);
+        for (int i = 0; i < 100; i++) {
+            // fully CPU bound, 10ms per MB
+            clock.addAndGet(MILLISECONDS.toNanos(10));
+            cpu.addAndGet(MILLISECONDS.toNanos(10));
+            throttle.acquire(MB);
+        }
+        // 1s of CPU at half a core
+        assertThat(clock.get())
+                .isCloseTo(SECONDS.toNanos(2), within(MILLISECONDS.toNanos(150)));
+    }
+
+    @Test
+    public void testIowaitBackoff() {
+        final Throttle throttle = newThrottle(16 * MB, 0);
+
+        iowait = 0.5;
+        for (int i = 0; i < 100; i++) {
+            throttle.acquire(MB);
+        }
+        assertThat(throttle.getBytesPerSecond())
+                .isEqualTo(MB);
+
+        iowait = 0.01;
+        for (int i = 0; i < 200; i++) {
+            throttle.acquire(MB);
+        }
+        assertThat(throttle.getBytesPerSecond())
+                .isEqualTo(16 * MB);
+    }
+
+    @Test
+    public void testIowaitSampler() {
+        final IowaitSampler sampler = new IowaitSampler();
+        assertThat(sampler.sample("cpu  100 0 100 700 100 0 0 0 0 0"))
+                .isNaN();
+        assertThat(sampler.sample("cpu  150 0 150 750 150 0 0 0 0 0"))
+                .isEqualTo(0.25);
+    }
+
+    private Throttle newThrottle(final long maxBytesPerSecond, final double maxCpu) {
+        return new Throttle(maxBytesPerSecond, maxCpu, clock::get, cpu::get, () -> iowait, clock::addAndGet);
+    }
+}
@@ -0,0 +1,39 @@
+package com.paypal.heapdumptool.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class XxHash64Test {
+
+    @Test
+    public void testKnownValues() {
+        assertThat(XxHash64.hash(new byte[0], 0)).isEqualTo(0xEF46DB3751D8E999L);
+        assertThat(XxHash64.hash("abc".getBytes(UTF_8), 0)).isEqualTo(0x44BC2CF5AD770999L);
+    }
+
+    @Test
+    public void testStreamingMatchesOneShot() {
+        final Random random = new Random(42);
+        final XxHash64 streaming = new XxHash64();
+        for (int length = 0; length < 200; length++) {
+            final byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+
+            streaming.reset(length);
+            int offset = 0;
+            while (offset < length) {
+                final int chunk = Math.min(length - offset, 1 + random.nextInt(40));
+                streaming.update(bytes, offset, chunk);
+                offset += chunk;
+            }
+
+            assertThat(streaming.digest())
+                    .as("length=%s", length)
+                    .isEqualTo(XxHash64.hash(bytes, length));
+        }
+    }
+}